@@ -62,7 +62,7 @@ public class AlarmActivity extends Activity {
     private Runnable uiUpdateRunnable;
     
     // Power management
-    private PowerManager.WakeLock wakeLock;
+    private PowerAccountant.TrackedWakeLock wakeLock;
     private KeyguardManager.KeyguardLock keyguardLock;
 
     @Override
@@ -443,8 +443,7 @@ public class AlarmActivity extends Activity {
     }
 
     private void acquireWakeLock() {
-        PowerManager powerManager = (PowerManager) getSystemService(POWER_SERVICE);
-        wakeLock = powerManager.newWakeLock(
+        wakeLock = PowerAccountant.getInstance().newWakeLock(this,
             PowerManager.SCREEN_BRIGHT_WAKE_LOCK | PowerManager.ACQUIRE_CAUSES_WAKEUP,
             "AntiTheft:AlarmWakeLock"
         );
@@ -452,7 +451,7 @@ public class AlarmActivity extends Activity {
     }
 
     private void releaseWakeLock() {
-        if (wakeLock != null && wakeLock.isHeld()) {
+        if (wakeLock != null) {
             wakeLock.release();
         }
     }
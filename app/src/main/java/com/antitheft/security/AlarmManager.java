@@ -71,6 +71,9 @@ public class AlarmManager {
         Log.e(TAG, "STARTING SECURITY ALARM!");
         isAlarmActive = true;
         
+        // Pick up settings saved since this manager was created - plain field copies
+        loadSettings();
+        
         // Start sound alarm
         if (isSoundEnabled) {
             startSoundAlarm();
@@ -363,11 +366,12 @@ public class AlarmManager {
     }
     
     public void loadSettings() {
-        isSoundEnabled = preferences.getBoolean("sound_enabled", true);
-        isVibrationEnabled = preferences.getBoolean("vibration_enabled", true);
-        alarmVolume = preferences.getInt("alarm_volume", 100);
-        selectedAlarmSound = preferences.getString("alarm_sound", "siren");
-        alarmDuration = preferences.getInt("alarm_duration", 60);
+        ConfigSnapshot config = ConfigManager.get(context);
+        isSoundEnabled = config.alarmSoundEnabled;
+        isVibrationEnabled = config.alarmVibrationEnabled;
+        alarmVolume = config.alarmVolume;
+        selectedAlarmSound = config.alarmSound;
+        alarmDuration = config.alarmDurationSeconds;
         
         Log.d(TAG, "Alarm settings loaded");
     }
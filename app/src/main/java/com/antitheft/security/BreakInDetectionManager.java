@@ -11,6 +11,8 @@ import android.app.KeyguardManager;
 import android.os.Handler;
 import android.util.Log;
 
+import java.io.File;
+import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
@@ -21,6 +23,11 @@ public class BreakInDetectionManager {
     private static final String TAG = "AntiTheft_BreakIn";
     private static final String PREFS_NAME = "BreakInDetectionPrefs";
     private static final int MAX_FAILED_ATTEMPTS_BEFORE_ACTION = 3;
+    private static final String ATTEMPT_LOG_FILE = "unlock_attempts.bin";
+    private static final int MAX_STORED_ATTEMPTS = 50;
+    private static final String LEGACY_ATTEMPTS_KEY = "unlock_attempts";
+    // One per process - the ring's header is mirrored in memory, so instances must not share the file
+    private static UnlockAttemptLog attemptLog;
     
     private Context context;
     private SharedPreferences preferences;
@@ -47,6 +54,37 @@ public class BreakInDetectionManager {
         this.screenStateReceiver = new ScreenStateReceiver();
     }
     
+    private UnlockAttemptLog getAttemptLog() {
+        synchronized (BreakInDetectionManager.class) {
+            if (attemptLog == null) {
+                File file = new File(context.getFilesDir(), ATTEMPT_LOG_FILE);
+                attemptLog = new UnlockAttemptLog(file, MAX_STORED_ATTEMPTS);
+                migrateLegacyAttempts(attemptLog);
+            }
+            return attemptLog;
+        }
+    }
+    
+    // One-time copy of the comma-joined "timestamp:count" preference into the ring log
+    private void migrateLegacyAttempts(UnlockAttemptLog log) {
+        String legacy = preferences.getString(LEGACY_ATTEMPTS_KEY, null);
+        if (legacy == null) return;
+        
+        List<long[]> records = UnlockAttemptLog.parseLegacy(legacy);
+        try {
+            for (long[] record : records) {
+                log.append(record[0], (int) record[1]);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error migrating unlock attempts", e);
+            log.clear(); // retried from the preference next time
+            return;
+        }
+        
+        preferences.edit().remove(LEGACY_ATTEMPTS_KEY).apply();
+        Log.i(TAG, "Migrated " + records.size() + " unlock attempts to ring log");
+    }
+    
     public void startMonitoring(BreakInDetectionCallback callback) {
         if (isMonitoring) return;
         
@@ -147,14 +185,14 @@ public class BreakInDetectionManager {
         consecutiveFailedAttempts++;
         long timestamp = System.currentTimeMillis();
         
-        // Store unlock attempt
-        String attemptsKey = "unlock_attempts";
-        String currentAttempts = preferences.getString(attemptsKey, "");
-        String newAttempt = timestamp + ":" + consecutiveFailedAttempts;
-        String updatedAttempts = currentAttempts.isEmpty() ? newAttempt : currentAttempts + "," + newAttempt;
+        // Store unlock attempt; the ring keeps the last MAX_STORED_ATTEMPTS
+        try {
+            getAttemptLog().append(timestamp, consecutiveFailedAttempts);
+        } catch (IOException e) {
+            Log.e(TAG, "Error storing unlock attempt", e);
+        }
         
         preferences.edit()
-            .putString(attemptsKey, updatedAttempts)
             .putInt("total_unlock_attempts", getTotalUnlockAttempts() + 1)
             .putLong("last_unlock_attempt", timestamp)
             .apply();
@@ -170,9 +208,6 @@ public class BreakInDetectionManager {
                 callback.onSuspiciousActivity(description, consecutiveFailedAttempts);
             }
         }
-        
-        // Clean up old attempts (keep only last 50)
-        cleanupOldAttempts();
     }
     
     private void recordSuccessfulBreakIn() {
@@ -198,24 +233,6 @@ public class BreakInDetectionManager {
         }
     }
     
-    private void cleanupOldAttempts() {
-        String attemptsKey = "unlock_attempts";
-        String attempts = preferences.getString(attemptsKey, "");
-        
-        if (!attempts.isEmpty()) {
-            String[] attemptArray = attempts.split(",");
-            if (attemptArray.length > 50) {
-                // Keep only the last 50 attempts
-                StringBuilder sb = new StringBuilder();
-                for (int i = attemptArray.length - 50; i < attemptArray.length; i++) {
-                    if (sb.length() > 0) sb.append(",");
-                    sb.append(attemptArray[i]);
-                }
-                preferences.edit().putString(attemptsKey, sb.toString()).apply();
-            }
-        }
-    }
-    
     private boolean isDeviceLocked() {
         return keyguardManager.isKeyguardLocked();
     }
@@ -241,28 +258,15 @@ public class BreakInDetectionManager {
         return consecutiveFailedAttempts;
     }
     
+    // Oldest first, at most count (up to the last 50 are stored)
     public List<UnlockAttempt> getRecentUnlockAttempts(int count) {
         List<UnlockAttempt> attempts = new ArrayList<>();
-        String attemptsStr = preferences.getString("unlock_attempts", "");
-        
-        if (!attemptsStr.isEmpty()) {
-            String[] attemptArray = attemptsStr.split(",");
-            int startIndex = Math.max(0, attemptArray.length - count);
-            
-            for (int i = startIndex; i < attemptArray.length; i++) {
-                String[] parts = attemptArray[i].split(":");
-                if (parts.length == 2) {
-                    try {
-                        long timestamp = Long.parseLong(parts[0]);
-                        int attemptNumber = Integer.parseInt(parts[1]);
-                        attempts.add(new UnlockAttempt(timestamp, attemptNumber));
-                    } catch (NumberFormatException e) {
-                        Log.e(TAG, "Error parsing unlock attempt data", e);
-                    }
-                }
-            }
+        try {
+            getAttemptLog().readLast(count, (timestamp, attemptNumber) ->
+                attempts.add(new UnlockAttempt(timestamp, attemptNumber)));
+        } catch (IOException e) {
+            Log.e(TAG, "Error reading unlock attempts", e);
         }
-        
         return attempts;
     }
     
@@ -295,8 +299,9 @@ public class BreakInDetectionManager {
     
     // Clear all break-in data
     public void clearBreakInData() {
+        getAttemptLog().clear();
         preferences.edit()
-            .remove("unlock_attempts")
+            .remove(LEGACY_ATTEMPTS_KEY)
             .remove("total_unlock_attempts")
             .remove("total_successful_breakins")
             .remove("last_unlock_attempt")
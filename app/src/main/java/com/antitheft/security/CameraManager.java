@@ -8,22 +8,17 @@ import android.content.pm.PackageManager;
 import android.graphics.ImageFormat;
 import android.hardware.camera2.CameraAccessException;
 import android.hardware.camera2.CameraCaptureSession;
-import android.hardware.camera2.CameraCharacteristics;
 import android.hardware.camera2.CameraDevice;
 import android.hardware.camera2.CaptureRequest;
-import android.hardware.camera2.ImageReader;
 import android.media.Image;
+import android.media.ImageReader;
 import android.os.Handler;
-import android.os.HandlerThread;
 import android.util.Log;
 import android.util.Size;
 import androidx.annotation.NonNull;
 import androidx.core.app.ActivityCompat;
 
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.nio.ByteBuffer;
 import java.text.SimpleDateFormat;
 import java.util.Arrays;
 import java.util.Date;
@@ -36,8 +31,9 @@ public class CameraManager {
     private android.hardware.camera2.CameraManager cameraManager;
     private CameraDevice frontCamera, backCamera;
     private ImageReader frontImageReader, backImageReader;
-    private HandlerThread backgroundThread;
-    private Handler backgroundHandler;
+    private EvidenceImageWriter.ImageQueue frontImageQueue, backImageQueue;
+    private CameraRegistry cameraRegistry;
+    private Handler backgroundHandler; // shared camera thread
     
     private boolean isCapturing = false;
     private CameraCaptureCallback captureCallback;
@@ -50,14 +46,9 @@ public class CameraManager {
     
     public CameraManager(Context context) {
         this.context = context;
-        this.cameraManager = (android.hardware.camera2.CameraManager) context.getSystemService(Context.CAMERA_SERVICE);
-        startBackgroundThread();
-    }
-    
-    private void startBackgroundThread() {
-        backgroundThread = new HandlerThread("CameraBackground");
-        backgroundThread.start();
-        backgroundHandler = new Handler(backgroundThread.getLooper());
+        this.cameraRegistry = CameraRegistry.getInstance(context);
+        this.cameraManager = cameraRegistry.getCameraManager();
+        this.backgroundHandler = cameraRegistry.getCameraHandler();
     }
     
     public boolean hasPermissions() {
@@ -89,7 +80,7 @@ public class CameraManager {
     
     private void captureFrontPhoto() {
         try {
-            String frontCameraId = getFrontCameraId();
+            String frontCameraId = cameraRegistry.getFrontCameraId();
             if (frontCameraId == null) {
                 Log.w(TAG, "No front camera found");
                 onFrontCaptureComplete(null);
@@ -99,7 +90,7 @@ public class CameraManager {
             // Setup image reader for front camera
             Size frontSize = getBestCaptureSize(frontCameraId);
             frontImageReader = ImageReader.newInstance(frontSize.getWidth(), frontSize.getHeight(), ImageFormat.JPEG, 1);
-            frontImageReader.setOnImageAvailableListener(new FrontCameraImageListener(), backgroundHandler);
+            frontImageQueue = EvidenceImageWriter.getInstance().attach(frontImageReader, backgroundHandler, new FrontCameraImageListener());
             
             // Open front camera
             if (ActivityCompat.checkSelfPermission(context, Manifest.permission.CAMERA) == PackageManager.PERMISSION_GRANTED) {
@@ -113,7 +104,7 @@ public class CameraManager {
     
     private void captureBackPhoto() {
         try {
-            String backCameraId = getBackCameraId();
+            String backCameraId = cameraRegistry.getBackCameraId();
             if (backCameraId == null) {
                 Log.w(TAG, "No back camera found");
                 onBackCaptureComplete(null);
@@ -123,7 +114,7 @@ public class CameraManager {
             // Setup image reader for back camera
             Size backSize = getBestCaptureSize(backCameraId);
             backImageReader = ImageReader.newInstance(backSize.getWidth(), backSize.getHeight(), ImageFormat.JPEG, 1);
-            backImageReader.setOnImageAvailableListener(new BackCameraImageListener(), backgroundHandler);
+            backImageQueue = EvidenceImageWriter.getInstance().attach(backImageReader, backgroundHandler, new BackCameraImageListener());
             
             // Open back camera
             if (ActivityCompat.checkSelfPermission(context, Manifest.permission.CAMERA) == PackageManager.PERMISSION_GRANTED) {
@@ -210,27 +201,28 @@ public class CameraManager {
         }
     }
     
-    private class FrontCameraImageListener implements ImageReader.OnImageAvailableListener {
+    // JPEGs are written on the shared I/O pool; completion comes back on the camera thread
+    private class FrontCameraImageListener implements EvidenceImageWriter.Listener {
         @Override
-        public void onImageAvailable(ImageReader reader) {
-            Image image = reader.acquireLatestImage();
-            if (image != null) {
-                String photoPath = saveImageToFile(image, "front");
-                image.close();
-                onFrontCaptureComplete(photoPath);
-            }
+        public File onImageAcquired(Image image) {
+            return createPhotoFile("front");
+        }
+        
+        @Override
+        public void onImageWritten(File file, boolean success) {
+            onFrontCaptureComplete(success ? file.getAbsolutePath() : null);
         }
     }
     
-    private class BackCameraImageListener implements ImageReader.OnImageAvailableListener {
+    private class BackCameraImageListener implements EvidenceImageWriter.Listener {
         @Override
-        public void onImageAvailable(ImageReader reader) {
-            Image image = reader.acquireLatestImage();
-            if (image != null) {
-                String photoPath = saveImageToFile(image, "back");
-                image.close();
-                onBackCaptureComplete(photoPath);
-            }
+        public File onImageAcquired(Image image) {
+            return createPhotoFile("back");
+        }
+        
+        @Override
+        public void onImageWritten(File file, boolean success) {
+            onBackCaptureComplete(success ? file.getAbsolutePath() : null);
         }
     }
     
@@ -297,35 +289,16 @@ public class CameraManager {
         backComplete = false;
     }
     
-    private String saveImageToFile(Image image, String cameraType) {
-        try {
-            // Create security photos directory
-            File photosDir = new File(context.getExternalFilesDir(null), "security_photos");
-            if (!photosDir.exists()) {
-                photosDir.mkdirs();
-            }
-            
-            // Create filename with timestamp
-            String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault()).format(new Date());
-            File photoFile = new File(photosDir, String.format("security_%s_%s.jpg", cameraType, timestamp));
-            
-            // Convert image to byte array
-            ByteBuffer buffer = image.getPlanes()[0].getBuffer();
-            byte[] bytes = new byte[buffer.remaining()];
-            buffer.get(bytes);
-            
-            // Save to file
-            FileOutputStream output = new FileOutputStream(photoFile);
-            output.write(bytes);
-            output.close();
-            
-            Log.d(TAG, "Saved " + cameraType + " photo: " + photoFile.getAbsolutePath());
-            return photoFile.getAbsolutePath();
-            
-        } catch (IOException e) {
-            Log.e(TAG, "Error saving " + cameraType + " photo", e);
-            return null;
+    private File createPhotoFile(String cameraType) {
+        // Create security photos directory
+        File photosDir = new File(context.getExternalFilesDir(null), "security_photos");
+        if (!photosDir.exists()) {
+            photosDir.mkdirs();
         }
+        
+        // Create filename with timestamp
+        String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault()).format(new Date());
+        return new File(photosDir, String.format("security_%s_%s.jpg", cameraType, timestamp));
     }
     
     private void closeFrontCamera() {
@@ -333,8 +306,10 @@ public class CameraManager {
             frontCamera.close();
             frontCamera = null;
         }
-        if (frontImageReader != null) {
-            frontImageReader.close();
+        if (frontImageQueue != null) {
+            // Closes the reader once the pending write has finished
+            frontImageQueue.close();
+            frontImageQueue = null;
             frontImageReader = null;
         }
     }
@@ -344,62 +319,30 @@ public class CameraManager {
             backCamera.close();
             backCamera = null;
         }
-        if (backImageReader != null) {
-            backImageReader.close();
+        if (backImageQueue != null) {
+            backImageQueue.close();
+            backImageQueue = null;
             backImageReader = null;
         }
     }
     
-    private String getFrontCameraId() {
-        try {
-            for (String cameraId : cameraManager.getCameraIdList()) {
-                CameraCharacteristics characteristics = cameraManager.getCameraCharacteristics(cameraId);
-                Integer facing = characteristics.get(CameraCharacteristics.LENS_FACING);
-                if (facing != null && facing == CameraCharacteristics.LENS_FACING_FRONT) {
-                    return cameraId;
-                }
-            }
-        } catch (CameraAccessException e) {
-            Log.e(TAG, "Error getting front camera ID", e);
-        }
-        return null;
-    }
-    
-    private String getBackCameraId() {
-        try {
-            for (String cameraId : cameraManager.getCameraIdList()) {
-                CameraCharacteristics characteristics = cameraManager.getCameraCharacteristics(cameraId);
-                Integer facing = characteristics.get(CameraCharacteristics.LENS_FACING);
-                if (facing != null && facing == CameraCharacteristics.LENS_FACING_BACK) {
-                    return cameraId;
-                }
-            }
-        } catch (CameraAccessException e) {
-            Log.e(TAG, "Error getting back camera ID", e);
-        }
-        return null;
-    }
-    
     private Size getBestCaptureSize(String cameraId) {
-        try {
-            CameraCharacteristics characteristics = cameraManager.getCameraCharacteristics(cameraId);
-            Size[] sizes = characteristics.get(CameraCharacteristics.SCALER_STREAM_CONFIGURATION_MAP)
-                    .getOutputSizes(ImageFormat.JPEG);
-            
-            // Find a good balance between quality and file size (prefer 1920x1080 or similar)
-            for (Size size : sizes) {
-                if (size.getWidth() <= 1920 && size.getHeight() <= 1080 && 
-                    size.getWidth() >= 1280 && size.getHeight() >= 720) {
-                    return size;
-                }
-            }
-            
-            // Fallback to largest available
-            return sizes[0];
-        } catch (CameraAccessException e) {
-            Log.e(TAG, "Error getting capture size", e);
+        Size[] sizes = cameraRegistry.getJpegSizes(cameraId);
+        if (sizes.length == 0) {
+            Log.e(TAG, "No JPEG sizes for camera " + cameraId);
             return new Size(640, 480); // Fallback size
         }
+        
+        // Find a good balance between quality and file size (prefer 1920x1080 or similar)
+        for (Size size : sizes) {
+            if (size.getWidth() <= 1920 && size.getHeight() <= 1080 && 
+                size.getWidth() >= 1280 && size.getHeight() >= 720) {
+                return size;
+            }
+        }
+        
+        // Fallback to largest available
+        return sizes[0];
     }
     
     // Quick single photo capture for immediate use
@@ -410,7 +353,7 @@ public class CameraManager {
         }
         
         try {
-            String cameraId = cameraType.equals("front") ? getFrontCameraId() : getBackCameraId();
+            String cameraId = cameraType.equals("front") ? cameraRegistry.getFrontCameraId() : cameraRegistry.getBackCameraId();
             if (cameraId == null) {
                 callback.onError("Camera not available");
                 return;
@@ -419,18 +362,24 @@ public class CameraManager {
             Size size = getBestCaptureSize(cameraId);
             ImageReader imageReader = ImageReader.newInstance(size.getWidth(), size.getHeight(), ImageFormat.JPEG, 1);
             
-            imageReader.setOnImageAvailableListener(reader -> {
-                Image image = reader.acquireLatestImage();
-                if (image != null) {
-                    String photoPath = saveImageToFile(image, cameraType + "_quick");
-                    image.close();
-                    reader.close();
-                    callback.onPhotoCapture(photoPath);
-                } else {
-                    reader.close();
-                    callback.onError("Failed to capture image");
-                }
-            }, backgroundHandler);
+            final EvidenceImageWriter.ImageQueue[] imageQueue = new EvidenceImageWriter.ImageQueue[1];
+            imageQueue[0] = EvidenceImageWriter.getInstance().attach(imageReader, backgroundHandler,
+                new EvidenceImageWriter.Listener() {
+                    @Override
+                    public File onImageAcquired(Image image) {
+                        return createPhotoFile(cameraType + "_quick");
+                    }
+                    
+                    @Override
+                    public void onImageWritten(File file, boolean success) {
+                        imageQueue[0].close();
+                        if (success) {
+                            callback.onPhotoCapture(file.getAbsolutePath());
+                        } else {
+                            callback.onError("Failed to capture image");
+                        }
+                    }
+                });
             
             if (ActivityCompat.checkSelfPermission(context, Manifest.permission.CAMERA) == PackageManager.PERMISSION_GRANTED) {
                 cameraManager.openCamera(cameraId, new CameraDevice.StateCallback() {
@@ -492,19 +441,11 @@ public class CameraManager {
     
     public void cleanup() {
         isCapturing = false;
-        closeFrontCamera();
-        closeBackCamera();
-        
-        if (backgroundThread != null) {
-            backgroundThread.quitSafely();
-            try {
-                backgroundThread.join();
-                backgroundThread = null;
-                backgroundHandler = null;
-            } catch (InterruptedException e) {
-                Log.e(TAG, "Error stopping background thread", e);
-            }
-        }
+        // The camera thread is shared and stays up; close on it so pending writes finish first
+        backgroundHandler.post(() -> {
+            closeFrontCamera();
+            closeBackCamera();
+        });
     }
     
     public boolean isCapturing() {
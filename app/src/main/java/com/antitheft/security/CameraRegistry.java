@@ -0,0 +1,183 @@
+// File: app/src/main/java/com/antitheft/security/CameraRegistry.java
+
+package com.antitheft.security;
+
+import android.content.Context;
+import android.graphics.ImageFormat;
+import android.hardware.camera2.CameraAccessException;
+import android.hardware.camera2.CameraCharacteristics;
+import android.hardware.camera2.params.StreamConfigurationMap;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+import android.util.Size;
+import androidx.annotation.NonNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Process-wide camera lookup and the one thread all camera work runs on.
+ *
+ * Characteristics are queried once per camera ID and the values the capture
+ * managers need (facing, JPEG and recorder output sizes, capabilities, timestamp
+ * source) are cached. The cache is only rebuilt when the CameraManager
+ * AvailabilityCallback reports a camera ID it has not seen, e.g. an external
+ * camera being attached. Opening and closing our own cameras also fires that
+ * callback, but for known IDs, so it does not cause a refresh.
+ *
+ * CameraManager, MultiplePhotoCaptureManager and VideoCaptureManager post to the
+ * shared handler instead of each starting a HandlerThread. The thread lives as
+ * long as the process; managers never quit it.
+ */
+public class CameraRegistry {
+    private static final String TAG = "AntiTheft_CameraRegistry";
+
+    private static volatile CameraRegistry instance;
+
+    private final android.hardware.camera2.CameraManager cameraManager;
+    private final HandlerThread cameraThread;
+    private final Handler cameraHandler;
+
+    // Guarded by this
+    private Map<String, CameraInfo> cameras;
+    private int refreshCount = 0;
+
+    // Cached per camera ID
+    public static class CameraInfo {
+        public final String id;
+        public final int facing;
+        public final Size[] jpegSizes;
+        public final Size[] recorderSizes;
+        public final int[] capabilities;
+        public final boolean realtimeTimestamps; // sensor timestamps share the elapsedRealtime clock
+
+        CameraInfo(String id, CameraCharacteristics characteristics) {
+            this.id = id;
+
+            Integer lensFacing = characteristics.get(CameraCharacteristics.LENS_FACING);
+            facing = lensFacing != null ? lensFacing : -1;
+
+            StreamConfigurationMap map = characteristics.get(CameraCharacteristics.SCALER_STREAM_CONFIGURATION_MAP);
+            Size[] jpeg = map != null ? map.getOutputSizes(ImageFormat.JPEG) : null;
+            Size[] recorder = map != null ? map.getOutputSizes(android.media.MediaRecorder.class) : null;
+            jpegSizes = jpeg != null ? jpeg : new Size[0];
+            recorderSizes = recorder != null ? recorder : new Size[0];
+
+            int[] caps = characteristics.get(CameraCharacteristics.REQUEST_AVAILABLE_CAPABILITIES);
+            capabilities = caps != null ? caps : new int[0];
+
+            Integer timestampSource = characteristics.get(CameraCharacteristics.SENSOR_INFO_TIMESTAMP_SOURCE);
+            realtimeTimestamps = timestampSource != null
+                && timestampSource == CameraCharacteristics.SENSOR_INFO_TIMESTAMP_SOURCE_REALTIME;
+        }
+
+        public boolean hasCapability(int capability) {
+            for (int cap : capabilities) {
+                if (cap == capability) return true;
+            }
+            return false;
+        }
+    }
+
+    public static CameraRegistry getInstance(Context context) {
+        CameraRegistry result = instance;
+        if (result == null) {
+            synchronized (CameraRegistry.class) {
+                result = instance;
+                if (result == null) {
+                    result = new CameraRegistry(context.getApplicationContext());
+                    instance = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private CameraRegistry(Context context) {
+        cameraManager = (android.hardware.camera2.CameraManager) context.getSystemService(Context.CAMERA_SERVICE);
+
+        cameraThread = new HandlerThread("AntiTheft-Camera");
+        cameraThread.start();
+        cameraHandler = new Handler(cameraThread.getLooper());
+
+        cameraManager.registerAvailabilityCallback(availabilityCallback, cameraHandler);
+    }
+
+    private final android.hardware.camera2.CameraManager.AvailabilityCallback availabilityCallback =
+        new android.hardware.camera2.CameraManager.AvailabilityCallback() {
+            @Override
+            public void onCameraAvailable(@NonNull String cameraId) {
+                synchronized (CameraRegistry.this) {
+                    if (cameras != null && !cameras.containsKey(cameraId)) {
+                        Log.i(TAG, "New camera " + cameraId + " - refreshing registry");
+                        cameras = null;
+                    }
+                }
+            }
+        };
+
+    public android.hardware.camera2.CameraManager getCameraManager() {
+        return cameraManager;
+    }
+
+    public Handler getCameraHandler() {
+        return cameraHandler;
+    }
+
+    public String getFrontCameraId() {
+        return findFacing(CameraCharacteristics.LENS_FACING_FRONT);
+    }
+
+    public String getBackCameraId() {
+        return findFacing(CameraCharacteristics.LENS_FACING_BACK);
+    }
+
+    // Null if the ID is unknown or characteristics could not be read
+    public synchronized CameraInfo getInfo(String cameraId) {
+        return cameraId != null ? loadCameras().get(cameraId) : null;
+    }
+
+    public Size[] getJpegSizes(String cameraId) {
+        CameraInfo info = getInfo(cameraId);
+        return info != null ? info.jpegSizes : new Size[0];
+    }
+
+    public Size[] getRecorderSizes(String cameraId) {
+        CameraInfo info = getInfo(cameraId);
+        return info != null ? info.recorderSizes : new Size[0];
+    }
+
+    private synchronized String findFacing(int facing) {
+        for (CameraInfo info : loadCameras().values()) {
+            if (info.facing == facing) {
+                return info.id;
+            }
+        }
+        return null;
+    }
+
+    private Map<String, CameraInfo> loadCameras() {
+        if (cameras != null) return cameras;
+
+        Map<String, CameraInfo> loaded = new LinkedHashMap<>();
+        try {
+            for (String cameraId : cameraManager.getCameraIdList()) {
+                try {
+                    loaded.put(cameraId, new CameraInfo(cameraId, cameraManager.getCameraCharacteristics(cameraId)));
+                } catch (CameraAccessException | IllegalArgumentException e) {
+                    Log.e(TAG, "Error reading characteristics for camera " + cameraId, e);
+                }
+            }
+        } catch (CameraAccessException e) {
+            // Leave the cache unset so the next lookup retries
+            Log.e(TAG, "Error listing cameras", e);
+            return loaded;
+        }
+
+        cameras = loaded;
+        refreshCount++;
+        Log.d(TAG, "Camera registry loaded: " + loaded.size() + " cameras (#" + refreshCount + ")");
+        return cameras;
+    }
+}
@@ -0,0 +1,138 @@
+// File: app/src/main/java/com/antitheft/security/CaptureQualityProfile.java
+
+package com.antitheft.security;
+
+/**
+ * Photo and video settings for one evidence session, chosen from device conditions.
+ *
+ * Three fixed profiles step down in resolution, JPEG quality, photo count and
+ * bitrate. choose() picks the richest profile the conditions allow: the usable
+ * space is the smaller of free storage and what is left of the evidence budget,
+ * and low battery (unless charging) or thermal throttling push the choice down.
+ * Every profile still captures something, so a full or hot device produces
+ * smaller evidence rather than none.
+ *
+ * Thermal status uses the PowerManager THERMAL_STATUS_* values, passed in as
+ * plain ints, so the choice can be checked without a device.
+ */
+public class CaptureQualityProfile {
+
+    public static final long MB = 1024L * 1024L;
+
+    // Thresholds for stepping down
+    public static final long REDUCED_BELOW_BYTES = 500 * MB;
+    public static final long MINIMAL_BELOW_BYTES = 100 * MB;
+    public static final int REDUCED_BELOW_BATTERY_PERCENT = 30;
+    public static final int MINIMAL_BELOW_BATTERY_PERCENT = 15;
+    public static final int THERMAL_STATUS_MODERATE = 2;
+    public static final int THERMAL_STATUS_SEVERE = 3;
+
+    public static final CaptureQualityProfile FULL = new CaptureQualityProfile("full",
+        1920, 1080, 90, 4,
+        1280, 720, 2000000, 30, 128000);
+
+    public static final CaptureQualityProfile REDUCED = new CaptureQualityProfile("reduced",
+        1280, 720, 80, 3,
+        640, 480, 1000000, 24, 96000);
+
+    public static final CaptureQualityProfile MINIMAL = new CaptureQualityProfile("minimal",
+        640, 480, 70, 2,
+        352, 288, 300000, 15, 64000);
+
+    // Largest photo count of any profile, for sizing per-sequence arrays
+    public static final int MAX_PHOTOS_PER_CAMERA = 4;
+
+    public final String name;
+
+    // Photos
+    public final int maxPhotoWidth;
+    public final int maxPhotoHeight;
+    public final int jpegQuality;
+    public final int photosPerCamera;
+
+    // Video
+    public final int maxVideoWidth;
+    public final int maxVideoHeight;
+    public final int videoBitRate;
+    public final int videoFrameRate;
+    public final int audioBitRate;
+
+    private CaptureQualityProfile(String name, int maxPhotoWidth, int maxPhotoHeight, int jpegQuality,
+                                  int photosPerCamera, int maxVideoWidth, int maxVideoHeight,
+                                  int videoBitRate, int videoFrameRate, int audioBitRate) {
+        this.name = name;
+        this.maxPhotoWidth = maxPhotoWidth;
+        this.maxPhotoHeight = maxPhotoHeight;
+        this.jpegQuality = jpegQuality;
+        this.photosPerCamera = photosPerCamera;
+        this.maxVideoWidth = maxVideoWidth;
+        this.maxVideoHeight = maxVideoHeight;
+        this.videoBitRate = videoBitRate;
+        this.videoFrameRate = videoFrameRate;
+        this.audioBitRate = audioBitRate;
+    }
+
+    // The profile picked for a set of conditions and the condition that limited it
+    public static class Choice {
+        public final CaptureQualityProfile profile;
+        public final String reason;
+
+        Choice(CaptureQualityProfile profile, String reason) {
+            this.profile = profile;
+            this.reason = reason;
+        }
+
+        @Override
+        public String toString() {
+            return profile.name + " (" + reason + ")";
+        }
+    }
+
+    // freeBytes: usable space on the evidence volume. budgetRemainingBytes: evidence budget
+    // minus what is stored, may be negative. batteryPercent: -1 if unknown.
+    // thermalStatus: PowerManager.THERMAL_STATUS_*, 0 if unknown.
+    public static Choice choose(long freeBytes, long budgetRemainingBytes, int batteryPercent,
+                                boolean charging, int thermalStatus) {
+        long usableBytes = Math.min(freeBytes, budgetRemainingBytes);
+        boolean batteryKnown = batteryPercent >= 0 && !charging;
+
+        if (usableBytes < MINIMAL_BELOW_BYTES) {
+            return new Choice(MINIMAL, "storage " + Math.max(0, usableBytes) / MB + "MB left");
+        }
+        if (thermalStatus >= THERMAL_STATUS_SEVERE) {
+            return new Choice(MINIMAL, "thermal status " + thermalStatus);
+        }
+        if (batteryKnown && batteryPercent < MINIMAL_BELOW_BATTERY_PERCENT) {
+            return new Choice(MINIMAL, "battery " + batteryPercent + "%");
+        }
+
+        if (usableBytes < REDUCED_BELOW_BYTES) {
+            return new Choice(REDUCED, "storage " + usableBytes / MB + "MB left");
+        }
+        if (thermalStatus >= THERMAL_STATUS_MODERATE) {
+            return new Choice(REDUCED, "thermal status " + thermalStatus);
+        }
+        if (batteryKnown && batteryPercent < REDUCED_BELOW_BATTERY_PERCENT) {
+            return new Choice(REDUCED, "battery " + batteryPercent + "%");
+        }
+
+        return new Choice(FULL, "storage " + usableBytes / MB + "MB, battery "
+            + (batteryPercent >= 0 ? batteryPercent + "%" : "unknown") + (charging ? " charging" : "")
+            + ", thermal " + thermalStatus);
+    }
+
+    // Rough upper bound for one session, used to make room before it is written: JPEGs at
+    // about half a byte per pixel, video at its bit rates
+    public long estimateBytes(int cameras, int videoSeconds) {
+        long photoBytes = (long) maxPhotoWidth * maxPhotoHeight / 2 * photosPerCamera * cameras;
+        long videoBytes = (long) (videoBitRate + audioBitRate) / 8 * videoSeconds;
+        return photoBytes + videoBytes;
+    }
+
+    @Override
+    public String toString() {
+        return name + ": photos " + photosPerCamera + "x" + maxPhotoWidth + "x" + maxPhotoHeight
+            + " q" + jpegQuality + ", video " + maxVideoWidth + "x" + maxVideoHeight
+            + " " + (videoBitRate / 1000) + "kbps " + videoFrameRate + "fps";
+    }
+}
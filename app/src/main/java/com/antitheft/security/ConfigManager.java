@@ -0,0 +1,89 @@
+// File: app/src/main/java/com/antitheft/security/ConfigManager.java
+
+package com.antitheft.security;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+/**
+ * Process-wide owner of the current ConfigSnapshot.
+ *
+ * The snapshot is published through a volatile reference, so any thread can read
+ * it without locking. It is rebuilt only from an OnSharedPreferenceChangeListener
+ * registered on the preference files it covers; nothing on a read path ever
+ * touches SharedPreferences.
+ */
+public class ConfigManager {
+    private static final String TAG = "AntiTheft_ConfigManager";
+
+    // Preference files owned by SecurityManager, EvidenceManager, AlarmManager and SmartNotificationManager
+    private static final String SECURITY_PREFS_NAME = "SecurityPrefs";
+    private static final String EVIDENCE_PREFS_NAME = "EvidencePrefs";
+    private static final String ALARM_PREFS_NAME = "AlarmPrefs";
+    private static final String NOTIFICATION_PREFS_NAME = "SmartNotificationPrefs";
+
+    private static volatile ConfigManager instance;
+
+    private final SharedPreferences securityPreferences;
+    private final SharedPreferences evidencePreferences;
+    private final SharedPreferences alarmPreferences;
+    private final SharedPreferences notificationPreferences;
+
+    private volatile ConfigSnapshot snapshot;
+    private int rebuildCount = 0;
+
+    // SharedPreferences only keeps a weak reference to listeners - hold it here
+    private final SharedPreferences.OnSharedPreferenceChangeListener changeListener =
+        (sharedPreferences, key) -> rebuild();
+
+    public static ConfigManager getInstance(Context context) {
+        ConfigManager result = instance;
+        if (result == null) {
+            synchronized (ConfigManager.class) {
+                result = instance;
+                if (result == null) {
+                    result = new ConfigManager(context.getApplicationContext());
+                    instance = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    // Shortcut for the common case of reading a single value
+    public static ConfigSnapshot get(Context context) {
+        return getInstance(context).getSnapshot();
+    }
+
+    private ConfigManager(Context context) {
+        securityPreferences = context.getSharedPreferences(SECURITY_PREFS_NAME, Context.MODE_PRIVATE);
+        evidencePreferences = context.getSharedPreferences(EVIDENCE_PREFS_NAME, Context.MODE_PRIVATE);
+        alarmPreferences = context.getSharedPreferences(ALARM_PREFS_NAME, Context.MODE_PRIVATE);
+        notificationPreferences = context.getSharedPreferences(NOTIFICATION_PREFS_NAME, Context.MODE_PRIVATE);
+
+        rebuild();
+
+        securityPreferences.registerOnSharedPreferenceChangeListener(changeListener);
+        evidencePreferences.registerOnSharedPreferenceChangeListener(changeListener);
+        alarmPreferences.registerOnSharedPreferenceChangeListener(changeListener);
+        notificationPreferences.registerOnSharedPreferenceChangeListener(changeListener);
+    }
+
+    public ConfigSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    // Listener callbacks arrive on the main thread; synchronized in case the first
+    // build in the constructor overlaps one
+    private synchronized void rebuild() {
+        snapshot = new ConfigSnapshot(securityPreferences, evidencePreferences,
+            alarmPreferences, notificationPreferences);
+        rebuildCount++;
+        Log.d(TAG, "Config snapshot rebuilt (#" + rebuildCount + ")");
+    }
+
+    public synchronized int getRebuildCount() {
+        return rebuildCount;
+    }
+}
@@ -0,0 +1,122 @@
+// File: app/src/main/java/com/antitheft/security/ConfigSnapshot.java
+
+package com.antitheft.security;
+
+import android.content.SharedPreferences;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable view of every setting read on a hot path.
+ *
+ * Built once from the security, evidence, alarm and notification preference files
+ * by ConfigManager and replaced wholesale when any of them changes - never
+ * modified. Values derived from settings (motion thresholds, the parsed recipient
+ * list) are computed here so readers only touch final fields. Keys and defaults
+ * match the ones used by the owning managers.
+ */
+public final class ConfigSnapshot {
+
+    // Security / motion detection (SecurityPrefs)
+    public final boolean motionDetectionEnabled;
+    public final boolean cameraEvidenceEnabled;
+    public final boolean breakInDetectionEnabled;
+    public final boolean sensorBatchingEnabled;
+    public final boolean tieredDetectionEnabled;
+    public final boolean sensorTraceRecordingEnabled;
+    public final boolean adaptiveSamplingEnabled;
+    public final boolean cameraStandbyEnabled;
+    public final int sensitivity;
+
+    // Precomputed from sensitivity
+    public final float motionThreshold;
+    public final float linearAccelThreshold;
+    public final float rotationThresholdDegrees;
+
+    // Evidence (EvidencePrefs)
+    public final boolean photoEvidenceEnabled;
+    public final boolean videoEvidenceEnabled;
+    public final boolean screenshotEvidenceEnabled;
+    public final boolean autoEmailEnabled;
+    public final int evidenceRetentionDays;
+    public final int maxStorageGB;
+    public final String evictionPolicy;
+    public final long triggerMergeWindowMs;
+    public final long triggerCooldownMs;
+    public final boolean preTriggerVideoEnabled;
+    public final int preTriggerSeconds;
+    public final String screenshotFormat;
+    public final int screenshotQuality;
+
+    // Alarm (AlarmPrefs)
+    public final boolean alarmSoundEnabled;
+    public final boolean alarmVibrationEnabled;
+    public final int alarmVolume;
+    public final String alarmSound;
+    public final int alarmDurationSeconds;
+
+    // Notifications (SmartNotificationPrefs)
+    public final boolean disguisedNotificationsEnabled;
+    public final boolean emailNotificationsEnabled;
+    public final int emailDelayMinutes;
+    public final String emailSubject;
+    public final List<String> emailRecipients;
+
+    ConfigSnapshot(SharedPreferences security, SharedPreferences evidence,
+                   SharedPreferences alarm, SharedPreferences notification) {
+        motionDetectionEnabled = security.getBoolean("motion_detection", true);
+        cameraEvidenceEnabled = security.getBoolean("camera_evidence", true);
+        breakInDetectionEnabled = security.getBoolean("break_in_detection", true);
+        sensorBatchingEnabled = security.getBoolean("sensor_batching", false);
+        tieredDetectionEnabled = security.getBoolean("tiered_detection", false);
+        sensorTraceRecordingEnabled = security.getBoolean("sensor_trace_recording", false);
+        adaptiveSamplingEnabled = security.getBoolean("adaptive_sampling", false);
+        cameraStandbyEnabled = security.getBoolean("camera_standby", false);
+        sensitivity = Math.max(0, Math.min(100, security.getInt("sensitivity", 60)));
+
+        motionThreshold = MotionClassifier.thresholdForSensitivity(sensitivity);
+        linearAccelThreshold = motionThreshold * MotionClassifier.LINEAR_ACCEL_THRESHOLD_SCALE;
+        rotationThresholdDegrees = motionThreshold * MotionClassifier.ROTATION_THRESHOLD_SCALE;
+
+        photoEvidenceEnabled = evidence.getBoolean("photo_evidence", true);
+        videoEvidenceEnabled = evidence.getBoolean("video_evidence", false);
+        screenshotEvidenceEnabled = evidence.getBoolean("screenshot_evidence", true);
+        autoEmailEnabled = evidence.getBoolean("auto_email", false);
+        evidenceRetentionDays = evidence.getInt("retention_days", 30);
+        maxStorageGB = evidence.getInt("max_storage_gb", 2);
+        evictionPolicy = evidence.getString("eviction_policy", EvictionPlanner.POLICY_OLDEST_SESSION);
+        triggerMergeWindowMs = Math.max(0, evidence.getInt("trigger_merge_window_seconds", 10)) * 1000L;
+        triggerCooldownMs = Math.max(0, evidence.getInt("trigger_cooldown_seconds", 30)) * 1000L;
+        preTriggerVideoEnabled = evidence.getBoolean("pre_trigger_video", false);
+        preTriggerSeconds = Math.max(1, Math.min(30, evidence.getInt("pre_trigger_seconds", 10)));
+        screenshotFormat = evidence.getString("screenshot_format", ScreenshotUtility.FORMAT_JPEG);
+        screenshotQuality = Math.max(1, Math.min(100, evidence.getInt("screenshot_quality", 80)));
+
+        alarmSoundEnabled = alarm.getBoolean("sound_enabled", true);
+        alarmVibrationEnabled = alarm.getBoolean("vibration_enabled", true);
+        alarmVolume = alarm.getInt("alarm_volume", 100);
+        alarmSound = alarm.getString("alarm_sound", "siren");
+        alarmDurationSeconds = alarm.getInt("alarm_duration", 60);
+
+        disguisedNotificationsEnabled = notification.getBoolean("disguised_notifications", true);
+        emailNotificationsEnabled = notification.getBoolean("email_notifications", false);
+        emailDelayMinutes = notification.getInt("email_delay_minutes", 5);
+        emailSubject = notification.getString("email_subject", "System Status Update");
+        emailRecipients = parseRecipients(notification.getString("email_recipients", ""));
+    }
+
+    private static List<String> parseRecipients(String recipientsStr) {
+        List<String> recipients = new ArrayList<>();
+        if (!recipientsStr.isEmpty()) {
+            for (String email : recipientsStr.split(",")) {
+                email = email.trim();
+                if (!email.isEmpty()) {
+                    recipients.add(email);
+                }
+            }
+        }
+        return Collections.unmodifiableList(recipients);
+    }
+}
@@ -0,0 +1,116 @@
+// File: app/src/main/java/com/antitheft/security/DetectionTierStateMachine.java
+
+package com.antitheft.security;
+
+/**
+ * State machine for two-stage (tiered) motion detection.
+ *
+ * OFF    - not armed, nothing registered
+ * REST   - only the low-power wake-up stage (significant motion) is active
+ * ACTIVE - full accelerometer + gyroscope analysis is running
+ *
+ * REST moves to ACTIVE when the wake-up stage fires; ACTIVE falls back to REST
+ * after the stillness timeout passes without reported motion. Time spent in each
+ * tier is accumulated so the battery gain can be measured. Callers pass in the
+ * clock, which keeps the class free of Android dependencies.
+ */
+public class DetectionTierStateMachine {
+
+    public enum Tier {
+        OFF,
+        REST,
+        ACTIVE
+    }
+
+    private final long stillnessTimeoutMs;
+
+    private Tier tier = Tier.OFF;
+    private long tierEnteredAt = 0;
+    private long lastMotionAt = 0;
+
+    // Accumulated time per tier, excluding the tier we are currently in
+    private long restTimeMs = 0;
+    private long activeTimeMs = 0;
+    private int wakeUpCount = 0;
+
+    public DetectionTierStateMachine(long stillnessTimeoutMs) {
+        this.stillnessTimeoutMs = stillnessTimeoutMs;
+    }
+
+    // OFF -> REST. Returns false if already started.
+    public boolean start(long nowMs) {
+        if (tier != Tier.OFF) return false;
+        enter(Tier.REST, nowMs);
+        return true;
+    }
+
+    // Any tier -> OFF
+    public void stop(long nowMs) {
+        if (tier == Tier.OFF) return;
+        enter(Tier.OFF, nowMs);
+    }
+
+    // REST -> ACTIVE when the first stage fires. Returns true on a transition.
+    public boolean onWakeTrigger(long nowMs) {
+        if (tier != Tier.REST) return false;
+        wakeUpCount++;
+        lastMotionAt = nowMs;
+        enter(Tier.ACTIVE, nowMs);
+        return true;
+    }
+
+    // Candidate motion seen by the full analysis; keeps the ACTIVE tier alive
+    public void onMotion(long nowMs) {
+        if (tier == Tier.ACTIVE) {
+            lastMotionAt = nowMs;
+        }
+    }
+
+    // ACTIVE -> REST after the stillness timeout. Returns true on a transition.
+    public boolean onTick(long nowMs) {
+        if (tier == Tier.ACTIVE && nowMs - lastMotionAt >= stillnessTimeoutMs) {
+            enter(Tier.REST, nowMs);
+            return true;
+        }
+        return false;
+    }
+
+    private void enter(Tier next, long nowMs) {
+        long elapsed = Math.max(0, nowMs - tierEnteredAt);
+        if (tier == Tier.REST) {
+            restTimeMs += elapsed;
+        } else if (tier == Tier.ACTIVE) {
+            activeTimeMs += elapsed;
+        }
+
+        tier = next;
+        tierEnteredAt = nowMs;
+    }
+
+    public Tier getTier() {
+        return tier;
+    }
+
+    public long getRestTimeMs(long nowMs) {
+        return tier == Tier.REST ? restTimeMs + Math.max(0, nowMs - tierEnteredAt) : restTimeMs;
+    }
+
+    public long getActiveTimeMs(long nowMs) {
+        return tier == Tier.ACTIVE ? activeTimeMs + Math.max(0, nowMs - tierEnteredAt) : activeTimeMs;
+    }
+
+    // Share of armed time spent in the low-power tier, 0-100
+    public int getRestPercent(long nowMs) {
+        long rest = getRestTimeMs(nowMs);
+        long total = rest + getActiveTimeMs(nowMs);
+        return total == 0 ? 0 : (int) (rest * 100 / total);
+    }
+
+    public int getWakeUpCount() {
+        return wakeUpCount;
+    }
+
+    public long getStillnessTimeoutMs() {
+        return stillnessTimeoutMs;
+    }
+}
@@ -0,0 +1,188 @@
+// File: app/src/main/java/com/antitheft/security/EncodedFrameRing.java
+
+package com.antitheft.security;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Fixed-size in-memory ring of encoded video access units.
+ *
+ * Frame data lives in one byte array allocated up front, so the byte cap is hard:
+ * nothing else is allocated per frame. Each frame is stored contiguously; when it
+ * does not fit at the end of the array the write wraps to the start. Space is made
+ * by evicting whole GOPs from the oldest end, so the ring always starts on a
+ * keyframe and any suffix chosen by findStart() can be decoded on its own. A delta
+ * frame arriving while the ring is empty is dropped until the next keyframe.
+ *
+ * The class has no Android dependencies so it can be exercised on the JVM with
+ * synthetic frames.
+ */
+public class EncodedFrameRing {
+
+    public interface FrameVisitor {
+        void onFrame(byte[] data, int offset, int size, long ptsUs, boolean keyFrame) throws IOException;
+    }
+
+    private final byte[] data;
+    private final int maxFrames;
+
+    // Frame index, a circular array of maxFrames entries starting at head
+    private final int[] offsets;
+    private final int[] sizes;
+    private final long[] ptsUs;
+    private final boolean[] keyFrames;
+    private int head = 0;
+    private int count = 0;
+
+    private int writePos = 0; // byte offset for the next frame
+    private int usedBytes = 0;
+
+    // Counters
+    private long framesAdded = 0;
+    private long framesDropped = 0;
+    private long framesEvicted = 0;
+
+    public EncodedFrameRing(int capacityBytes, int maxFrames) {
+        this.data = new byte[capacityBytes];
+        this.maxFrames = maxFrames;
+        offsets = new int[maxFrames];
+        sizes = new int[maxFrames];
+        ptsUs = new long[maxFrames];
+        keyFrames = new boolean[maxFrames];
+    }
+
+    public synchronized boolean add(byte[] src, int srcOffset, int size, long pts, boolean keyFrame) {
+        int position = reserve(size, keyFrame);
+        if (position < 0) return false;
+        System.arraycopy(src, srcOffset, data, position, size);
+        commit(position, size, pts, keyFrame);
+        return true;
+    }
+
+    // Copies buffer's remaining bytes without moving its position
+    public synchronized boolean add(ByteBuffer buffer, long pts, boolean keyFrame) {
+        int size = buffer.remaining();
+        int position = reserve(size, keyFrame);
+        if (position < 0) return false;
+        ByteBuffer source = buffer.duplicate();
+        source.get(data, position, size);
+        commit(position, size, pts, keyFrame);
+        return true;
+    }
+
+    // Returns where the frame goes, evicting old GOPs as needed, or -1 if it is dropped
+    private int reserve(int size, boolean keyFrame) {
+        if (size <= 0 || size > data.length || (count == 0 && !keyFrame)) {
+            framesDropped++;
+            return -1;
+        }
+
+        int position;
+        while ((position = findSpace(size)) < 0 || count == maxFrames) {
+            evictOldestGop();
+            if (count == 0 && !keyFrame) {
+                // The GOP this delta frame belongs to is gone
+                framesDropped++;
+                return -1;
+            }
+        }
+        return position;
+    }
+
+    private int findSpace(int size) {
+        if (count == 0) {
+            writePos = 0;
+            return 0;
+        }
+
+        int start = offsets[head];
+        if (writePos > start) {
+            // Used region is [start, writePos): free at the end, or wrap to the front
+            if (data.length - writePos >= size) return writePos;
+            if (start >= size) return 0;
+            return -1;
+        }
+        // Wrapped: free region is [writePos, start)
+        return start - writePos >= size ? writePos : -1;
+    }
+
+    private void commit(int position, int size, long pts, boolean keyFrame) {
+        int index = (head + count) % maxFrames;
+        offsets[index] = position;
+        sizes[index] = size;
+        ptsUs[index] = pts;
+        keyFrames[index] = keyFrame;
+        count++;
+        writePos = position + size;
+        usedBytes += size;
+        framesAdded++;
+    }
+
+    // Drops the oldest frame and every following delta frame, up to the next keyframe
+    private void evictOldestGop() {
+        do {
+            usedBytes -= sizes[head];
+            head = (head + 1) % maxFrames;
+            count--;
+            framesEvicted++;
+        } while (count > 0 && !keyFrames[head]);
+    }
+
+    // Index (0 = oldest) of the latest keyframe at or before newest - windowUs, or the
+    // oldest frame if the ring holds less than the window. -1 if empty.
+    public synchronized int findStart(long windowUs) {
+        if (count == 0) return -1;
+
+        long cutoff = ptsUs[(head + count - 1) % maxFrames] - windowUs;
+        int start = 0;
+        for (int i = 0; i < count; i++) {
+            int index = (head + i) % maxFrames;
+            if (ptsUs[index] > cutoff) break;
+            if (keyFrames[index]) start = i;
+        }
+        return start;
+    }
+
+    // Visits frames from fromIndex (0 = oldest) to the newest, oldest first
+    public synchronized int visit(int fromIndex, FrameVisitor visitor) throws IOException {
+        int visited = 0;
+        for (int i = Math.max(0, fromIndex); i < count; i++) {
+            int index = (head + i) % maxFrames;
+            visitor.onFrame(data, offsets[index], sizes[index], ptsUs[index], keyFrames[index]);
+            visited++;
+        }
+        return visited;
+    }
+
+    public synchronized void clear() {
+        head = 0;
+        count = 0;
+        writePos = 0;
+        usedBytes = 0;
+    }
+
+    public synchronized int getFrameCount() {
+        return count;
+    }
+
+    public synchronized int getUsedBytes() {
+        return usedBytes;
+    }
+
+    public int getCapacityBytes() {
+        return data.length;
+    }
+
+    // Time covered by the buffered frames
+    public synchronized long getBufferedDurationUs() {
+        if (count < 2) return 0;
+        return ptsUs[(head + count - 1) % maxFrames] - ptsUs[head];
+    }
+
+    public synchronized String getSummary() {
+        return count + " frames, " + (usedBytes / 1024) + "/" + (data.length / 1024) + "KB, "
+            + (getBufferedDurationUs() / 1000) + "ms buffered, " + framesAdded + " added, "
+            + framesEvicted + " evicted, " + framesDropped + " dropped";
+    }
+}
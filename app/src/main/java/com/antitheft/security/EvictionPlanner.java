@@ -0,0 +1,279 @@
+// File: app/src/main/java/com/antitheft/security/EvictionPlanner.java
+
+package com.antitheft.security;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeSet;
+
+/**
+ * Chooses which evidence files to delete to bring usage back under the quota.
+ *
+ * Policies:
+ * - oldest_session: whole sessions, oldest first; files with no session count as
+ *   a session of their own.
+ * - low_value_first: screenshots, then videos, then photos, oldest first within a type.
+ * - duplicates_first: every file after the first of its type in a session (extra
+ *   burst photos, the second camera's video), oldest first, then oldest_session.
+ *
+ * The orderings are kept as sorted sets, updated by add() and remove() as files
+ * come and go, so a plan walks the head of one ordering instead of copying and
+ * sorting every file. EvidenceManifest keeps one in step with its entries and
+ * guards it with its own lock.
+ *
+ * Files of the session being captured, and anything written since it started,
+ * are never chosen. A plan stops at maxFiles so a pass stays short; the caller
+ * runs further passes until usage is under the target.
+ */
+public class EvictionPlanner {
+
+    public static final String POLICY_OLDEST_SESSION = "oldest_session";
+    public static final String POLICY_LOW_VALUE_FIRST = "low_value_first";
+    public static final String POLICY_DUPLICATES_FIRST = "duplicates_first";
+
+    // EvidenceManifest file types
+    private static final String TYPE_PHOTO = "photo";
+    private static final String TYPE_VIDEO = "video";
+
+    public static class Candidate {
+        public final String path;
+        public final String type;
+        public final long size;
+        public final long mtime;
+        public final String sessionId; // may be null
+
+        public Candidate(String path, String type, long size, long mtime, String sessionId) {
+            this.path = path;
+            this.type = type;
+            this.size = size;
+            this.mtime = mtime;
+            this.sessionId = sessionId;
+        }
+
+        String groupKey() {
+            return sessionId != null ? sessionId : path;
+        }
+    }
+
+    // The path breaks ties, so every file has its own place and can be removed again
+    private static final Comparator<Candidate> OLDEST_FIRST = (a, b) -> {
+        int byTime = Long.compare(a.mtime, b.mtime);
+        return byTime != 0 ? byTime : a.path.compareTo(b.path);
+    };
+
+    private static final Comparator<Candidate> LOWEST_VALUE_FIRST = (a, b) -> {
+        int byValue = Integer.compare(valueOf(a.type), valueOf(b.type));
+        return byValue != 0 ? byValue : OLDEST_FIRST.compare(a, b);
+    };
+
+    // A session, or a single file without one
+    private static class Group {
+        final String key;
+        final TreeSet<Candidate> files = new TreeSet<>(OLDEST_FIRST);
+        long start; // oldest mtime; only changed while the group is out of the sessions set
+
+        Group(String key) {
+            this.key = key;
+        }
+    }
+
+    private static final Comparator<Group> OLDEST_SESSION_FIRST = (a, b) -> {
+        int byStart = Long.compare(a.start, b.start);
+        return byStart != 0 ? byStart : a.key.compareTo(b.key); // keeps equal-start sessions apart
+    };
+
+    private final Map<String, Candidate> byPath = new HashMap<>();
+    private final Map<String, Group> groups = new HashMap<>();
+    private final TreeSet<Group> sessions = new TreeSet<>(OLDEST_SESSION_FIRST);
+    private final TreeSet<Candidate> byValue = new TreeSet<>(LOWEST_VALUE_FIRST);
+    // Files of each (session, type); the first is kept back by duplicates_first, the rest are duplicates
+    private final Map<String, TreeSet<Candidate>> bySessionType = new HashMap<>();
+    private final TreeSet<Candidate> duplicates = new TreeSet<>(OLDEST_FIRST);
+
+    // Adds a file, or replaces the one recorded at its path
+    public void add(Candidate candidate) {
+        remove(candidate.path);
+        byPath.put(candidate.path, candidate);
+
+        Group group = groups.get(candidate.groupKey());
+        if (group == null) {
+            group = new Group(candidate.groupKey());
+            groups.put(group.key, group);
+        } else {
+            sessions.remove(group);
+        }
+        group.files.add(candidate);
+        group.start = group.files.first().mtime;
+        sessions.add(group);
+
+        byValue.add(candidate);
+
+        if (candidate.sessionId != null) {
+            String key = sessionTypeKey(candidate);
+            TreeSet<Candidate> sameType = bySessionType.get(key);
+            if (sameType == null) {
+                sameType = new TreeSet<>(OLDEST_FIRST);
+                bySessionType.put(key, sameType);
+            }
+            Candidate first = sameType.isEmpty() ? null : sameType.first();
+            sameType.add(candidate);
+            if (sameType.first() != candidate) {
+                duplicates.add(candidate);
+            } else if (first != null) {
+                duplicates.add(first); // an older file took its place
+            }
+        }
+    }
+
+    public void remove(String path) {
+        Candidate candidate = byPath.remove(path);
+        if (candidate == null) return;
+
+        Group group = groups.get(candidate.groupKey());
+        sessions.remove(group);
+        group.files.remove(candidate);
+        if (group.files.isEmpty()) {
+            groups.remove(group.key);
+        } else {
+            group.start = group.files.first().mtime;
+            sessions.add(group);
+        }
+
+        byValue.remove(candidate);
+
+        if (candidate.sessionId != null) {
+            String key = sessionTypeKey(candidate);
+            TreeSet<Candidate> sameType = bySessionType.get(key);
+            boolean wasFirst = sameType.first() == candidate;
+            sameType.remove(candidate);
+            if (!wasFirst) {
+                duplicates.remove(candidate);
+            } else if (!sameType.isEmpty()) {
+                duplicates.remove(sameType.first()); // the next one is kept back now
+            } else {
+                bySessionType.remove(key);
+            }
+        }
+    }
+
+    public void clear() {
+        byPath.clear();
+        groups.clear();
+        sessions.clear();
+        byValue.clear();
+        bySessionType.clear();
+        duplicates.clear();
+    }
+
+    public int size() {
+        return byPath.size();
+    }
+
+    // protectedSessionId: session being captured, or null. protectedSinceMs: files with a later
+    // mtime are kept (unclaimed files of that session); Long.MAX_VALUE when nothing is in flight.
+    public List<Candidate> plan(long usedBytes, long targetBytes, String policy, String protectedSessionId,
+                                long protectedSinceMs, int maxFiles) {
+        List<Candidate> victims = new ArrayList<>();
+        if (usedBytes <= targetBytes || maxFiles <= 0) return victims;
+
+        long remaining = usedBytes;
+        Iterator<Candidate> ordered = order(policy);
+        while (ordered.hasNext() && remaining > targetBytes && victims.size() < maxFiles) {
+            Candidate candidate = ordered.next();
+            if (candidate.mtime >= protectedSinceMs) continue;
+            if (protectedSessionId != null && protectedSessionId.equals(candidate.sessionId)) continue;
+            victims.add(candidate);
+            remaining -= candidate.size;
+        }
+        return victims;
+    }
+
+    // Lazy; only valid until the next add() or remove()
+    Iterator<Candidate> order(String policy) {
+        if (POLICY_LOW_VALUE_FIRST.equals(policy)) {
+            return byValue.iterator();
+        }
+        if (POLICY_DUPLICATES_FIRST.equals(policy)) {
+            // A session's oldest file is always kept back, so the rest keep their session order
+            return new Concat(duplicates.iterator(), new SessionOrder(true));
+        }
+        return new SessionOrder(false);
+    }
+
+    // Sessions by their oldest file, files within a session oldest first
+    private class SessionOrder implements Iterator<Candidate> {
+        private final boolean skipDuplicates;
+        private final Iterator<Group> groupIterator = sessions.iterator();
+        private Iterator<Candidate> fileIterator = Collections.<Candidate>emptyList().iterator();
+        private Candidate next;
+
+        SessionOrder(boolean skipDuplicates) {
+            this.skipDuplicates = skipDuplicates;
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            while (next == null) {
+                while (!fileIterator.hasNext()) {
+                    if (!groupIterator.hasNext()) return;
+                    fileIterator = groupIterator.next().files.iterator();
+                }
+                Candidate candidate = fileIterator.next();
+                if (!skipDuplicates || !duplicates.contains(candidate)) {
+                    next = candidate;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Candidate next() {
+            if (next == null) throw new NoSuchElementException();
+            Candidate current = next;
+            advance();
+            return current;
+        }
+    }
+
+    private static class Concat implements Iterator<Candidate> {
+        private final Iterator<Candidate> first;
+        private final Iterator<Candidate> second;
+
+        Concat(Iterator<Candidate> first, Iterator<Candidate> second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return first.hasNext() || second.hasNext();
+        }
+
+        @Override
+        public Candidate next() {
+            return first.hasNext() ? first.next() : second.next();
+        }
+    }
+
+    private static String sessionTypeKey(Candidate candidate) {
+        return candidate.sessionId + "/" + candidate.type;
+    }
+
+    // Lower goes first
+    private static int valueOf(String type) {
+        if (TYPE_PHOTO.equals(type)) return 2;
+        if (TYPE_VIDEO.equals(type)) return 1;
+        return 0;
+    }
+}
@@ -0,0 +1,107 @@
+// File: app/src/main/java/com/antitheft/security/EvidenceFuture.java
+
+package com.antitheft.security;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A Future that is completed explicitly, by whichever thread produces the result.
+ *
+ * Capture managers report through callbacks on the camera thread, so evidence
+ * stages complete one of these instead of blocking a worker on a lock. Only the
+ * first of complete/fail/cancel takes effect. Listeners added with whenDone run
+ * on the completing thread (or immediately if already done), which is how stages
+ * are chained. CompletableFuture would do the same but needs API 24; minSdk is 21.
+ */
+public class EvidenceFuture<T> implements Future<T> {
+    private final CountDownLatch doneLatch = new CountDownLatch(1);
+    private final List<Runnable> listeners = new ArrayList<>();
+
+    private boolean done = false;
+    private boolean cancelled = false;
+    private T value;
+    private Throwable failure;
+
+    public boolean complete(T result) {
+        return finish(result, null, false);
+    }
+
+    public boolean fail(Throwable error) {
+        return finish(null, error, false);
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return finish(null, null, true);
+    }
+
+    private boolean finish(T result, Throwable error, boolean cancel) {
+        List<Runnable> toRun;
+        synchronized (this) {
+            if (done) return false;
+            done = true;
+            value = result;
+            failure = error;
+            cancelled = cancel;
+            toRun = new ArrayList<>(listeners);
+            listeners.clear();
+        }
+        doneLatch.countDown();
+        for (Runnable listener : toRun) {
+            listener.run();
+        }
+        return true;
+    }
+
+    public void whenDone(Runnable listener) {
+        synchronized (this) {
+            if (!done) {
+                listeners.add(listener);
+                return;
+            }
+        }
+        listener.run();
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return done;
+    }
+
+    // Result if completed normally, otherwise the fallback; never blocks
+    public synchronized T getNow(T fallback) {
+        return done && !cancelled && failure == null ? value : fallback;
+    }
+
+    @Override
+    public T get() throws InterruptedException, ExecutionException {
+        doneLatch.await();
+        return report();
+    }
+
+    @Override
+    public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (!doneLatch.await(timeout, unit)) {
+            throw new TimeoutException();
+        }
+        return report();
+    }
+
+    private synchronized T report() throws ExecutionException {
+        if (cancelled) throw new CancellationException();
+        if (failure != null) throw new ExecutionException(failure);
+        return value;
+    }
+}
@@ -111,17 +111,29 @@ public class EvidenceGalleryActivity extends Activity {
     private void loadEvidenceData() {
         evidenceItems.clear();
         
+        // Sizes and dates come from the evidence manifest, which loads in the background
+        if (!evidenceManager.isEvidenceIndexLoaded()) {
+            evidenceManager.runWhenEvidenceIndexLoaded(() -> runOnUiThread(() -> {
+                if (!isFinishing()) {
+                    loadEvidenceData();
+                }
+            }));
+            updateUI();
+            return;
+        }
+        
         // Load evidence sessions
         List<EvidenceManager.EvidenceSession> sessions = evidenceManager.getAllEvidenceSessions();
         for (EvidenceManager.EvidenceSession session : sessions) {
             for (String filePath : session.evidencePaths) {
-                File file = new File(filePath);
-                if (file.exists()) {
+                // Size and date come from the manifest; files it does not know are gone
+                EvidenceManifest.Entry info = evidenceManager.getEvidenceFileInfo(filePath);
+                if (info != null) {
                     EvidenceItem item = new EvidenceItem();
                     item.filePath = filePath;
-                    item.fileName = file.getName();
-                    item.fileSize = file.length();
-                    item.dateModified = file.lastModified();
+                    item.fileName = new File(filePath).getName();
+                    item.fileSize = info.size;
+                    item.dateModified = info.mtime;
                     item.sessionId = session.sessionId;
                     item.triggerReason = session.triggerReason;
                     item.fileType = getFileType(filePath);
@@ -255,8 +267,7 @@ public class EvidenceGalleryActivity extends Activity {
                 int deletedCount = 0;
                 
                 for (EvidenceItem item : selectedItems) {
-                    File file = new File(item.filePath);
-                    if (file.exists() && file.delete()) {
+                    if (evidenceManager.deleteEvidenceFile(item.filePath)) {
                         deletedCount++;
                         evidenceItems.remove(item);
                     }
@@ -326,8 +337,7 @@ public class EvidenceGalleryActivity extends Activity {
                 int deletedCount = 0;
                 
                 for (EvidenceItem item : evidenceItems) {
-                    File file = new File(item.filePath);
-                    if (file.exists() && file.delete()) {
+                    if (evidenceManager.deleteEvidenceFile(item.filePath)) {
                         deletedCount++;
                     }
                 }
@@ -516,8 +526,7 @@ public class EvidenceGalleryActivity extends Activity {
         List<EvidenceItem> toDelete = new ArrayList<>();
         for (EvidenceItem item : evidenceItems) {
             if (item.dateModified < cutoffTime) {
-                File file = new File(item.filePath);
-                if (file.exists() && file.delete()) {
+                if (evidenceManager.deleteEvidenceFile(item.filePath)) {
                     deletedCount++;
                     toDelete.add(item);
                 }
@@ -0,0 +1,186 @@
+// File: app/src/main/java/com/antitheft/security/EvidenceImageWriter.java
+
+package com.antitheft.security;
+
+import android.media.Image;
+import android.media.ImageReader;
+import android.os.Handler;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes JPEG frames from camera ImageReaders to disk off the camera thread.
+ *
+ * The plane's direct ByteBuffer is written straight through a FileChannel, so no
+ * heap copy of the JPEG is made, and the Image is only closed once its write has
+ * finished. Writes run on a small bounded I/O pool shared by every capture manager.
+ *
+ * Each reader is attached through attach(), which returns an ImageQueue. The queue
+ * acquires at most maxImages frames at a time; further frames stay in the reader
+ * until a write completes, which is the backpressure on the camera pipeline (the
+ * reader itself would throw if more were acquired). Completions are delivered on
+ * the reader's handler.
+ */
+public class EvidenceImageWriter {
+    private static final String TAG = "AntiTheft_ImageWriter";
+    private static final EvidenceImageWriter INSTANCE = new EvidenceImageWriter();
+
+    private static final int IO_THREADS = 2;
+    private static final int QUEUE_CAPACITY = 16;
+
+    private final ThreadPoolExecutor ioExecutor;
+
+    // Write statistics
+    private int imagesWritten = 0;
+    private int writeFailures = 0;
+    private long bytesWritten = 0;
+    private long totalWriteNanos = 0;
+    private long maxWriteNanos = 0;
+
+    public interface Listener {
+        // Called on the reader's handler with a freshly acquired image; return the destination
+        // file, or null to drop the frame. Read any metadata (timestamp) here.
+        File onImageAcquired(Image image);
+
+        // Called on the reader's handler once the image has been written and closed
+        void onImageWritten(File file, boolean success);
+    }
+
+    public static EvidenceImageWriter getInstance() {
+        return INSTANCE;
+    }
+
+    private EvidenceImageWriter() {
+        // Bounded queue; if it ever fills the camera thread writes the frame itself,
+        // which slows the producer instead of growing memory
+        ioExecutor = new ThreadPoolExecutor(IO_THREADS, IO_THREADS, 30, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(QUEUE_CAPACITY), new ThreadPoolExecutor.CallerRunsPolicy());
+        ioExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    // Installs the queue as the reader's OnImageAvailableListener
+    public ImageQueue attach(ImageReader reader, Handler handler, Listener listener) {
+        ImageQueue queue = new ImageQueue(reader, handler, listener);
+        reader.setOnImageAvailableListener(queue, handler);
+        return queue;
+    }
+
+    public class ImageQueue implements ImageReader.OnImageAvailableListener {
+        private final ImageReader reader;
+        private final Handler handler;
+        private final Listener listener;
+        private final int maxImages;
+        private int inFlight = 0;
+        private boolean closeRequested = false;
+
+        ImageQueue(ImageReader reader, Handler handler, Listener listener) {
+            this.reader = reader;
+            this.handler = handler;
+            this.listener = listener;
+            this.maxImages = reader.getMaxImages();
+        }
+
+        @Override
+        public void onImageAvailable(ImageReader imageReader) {
+            drain();
+        }
+
+        private void drain() {
+            while (!closeRequested && inFlight < maxImages) {
+                Image image;
+                try {
+                    image = reader.acquireNextImage();
+                } catch (IllegalStateException e) {
+                    break; // all images acquired - wait for a write to finish
+                }
+                if (image == null) break;
+
+                File file = listener.onImageAcquired(image);
+                if (file == null) {
+                    image.close();
+                    continue;
+                }
+
+                inFlight++;
+                ioExecutor.execute(() -> {
+                    boolean success = writeImage(image, file);
+                    image.close();
+                    handler.post(() -> onWriteComplete(file, success));
+                });
+            }
+        }
+
+        private void onWriteComplete(File file, boolean success) {
+            inFlight--;
+            if (closeRequested) {
+                closeIfIdle();
+                return;
+            }
+            listener.onImageWritten(file, success);
+            drain();
+        }
+
+        // Stops acquiring and closes the reader once outstanding writes finish;
+        // closing it earlier would invalidate the images being written. Call on the handler.
+        public void close() {
+            closeRequested = true;
+            closeIfIdle();
+        }
+
+        private void closeIfIdle() {
+            if (inFlight == 0) {
+                reader.close();
+            }
+        }
+
+        public int getInFlight() {
+            return inFlight;
+        }
+    }
+
+    private boolean writeImage(Image image, File file) {
+        long start = SystemClock.elapsedRealtimeNanos();
+        ByteBuffer buffer = image.getPlanes()[0].getBuffer();
+        int size = buffer.remaining();
+
+        try (FileOutputStream output = new FileOutputStream(file);
+             FileChannel channel = output.getChannel()) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing " + file.getName(), e);
+            file.delete();
+            synchronized (this) {
+                writeFailures++;
+            }
+            return false;
+        }
+
+        long elapsed = SystemClock.elapsedRealtimeNanos() - start;
+        synchronized (this) {
+            imagesWritten++;
+            bytesWritten += size;
+            totalWriteNanos += elapsed;
+            maxWriteNanos = Math.max(maxWriteNanos, elapsed);
+        }
+        return true;
+    }
+
+    public synchronized String getSummary() {
+        if (imagesWritten == 0) {
+            return writeFailures + " failed, none written";
+        }
+        return imagesWritten + " written (" + (bytesWritten / 1024) + "KB), " + writeFailures + " failed, avg "
+            + (totalWriteNanos / imagesWritten / 1000000) + "ms, max " + (maxWriteNanos / 1000000) + "ms";
+    }
+}
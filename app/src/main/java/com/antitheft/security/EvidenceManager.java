@@ -3,26 +3,61 @@
 package com.antitheft.security;
 
 import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
 import android.content.SharedPreferences;
+import android.os.BatteryManager;
+import android.os.Build;
+import android.os.PowerManager;
+import android.os.SystemClock;
 import android.util.Log;
 
 import java.io.File;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
-import java.util.concurrent.ExecutorService;
+import java.util.Map;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class EvidenceManager {
     private static final String TAG = "AntiTheft_Evidence";
     private static final String PREFS_NAME = "EvidencePrefs";
     
+    // Evidence stages and their timeouts
+    private static final String STAGE_PHOTOS = "photos";
+    private static final String STAGE_VIDEO = "video";
+    private static final String STAGE_SCREENSHOT = "screenshot";
+    private static final String STAGE_PRE_TRIGGER = "pre_trigger";
+    private static final long PHOTO_TIMEOUT_MS = 30000;
+    private static final long VIDEO_TIMEOUT_MS = 15000;
+    private static final long SCREENSHOT_TIMEOUT_MS = 10000;
+    private static final long PRE_TRIGGER_TIMEOUT_MS = 15000;
+    private static final int PRE_TRIGGER_LIVE_SECONDS = 5; // only when no photo stage needs the camera
+    private static final long MANIFEST_RECONCILE_CHECK_MS = 60 * 60 * 1000L; // reconciles itself at most every 6 hours
+    
+    // Quota enforcement: evict down to the low watermark, a few files per pass
+    private static final int QUOTA_LOW_WATERMARK_PERCENT = 90;
+    private static final int EVICTIONS_PER_PASS = 16;
+    private static final long EVICTION_PASS_DELAY_MS = 500;
+    private static final AtomicBoolean evictionScheduled = new AtomicBoolean(false); // one eviction run per process
+    private static final AtomicLong reservedBytes = new AtomicLong(); // estimated, for sessions still capturing
+    private static final long SCREENSHOT_ESTIMATE_BYTES = 2 * CaptureQualityProfile.MB;
+    
     private Context context;
     private SharedPreferences preferences;
-    private ExecutorService evidenceExecutor;
+    private EvidenceSessionStore sessionStore;
+    private EvidenceManifest manifest;
+    private ScheduledExecutorService evidenceExecutor; // blocking stages, stage timeouts and maintenance
+    private final List<EvidencePipeline> activePipelines = new ArrayList<>();
     
     // Evidence capture managers
     private MultiplePhotoCaptureManager photoCaptureManager;
@@ -36,15 +71,32 @@ public class EvidenceManager {
     private boolean screenshotEvidenceEnabled = true;
     private boolean autoEmailEnabled = false;
     private int maxStorageGB = 2;
+    private String evictionPolicy = EvictionPlanner.POLICY_OLDEST_SESSION;
     private int evidenceRetentionDays = 30;
+    private int triggerMergeWindowSeconds = 10;
+    private int triggerCooldownSeconds = 30;
+    private boolean preTriggerVideoEnabled = false;
+    private int preTriggerSeconds = 10;
+    private String screenshotFormat = ScreenshotUtility.FORMAT_JPEG;
+    private int screenshotQuality = 80;
     
     public EvidenceManager(Context context) {
         this.context = context;
         this.preferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        this.evidenceExecutor = Executors.newSingleThreadExecutor();
+        this.sessionStore = EvidenceSessionStore.getInstance(context);
+        this.manifest = EvidenceManifest.getInstance(context);
+        this.evidenceExecutor = Executors.newScheduledThreadPool(2);
         
         initializeManagers();
         loadSettings();
+        // The manifest reads its table here rather than on the caller's (often the UI) thread
+        evidenceExecutor.execute(() -> {
+            manifest.load();
+            checkStorageQuota();
+        });
+        // Catches files the observers missed, e.g. while the process was not running
+        evidenceExecutor.scheduleWithFixedDelay(manifest::reconcileIfStale, 0,
+            MANIFEST_RECONCILE_CHECK_MS, TimeUnit.MILLISECONDS);
         
         Log.i(TAG, "EvidenceManager initialized");
     }
@@ -56,49 +108,204 @@ public class EvidenceManager {
         notificationManager = new SmartNotificationManager(context);
     }
     
-    // Main evidence capture method
+    // Main evidence capture method. Photos and screenshot run concurrently; video needs the
+    // cameras, so it follows the photos. The pre-trigger clip is the buffered window only when
+    // photos are taken, since they would close its camera at once; the footage after the
+    // trigger then comes from the video stage. The session is saved as each artifact lands
+    // and the notification goes out with the first one. Triggers for an incident that already
+    // has a session are merged into it by the process-wide coalescer.
     public void captureSecurityEvidence(String triggerReason) {
-        Log.i(TAG, "Starting evidence capture - Reason: " + triggerReason);
+        // Photo latency is measured from here, not from when a worker picks the stage up
+        final long triggerNanos = SystemClock.elapsedRealtimeNanos();
         
-        evidenceExecutor.execute(() -> {
-            List<String> evidencePaths = new ArrayList<>();
+        ConfigSnapshot config = ConfigManager.get(context);
+        EvidenceSession session = createEvidenceSession(triggerReason);
+        SessionRecorder recorder = new SessionRecorder(session);
+        
+        if (EvidenceTriggerCoalescer.getInstance().submit(triggerReason, recorder,
+                config.triggerMergeWindowMs, config.triggerCooldownMs) != recorder) {
+            return;
+        }
+        
+        CaptureQualityProfile.Choice quality = chooseQualityProfile(config);
+        Log.i(TAG, "Starting evidence capture - Reason: " + triggerReason + ", session " + session.sessionId
+            + ", quality " + quality);
+        EvidencePipeline pipeline = new EvidencePipeline(evidenceExecutor, recorder);
+        recorder.pipeline = pipeline;
+        
+        boolean takePhotos = config.photoEvidenceEnabled && photoCaptureManager.hasPermissions();
+        
+        // Already-encoded frames, so this stage needs no camera start-up and runs first
+        if (videoCaptureManager.isPreTriggerBuffering()) {
+            int liveSeconds = takePhotos ? 0 : PRE_TRIGGER_LIVE_SECONDS;
+            pipeline.addStage(STAGE_PRE_TRIGGER, PRE_TRIGGER_TIMEOUT_MS,
+                result -> savePreTriggerClip(session, config.preTriggerSeconds, liveSeconds, result), null);
+        }
+        
+        if (takePhotos) {
+            pipeline.addStage(STAGE_PHOTOS, PHOTO_TIMEOUT_MS,
+                result -> capturePhotos(session, triggerNanos, quality.profile, result),
+                photoCaptureManager::stopCapture);
+        }
+        
+        if (config.videoEvidenceEnabled && videoCaptureManager.hasPermissions()) {
+            pipeline.addStageAfter(pipeline.hasStage(STAGE_PHOTOS) ? STAGE_PHOTOS : null, STAGE_VIDEO, VIDEO_TIMEOUT_MS,
+                result -> captureVideo(session, quality.profile, result),
+                videoCaptureManager::stopVideoRecording);
+        }
+        
+        if (config.screenshotEvidenceEnabled) {
+            pipeline.addStage(STAGE_SCREENSHOT, SCREENSHOT_TIMEOUT_MS,
+                result -> captureScreenshot(session, result), null);
+        }
+        
+        // Counts the session against the quota before anything is written, so eviction
+        // makes room for it instead of catching up once it has landed
+        recorder.reserve(estimateSessionBytes(pipeline, config, quality.profile));
+        checkStorageQuota();
+        
+        synchronized (activePipelines) {
+            activePipelines.add(pipeline);
+        }
+        pipeline.start();
+    }
+    
+    private long estimateSessionBytes(EvidencePipeline pipeline, ConfigSnapshot config, CaptureQualityProfile profile) {
+        int videoSeconds = 0;
+        if (pipeline.hasStage(STAGE_VIDEO)) {
+            videoSeconds += (int) (VIDEO_TIMEOUT_MS / 1000);
+        }
+        if (pipeline.hasStage(STAGE_PRE_TRIGGER)) {
+            videoSeconds += config.preTriggerSeconds;
+            if (!pipeline.hasStage(STAGE_PHOTOS)) {
+                videoSeconds += PRE_TRIGGER_LIVE_SECONDS;
+            }
+        }
+        int cameras = pipeline.hasStage(STAGE_PHOTOS) ? 2 : 0;
+        long screenshotBytes = pipeline.hasStage(STAGE_SCREENSHOT) ? SCREENSHOT_ESTIMATE_BYTES : 0;
+        return profile.estimateBytes(cameras, videoSeconds) + screenshotBytes;
+    }
+    
+    // Persists and notifies for one session as its stages report, and records merged triggers.
+    // Stages finish on different threads and merges come from any caller, so every entry
+    // point is synchronized on the recorder.
+    private class SessionRecorder implements EvidencePipeline.Listener, EvidenceTriggerCoalescer.ActiveSession {
+        final EvidenceSession session;
+        final long startedAt = SystemClock.elapsedRealtime();
+        EvidencePipeline pipeline;
+        private boolean saved = false;
+        private int notifiedCount = 0;
+        private long reservationLeft = 0;
+        
+        SessionRecorder(EvidenceSession session) {
+            this.session = session;
+        }
+        
+        synchronized void reserve(long bytes) {
+            reservationLeft += bytes;
+            reservedBytes.addAndGet(bytes);
+        }
+        
+        // Landed files now count in the manifest instead
+        private void releaseReservation(long bytes) {
+            long released = Math.min(bytes, reservationLeft);
+            reservationLeft -= released;
+            reservedBytes.addAndGet(-released);
+        }
+        
+        @Override
+        public synchronized void onArtifacts(String stageName, List<String> paths) {
+            for (String path : paths) {
+                File file = new File(path);
+                manifest.record(file, session.sessionId);
+                releaseReservation(file.length());
+            }
+            checkStorageQuota();
+            session.evidencePaths.addAll(paths);
+            List<String> evidencePaths = new ArrayList<>(session.evidencePaths);
+            saveEvidenceSession(session, evidencePaths, !saved);
+            saved = true;
             
-            try {
-                // Create evidence session
-                EvidenceSession session = createEvidenceSession(triggerReason);
-                
-                // Capture photos if enabled
-                if (photoEvidenceEnabled && photoCaptureManager.hasPermissions()) {
-                    List<String> photoPaths = capturePhotos(session);
-                    evidencePaths.addAll(photoPaths);
-                }
-                
-                // Capture video if enabled
-                if (videoEvidenceEnabled && videoCaptureManager.hasPermissions()) {
-                    List<String> videoPaths = captureVideo(session);
-                    evidencePaths.addAll(videoPaths);
-                }
-                
-                // Capture screenshot if enabled
-                if (screenshotEvidenceEnabled) {
-                    String screenshotPath = captureScreenshot(session);
-                    if (screenshotPath != null) {
-                        evidencePaths.add(screenshotPath);
-                    }
-                }
-                
-                // Save evidence session
-                saveEvidenceSession(session, evidencePaths);
-                
-                // Send notifications
+            if (notifiedCount == 0) {
+                Log.i(TAG, "First evidence (" + stageName + ") after "
+                    + (SystemClock.elapsedRealtime() - startedAt) + "ms");
                 sendEvidenceNotification(session, evidencePaths);
-                
-                Log.i(TAG, "Evidence capture completed - " + evidencePaths.size() + " files collected");
-                
-            } catch (Exception e) {
-                Log.e(TAG, "Error during evidence capture", e);
+                notifiedCount = evidencePaths.size();
             }
-        });
+        }
+        
+        @Override
+        public synchronized void onFinished(int artifactCount) {
+            releaseReservation(reservationLeft);
+            List<String> evidencePaths = new ArrayList<>(session.evidencePaths);
+            if (!saved) {
+                // Record the trigger even when nothing was captured
+                saveEvidenceSession(session, evidencePaths, true);
+                saved = true;
+            }
+            if (evidencePaths.size() > notifiedCount && notifiedCount > 0) {
+                // Artifacts that landed after the first notification
+                sendEvidenceNotification(session, evidencePaths);
+            }
+            
+            EvidenceTriggerCoalescer.getInstance().onSessionFinished(this);
+            synchronized (activePipelines) {
+                activePipelines.remove(pipeline);
+            }
+            Log.i(TAG, "Evidence capture completed - " + artifactCount + " files collected in "
+                + (SystemClock.elapsedRealtime() - startedAt) + "ms, " + session.triggerReasons.size() + " triggers");
+        }
+        
+        @Override
+        public synchronized void mergeTrigger(String reason) {
+            session.triggerReasons.add(reason);
+            if (saved) {
+                saveEvidenceSession(session, new ArrayList<>(session.evidencePaths), false);
+            }
+        }
+        
+        @Override
+        public String getSessionId() {
+            return session.sessionId;
+        }
+        
+        @Override
+        public long getStartTimeMillis() {
+            return session.timestamp;
+        }
+    }
+    
+    // Keeps the photo pipeline warm while the device is armed
+    public void enterCameraStandby() {
+        if (ConfigManager.get(context).photoEvidenceEnabled && photoCaptureManager.hasPermissions()) {
+            photoCaptureManager.enterStandby();
+        }
+    }
+    
+    public void exitCameraStandby() {
+        photoCaptureManager.exitStandby();
+    }
+    
+    public String getFirstFrameLatencyReport() {
+        return photoCaptureManager.getFirstFrameLatencyReport();
+    }
+    
+    // Buffers the last seconds of front-camera video in memory while armed
+    public boolean startPreTriggerBuffer() {
+        ConfigSnapshot config = ConfigManager.get(context);
+        if (!config.preTriggerVideoEnabled || !config.cameraEvidenceEnabled || !videoCaptureManager.hasPermissions()) {
+            return false;
+        }
+        videoCaptureManager.startPreTriggerBuffer();
+        return true;
+    }
+    
+    public void stopPreTriggerBuffer() {
+        videoCaptureManager.stopPreTriggerBuffer();
+    }
+    
+    public String getPreTriggerSummary() {
+        return videoCaptureManager.getPreTriggerSummary();
     }
     
     private EvidenceSession createEvidenceSession(String triggerReason) {
@@ -106,139 +313,146 @@ public class EvidenceManager {
         session.sessionId = generateSessionId();
         session.timestamp = System.currentTimeMillis();
         session.triggerReason = triggerReason;
+        session.triggerReasons.add(triggerReason);
         session.deviceInfo = getDeviceInfo();
         
         return session;
     }
     
-    private List<String> capturePhotos(EvidenceSession session) {
-        List<String> photoPaths = new ArrayList<>();
+    // Smaller evidence when storage, the evidence budget, battery or temperature are tight
+    private CaptureQualityProfile.Choice chooseQualityProfile(ConfigSnapshot config) {
+        File evidenceVolume = context.getExternalFilesDir(null);
+        long freeBytes = evidenceVolume != null ? evidenceVolume.getUsableSpace() : 0;
+        long usedBytes = manifest.getTotalBytes();
+        // Usage is unknown until the manifest has loaded; the free space still applies
+        long budgetRemaining = usedBytes == EvidenceManifest.NOT_LOADED ? Long.MAX_VALUE
+            : config.maxStorageGB * 1024L * CaptureQualityProfile.MB - usedBytes;
+        
+        int batteryPercent = -1;
+        boolean charging = false;
+        // Sticky broadcast - no receiver is registered
+        Intent battery = context.registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        if (battery != null) {
+            int level = battery.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+            int scale = battery.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+            if (level >= 0 && scale > 0) {
+                batteryPercent = level * 100 / scale;
+            }
+            charging = battery.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0;
+        }
         
-        try {
-            Log.d(TAG, "Capturing photos for session: " + session.sessionId);
-            
-            final Object lock = new Object();
-            final boolean[] completed = {false};
+        int thermalStatus = 0;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+            if (powerManager != null) {
+                thermalStatus = powerManager.getCurrentThermalStatus();
+            }
+        }
+        
+        return CaptureQualityProfile.choose(freeBytes, budgetRemaining, batteryPercent, charging, thermalStatus);
+    }
+    
+    private void capturePhotos(EvidenceSession session, long triggerNanos, CaptureQualityProfile profile,
+                               EvidenceFuture<List<String>> result) {
+        Log.d(TAG, "Capturing photos for session: " + session.sessionId);
+        
+        photoCaptureManager.startMultiplePhotoCapture(new MultiplePhotoCaptureManager.MultiplePhotoCaptureCallback() {
+            @Override
+            public void onPhotosProgress(int frontCount, int backCount, int totalRemaining) {
+                Log.d(TAG, "Photo progress - Front: " + frontCount + ", Back: " + backCount + ", Remaining: " + totalRemaining);
+            }
             
-            photoCaptureManager.startMultiplePhotoCapture(new MultiplePhotoCaptureManager.MultiplePhotoCaptureCallback() {
-                @Override
-                public void onPhotosProgress(int frontCount, int backCount, int totalRemaining) {
-                    Log.d(TAG, "Photo progress - Front: " + frontCount + ", Back: " + backCount + ", Remaining: " + totalRemaining);
-                }
+            @Override
+            public void onAllPhotosCompleted(List<String> frontPhotos, List<String> backPhotos) {
+                Log.d(TAG, "Photo timing for session " + session.sessionId + ":\n"
+                    + photoCaptureManager.getCaptureTimingReport());
                 
-                @Override
-                public void onAllPhotosCompleted(List<String> frontPhotos, List<String> backPhotos) {
-                    photoPaths.addAll(frontPhotos);
-                    photoPaths.addAll(backPhotos);
-                    
-                    synchronized (lock) {
-                        completed[0] = true;
-                        lock.notify();
-                    }
-                }
-                
-                @Override
-                public void onPhotoCaptureError(String error) {
-                    Log.e(TAG, "Photo capture error: " + error);
-                    synchronized (lock) {
-                        completed[0] = true;
-                        lock.notify();
-                    }
-                }
-            });
-            
-            // Wait for photo capture to complete (with timeout)
-            synchronized (lock) {
-                if (!completed[0]) {
-                    lock.wait(30000); // 30 second timeout
-                }
+                List<String> photoPaths = new ArrayList<>(frontPhotos);
+                photoPaths.addAll(backPhotos);
+                result.complete(photoPaths);
             }
             
-        } catch (Exception e) {
-            Log.e(TAG, "Error capturing photos", e);
-        }
-        
-        return photoPaths;
+            @Override
+            public void onPhotoCaptureError(String error) {
+                Log.e(TAG, "Photo capture error: " + error);
+                result.complete(Collections.<String>emptyList());
+            }
+        }, triggerNanos, profile);
     }
     
-    private List<String> captureVideo(EvidenceSession session) {
-        List<String> videoPaths = new ArrayList<>();
+    private void captureVideo(EvidenceSession session, CaptureQualityProfile profile, EvidenceFuture<List<String>> result) {
+        Log.d(TAG, "Capturing video for session: " + session.sessionId);
         
-        try {
-            Log.d(TAG, "Capturing video for session: " + session.sessionId);
+        videoCaptureManager.startSecretVideoRecording(new VideoCaptureManager.VideoCaptureCallback() {
+            @Override
+            public void onVideosRecorded(String frontVideoPath, String backVideoPath) {
+                List<String> videoPaths = new ArrayList<>();
+                if (frontVideoPath != null) videoPaths.add(frontVideoPath);
+                if (backVideoPath != null) videoPaths.add(backVideoPath);
+                result.complete(videoPaths);
+            }
             
-            final Object lock = new Object();
-            final boolean[] completed = {false};
+            @Override
+            public void onVideoError(String error) {
+                Log.e(TAG, "Video capture error: " + error);
+                result.complete(Collections.<String>emptyList());
+            }
             
-            videoCaptureManager.startSecretVideoRecording(new VideoCaptureManager.VideoCaptureCallback() {
-                @Override
-                public void onVideosRecorded(String frontVideoPath, String backVideoPath) {
-                    if (frontVideoPath != null) videoPaths.add(frontVideoPath);
-                    if (backVideoPath != null) videoPaths.add(backVideoPath);
-                    
-                    synchronized (lock) {
-                        completed[0] = true;
-                        lock.notify();
-                    }
-                }
-                
+            @Override
+            public void onRecordingProgress(int secondsRemaining) {
+                Log.d(TAG, "Video recording progress: " + secondsRemaining + "s remaining");
+            }
+        }, profile);
+    }
+    
+    private void savePreTriggerClip(EvidenceSession session, int preTriggerSeconds, int liveSeconds,
+                                    EvidenceFuture<List<String>> result) {
+        Log.d(TAG, "Saving pre-trigger video for session: " + session.sessionId);
+        
+        videoCaptureManager.savePreTriggerClip(preTriggerSeconds, liveSeconds,
+            new PreTriggerVideoRecorder.ClipCallback() {
                 @Override
-                public void onVideoError(String error) {
-                    Log.e(TAG, "Video capture error: " + error);
-                    synchronized (lock) {
-                        completed[0] = true;
-                        lock.notify();
-                    }
+                public void onClipSaved(String path, long durationUs) {
+                    result.complete(Collections.singletonList(path));
                 }
                 
                 @Override
-                public void onRecordingProgress(int secondsRemaining) {
-                    Log.d(TAG, "Video recording progress: " + secondsRemaining + "s remaining");
+                public void onClipError(String error) {
+                    Log.e(TAG, "Pre-trigger video error: " + error);
+                    result.complete(Collections.<String>emptyList());
                 }
             });
-            
-            // Wait for video capture to complete (with timeout)
-            synchronized (lock) {
-                if (!completed[0]) {
-                    lock.wait(15000); // 15 second timeout
-                }
-            }
-            
-        } catch (Exception e) {
-            Log.e(TAG, "Error capturing video", e);
-        }
-        
-        return videoPaths;
-    }
-    
-    private String captureScreenshot(EvidenceSession session) {
-        try {
-            Log.d(TAG, "Capturing screenshot for session: " + session.sessionId);
-            return screenshotUtility.captureScreenshot("evidence_" + session.sessionId);
-        } catch (Exception e) {
-            Log.e(TAG, "Error capturing screenshot", e);
-            return null;
-        }
     }
     
-    private void saveEvidenceSession(EvidenceSession session, List<String> evidencePaths) {
-        // Save session metadata
-        String sessionKey = "session_" + session.sessionId;
-        StringBuilder pathsBuilder = new StringBuilder();
-        for (int i = 0; i < evidencePaths.size(); i++) {
-            if (i > 0) pathsBuilder.append("|");
-            pathsBuilder.append(evidencePaths.get(i));
-        }
+    private void captureScreenshot(EvidenceSession session, EvidenceFuture<List<String>> result) {
+        Log.d(TAG, "Capturing screenshot for session: " + session.sessionId);
         
-        preferences.edit()
-            .putString(sessionKey + "_reason", session.triggerReason)
-            .putLong(sessionKey + "_timestamp", session.timestamp)
-            .putString(sessionKey + "_paths", pathsBuilder.toString())
-            .putString(sessionKey + "_device", session.deviceInfo)
-            .putInt("total_evidence_sessions", getTotalEvidenceSessions() + 1)
-            .apply();
+        EvidenceFuture<String> screenshot = screenshotUtility.captureScreenshotAsync("evidence_" + session.sessionId);
+        screenshot.whenDone(() -> {
+            String screenshotPath = screenshot.getNow(null);
+            result.complete(screenshotPath != null
+                ? Collections.singletonList(screenshotPath) : Collections.<String>emptyList());
+        });
+        // A timed-out stage stops the screenshot from being encoded
+        result.whenDone(() -> screenshot.cancel(false));
+    }
+    
+    // Called again as artifacts arrive; only the first save counts the session
+    private void saveEvidenceSession(EvidenceSession session, List<String> evidencePaths, boolean newSession) {
+        EvidenceSession record = new EvidenceSession();
+        record.sessionId = session.sessionId;
+        record.timestamp = session.timestamp;
+        record.triggerReason = session.triggerReason;
+        record.deviceInfo = session.deviceInfo;
+        record.evidencePaths = evidencePaths;
+        record.triggerReasons = new ArrayList<>(session.triggerReasons);
+        sessionStore.put(record);
+        
+        if (newSession) {
+            preferences.edit().putInt("total_evidence_sessions", getTotalEvidenceSessions() + 1).apply();
+        }
         
-        Log.d(TAG, "Evidence session saved: " + session.sessionId);
+        Log.d(TAG, "Evidence session saved: " + session.sessionId + " (" + evidencePaths.size() + " files)");
     }
     
     private void sendEvidenceNotification(EvidenceSession session, List<String> evidencePaths) {
@@ -249,7 +463,7 @@ public class EvidenceManager {
         notificationManager.queueSecurityNotification(title, message, evidencePaths, true);
         
         // Send email if enabled
-        if (autoEmailEnabled) {
+        if (ConfigManager.get(context).autoEmailEnabled) {
             // Email will be sent automatically by the notification manager
             Log.d(TAG, "Email notification queued");
         }
@@ -257,84 +471,140 @@ public class EvidenceManager {
     
     // Evidence retrieval methods
     public List<EvidenceSession> getAllEvidenceSessions() {
-        List<EvidenceSession> sessions = new ArrayList<>();
-        
-        for (String key : preferences.getAll().keySet()) {
-            if (key.endsWith("_reason")) {
-                String sessionId = key.substring(8, key.length() - 7); // Remove "session_" and "_reason"
-                EvidenceSession session = loadEvidenceSession(sessionId);
-                if (session != null) {
-                    sessions.add(session);
-                }
+        return sessionStore.getAll();
+    }
+    
+    // Sessions with fromMs <= timestamp < toMs, newest first; limit <= 0 for all
+    public List<EvidenceSession> getEvidenceSessions(long fromMs, long toMs, int limit) {
+        return sessionStore.getRange(fromMs, toMs, limit);
+    }
+    
+    public EvidenceSession getEvidenceSession(String sessionId) {
+        return sessionStore.get(sessionId);
+    }
+    
+    // From the manifest; no directory listing
+    public List<String> getAllEvidenceFiles() {
+        List<String> allFiles = new ArrayList<>();
+        for (EvidenceManifest.Entry entry : manifest.getEntries()) {
+            allFiles.add(entry.path);
+        }
+        return allFiles;
+    }
+    
+    // Size, mtime and session of an evidence file without touching storage; null if not known
+    public EvidenceManifest.Entry getEvidenceFileInfo(String path) {
+        return manifest.get(path);
+    }
+    
+    // Until it is, the file queries and statistics above and below have nothing to answer from
+    public boolean isEvidenceIndexLoaded() {
+        return manifest.isLoaded();
+    }
+    
+    // On the loading thread, or right away when already loaded
+    public void runWhenEvidenceIndexLoaded(Runnable action) {
+        manifest.runWhenLoaded(action);
+    }
+    
+    public boolean deleteEvidenceFile(String path) {
+        File file = new File(path);
+        boolean deleted = file.delete();
+        if (deleted || !file.exists()) {
+            manifest.remove(path);
+        }
+        return deleted;
+    }
+    
+    // Forgets every file and re-lists the directories in the background; waits for the
+    // manifest, on its loading thread, if it has not loaded yet
+    public void deleteAllEvidenceFiles() {
+        manifest.runWhenLoaded(() -> {
+            for (EvidenceManifest.Entry entry : manifest.getEntries()) {
+                deleteEvidenceFile(entry.path);
             }
+            reconcileEvidenceManifest();
+        });
+    }
+    
+    public void reconcileEvidenceManifest() {
+        try {
+            evidenceExecutor.execute(manifest::reconcile);
+        } catch (RejectedExecutionException e) {
+            // Shutting down
         }
-        
-        // Sort by timestamp (newest first)
-        sessions.sort((s1, s2) -> Long.compare(s2.timestamp, s1.timestamp));
-        
-        return sessions;
     }
     
-    private EvidenceSession loadEvidenceSession(String sessionId) {
-        String sessionKey = "session_" + sessionId;
-        
-        if (!preferences.contains(sessionKey + "_reason")) {
-            return null;
+    // O(1) check from the capture path, counting what sessions still capturing are expected to
+    // write; eviction itself runs on the executor. The load checks again when it finishes.
+    private void checkStorageQuota() {
+        long used = manifest.getTotalBytes();
+        if (used == EvidenceManifest.NOT_LOADED || used + reservedBytes.get() <= getStorageBudgetBytes()) return;
+        if (evictionScheduled.compareAndSet(false, true)) {
+            scheduleEvictionPass(0);
         }
-        
-        EvidenceSession session = new EvidenceSession();
-        session.sessionId = sessionId;
-        session.triggerReason = preferences.getString(sessionKey + "_reason", "");
-        session.timestamp = preferences.getLong(sessionKey + "_timestamp", 0);
-        session.deviceInfo = preferences.getString(sessionKey + "_device", "");
-        
-        String pathsStr = preferences.getString(sessionKey + "_paths", "");
-        if (!pathsStr.isEmpty()) {
-            session.evidencePaths = Arrays.asList(pathsStr.split("\\|"));
-        } else {
-            session.evidencePaths = new ArrayList<>();
+    }
+    
+    private long getStorageBudgetBytes() {
+        return ConfigManager.get(context).maxStorageGB * 1024L * CaptureQualityProfile.MB;
+    }
+    
+    private void scheduleEvictionPass(long delayMs) {
+        try {
+            evidenceExecutor.schedule(this::runEvictionPass, delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            evictionScheduled.set(false); // shutting down; the next artifact checks again
         }
-        
-        return session;
     }
     
-    public List<String> getAllEvidenceFiles() {
-        List<String> allFiles = new ArrayList<>();
-        
-        // Get files from photos directory
-        File photosDir = new File(context.getExternalFilesDir(null), "security_photos");
-        if (photosDir.exists()) {
-            File[] photoFiles = photosDir.listFiles();
-            if (photoFiles != null) {
-                for (File file : photoFiles) {
-                    allFiles.add(file.getAbsolutePath());
+    // Deletes at most EVICTIONS_PER_PASS files, then yields the executor to capture stages
+    private void runEvictionPass() {
+        ConfigSnapshot config = ConfigManager.get(context);
+        long budget = getStorageBudgetBytes();
+        // Room for what sessions still capturing are expected to add
+        long target = Math.max(0, budget / 100 * QUOTA_LOW_WATERMARK_PERCENT - reservedBytes.get());
+        long used = manifest.getTotalBytes();
+        
+        // Never the session being captured, including files it has not claimed yet
+        EvidenceTriggerCoalescer.ActiveSession inFlight = EvidenceTriggerCoalescer.getInstance().getInFlight();
+        String protectedSession = inFlight != null ? inFlight.getSessionId() : null;
+        long protectedSince = inFlight != null ? inFlight.getStartTimeMillis() : Long.MAX_VALUE;
+        
+        // Walks the head of the manifest's ordering for the policy
+        List<EvictionPlanner.Candidate> victims = manifest.planEviction(target, config.evictionPolicy,
+            protectedSession, protectedSince, EVICTIONS_PER_PASS);
+        
+        int evicted = 0;
+        Map<String, List<String>> evictedBySession = new HashMap<>();
+        for (EvictionPlanner.Candidate victim : victims) {
+            if (deleteEvidenceFile(victim.path)) {
+                evicted++;
+                if (victim.sessionId != null) {
+                    List<String> paths = evictedBySession.get(victim.sessionId);
+                    if (paths == null) {
+                        paths = new ArrayList<>();
+                        evictedBySession.put(victim.sessionId, paths);
+                    }
+                    paths.add(victim.path);
                 }
             }
         }
-        
-        // Get files from videos directory
-        File videosDir = new File(context.getExternalFilesDir(null), "security_videos");
-        if (videosDir.exists()) {
-            File[] videoFiles = videosDir.listFiles();
-            if (videoFiles != null) {
-                for (File file : videoFiles) {
-                    allFiles.add(file.getAbsolutePath());
-                }
-            }
+        // The gallery lists sessions' paths, so they must not keep pointing at deleted files
+        for (Map.Entry<String, List<String>> session : evictedBySession.entrySet()) {
+            sessionStore.removePaths(session.getKey(), session.getValue());
         }
         
-        // Get files from screenshots directory
-        File screenshotsDir = new File(context.getExternalFilesDir(null), "security_screenshots");
-        if (screenshotsDir.exists()) {
-            File[] screenshotFiles = screenshotsDir.listFiles();
-            if (screenshotFiles != null) {
-                for (File file : screenshotFiles) {
-                    allFiles.add(file.getAbsolutePath());
-                }
-            }
-        }
+        long after = manifest.getTotalBytes();
+        Log.i(TAG, "Quota eviction (" + config.evictionPolicy + ") - " + evicted + " files, "
+            + (used - after) / 1024 + "KB freed, " + after / CaptureQualityProfile.MB + "MB of "
+            + budget / CaptureQualityProfile.MB + "MB used");
         
-        return allFiles;
+        if (after > target && evicted > 0) {
+            scheduleEvictionPass(EVICTION_PASS_DELAY_MS);
+        } else {
+            // Done, or only protected files are left; the next artifact retries
+            evictionScheduled.set(false);
+        }
     }
     
     // Evidence maintenance
@@ -342,68 +612,41 @@ public class EvidenceManager {
         evidenceExecutor.execute(() -> {
             Log.i(TAG, "Starting evidence cleanup");
             
-            long cutoffTime = System.currentTimeMillis() - (evidenceRetentionDays * 24L * 60 * 60 * 1000);
+            long cutoffTime = System.currentTimeMillis() - (ConfigManager.get(context).evidenceRetentionDays * 24L * 60 * 60 * 1000);
             int deletedFiles = 0;
             
             // Clean up old evidence files
-            List<String> allFiles = getAllEvidenceFiles();
-            for (String filePath : allFiles) {
-                File file = new File(filePath);
-                if (file.exists() && file.lastModified() < cutoffTime) {
-                    if (file.delete()) {
-                        deletedFiles++;
-                    }
+            for (EvidenceManifest.Entry entry : manifest.getEntries()) {
+                if (entry.mtime < cutoffTime && deleteEvidenceFile(entry.path)) {
+                    deletedFiles++;
                 }
             }
             
             // Clean up old session records
-            SharedPreferences.Editor editor = preferences.edit();
-            for (String key : preferences.getAll().keySet()) {
-                if (key.contains("_timestamp")) {
-                    long timestamp = preferences.getLong(key, 0);
-                    if (timestamp < cutoffTime) {
-                        String sessionId = key.substring(8, key.length() - 10); // Extract session ID
-                        deleteSessionRecord(editor, sessionId);
-                    }
-                }
-            }
-            editor.apply();
+            int deletedSessions = sessionStore.deleteOlderThan(cutoffTime);
             
-            Log.i(TAG, "Evidence cleanup completed - " + deletedFiles + " files deleted");
+            Log.i(TAG, "Evidence cleanup completed - " + deletedFiles + " files, " + deletedSessions + " sessions deleted");
         });
     }
     
-    private void deleteSessionRecord(SharedPreferences.Editor editor, String sessionId) {
-        String sessionKey = "session_" + sessionId;
-        editor.remove(sessionKey + "_reason");
-        editor.remove(sessionKey + "_timestamp");
-        editor.remove(sessionKey + "_paths");
-        editor.remove(sessionKey + "_device");
-    }
-    
     public void deleteEvidenceSession(String sessionId) {
-        EvidenceSession session = loadEvidenceSession(sessionId);
+        EvidenceSession session = sessionStore.get(sessionId);
         if (session != null) {
             // Delete associated files
             for (String filePath : session.evidencePaths) {
-                File file = new File(filePath);
-                if (file.exists()) {
-                    file.delete();
-                }
+                deleteEvidenceFile(filePath);
             }
             
             // Delete session record
-            SharedPreferences.Editor editor = preferences.edit();
-            deleteSessionRecord(editor, sessionId);
-            editor.apply();
+            sessionStore.delete(sessionId);
             
             Log.i(TAG, "Evidence session deleted: " + sessionId);
         }
     }
     
-    // Statistics
+    // Statistics; EvidenceManifest.NOT_LOADED until the manifest has loaded
     public int getEvidenceCount() {
-        return getAllEvidenceFiles().size();
+        return manifest.getCount();
     }
     
     public int getTotalEvidenceSessions() {
@@ -411,14 +654,7 @@ public class EvidenceManager {
     }
     
     public long getTotalEvidenceSize() {
-        long totalSize = 0;
-        for (String filePath : getAllEvidenceFiles()) {
-            File file = new File(filePath);
-            if (file.exists()) {
-                totalSize += file.length();
-            }
-        }
-        return totalSize;
+        return manifest.getTotalBytes();
     }
     
     // Settings
@@ -454,6 +690,23 @@ public class EvidenceManager {
         this.autoEmailEnabled = enabled;
     }
     
+    public int getMaxStorageGB() {
+        return maxStorageGB;
+    }
+    
+    public void setMaxStorageGB(int gb) {
+        this.maxStorageGB = Math.max(1, gb);
+    }
+    
+    // EvictionPlanner.POLICY_OLDEST_SESSION, POLICY_LOW_VALUE_FIRST or POLICY_DUPLICATES_FIRST
+    public String getEvictionPolicy() {
+        return evictionPolicy;
+    }
+    
+    public void setEvictionPolicy(String policy) {
+        this.evictionPolicy = policy;
+    }
+    
     public int getEvidenceRetentionDays() {
         return evidenceRetentionDays;
     }
@@ -462,6 +715,63 @@ public class EvidenceManager {
         this.evidenceRetentionDays = Math.max(1, days);
     }
     
+    // Triggers within this time of a session's start are merged into it
+    public int getTriggerMergeWindowSeconds() {
+        return triggerMergeWindowSeconds;
+    }
+    
+    public void setTriggerMergeWindowSeconds(int seconds) {
+        this.triggerMergeWindowSeconds = Math.max(0, seconds);
+    }
+    
+    // Triggers within this time of a session finishing are merged into it
+    public int getTriggerCooldownSeconds() {
+        return triggerCooldownSeconds;
+    }
+    
+    public void setTriggerCooldownSeconds(int seconds) {
+        this.triggerCooldownSeconds = Math.max(0, seconds);
+    }
+    
+    public boolean isPreTriggerVideoEnabled() {
+        return preTriggerVideoEnabled;
+    }
+    
+    public void setPreTriggerVideoEnabled(boolean enabled) {
+        this.preTriggerVideoEnabled = enabled;
+    }
+    
+    // How much video before the trigger goes into the clip
+    public int getPreTriggerSeconds() {
+        return preTriggerSeconds;
+    }
+    
+    public void setPreTriggerSeconds(int seconds) {
+        this.preTriggerSeconds = Math.max(1, Math.min(30, seconds));
+    }
+    
+    // ScreenshotUtility.FORMAT_JPEG, FORMAT_WEBP or FORMAT_PNG
+    public String getScreenshotFormat() {
+        return screenshotFormat;
+    }
+    
+    public void setScreenshotFormat(String format) {
+        this.screenshotFormat = format;
+    }
+    
+    // Ignored for PNG
+    public int getScreenshotQuality() {
+        return screenshotQuality;
+    }
+    
+    public void setScreenshotQuality(int quality) {
+        this.screenshotQuality = Math.max(1, Math.min(100, quality));
+    }
+    
+    public String getTriggerStats() {
+        return EvidenceTriggerCoalescer.getInstance().getSummary();
+    }
+    
     // Persistence
     public void saveSettings() {
         preferences.edit()
@@ -471,18 +781,34 @@ public class EvidenceManager {
             .putBoolean("auto_email", autoEmailEnabled)
             .putInt("retention_days", evidenceRetentionDays)
             .putInt("max_storage_gb", maxStorageGB)
+            .putString("eviction_policy", evictionPolicy)
+            .putInt("trigger_merge_window_seconds", triggerMergeWindowSeconds)
+            .putInt("trigger_cooldown_seconds", triggerCooldownSeconds)
+            .putBoolean("pre_trigger_video", preTriggerVideoEnabled)
+            .putInt("pre_trigger_seconds", preTriggerSeconds)
+            .putString("screenshot_format", screenshotFormat)
+            .putInt("screenshot_quality", screenshotQuality)
             .apply();
         
         Log.d(TAG, "Evidence settings saved");
     }
     
+    // The fields below are an edit buffer for the settings screen; capture paths read the snapshot
     public void loadSettings() {
-        photoEvidenceEnabled = preferences.getBoolean("photo_evidence", true);
-        videoEvidenceEnabled = preferences.getBoolean("video_evidence", false);
-        screenshotEvidenceEnabled = preferences.getBoolean("screenshot_evidence", true);
-        autoEmailEnabled = preferences.getBoolean("auto_email", false);
-        evidenceRetentionDays = preferences.getInt("retention_days", 30);
-        maxStorageGB = preferences.getInt("max_storage_gb", 2);
+        ConfigSnapshot config = ConfigManager.get(context);
+        photoEvidenceEnabled = config.photoEvidenceEnabled;
+        videoEvidenceEnabled = config.videoEvidenceEnabled;
+        screenshotEvidenceEnabled = config.screenshotEvidenceEnabled;
+        autoEmailEnabled = config.autoEmailEnabled;
+        evidenceRetentionDays = config.evidenceRetentionDays;
+        maxStorageGB = config.maxStorageGB;
+        evictionPolicy = config.evictionPolicy;
+        triggerMergeWindowSeconds = (int) (config.triggerMergeWindowMs / 1000);
+        triggerCooldownSeconds = (int) (config.triggerCooldownMs / 1000);
+        preTriggerVideoEnabled = config.preTriggerVideoEnabled;
+        preTriggerSeconds = config.preTriggerSeconds;
+        screenshotFormat = config.screenshotFormat;
+        screenshotQuality = config.screenshotQuality;
         
         Log.d(TAG, "Evidence settings loaded");
     }
@@ -501,6 +827,16 @@ public class EvidenceManager {
     }
     
     public void cleanup() {
+        // Stop in-flight captures first so their cancel actions still have the cameras
+        List<EvidencePipeline> pipelines;
+        synchronized (activePipelines) {
+            pipelines = new ArrayList<>(activePipelines);
+            activePipelines.clear();
+        }
+        for (EvidencePipeline pipeline : pipelines) {
+            pipeline.cancel();
+        }
+        
         if (evidenceExecutor != null && !evidenceExecutor.isShutdown()) {
             evidenceExecutor.shutdown();
         }
@@ -527,6 +863,7 @@ public class EvidenceManager {
         public String triggerReason;
         public String deviceInfo;
         public List<String> evidencePaths = new ArrayList<>();
+        public List<String> triggerReasons = new ArrayList<>(); // first reason plus any merged ones
         
         public String getFormattedTimestamp() {
             return new SimpleDateFormat("MMM dd, yyyy HH:mm:ss", Locale.getDefault())
@@ -0,0 +1,398 @@
+// File: app/src/main/java/com/antitheft/security/EvidenceManifest.java
+
+package com.antitheft.security;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.os.FileObserver;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistent record of every evidence file: path, type, size, mtime and session.
+ *
+ * Counting or sizing the evidence used to list the three evidence directories and
+ * stat every file, on the gallery and settings screens' UI thread. The manifest
+ * keeps the entries in memory, mirrored to a small SQLite table, with running
+ * totals, so those queries are O(1) and nothing lists directories on demand. It
+ * also keeps the quota's eviction orderings up to date as files come and go.
+ *
+ * Capture paths record their files with the session, and deletes go through
+ * remove(). A FileObserver per directory picks up files written or deleted by
+ * anything else. reconcile() lists the directories and fixes whatever drifted,
+ * and re-arms the observers, which stop when their directory is deleted; it runs
+ * off the UI thread at start-up and periodically.
+ *
+ * getInstance() does no I/O. load() reads the table, or fills it on the run that
+ * creates the database, and is run on a background thread; until it has finished
+ * the queries answer NOT_LOADED or nothing, and record() and remove() are queued
+ * to run once it has.
+ */
+public class EvidenceManifest extends SQLiteOpenHelper {
+    private static final String TAG = "AntiTheft_Manifest";
+    private static final String DATABASE_NAME = "evidence_manifest.db";
+    private static final int DATABASE_VERSION = 1;
+    private static final long RECONCILE_INTERVAL_MS = 6 * 60 * 60 * 1000L;
+
+    public static final String TYPE_PHOTO = "photo";
+    public static final String TYPE_VIDEO = "video";
+    public static final String TYPE_SCREENSHOT = "screenshot";
+
+    // Evidence directories under getExternalFilesDir(null) and the type of their files
+    private static final String[][] DIRECTORIES = {
+        {"security_photos", TYPE_PHOTO},
+        {"security_videos", TYPE_VIDEO},
+        {"security_screenshots", TYPE_SCREENSHOT}
+    };
+
+    private static final String TABLE = "files";
+    private static final String COL_PATH = "path";
+    private static final String COL_TYPE = "type";
+    private static final String COL_SIZE = "size";
+    private static final String COL_MTIME = "mtime";
+    private static final String COL_SESSION = "session_id";
+    private static final String[] COLUMNS = {COL_PATH, COL_TYPE, COL_SIZE, COL_MTIME, COL_SESSION};
+
+    private static final int OBSERVED_EVENTS = FileObserver.CLOSE_WRITE | FileObserver.MOVED_TO
+        | FileObserver.DELETE | FileObserver.MOVED_FROM;
+
+    public static final int NOT_LOADED = -1;
+
+    private static volatile EvidenceManifest instance;
+
+    public static class Entry {
+        public final String path;
+        public final String type;
+        public final long size;
+        public final long mtime;
+        public final String sessionId; // null until a capture path claims the file
+
+        Entry(String path, String type, long size, long mtime, String sessionId) {
+            this.path = path;
+            this.type = type;
+            this.size = size;
+            this.mtime = mtime;
+            this.sessionId = sessionId;
+        }
+    }
+
+    private final Context context;
+
+    // Guarded by this
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final Map<String, Integer> countsByType = new HashMap<>();
+    private long totalBytes = 0;
+    private final EvictionPlanner evictionQueue = new EvictionPlanner();
+    private final List<FileObserver> observers = new ArrayList<>(); // strong refs; collected observers stop
+    private long lastReconcileAt = 0;
+    private boolean created = false; // database was new this run
+
+    private final Object loadLock = new Object(); // held for the whole load
+    private boolean loading = false; // guarded by loadLock; the load's own reconcile() calls load()
+    private volatile boolean loaded = false;
+    private final List<Runnable> loadListeners = new ArrayList<>(); // guarded by itself
+
+    public static EvidenceManifest getInstance(Context context) {
+        if (instance == null) {
+            synchronized (EvidenceManifest.class) {
+                if (instance == null) {
+                    instance = new EvidenceManifest(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    private EvidenceManifest(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        this.context = context;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE + " ("
+            + COL_PATH + " TEXT PRIMARY KEY, "
+            + COL_TYPE + " TEXT NOT NULL, "
+            + COL_SIZE + " INTEGER NOT NULL, "
+            + COL_MTIME + " INTEGER NOT NULL, "
+            + COL_SESSION + " TEXT)");
+        created = true;
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // Only version 1 so far
+    }
+
+    // Blocking; returns at once when already loaded
+    public void load() {
+        if (loaded) return;
+        List<Runnable> listeners;
+        synchronized (loadLock) {
+            if (loaded || loading) return;
+            loading = true;
+            try {
+                readTable();
+                if (created) {
+                    // First run with a manifest: fill it before anyone queries it empty
+                    reconcile();
+                } else {
+                    startWatching();
+                }
+            } finally {
+                loading = false; // a failed load is retried by the next caller
+            }
+            synchronized (loadListeners) {
+                loaded = true;
+                listeners = new ArrayList<>(loadListeners);
+                loadListeners.clear();
+            }
+        }
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    // Runs the action now if loaded, otherwise on the loading thread once it is
+    public void runWhenLoaded(Runnable action) {
+        synchronized (loadListeners) {
+            if (!loaded) {
+                loadListeners.add(action);
+                return;
+            }
+        }
+        action.run();
+    }
+
+    private synchronized void readTable() {
+        entries.clear(); // left over from a failed attempt
+        countsByType.clear();
+        totalBytes = 0;
+        evictionQueue.clear();
+        try (Cursor cursor = getReadableDatabase().query(TABLE, COLUMNS, null, null, null, null, null)) {
+            while (cursor.moveToNext()) {
+                index(new Entry(cursor.getString(0), cursor.getString(1), cursor.getLong(2),
+                    cursor.getLong(3), cursor.getString(4)));
+            }
+        }
+        Log.d(TAG, "Loaded " + entries.size() + " evidence files, " + totalBytes + " bytes");
+    }
+
+    // Stats the file and records it; a null sessionId keeps the one already recorded
+    public void record(File file, String sessionId) {
+        runWhenLoaded(() -> recordLoaded(file, sessionId));
+    }
+
+    private synchronized void recordLoaded(File file, String sessionId) {
+        String type = typeOf(file);
+        if (type == null || !file.isFile()) return;
+
+        String path = file.getAbsolutePath();
+        Entry old = entries.get(path);
+        String session = sessionId != null ? sessionId : (old != null ? old.sessionId : null);
+        Entry entry = new Entry(path, type, file.length(), file.lastModified(), session);
+        if (old != null && old.size == entry.size && old.mtime == entry.mtime
+                && (old.sessionId == null ? session == null : old.sessionId.equals(session))) {
+            return;
+        }
+
+        unindex(old);
+        index(entry);
+
+        ContentValues values = new ContentValues();
+        values.put(COL_PATH, entry.path);
+        values.put(COL_TYPE, entry.type);
+        values.put(COL_SIZE, entry.size);
+        values.put(COL_MTIME, entry.mtime);
+        values.put(COL_SESSION, entry.sessionId);
+        getWritableDatabase().insertWithOnConflict(TABLE, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    public void remove(String path) {
+        runWhenLoaded(() -> removeLoaded(path));
+    }
+
+    private synchronized void removeLoaded(String path) {
+        Entry old = entries.get(path);
+        if (old == null) return;
+        unindex(old);
+        getWritableDatabase().delete(TABLE, COL_PATH + " = ?", new String[] {path});
+    }
+
+    private void index(Entry entry) {
+        entries.put(entry.path, entry);
+        totalBytes += entry.size;
+        Integer count = countsByType.get(entry.type);
+        countsByType.put(entry.type, count != null ? count + 1 : 1);
+        evictionQueue.add(new EvictionPlanner.Candidate(entry.path, entry.type, entry.size, entry.mtime,
+            entry.sessionId));
+    }
+
+    private void unindex(Entry entry) {
+        if (entry == null) return;
+        entries.remove(entry.path);
+        totalBytes -= entry.size;
+        Integer count = countsByType.get(entry.type);
+        if (count != null) {
+            countsByType.put(entry.type, count - 1);
+        }
+        evictionQueue.remove(entry.path);
+    }
+
+    // Queries; answered from memory, NOT_LOADED (or nothing) before load() has finished
+    public synchronized int getCount() {
+        return loaded ? entries.size() : NOT_LOADED;
+    }
+
+    public synchronized int getCount(String type) {
+        if (!loaded) return NOT_LOADED;
+        Integer count = countsByType.get(type);
+        return count != null ? count : 0;
+    }
+
+    public synchronized long getTotalBytes() {
+        return loaded ? totalBytes : NOT_LOADED;
+    }
+
+    public synchronized Entry get(String path) {
+        return loaded ? entries.get(path) : null;
+    }
+
+    public synchronized List<Entry> getEntries() {
+        return loaded ? new ArrayList<>(entries.values()) : new ArrayList<>();
+    }
+
+    // Files to delete to bring the total down to targetBytes; see EvictionPlanner.plan()
+    public synchronized List<EvictionPlanner.Candidate> planEviction(long targetBytes, String policy,
+                                                                     String protectedSessionId,
+                                                                     long protectedSinceMs, int maxFiles) {
+        if (!loaded) return new ArrayList<>();
+        return evictionQueue.plan(totalBytes, targetBytes, policy, protectedSessionId, protectedSinceMs, maxFiles);
+    }
+
+    private synchronized List<Entry> snapshot() {
+        return new ArrayList<>(entries.values());
+    }
+
+    // Creates the directories and (re)starts one observer per directory
+    private synchronized void startWatching() {
+        for (FileObserver observer : observers) {
+            observer.stopWatching();
+        }
+        observers.clear();
+
+        File base = context.getExternalFilesDir(null);
+        if (base == null) return; // external storage not mounted
+
+        for (String[] directory : DIRECTORIES) {
+            File dir = new File(base, directory[0]);
+            if (!dir.exists() && !dir.mkdirs()) {
+                Log.w(TAG, "Cannot create " + dir);
+                continue;
+            }
+            FileObserver observer = new DirectoryObserver(dir);
+            observer.startWatching();
+            observers.add(observer);
+        }
+    }
+
+    private class DirectoryObserver extends FileObserver {
+        private final File directory;
+
+        @SuppressWarnings("deprecation") // FileObserver(File, int) needs API 29
+        DirectoryObserver(File directory) {
+            super(directory.getAbsolutePath(), OBSERVED_EVENTS);
+            this.directory = directory;
+        }
+
+        @Override
+        public void onEvent(int event, String name) {
+            if (name == null) return;
+            File file = new File(directory, name);
+            switch (event & FileObserver.ALL_EVENTS) {
+                case FileObserver.CLOSE_WRITE:
+                case FileObserver.MOVED_TO:
+                    record(file, null);
+                    break;
+                case FileObserver.DELETE:
+                case FileObserver.MOVED_FROM:
+                    remove(file.getAbsolutePath());
+                    break;
+            }
+        }
+    }
+
+    // Lists the directories, records new or changed files and drops missing ones. Blocking.
+    public void reconcile() {
+        load();
+        synchronized (this) {
+            lastReconcileAt = SystemClock.elapsedRealtime();
+        }
+        runReconcile();
+    }
+
+    // Shared by every EvidenceManager in the process, so only the first caller per interval lists
+    public void reconcileIfStale() {
+        load();
+        synchronized (this) {
+            long now = SystemClock.elapsedRealtime();
+            if (lastReconcileAt != 0 && now - lastReconcileAt < RECONCILE_INTERVAL_MS) return;
+            lastReconcileAt = now;
+        }
+        runReconcile();
+    }
+
+    private void runReconcile() {
+        long started = SystemClock.elapsedRealtime();
+        startWatching();
+
+        int before;
+        synchronized (this) {
+            before = entries.size();
+        }
+        File base = context.getExternalFilesDir(null);
+        if (base != null) {
+            for (String[] directory : DIRECTORIES) {
+                File[] files = new File(base, directory[0]).listFiles();
+                if (files == null) continue;
+                for (File file : files) {
+                    recordLoaded(file, null);
+                }
+            }
+        }
+
+        int removed = 0;
+        List<Entry> recorded = snapshot();
+        for (Entry entry : recorded) {
+            if (!new File(entry.path).exists()) {
+                removeLoaded(entry.path);
+                removed++;
+            }
+        }
+
+        Log.i(TAG, "Reconciled in " + (SystemClock.elapsedRealtime() - started) + "ms - "
+            + before + " -> " + (recorded.size() - removed) + " files, " + removed + " missing");
+    }
+
+    private String typeOf(File file) {
+        File parent = file.getParentFile();
+        if (parent == null) return null;
+        for (String[] directory : DIRECTORIES) {
+            if (directory[0].equals(parent.getName())) return directory[1];
+        }
+        return null;
+    }
+}
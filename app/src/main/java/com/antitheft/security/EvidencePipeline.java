@@ -0,0 +1,198 @@
+// File: app/src/main/java/com/antitheft/security/EvidencePipeline.java
+
+package com.antitheft.security;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the evidence stages of one capture session concurrently.
+ *
+ * Each stage produces a list of file paths through an EvidenceFuture and has its
+ * own timeout; a stage that times out or is cancelled runs its cancel action
+ * (e.g. stopping the camera) and contributes nothing. Stages that compete for the
+ * same hardware are chained with addStageAfter - the dependent starts once its
+ * predecessor finishes, whatever the outcome. Results are reported per stage as
+ * they land so the caller can persist and notify incrementally.
+ */
+public class EvidencePipeline {
+    private static final String TAG = "AntiTheft_EvidencePipeline";
+
+    public interface Stage {
+        // Starts the work and completes result from any thread; must not block for long
+        void start(EvidenceFuture<List<String>> result) throws Exception;
+    }
+
+    public interface Listener {
+        // A stage finished with at least one artifact
+        void onArtifacts(String stageName, List<String> paths);
+
+        // Every stage has finished, timed out or been cancelled
+        void onFinished(int artifactCount);
+    }
+
+    private static class StageEntry {
+        final String name;
+        final String after;
+        final long timeoutMs;
+        final Stage stage;
+        final Runnable onCancel;
+        final EvidenceFuture<List<String>> result = new EvidenceFuture<>();
+        volatile ScheduledFuture<?> timeout;
+        volatile long startedAt;
+
+        StageEntry(String name, String after, long timeoutMs, Stage stage, Runnable onCancel) {
+            this.name = name;
+            this.after = after;
+            this.timeoutMs = timeoutMs;
+            this.stage = stage;
+            this.onCancel = onCancel;
+        }
+    }
+
+    private final ScheduledExecutorService executor;
+    private final Listener listener;
+    private final List<StageEntry> stages = new ArrayList<>();
+
+    // Guarded by this
+    private int stagesRemaining;
+    private int artifactCount = 0;
+    private boolean started = false;
+    private boolean cancelled = false;
+
+    public EvidencePipeline(ScheduledExecutorService executor, Listener listener) {
+        this.executor = executor;
+        this.listener = listener;
+    }
+
+    public EvidencePipeline addStage(String name, long timeoutMs, Stage stage, Runnable onCancel) {
+        return addStageAfter(null, name, timeoutMs, stage, onCancel);
+    }
+
+    // previous == null starts the stage immediately
+    public EvidencePipeline addStageAfter(String previous, String name, long timeoutMs, Stage stage, Runnable onCancel) {
+        stages.add(new StageEntry(name, previous, timeoutMs, stage, onCancel));
+        return this;
+    }
+
+    public boolean hasStage(String name) {
+        return find(name) != null;
+    }
+
+    public void start() {
+        synchronized (this) {
+            if (started) return;
+            started = true;
+            stagesRemaining = stages.size();
+        }
+
+        if (stages.isEmpty()) {
+            listener.onFinished(0);
+            return;
+        }
+
+        for (StageEntry entry : stages) {
+            entry.result.whenDone(() -> onStageDone(entry));
+            StageEntry previous = entry.after != null ? find(entry.after) : null;
+            if (previous == null) {
+                launch(entry);
+            } else {
+                previous.result.whenDone(() -> launch(entry));
+            }
+        }
+    }
+
+    private void launch(StageEntry entry) {
+        synchronized (this) {
+            if (cancelled) {
+                entry.result.cancel(false);
+                return;
+            }
+        }
+
+        try {
+            entry.startedAt = SystemClock.elapsedRealtime();
+            entry.timeout = executor.schedule(() -> {
+                if (entry.result.cancel(false)) {
+                    Log.w(TAG, "Stage " + entry.name + " timed out after " + entry.timeoutMs + "ms");
+                    runCancelAction(entry);
+                }
+            }, entry.timeoutMs, TimeUnit.MILLISECONDS);
+
+            executor.execute(() -> {
+                try {
+                    entry.stage.start(entry.result);
+                } catch (Exception e) {
+                    Log.e(TAG, "Stage " + entry.name + " failed to start", e);
+                    entry.result.fail(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Executor shut down - the owner is being cleaned up
+            entry.result.cancel(false);
+        }
+    }
+
+    private void onStageDone(StageEntry entry) {
+        if (entry.timeout != null) {
+            entry.timeout.cancel(false);
+        }
+
+        List<String> paths = entry.result.getNow(Collections.<String>emptyList());
+        if (entry.startedAt > 0) {
+            Log.d(TAG, "Stage " + entry.name + " done in " + (SystemClock.elapsedRealtime() - entry.startedAt)
+                + "ms - " + paths.size() + " artifacts" + (entry.result.isCancelled() ? " (cancelled)" : ""));
+        }
+        if (!paths.isEmpty()) {
+            listener.onArtifacts(entry.name, paths);
+        }
+
+        boolean finished;
+        int total;
+        synchronized (this) {
+            artifactCount += paths.size();
+            finished = --stagesRemaining == 0;
+            total = artifactCount;
+        }
+        if (finished) {
+            listener.onFinished(total);
+        }
+    }
+
+    // Cancels every stage that has not finished; dependents that have not started never will
+    public void cancel() {
+        synchronized (this) {
+            if (cancelled) return;
+            cancelled = true;
+        }
+        for (StageEntry entry : stages) {
+            if (entry.result.cancel(false) && entry.startedAt > 0) {
+                runCancelAction(entry);
+            }
+        }
+    }
+
+    private void runCancelAction(StageEntry entry) {
+        if (entry.onCancel == null) return;
+        try {
+            entry.onCancel.run();
+        } catch (Exception e) {
+            Log.e(TAG, "Error cancelling stage " + entry.name, e);
+        }
+    }
+
+    private StageEntry find(String name) {
+        for (StageEntry entry : stages) {
+            if (entry.name.equals(name)) return entry;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,247 @@
+// File: app/src/main/java/com/antitheft/security/EvidenceSessionStore.java
+
+package com.antitheft.security;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.text.TextUtils;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SQLite table of evidence sessions, keyed by session ID and indexed by time.
+ *
+ * Sessions used to be five keys each in EvidencePrefs, so listing them parsed the
+ * whole preference XML and every incremental save rewrote it. Here a save is one
+ * row upsert, listings and retention cleanup are range queries on the timestamp
+ * index, and deletes touch only their own rows.
+ *
+ * The existing session_* keys are copied over when the database is first created,
+ * and removed only once that has been committed: the next open removes them and
+ * sets a flag so later opens skip the preference file. Paths and trigger reasons
+ * are stored "|"-joined, as before.
+ */
+public class EvidenceSessionStore extends SQLiteOpenHelper {
+    private static final String TAG = "AntiTheft_SessionStore";
+    private static final String DATABASE_NAME = "evidence_sessions.db";
+    private static final int DATABASE_VERSION = 1;
+
+    // Preference file and key layout the sessions are migrated from
+    private static final String LEGACY_PREFS_NAME = "EvidencePrefs";
+    private static final String LEGACY_PREFIX = "session_";
+    private static final String[] LEGACY_SUFFIXES = {"_reason", "_timestamp", "_paths", "_triggers", "_device"};
+    private static final String LEGACY_REMOVED_KEY = "legacy_sessions_removed";
+
+    private static final String TABLE = "sessions";
+    private static final String COL_ID = "session_id";
+    private static final String COL_TIMESTAMP = "timestamp";
+    private static final String COL_REASON = "reason";
+    private static final String COL_DEVICE = "device";
+    private static final String COL_TRIGGERS = "triggers";
+    private static final String COL_PATHS = "paths";
+    private static final String[] COLUMNS = {COL_ID, COL_TIMESTAMP, COL_REASON, COL_DEVICE, COL_TRIGGERS, COL_PATHS};
+
+    private static volatile EvidenceSessionStore instance;
+
+    private final Context context;
+
+    public static EvidenceSessionStore getInstance(Context context) {
+        if (instance == null) {
+            synchronized (EvidenceSessionStore.class) {
+                if (instance == null) {
+                    instance = new EvidenceSessionStore(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    private EvidenceSessionStore(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        this.context = context;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE + " ("
+            + COL_ID + " TEXT PRIMARY KEY, "
+            + COL_TIMESTAMP + " INTEGER NOT NULL, "
+            + COL_REASON + " TEXT, "
+            + COL_DEVICE + " TEXT, "
+            + COL_TRIGGERS + " TEXT, "
+            + COL_PATHS + " TEXT)");
+        db.execSQL("CREATE INDEX idx_sessions_timestamp ON " + TABLE + " (" + COL_TIMESTAMP + ")");
+
+        migrateFromPreferences(db);
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // Only version 1 so far
+    }
+
+    // Runs after onCreate's transaction has committed, so the copied rows are on disk
+    @Override
+    public void onOpen(SQLiteDatabase db) {
+        removeLegacySessions();
+    }
+
+    // One-time copy of the session_<id>_* keys; runs inside onCreate's transaction. The keys
+    // stay until onOpen, so a create that is rolled back copies them again next time.
+    private void migrateFromPreferences(SQLiteDatabase db) {
+        SharedPreferences preferences = context.getSharedPreferences(LEGACY_PREFS_NAME, Context.MODE_PRIVATE);
+        Map<String, ?> all = preferences.getAll();
+        int migrated = 0;
+
+        for (String key : all.keySet()) {
+            if (!key.startsWith(LEGACY_PREFIX) || !key.endsWith("_reason")) continue;
+            String sessionId = key.substring(LEGACY_PREFIX.length(), key.length() - "_reason".length());
+            String sessionKey = LEGACY_PREFIX + sessionId;
+
+            ContentValues values = new ContentValues();
+            values.put(COL_ID, sessionId);
+            values.put(COL_TIMESTAMP, preferences.getLong(sessionKey + "_timestamp", 0));
+            values.put(COL_REASON, preferences.getString(sessionKey + "_reason", ""));
+            values.put(COL_DEVICE, preferences.getString(sessionKey + "_device", ""));
+            values.put(COL_TRIGGERS, preferences.getString(sessionKey + "_triggers", ""));
+            values.put(COL_PATHS, preferences.getString(sessionKey + "_paths", ""));
+            db.insertWithOnConflict(TABLE, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+            migrated++;
+        }
+
+        if (migrated > 0) {
+            Log.i(TAG, "Migrated " + migrated + " evidence sessions from preferences");
+        }
+    }
+
+    private void removeLegacySessions() {
+        SharedPreferences preferences = context.getSharedPreferences(LEGACY_PREFS_NAME, Context.MODE_PRIVATE);
+        if (preferences.getBoolean(LEGACY_REMOVED_KEY, false)) return;
+
+        SharedPreferences.Editor editor = preferences.edit();
+        int removed = 0;
+        for (String key : preferences.getAll().keySet()) {
+            if (!key.startsWith(LEGACY_PREFIX) || !key.endsWith("_reason")) continue;
+            String sessionKey = key.substring(0, key.length() - "_reason".length());
+            for (String suffix : LEGACY_SUFFIXES) {
+                editor.remove(sessionKey + suffix);
+            }
+            removed++;
+        }
+        // The flag goes in the same edit, so it is never set with keys left behind
+        editor.putBoolean(LEGACY_REMOVED_KEY, true).apply();
+        if (removed > 0) {
+            Log.i(TAG, "Removed " + removed + " migrated evidence sessions from preferences");
+        }
+    }
+
+    // Insert or replace; sessions are saved again as their artifacts arrive
+    public void put(EvidenceManager.EvidenceSession session) {
+        ContentValues values = new ContentValues();
+        values.put(COL_ID, session.sessionId);
+        values.put(COL_TIMESTAMP, session.timestamp);
+        values.put(COL_REASON, session.triggerReason);
+        values.put(COL_DEVICE, session.deviceInfo);
+        values.put(COL_TRIGGERS, TextUtils.join("|", session.triggerReasons));
+        values.put(COL_PATHS, TextUtils.join("|", session.evidencePaths));
+        getWritableDatabase().insertWithOnConflict(TABLE, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    public EvidenceManager.EvidenceSession get(String sessionId) {
+        List<EvidenceManager.EvidenceSession> sessions = query(COL_ID + " = ?", new String[] {sessionId}, null);
+        return sessions.isEmpty() ? null : sessions.get(0);
+    }
+
+    // Newest first
+    public List<EvidenceManager.EvidenceSession> getAll() {
+        return query(null, null, null);
+    }
+
+    // Sessions with fromMs <= timestamp < toMs, newest first
+    public List<EvidenceManager.EvidenceSession> getRange(long fromMs, long toMs, int limit) {
+        return query(COL_TIMESTAMP + " >= ? AND " + COL_TIMESTAMP + " < ?",
+            new String[] {String.valueOf(fromMs), String.valueOf(toMs)}, limit > 0 ? String.valueOf(limit) : null);
+    }
+
+    private List<EvidenceManager.EvidenceSession> query(String selection, String[] args, String limit) {
+        List<EvidenceManager.EvidenceSession> sessions = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().query(TABLE, COLUMNS, selection, args,
+                null, null, COL_TIMESTAMP + " DESC", limit)) {
+            while (cursor.moveToNext()) {
+                sessions.add(readSession(cursor));
+            }
+        }
+        return sessions;
+    }
+
+    private static EvidenceManager.EvidenceSession readSession(Cursor cursor) {
+        EvidenceManager.EvidenceSession session = new EvidenceManager.EvidenceSession();
+        session.sessionId = cursor.getString(0);
+        session.timestamp = cursor.getLong(1);
+        session.triggerReason = nonNull(cursor.getString(2));
+        session.deviceInfo = nonNull(cursor.getString(3));
+
+        // Sessions saved before trigger merging only have the single reason
+        String triggers = nonNull(cursor.getString(4));
+        if (!triggers.isEmpty()) {
+            session.triggerReasons = new ArrayList<>(Arrays.asList(triggers.split("\\|")));
+        } else {
+            session.triggerReasons.add(session.triggerReason);
+        }
+
+        String paths = nonNull(cursor.getString(5));
+        if (!paths.isEmpty()) {
+            session.evidencePaths = new ArrayList<>(Arrays.asList(paths.split("\\|")));
+        }
+        return session;
+    }
+
+    private static String nonNull(String value) {
+        return value != null ? value : "";
+    }
+
+    public boolean delete(String sessionId) {
+        return getWritableDatabase().delete(TABLE, COL_ID + " = ?", new String[] {sessionId}) > 0;
+    }
+
+    // Drops evicted files from a session; a session left with no files is deleted
+    public void removePaths(String sessionId, Collection<String> paths) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            EvidenceManager.EvidenceSession session = get(sessionId);
+            if (session != null && session.evidencePaths.removeAll(paths)) {
+                if (session.evidencePaths.isEmpty()) {
+                    db.delete(TABLE, COL_ID + " = ?", new String[] {sessionId});
+                } else {
+                    ContentValues values = new ContentValues();
+                    values.put(COL_PATHS, TextUtils.join("|", session.evidencePaths));
+                    db.update(TABLE, values, COL_ID + " = ?", new String[] {sessionId});
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    // Retention cleanup; uses the timestamp index
+    public int deleteOlderThan(long cutoffMs) {
+        return getWritableDatabase().delete(TABLE, COL_TIMESTAMP + " < ?", new String[] {String.valueOf(cutoffMs)});
+    }
+
+    public long count() {
+        try (Cursor cursor = getReadableDatabase().rawQuery("SELECT COUNT(*) FROM " + TABLE, null)) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        }
+    }
+}
@@ -41,6 +41,7 @@ public class EvidenceSettingsActivity extends Activity {
     private boolean disguisedNotificationsEnabled;
     private int retentionDays;
     private int emailDelayMinutes;
+    private boolean refreshOnIndexLoadPending = false;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -246,6 +247,11 @@ public class EvidenceSettingsActivity extends Activity {
 
     private void updateStorageDisplay() {
         long totalSize = evidenceManager.getTotalEvidenceSize();
+        if (totalSize == EvidenceManifest.NOT_LOADED) {
+            txtStorageUsed.setText("Storage Used: counting...");
+            refreshWhenEvidenceIndexLoaded();
+            return;
+        }
         String sizeText = formatFileSize(totalSize);
         txtStorageUsed.setText("Storage Used: " + sizeText);
     }
@@ -255,7 +261,12 @@ public class EvidenceSettingsActivity extends Activity {
         int totalSessions = evidenceManager.getTotalEvidenceSessions();
         
         StringBuilder stats = new StringBuilder();
-        stats.append("Evidence Files: ").append(totalFiles).append("\n");
+        if (totalFiles == EvidenceManifest.NOT_LOADED) {
+            stats.append("Evidence Files: counting...\n");
+            refreshWhenEvidenceIndexLoaded();
+        } else {
+            stats.append("Evidence Files: ").append(totalFiles).append("\n");
+        }
         stats.append("Security Sessions: ").append(totalSessions).append("\n");
         stats.append("Photo Evidence: ").append(photoEvidenceEnabled ? "Enabled" : "Disabled").append("\n");
         stats.append("Video Evidence: ").append(videoEvidenceEnabled ? "Enabled" : "Disabled").append("\n");
@@ -264,6 +275,19 @@ public class EvidenceSettingsActivity extends Activity {
         txtEvidenceStats.setText(stats.toString());
     }
 
+    // The evidence manifest loads in the background when the process starts
+    private void refreshWhenEvidenceIndexLoaded() {
+        if (refreshOnIndexLoadPending) return;
+        refreshOnIndexLoadPending = true;
+        evidenceManager.runWhenEvidenceIndexLoaded(() -> runOnUiThread(() -> {
+            refreshOnIndexLoadPending = false;
+            if (!isFinishing()) {
+                updateStorageDisplay();
+                updateEvidenceStats();
+            }
+        }));
+    }
+
     private void updateEmailSettingsVisibility() {
         int visibility = autoEmailEnabled ? View.VISIBLE : View.GONE;
         findViewById(R.id.emailSettingsSection).setVisibility(visibility);
@@ -339,8 +363,8 @@ public class EvidenceSettingsActivity extends Activity {
                 // Clear evidence files
                 evidenceManager.cleanupOldEvidence();
                 
-                // Also manually delete all evidence directories
-                clearEvidenceDirectories();
+                // Every file the manifest knows of, deleted off the UI thread
+                evidenceManager.deleteAllEvidenceFiles();
                 
                 updateUI();
                 Toast.makeText(this, "All evidence cleared", Toast.LENGTH_LONG).show();
@@ -349,49 +373,6 @@ public class EvidenceSettingsActivity extends Activity {
             .show();
     }
 
-    private void clearEvidenceDirectories() {
-        try {
-            // Clear photos
-            java.io.File photosDir = new java.io.File(getExternalFilesDir(null), "security_photos");
-            if (photosDir.exists()) {
-                deleteDirectory(photosDir);
-                photosDir.mkdirs();
-            }
-            
-            // Clear videos
-            java.io.File videosDir = new java.io.File(getExternalFilesDir(null), "security_videos");
-            if (videosDir.exists()) {
-                deleteDirectory(videosDir);
-                videosDir.mkdirs();
-            }
-            
-            // Clear screenshots
-            java.io.File screenshotsDir = new java.io.File(getExternalFilesDir(null), "security_screenshots");
-            if (screenshotsDir.exists()) {
-                deleteDirectory(screenshotsDir);
-                screenshotsDir.mkdirs();
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "Error clearing evidence directories", e);
-        }
-    }
-
-    private void deleteDirectory(java.io.File dir) {
-        if (dir.isDirectory()) {
-            java.io.File[] files = dir.listFiles();
-            if (files != null) {
-                for (java.io.File file : files) {
-                    if (file.isDirectory()) {
-                        deleteDirectory(file);
-                    } else {
-                        file.delete();
-                    }
-                }
-            }
-        }
-        dir.delete();
-    }
-
     private void exportSettings() {
         // Create settings export string
         StringBuilder export = new StringBuilder();
@@ -0,0 +1,136 @@
+// File: app/src/main/java/com/antitheft/security/EvidenceTriggerCoalescer.java
+
+package com.antitheft.security;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * Process-wide single-flight gate for evidence sessions.
+ *
+ * Motion alarms, AlarmActivity, the fake home screen and the security service each
+ * hold their own capture managers but share the cameras, so one incident used to
+ * produce several competing captures. Every trigger now goes through submit():
+ * the first one opens a session and is executed; triggers that arrive while that
+ * session is in flight, within the merge window of its start, or within the
+ * cooldown after it finished are merged into it instead - the session records
+ * their reasons but no new capture starts.
+ *
+ * A source with its own capture that is not an evidence session (the security
+ * service's periodic photo) claim()s the gate while it holds a camera instead.
+ * Triggers submitted meanwhile are handed to the claim rather than opening the
+ * cameras alongside it; the claimant replays them through submit() once it has
+ * release()d the gate.
+ *
+ * Merge callbacks run outside the coalescer's lock, so a session may take its own
+ * lock (and persist) in mergeTrigger without lock-ordering issues.
+ */
+public class EvidenceTriggerCoalescer {
+    private static final String TAG = "AntiTheft_TriggerCoalescer";
+    private static final EvidenceTriggerCoalescer INSTANCE = new EvidenceTriggerCoalescer();
+
+    public interface ActiveSession {
+        void mergeTrigger(String reason);
+        String getSessionId();
+        long getStartTimeMillis(); // wall clock, for comparing with file times
+    }
+
+    // Guarded by this
+    private ActiveSession current;
+    private long currentStartedAt;
+    private long currentFinishedAt = -1; // -1 while in flight
+    private boolean currentIsClaim = false;
+    private int executedCount = 0;
+    private int mergedCount = 0;
+
+    public static EvidenceTriggerCoalescer getInstance() {
+        return INSTANCE;
+    }
+
+    // Returns candidate if it should be executed as a new session, otherwise the session
+    // the trigger was merged into
+    public ActiveSession submit(String reason, ActiveSession candidate, long mergeWindowMs, long cooldownMs) {
+        ActiveSession target;
+        synchronized (this) {
+            long now = SystemClock.elapsedRealtime();
+            if (isOpen(now, mergeWindowMs, cooldownMs)) {
+                target = current;
+                // A claim replays its triggers, which are counted then
+                if (!currentIsClaim) mergedCount++;
+            } else {
+                current = candidate;
+                currentStartedAt = now;
+                currentFinishedAt = -1;
+                currentIsClaim = false;
+                executedCount++;
+                return candidate;
+            }
+        }
+
+        Log.i(TAG, "Trigger merged into active evidence session: " + reason);
+        target.mergeTrigger(reason);
+        return target;
+    }
+
+    // Records a trigger in the session in flight, never starts one
+    public boolean mergeIntoActive(String reason) {
+        ActiveSession target;
+        synchronized (this) {
+            if (current == null || currentFinishedAt >= 0) return false;
+            target = current;
+            if (!currentIsClaim) mergedCount++;
+        }
+
+        Log.i(TAG, "Trigger merged into in-flight evidence session: " + reason);
+        target.mergeTrigger(reason);
+        return true;
+    }
+
+    // Takes the gate for a capture outside an evidence session. Fails while a session is
+    // open, including its merge window and cooldown, since its evidence is fresh anyway.
+    public synchronized boolean claim(ActiveSession claimant, long mergeWindowMs, long cooldownMs) {
+        if (isOpen(SystemClock.elapsedRealtime(), mergeWindowMs, cooldownMs)) return false;
+        current = claimant;
+        currentStartedAt = SystemClock.elapsedRealtime();
+        currentFinishedAt = -1;
+        currentIsClaim = true;
+        return true;
+    }
+
+    // Ends a claim with no merge window or cooldown, so replayed triggers open a real session
+    public synchronized void release(ActiveSession claimant) {
+        if (claimant == current && currentIsClaim) {
+            current = null;
+            currentIsClaim = false;
+        }
+    }
+
+    public synchronized void onSessionFinished(ActiveSession session) {
+        if (session == current && currentFinishedAt < 0) {
+            currentFinishedAt = SystemClock.elapsedRealtime();
+        }
+    }
+
+    // The session whose capture is running, or null
+    public synchronized ActiveSession getInFlight() {
+        return current != null && currentFinishedAt < 0 ? current : null;
+    }
+
+    private boolean isOpen(long now, long mergeWindowMs, long cooldownMs) {
+        if (current == null) return false;
+        if (currentFinishedAt < 0) return true; // in flight
+        return now - currentStartedAt < mergeWindowMs || now - currentFinishedAt < cooldownMs;
+    }
+
+    public synchronized int getExecutedCount() {
+        return executedCount;
+    }
+
+    public synchronized int getMergedCount() {
+        return mergedCount;
+    }
+
+    public synchronized String getSummary() {
+        return executedCount + " executed, " + mergedCount + " merged";
+    }
+}
@@ -18,12 +18,9 @@ public class FakeHomeScreenActivity extends Activity {
     private static final String TAG = "AntiTheft_FakeHome";
     
     private EvidenceManager evidenceManager;
-    private MultiplePhotoCaptureManager photoCaptureManager;
-    private SmartNotificationManager notificationManager;
     
     private GridLayout appsGrid;
     private TextView timeText, dateText;
-    private boolean isCapturingEvidence = false;
     
     // Fake app data
     private final String[] fakeAppNames = {
@@ -67,8 +64,6 @@ public class FakeHomeScreenActivity extends Activity {
 
     private void initializeManagers() {
         evidenceManager = new EvidenceManager(this);
-        photoCaptureManager = new MultiplePhotoCaptureManager(this);
-        notificationManager = new SmartNotificationManager(this);
     }
 
     private void initializeViews() {
@@ -104,49 +99,16 @@ public class FakeHomeScreenActivity extends Activity {
     private void onFakeAppClicked(String appName, int position) {
         Log.i(TAG, "Intruder clicked fake app: " + appName);
         
-        if (!isCapturingEvidence) {
-            captureEvidenceOnAppClick(appName);
-        }
+        captureEvidenceOnAppClick(appName);
         
         // Show fake app loading or error
         showFakeAppResponse(appName);
     }
 
     private void captureEvidenceOnAppClick(String appName) {
-        isCapturingEvidence = true;
-        
-        // Capture multiple photos
-        photoCaptureManager.startMultiplePhotoCapture(new MultiplePhotoCaptureManager.MultiplePhotoCaptureCallback() {
-            @Override
-            public void onPhotosProgress(int frontCount, int backCount, int totalRemaining) {
-                Log.d(TAG, "Evidence capture progress: " + (frontCount + backCount) + " photos taken");
-            }
-            
-            @Override
-            public void onAllPhotosCompleted(java.util.List<String> frontPhotos, java.util.List<String> backPhotos) {
-                Log.i(TAG, "Evidence captured - Front: " + frontPhotos.size() + ", Back: " + backPhotos.size());
-                
-                // Combine all evidence paths
-                java.util.List<String> allEvidencePaths = new java.util.ArrayList<>();
-                allEvidencePaths.addAll(frontPhotos);
-                allEvidencePaths.addAll(backPhotos);
-                
-                // Send delayed notification
-                String title = "Unauthorized Device Access Detected";
-                String message = "Someone attempted to access " + appName + " on your device. " +
-                               "Evidence has been collected automatically.";
-                
-                notificationManager.queueSecurityNotification(title, message, allEvidencePaths, true);
-                
-                isCapturingEvidence = false;
-            }
-            
-            @Override
-            public void onPhotoCaptureError(String error) {
-                Log.e(TAG, "Evidence capture failed: " + error);
-                isCapturingEvidence = false;
-            }
-        });
+        // Goes through the evidence gate like every other trigger: the first click opens a
+        // session, later clicks are recorded in it rather than competing for the cameras
+        evidenceManager.captureSecurityEvidence("Fake app clicked: " + appName);
     }
 
     private void showFakeAppResponse(String appName) {
@@ -216,15 +178,9 @@ public class FakeHomeScreenActivity extends Activity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        if (photoCaptureManager != null) {
-            photoCaptureManager.cleanupResources();
-        }
         if (evidenceManager != null) {
             evidenceManager.cleanup();
         }
-        if (notificationManager != null) {
-            notificationManager.cleanup();
-        }
     }
 
     // Handle volume buttons to potentially exit fake home screen (secret gesture)
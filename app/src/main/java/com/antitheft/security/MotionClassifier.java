@@ -0,0 +1,270 @@
+// File: app/src/main/java/com/antitheft/security/MotionClassifier.java
+
+package com.antitheft.security;
+
+/**
+ * Fuses accelerometer and gyroscope streams into one motion score per time window.
+ *
+ * Gravity is tracked with a low-pass filter and subtracted from each accelerometer
+ * sample, leaving linear acceleration. Device attitude (pitch/roll) is tracked with
+ * a complementary filter: gyroscope rates are integrated for short-term accuracy
+ * and pulled towards the accelerometer's gravity direction to cancel drift. Yaw is
+ * integrated from the gyroscope only within the current window. Both filters are
+ * defined by time constants and weighted by the interval between samples, so
+ * changing the sampling rate does not change what counts as gravity or drift.
+ *
+ * At the end of each window the RMS linear acceleration and the attitude change
+ * across the window are normalised by their thresholds and summed into a single
+ * score; the window counts as motion when the score reaches 1.0. Because rotation
+ * contributes through the integrated attitude change rather than the raw rate,
+ * short gyroscope spikes from a vibrating surface cancel out instead of tripping
+ * the alarm on their own.
+ *
+ * All state is primitive and preallocated; the class has no Android dependencies.
+ */
+public class MotionClassifier {
+    public static final long DEFAULT_WINDOW_NANOS = 500_000_000L; // 500ms
+
+    public static final long DEFAULT_SAMPLE_NANOS = 20_000_000L; // 50 Hz
+
+    // Filter time constants; at 50 Hz they give the former per-sample weights of 0.8 and 0.98
+    private static final float GRAVITY_TIME_CONSTANT_NANOS = 80_000_000f;
+    private static final float ATTITUDE_TIME_CONSTANT_NANOS = 980_000_000f;
+    private static final float NANOS_TO_SECONDS = 1e-9f;
+    // Gyro steps longer than this are gaps, not samples: a few sampling periods, at least 100ms
+    private static final long MIN_GYRO_GAP_NANOS = 100_000_000L;
+    private static final int GYRO_GAP_PERIODS = 4;
+    private static final float PI = (float) Math.PI;
+    private static final float TWO_PI = 2 * PI;
+
+    // Sensitivity mapping - shared by SensorService and the replay harness
+    public static final float MOTION_THRESHOLD_LOW = 2.0f;
+    public static final float MOTION_THRESHOLD_MEDIUM = 5.0f;
+    public static final float MOTION_THRESHOLD_HIGH = 8.0f;
+    public static final float LINEAR_ACCEL_THRESHOLD_SCALE = 0.5f; // m/s^2 RMS per threshold unit
+    public static final float ROTATION_THRESHOLD_SCALE = 3.0f; // degrees per window per threshold unit
+
+    private final long windowNanos;
+
+    // Thresholds: RMS linear acceleration (m/s^2) and attitude change (degrees) per window
+    private float linearAccelThreshold = 2.5f;
+    private float rotationThresholdDegrees = 15f;
+
+    private long samplePeriodNanos = DEFAULT_SAMPLE_NANOS;
+    private long maxGyroStepNanos = MIN_GYRO_GAP_NANOS;
+    private long lastAccelTimestamp = 0;
+
+    // Gravity estimate
+    private boolean gravityInitialized = false;
+    private float gravityX, gravityY, gravityZ;
+
+    // Complementary filter attitude, radians
+    private boolean attitudeInitialized = false;
+    private float pitch, roll;
+    private long lastGyroTimestamp = 0;
+
+    // Current window accumulators
+    private long windowStart = -1;
+    private double linearEnergySum = 0;
+    private int windowAccelSamples = 0;
+    private float windowStartPitch, windowStartRoll;
+    private float windowYaw = 0f;
+
+    // Result of the last closed window
+    private float lastScore = 0f;
+    private float lastLinearRms = 0f;
+    private float lastRotationDegrees = 0f;
+    private boolean lastMotion = false;
+    private long windowsClosed = 0;
+    private long motionWindows = 0;
+
+    public MotionClassifier() {
+        this(DEFAULT_WINDOW_NANOS);
+    }
+
+    public MotionClassifier(long windowNanos) {
+        if (windowNanos <= 0) {
+            throw new IllegalArgumentException("Window length must be positive");
+        }
+        this.windowNanos = windowNanos;
+    }
+
+    public void setThresholds(float linearAccelThreshold, float rotationThresholdDegrees) {
+        this.linearAccelThreshold = Math.max(0.01f, linearAccelThreshold);
+        this.rotationThresholdDegrees = Math.max(0.01f, rotationThresholdDegrees);
+    }
+
+    // Nominal period of the current sensor registration; used for the first sample and the gyro gap limit
+    public void setSamplingPeriodNanos(long periodNanos) {
+        samplePeriodNanos = periodNanos > 0 ? periodNanos : DEFAULT_SAMPLE_NANOS;
+        maxGyroStepNanos = Math.max(MIN_GYRO_GAP_NANOS, GYRO_GAP_PERIODS * samplePeriodNanos);
+    }
+
+    // Derives both thresholds from the 0-100 sensitivity setting
+    public void setSensitivity(int sensitivity) {
+        float threshold = thresholdForSensitivity(sensitivity);
+        setThresholds(threshold * LINEAR_ACCEL_THRESHOLD_SCALE, threshold * ROTATION_THRESHOLD_SCALE);
+    }
+
+    // Base motion threshold for a 0-100 sensitivity; higher sensitivity means a lower threshold
+    public static float thresholdForSensitivity(int sensitivity) {
+        if (sensitivity <= 20) {
+            return MOTION_THRESHOLD_HIGH;
+        } else if (sensitivity <= 40) {
+            return MOTION_THRESHOLD_MEDIUM + (MOTION_THRESHOLD_HIGH - MOTION_THRESHOLD_MEDIUM) * (40 - sensitivity) / 20f;
+        } else if (sensitivity <= 60) {
+            return MOTION_THRESHOLD_MEDIUM;
+        } else if (sensitivity <= 80) {
+            return MOTION_THRESHOLD_LOW + (MOTION_THRESHOLD_MEDIUM - MOTION_THRESHOLD_LOW) * (80 - sensitivity) / 20f;
+        } else {
+            return MOTION_THRESHOLD_LOW;
+        }
+    }
+
+    // Feeds one accelerometer sample. Returns true when this sample closed a window,
+    // in which case getLastScore()/isMotion() describe the window that just ended.
+    public boolean addAccelerometer(long timestampNanos, float x, float y, float z) {
+        // Event timestamps, not the nominal rate: batching and jitter change the real interval
+        long stepNanos = timestampNanos - lastAccelTimestamp;
+        float dtNanos = lastAccelTimestamp > 0 && stepNanos > 0 ? stepNanos : samplePeriodNanos;
+        lastAccelTimestamp = timestampNanos;
+
+        if (!gravityInitialized) {
+            gravityX = x;
+            gravityY = y;
+            gravityZ = z;
+            gravityInitialized = true;
+        } else {
+            float alpha = GRAVITY_TIME_CONSTANT_NANOS / (GRAVITY_TIME_CONSTANT_NANOS + dtNanos);
+            gravityX = alpha * gravityX + (1 - alpha) * x;
+            gravityY = alpha * gravityY + (1 - alpha) * y;
+            gravityZ = alpha * gravityZ + (1 - alpha) * z;
+        }
+
+        // Accelerometer attitude from the gravity direction
+        float accelPitch = (float) Math.atan2(-gravityX, Math.sqrt(gravityY * gravityY + gravityZ * gravityZ));
+        float accelRoll = (float) Math.atan2(gravityY, gravityZ);
+        if (!attitudeInitialized) {
+            pitch = accelPitch;
+            roll = accelRoll;
+            attitudeInitialized = true;
+        } else {
+            float gyroWeight = ATTITUDE_TIME_CONSTANT_NANOS / (ATTITUDE_TIME_CONSTANT_NANOS + dtNanos);
+            pitch = gyroWeight * pitch + (1 - gyroWeight) * accelPitch;
+            // Roll wraps at +/-pi (face down it flips sign with noise), so blend the short way round
+            roll = wrapAngle(roll + (1 - gyroWeight) * wrapAngle(accelRoll - roll));
+        }
+
+        boolean closed = false;
+        if (windowStart < 0) {
+            startWindow(timestampNanos);
+        } else if (timestampNanos - windowStart >= windowNanos) {
+            closeWindow();
+            startWindow(timestampNanos);
+            closed = true;
+        }
+
+        float linearX = x - gravityX;
+        float linearY = y - gravityY;
+        float linearZ = z - gravityZ;
+        linearEnergySum += linearX * linearX + linearY * linearY + linearZ * linearZ;
+        windowAccelSamples++;
+
+        return closed;
+    }
+
+    // Feeds one gyroscope sample (rad/s); only updates the attitude estimate
+    public void addGyroscope(long timestampNanos, float x, float y, float z) {
+        if (lastGyroTimestamp > 0) {
+            long stepNanos = timestampNanos - lastGyroTimestamp;
+            if (stepNanos > 0 && stepNanos <= maxGyroStepNanos) {
+                float dt = stepNanos * NANOS_TO_SECONDS;
+                pitch += y * dt;
+                roll = wrapAngle(roll + x * dt);
+                windowYaw += z * dt;
+            }
+        }
+        lastGyroTimestamp = timestampNanos;
+    }
+
+    private void startWindow(long timestampNanos) {
+        windowStart = timestampNanos;
+        linearEnergySum = 0;
+        windowAccelSamples = 0;
+        windowStartPitch = pitch;
+        windowStartRoll = roll;
+        windowYaw = 0f;
+    }
+
+    private void closeWindow() {
+        lastLinearRms = windowAccelSamples == 0 ? 0f : (float) Math.sqrt(linearEnergySum / windowAccelSamples);
+
+        float deltaPitch = pitch - windowStartPitch;
+        float deltaRoll = wrapAngle(roll - windowStartRoll);
+        lastRotationDegrees = (float) Math.toDegrees(
+            Math.sqrt(deltaPitch * deltaPitch + deltaRoll * deltaRoll + windowYaw * windowYaw));
+
+        lastScore = lastLinearRms / linearAccelThreshold + lastRotationDegrees / rotationThresholdDegrees;
+        lastMotion = lastScore >= 1.0f;
+
+        windowsClosed++;
+        if (lastMotion) {
+            motionWindows++;
+        }
+    }
+
+    // Maps an angle into (-pi, pi]
+    static float wrapAngle(float radians) {
+        float wrapped = radians % TWO_PI;
+        if (wrapped > PI) {
+            wrapped -= TWO_PI;
+        } else if (wrapped <= -PI) {
+            wrapped += TWO_PI;
+        }
+        return wrapped;
+    }
+
+    public float getLastScore() {
+        return lastScore;
+    }
+
+    public boolean isMotion() {
+        return lastMotion;
+    }
+
+    public float getLastLinearRms() {
+        return lastLinearRms;
+    }
+
+    public float getLastRotationDegrees() {
+        return lastRotationDegrees;
+    }
+
+    public long getWindowsClosed() {
+        return windowsClosed;
+    }
+
+    public long getMotionWindows() {
+        return motionWindows;
+    }
+
+    public long getWindowNanos() {
+        return windowNanos;
+    }
+
+    // Clears filter and window state (counters are kept)
+    public void reset() {
+        gravityInitialized = false;
+        attitudeInitialized = false;
+        lastGyroTimestamp = 0;
+        lastAccelTimestamp = 0;
+        windowStart = -1;
+        linearEnergySum = 0;
+        windowAccelSamples = 0;
+        windowYaw = 0f;
+        lastScore = 0f;
+        lastLinearRms = 0f;
+        lastRotationDegrees = 0f;
+        lastMotion = false;
+    }
+}
@@ -0,0 +1,176 @@
+// File: app/src/main/java/com/antitheft/security/MotionDetector.java
+
+package com.antitheft.security;
+
+/**
+ * Windowed accelerometer analysis engine behind SensorService's rest tier
+ * fallback, where the sample-to-sample change decides when to wake full analysis.
+ *
+ * Samples are kept in primitive ring buffers (one per axis plus timestamps and
+ * magnitudes) that are allocated once in the constructor. Every statistic is
+ * maintained incrementally, so addSample() does constant work and never
+ * allocates; MotionDetectorTest counts the bytes allocated per sample.
+ */
+public class MotionDetector {
+    public static final int DEFAULT_WINDOW_SIZE = 32;
+
+    private static final float NANOS_PER_SECOND = 1_000_000_000f;
+
+    private final int windowSize;
+    private final long[] timestamps;
+    private final float[] xs, ys, zs;
+    private final float[] magnitudes;
+
+    // Ring buffer position: head is the slot the next sample is written to
+    private int head = 0;
+    private int count = 0;
+
+    // Running sums over the magnitudes currently in the window
+    private double magnitudeSum = 0;
+    private double magnitudeSumSquares = 0;
+
+    // Values derived from the most recent sample
+    private float deltaSquared = 0f;
+    private float jerk = 0f;
+    private long sampleCount = 0;
+
+    public MotionDetector() {
+        this(DEFAULT_WINDOW_SIZE);
+    }
+
+    public MotionDetector(int windowSize) {
+        if (windowSize < 2) {
+            throw new IllegalArgumentException("Window size must be at least 2");
+        }
+
+        this.windowSize = windowSize;
+        this.timestamps = new long[windowSize];
+        this.xs = new float[windowSize];
+        this.ys = new float[windowSize];
+        this.zs = new float[windowSize];
+        this.magnitudes = new float[windowSize];
+    }
+
+    // Feed one accelerometer sample (timestamp in nanoseconds, values in m/s^2)
+    public void addSample(long timestampNanos, float x, float y, float z) {
+        float magnitude = (float) Math.sqrt(x * x + y * y + z * z);
+
+        if (count > 0) {
+            int previous = head == 0 ? windowSize - 1 : head - 1;
+
+            float deltaX = x - xs[previous];
+            float deltaY = y - ys[previous];
+            float deltaZ = z - zs[previous];
+            deltaSquared = deltaX * deltaX + deltaY * deltaY + deltaZ * deltaZ;
+
+            long elapsedNanos = timestampNanos - timestamps[previous];
+            jerk = elapsedNanos > 0
+                ? Math.abs(magnitude - magnitudes[previous]) * NANOS_PER_SECOND / elapsedNanos
+                : 0f;
+        } else {
+            // No reference sample yet - never report the first reading as motion
+            deltaSquared = 0f;
+            jerk = 0f;
+        }
+
+        if (count == windowSize) {
+            float evicted = magnitudes[head];
+            magnitudeSum -= evicted;
+            magnitudeSumSquares -= (double) evicted * evicted;
+        } else {
+            count++;
+        }
+
+        timestamps[head] = timestampNanos;
+        xs[head] = x;
+        ys[head] = y;
+        zs[head] = z;
+        magnitudes[head] = magnitude;
+        magnitudeSum += magnitude;
+        magnitudeSumSquares += (double) magnitude * magnitude;
+
+        head++;
+        if (head == windowSize) {
+            head = 0;
+            // Re-derive the sums once per lap so floating point drift cannot build up
+            // over hours of armed monitoring; amortised this is still O(1) per sample
+            recomputeSums();
+        }
+
+        sampleCount++;
+    }
+
+    private void recomputeSums() {
+        double sum = 0;
+        double sumSquares = 0;
+        for (int i = 0; i < count; i++) {
+            sum += magnitudes[i];
+            sumSquares += (double) magnitudes[i] * magnitudes[i];
+        }
+        magnitudeSum = sum;
+        magnitudeSumSquares = sumSquares;
+    }
+
+    // Compares the sample-to-sample change against a threshold without taking a square root
+    public boolean exceedsThreshold(float threshold) {
+        return deltaSquared > threshold * threshold;
+    }
+
+    // Euclidean change between the two most recent samples
+    public float getDeltaMagnitude() {
+        return (float) Math.sqrt(deltaSquared);
+    }
+
+    public float getDeltaMagnitudeSquared() {
+        return deltaSquared;
+    }
+
+    // Mean acceleration magnitude over the window
+    public float getWindowMagnitude() {
+        return count == 0 ? 0f : (float) (magnitudeSum / count);
+    }
+
+    // Variance of the acceleration magnitude over the window
+    public float getWindowVariance() {
+        if (count < 2) return 0f;
+        double mean = magnitudeSum / count;
+        double variance = magnitudeSumSquares / count - mean * mean;
+        return variance > 0 ? (float) variance : 0f;
+    }
+
+    // Rate of change of the acceleration magnitude, in m/s^3
+    public float getJerk() {
+        return jerk;
+    }
+
+    public long getLastTimestamp() {
+        if (count == 0) return 0;
+        return timestamps[head == 0 ? windowSize - 1 : head - 1];
+    }
+
+    public int getWindowCount() {
+        return count;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public boolean isWindowFull() {
+        return count == windowSize;
+    }
+
+    // Total samples processed since creation (not cleared by reset)
+    public long getSampleCount() {
+        return sampleCount;
+    }
+
+    public void reset() {
+        head = 0;
+        count = 0;
+        magnitudeSum = 0;
+        magnitudeSumSquares = 0;
+        deltaSquared = 0f;
+        jerk = 0f;
+    }
+}
@@ -8,23 +8,20 @@ import android.content.pm.PackageManager;
 import android.graphics.ImageFormat;
 import android.hardware.camera2.CameraAccessException;
 import android.hardware.camera2.CameraCaptureSession;
-import android.hardware.camera2.CameraCharacteristics;
 import android.hardware.camera2.CameraDevice;
 import android.hardware.camera2.CameraManager;
+import android.hardware.camera2.CaptureFailure;
 import android.hardware.camera2.CaptureRequest;
-import android.hardware.camera2.ImageReader;
 import android.media.Image;
+import android.media.ImageReader;
 import android.os.Handler;
-import android.os.HandlerThread;
+import android.os.SystemClock;
 import android.util.Log;
 import android.util.Size;
 import androidx.annotation.NonNull;
 import androidx.core.app.ActivityCompat;
 
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.nio.ByteBuffer;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -34,23 +31,60 @@ import java.util.Locale;
 
 public class MultiplePhotoCaptureManager {
     private static final String TAG = "AntiTheft_MultiPhoto";
-    private static final int PHOTOS_PER_CAMERA = 4; // Take 4 photos from each camera
+    private static final int MAX_PHOTOS = CaptureQualityProfile.MAX_PHOTOS_PER_CAMERA;
     private static final int PHOTO_INTERVAL_MS = 1500; // 1.5 seconds between photos
     
     private Context context;
     private android.hardware.camera2.CameraManager cameraManager;
-    private CameraDevice frontCamera, backCamera;
-    private ImageReader frontImageReader, backImageReader;
-    private HandlerThread backgroundThread;
-    private Handler backgroundHandler;
+    private CameraRegistry cameraRegistry;
+    private Handler backgroundHandler; // shared camera thread
     
-    private boolean isCapturing = false;
+    private volatile boolean isCapturing = false; // set by the caller, cleared on the camera thread
     private MultiplePhotoCaptureCallback captureCallback;
+    private CaptureQualityProfile profile = CaptureQualityProfile.FULL; // camera thread only
     
-    private List<String> frontPhotoPaths = new ArrayList<>();
-    private List<String> backPhotoPaths = new ArrayList<>();
-    private int frontPhotosRemaining = 0;
-    private int backPhotosRemaining = 0;
+    // One sequence per camera: open once, configure one session, issue every shot on it
+    private final CameraSequence frontSequence = new CameraSequence("front");
+    private final CameraSequence backSequence = new CameraSequence("back");
+    private String lastTimingReport = "";
+    
+    // Looked up from the registry's cache at each capture/standby
+    private String frontCameraId, backCameraId;
+    
+    // Hot standby while armed: readers allocated, front camera open with a configured session
+    private boolean standbyRequested = false;
+    private boolean captureUsedStandby = false;
+    private long captureTriggerNanos = 0;
+    private long captureFirstJpegNanos = 0;
+    private final LatencyStats standbyLatency = new LatencyStats();
+    private final LatencyStats coldLatency = new LatencyStats();
+    
+    private static class LatencyStats {
+        int count = 0;
+        long totalMs = 0;
+        long minMs = Long.MAX_VALUE;
+        long maxMs = 0;
+        long lastMs = 0;
+        
+        void add(long ms) {
+            count++;
+            totalMs += ms;
+            minMs = Math.min(minMs, ms);
+            maxMs = Math.max(maxMs, ms);
+            lastMs = ms;
+        }
+        
+        void append(StringBuilder out, String label) {
+            out.append(label).append(": ");
+            if (count == 0) {
+                out.append("no captures\n");
+                return;
+            }
+            out.append(count).append(" captures, last ").append(lastMs).append("ms, avg ")
+                .append(totalMs / count).append("ms, min ").append(minMs).append("ms, max ")
+                .append(maxMs).append("ms\n");
+        }
+    }
     
     public interface MultiplePhotoCaptureCallback {
         void onPhotosProgress(int frontCount, int backCount, int totalRemaining);
@@ -60,14 +94,9 @@ public class MultiplePhotoCaptureManager {
     
     public MultiplePhotoCaptureManager(Context context) {
         this.context = context;
-        this.cameraManager = (android.hardware.camera2.CameraManager) context.getSystemService(Context.CAMERA_SERVICE);
-        startBackgroundThread();
-    }
-    
-    private void startBackgroundThread() {
-        backgroundThread = new HandlerThread("MultiPhotoBackground");
-        backgroundThread.start();
-        backgroundHandler = new Handler(backgroundThread.getLooper());
+        this.cameraRegistry = CameraRegistry.getInstance(context);
+        this.cameraManager = cameraRegistry.getCameraManager();
+        this.backgroundHandler = cameraRegistry.getCameraHandler();
     }
     
     public boolean hasPermissions() {
@@ -76,8 +105,16 @@ public class MultiplePhotoCaptureManager {
     }
     
     public void startMultiplePhotoCapture(MultiplePhotoCaptureCallback callback) {
+        startMultiplePhotoCapture(callback, SystemClock.elapsedRealtimeNanos(), CaptureQualityProfile.FULL);
+    }
+    
+    // triggerNanos (elapsedRealtimeNanos) is when the security event happened; latency is measured from it
+    public void startMultiplePhotoCapture(MultiplePhotoCaptureCallback callback, long triggerNanos,
+                                          CaptureQualityProfile qualityProfile) {
         if (isCapturing) {
             Log.w(TAG, "Already capturing multiple photos");
+            // Report it so the caller is not left waiting for a callback that never comes
+            callback.onPhotoCaptureError("Capture already in progress");
             return;
         }
         
@@ -89,398 +126,529 @@ public class MultiplePhotoCaptureManager {
         this.captureCallback = callback;
         isCapturing = true;
         
-        // Reset counters and lists
-        frontPhotoPaths.clear();
-        backPhotoPaths.clear();
-        frontPhotosRemaining = PHOTOS_PER_CAMERA;
-        backPhotosRemaining = PHOTOS_PER_CAMERA;
-        
-        Log.i(TAG, "Starting multiple photo capture - " + PHOTOS_PER_CAMERA + " photos per camera");
-        
-        // Start capturing from both cameras
-        setupAndStartFrontCapture();
-        setupAndStartBackCapture();
+        // Camera state is only touched on the background thread
+        backgroundHandler.post(() -> {
+            if (!isCapturing) return; // stopped before the request was handled
+            
+            captureTriggerNanos = triggerNanos;
+            profile = qualityProfile;
+            captureFirstJpegNanos = 0;
+            captureUsedStandby = standbyRequested;
+            resolveCameraIds();
+            
+            Log.i(TAG, "Starting multiple photo capture - " + profile.photosPerCamera + " photos per camera, "
+                + profile.name + " quality" + (captureUsedStandby ? " (standby)" : ""));
+            
+            // Reset both sequences before either camera can report back
+            frontSequence.reset(triggerNanos);
+            backSequence.reset(triggerNanos);
+            frontSequence.start(frontCameraId);
+            backSequence.start(backCameraId);
+        });
     }
     
-    private void setupAndStartFrontCapture() {
-        try {
-            String frontCameraId = getFrontCameraId();
-            if (frontCameraId == null) {
-                Log.w(TAG, "No front camera found");
-                frontPhotosRemaining = 0;
-                checkCaptureCompletion();
-                return;
-            }
+    // Keeps the capture pipeline warm while armed so a trigger only has to submit requests.
+    // The front camera is opened with its session configured; the back camera is kept one
+    // step from open (ID resolved, reader allocated).
+    public void enterStandby() {
+        backgroundHandler.post(() -> {
+            if (standbyRequested || !hasPermissions()) return;
             
-            // Set up image reader for front camera
-            Size frontSize = getBestCaptureSize(frontCameraId);
-            frontImageReader = ImageReader.newInstance(frontSize.getWidth(), frontSize.getHeight(), ImageFormat.JPEG, PHOTOS_PER_CAMERA);
-            frontImageReader.setOnImageAvailableListener(new FrontCameraImageListener(), backgroundHandler);
+            standbyRequested = true;
+            // Re-open after another app that took the camera releases it
+            cameraManager.registerAvailabilityCallback(availabilityCallback, backgroundHandler);
+            applyStandby();
+            Log.i(TAG, "Camera standby entered");
+        });
+    }
+    
+    public void exitStandby() {
+        backgroundHandler.post(() -> {
+            if (!standbyRequested) return;
             
-            // Open front camera
-            if (ActivityCompat.checkSelfPermission(context, Manifest.permission.CAMERA) == PackageManager.PERMISSION_GRANTED) {
-                cameraManager.openCamera(frontCameraId, new FrontCameraStateCallback(), backgroundHandler);
+            standbyRequested = false;
+            cameraManager.unregisterAvailabilityCallback(availabilityCallback);
+            if (!isCapturing) {
+                frontSequence.release();
+                backSequence.release();
             }
-        } catch (CameraAccessException e) {
-            Log.e(TAG, "Error setting up front camera", e);
-            frontPhotosRemaining = 0;
-            checkCaptureCompletion();
-        }
+            Log.i(TAG, "Camera standby released");
+        });
     }
     
-    private void setupAndStartBackCapture() {
-        try {
-            String backCameraId = getBackCameraId();
-            if (backCameraId == null) {
-                Log.w(TAG, "No back camera found");
-                backPhotosRemaining = 0;
-                checkCaptureCompletion();
-                return;
-            }
-            
-            // Set up image reader for back camera
-            Size backSize = getBestCaptureSize(backCameraId);
-            backImageReader = ImageReader.newInstance(backSize.getWidth(), backSize.getHeight(), ImageFormat.JPEG, PHOTOS_PER_CAMERA);
-            backImageReader.setOnImageAvailableListener(new BackCameraImageListener(), backgroundHandler);
-            
-            // Open back camera
-            if (ActivityCompat.checkSelfPermission(context, Manifest.permission.CAMERA) == PackageManager.PERMISSION_GRANTED) {
-                cameraManager.openCamera(backCameraId, new BackCameraStateCallback(), backgroundHandler);
+    private void applyStandby() {
+        if (!standbyRequested || isCapturing) return;
+        
+        resolveCameraIds();
+        frontSequence.standby(frontCameraId, true);
+        backSequence.standby(backCameraId, false);
+    }
+    
+    private final android.hardware.camera2.CameraManager.AvailabilityCallback availabilityCallback =
+        new android.hardware.camera2.CameraManager.AvailabilityCallback() {
+            @Override
+            public void onCameraAvailable(@NonNull String cameraId) {
+                if (standbyRequested && !isCapturing && cameraId.equals(frontCameraId)) {
+                    frontSequence.standby(cameraId, true);
+                }
             }
-        } catch (CameraAccessException e) {
-            Log.e(TAG, "Error setting up back camera", e);
-            backPhotosRemaining = 0;
-            checkCaptureCompletion();
-        }
+        };
+    
+    private void resolveCameraIds() {
+        frontCameraId = cameraRegistry.getFrontCameraId();
+        backCameraId = cameraRegistry.getBackCameraId();
     }
     
-    private class FrontCameraStateCallback extends CameraDevice.StateCallback {
-        @Override
-        public void onOpened(@NonNull CameraDevice camera) {
-            frontCamera = camera;
-            startFrontPhotoSequence();
+    private class CameraSequence implements EvidenceImageWriter.Listener {
+        final String cameraType;
+        final List<String> photoPaths = new ArrayList<>();
+        int photosRemaining = 0;
+        int photosPlanned = 0;
+        
+        String cameraId;
+        CameraDevice camera;
+        ImageReader imageReader;
+        EvidenceImageWriter.ImageQueue imageQueue;
+        CameraCaptureSession session;
+        boolean active = false; // a capture sequence is running
+        boolean openPending = false;
+        int photosRequested = 0;
+        int photosAcquired = 0;
+        
+        // Timing, all in elapsedRealtimeNanos
+        long triggerNanos;
+        long openedNanos;
+        long configuredNanos;
+        boolean realtimeTimestamps; // sensor timestamps share the elapsedRealtime clock
+        final long[] frameSensorNanos = new long[MAX_PHOTOS];
+        final long[] frameArrivalNanos = new long[MAX_PHOTOS];
+        int framesTimed = 0;
+        
+        final Runnable nextShotRunnable = this::takeNextShot;
+        
+        // A shot that fails or is aborted never reaches the reader, so it is counted off here
+        final CameraCaptureSession.CaptureCallback shotCallback = new CameraCaptureSession.CaptureCallback() {
+            @Override
+            public void onCaptureFailed(@NonNull CameraCaptureSession failedSession,
+                                        @NonNull CaptureRequest request, @NonNull CaptureFailure failure) {
+                // The buffer may still be delivered, and is then counted when written
+                if (failure.wasImageCaptured()) return;
+                Log.w(TAG, cameraType + " photo capture failed, reason " + failure.getReason());
+                onShotsFinished(1);
+            }
+            
+            @Override
+            public void onCaptureSequenceAborted(@NonNull CameraCaptureSession abortedSession, int sequenceId) {
+                // Each shot is its own single-request sequence
+                Log.w(TAG, cameraType + " photo capture sequence aborted");
+                onShotsFinished(1);
+            }
+        };
+        
+        CameraSequence(String cameraType) {
+            this.cameraType = cameraType;
         }
         
-        @Override
-        public void onDisconnected(@NonNull CameraDevice camera) {
-            camera.close();
-            frontCamera = null;
+        void reset(long triggerNanos) {
+            photoPaths.clear();
+            photosPlanned = profile.photosPerCamera;
+            photosRemaining = photosPlanned;
+            photosRequested = 0;
+            photosAcquired = 0;
+            this.triggerNanos = triggerNanos;
+            framesTimed = 0;
+            // A camera held in standby keeps its open/configure times from before the trigger
+            if (camera == null) {
+                openedNanos = 0;
+                configuredNanos = 0;
+            }
         }
         
-        @Override
-        public void onError(@NonNull CameraDevice camera, int error) {
-            Log.e(TAG, "Front camera error: " + error);
-            camera.close();
-            frontCamera = null;
-            frontPhotosRemaining = 0;
-            checkCaptureCompletion();
+        void start(String id) {
+            active = true;
+            if (!prepare(id)) {
+                abort();
+                return;
+            }
+            
+            if (session != null) {
+                // Warm from standby - the capture is just the requests
+                takeNextShot();
+            } else {
+                // Shots start from onConfigured once the device is ready
+                openDevice();
+            }
         }
-    }
-    
-    private class BackCameraStateCallback extends CameraDevice.StateCallback {
-        @Override
-        public void onOpened(@NonNull CameraDevice camera) {
-            backCamera = camera;
-            startBackPhotoSequence();
+        
+        void standby(String id, boolean openDevice) {
+            if (active || !prepare(id)) return;
+            if (openDevice) {
+                openDevice();
+            }
         }
         
-        @Override
-        public void onDisconnected(@NonNull CameraDevice camera) {
-            camera.close();
-            backCamera = null;
+        // Resolves the timestamp source and allocates the reader; kept across captures
+        private boolean prepare(String id) {
+            if (id == null) {
+                Log.w(TAG, "No " + cameraType + " camera found");
+                return false;
+            }
+            Size size = getBestCaptureSize(id);
+            if (imageReader != null && id.equals(cameraId)) {
+                // A reader the open device is configured around is kept, even at another size,
+                // rather than reconfiguring at the trigger
+                if (camera != null || openPending
+                        || (imageReader.getWidth() == size.getWidth() && imageReader.getHeight() == size.getHeight())) {
+                    return true;
+                }
+                imageQueue.close();
+                imageQueue = null;
+                imageReader = null;
+            }
+            
+            CameraRegistry.CameraInfo info = cameraRegistry.getInfo(id);
+            if (info == null) {
+                Log.e(TAG, "Error setting up " + cameraType + " camera " + id);
+                return false;
+            }
+            
+            cameraId = id;
+            realtimeTimestamps = info.realtimeTimestamps;
+            
+            // Reader holds the longest sequence so a slow writer never stalls it on a full queue
+            imageReader = ImageReader.newInstance(size.getWidth(), size.getHeight(), ImageFormat.JPEG, MAX_PHOTOS);
+            imageQueue = EvidenceImageWriter.getInstance().attach(imageReader, backgroundHandler, this);
+            return true;
         }
         
-        @Override
-        public void onError(@NonNull CameraDevice camera, int error) {
-            Log.e(TAG, "Back camera error: " + error);
-            camera.close();
-            backCamera = null;
-            backPhotosRemaining = 0;
-            checkCaptureCompletion();
+        private void openDevice() {
+            if (camera != null || openPending) return;
+            if (ActivityCompat.checkSelfPermission(context, Manifest.permission.CAMERA) != PackageManager.PERMISSION_GRANTED) {
+                if (active) abort();
+                return;
+            }
+            
+            try {
+                openPending = true;
+                cameraManager.openCamera(cameraId, stateCallback, backgroundHandler);
+            } catch (CameraAccessException | IllegalArgumentException e) {
+                Log.e(TAG, "Error opening " + cameraType + " camera", e);
+                openPending = false;
+                if (active) abort();
+            }
         }
-    }
-    
-    private void startFrontPhotoSequence() {
-        takeFrontPhoto(0); // Start with photo 0
-    }
-    
-    private void startBackPhotoSequence() {
-        takeBackPhoto(0); // Start with photo 0
-    }
-    
-    private void takeFrontPhoto(int photoIndex) {
-        if (frontCamera == null || frontImageReader == null || photoIndex >= PHOTOS_PER_CAMERA) {
-            return;
+        
+        final CameraDevice.StateCallback stateCallback = new CameraDevice.StateCallback() {
+            @Override
+            public void onOpened(@NonNull CameraDevice device) {
+                openPending = false;
+                if (!active && !standbyRequested) {
+                    // Standby was released while the open was in flight
+                    device.close();
+                    return;
+                }
+                camera = device;
+                openedNanos = SystemClock.elapsedRealtimeNanos();
+                configureSession();
+            }
+            
+            @Override
+            public void onDisconnected(@NonNull CameraDevice device) {
+                // Another client with higher priority took the camera - give it up cleanly
+                Log.w(TAG, cameraType + " camera disconnected" + (active ? " during capture" : " from standby"));
+                onDeviceLost(device);
+            }
+            
+            @Override
+            public void onError(@NonNull CameraDevice device, int error) {
+                Log.e(TAG, cameraType + " camera error: " + error);
+                onDeviceLost(device);
+            }
+        };
+        
+        private void onDeviceLost(CameraDevice device) {
+            openPending = false;
+            device.close();
+            if (camera == device) {
+                camera = null;
+                session = null;
+            }
+            if (active) abort();
         }
         
-        try {
-            CaptureRequest.Builder captureBuilder = frontCamera.createCaptureRequest(CameraDevice.TEMPLATE_STILL_CAPTURE);
-            captureBuilder.addTarget(frontImageReader.getSurface());
-            captureBuilder.set(CaptureRequest.CONTROL_MODE, CaptureRequest.CONTROL_MODE_AUTO);
+        private void configureSession() {
+            if (camera == null || imageReader == null) return;
             
-            frontCamera.createCaptureSession(Arrays.asList(frontImageReader.getSurface()),
-                new CameraCaptureSession.StateCallback() {
-                    @Override
-                    public void onConfigured(@NonNull CameraCaptureSession session) {
-                        try {
-                            session.capture(captureBuilder.build(), null, backgroundHandler);
-                            
-                            // Schedule next photo
-                            if (photoIndex + 1 < PHOTOS_PER_CAMERA) {
-                                backgroundHandler.postDelayed(() -> takeFrontPhoto(photoIndex + 1), PHOTO_INTERVAL_MS);
+            try {
+                camera.createCaptureSession(Arrays.asList(imageReader.getSurface()),
+                    new CameraCaptureSession.StateCallback() {
+                        @Override
+                        public void onConfigured(@NonNull CameraCaptureSession configured) {
+                            session = configured;
+                            configuredNanos = SystemClock.elapsedRealtimeNanos();
+                            if (active) {
+                                takeNextShot();
+                            }
+                        }
+                        
+                        @Override
+                        public void onConfigureFailed(@NonNull CameraCaptureSession configured) {
+                            Log.e(TAG, cameraType + " camera capture session configuration failed");
+                            if (active) {
+                                abort();
+                            } else {
+                                release();
                             }
-                        } catch (CameraAccessException e) {
-                            Log.e(TAG, "Error capturing front photo " + photoIndex, e);
                         }
-                    }
-                    
-                    @Override
-                    public void onConfigureFailed(@NonNull CameraCaptureSession session) {
-                        Log.e(TAG, "Front camera capture session configuration failed");
-                    }
-                }, backgroundHandler);
-        } catch (CameraAccessException e) {
-            Log.e(TAG, "Error setting up front photo capture", e);
+                    }, backgroundHandler);
+            } catch (CameraAccessException e) {
+                Log.e(TAG, "Error configuring " + cameraType + " capture session", e);
+                abort();
+            }
         }
-    }
-    
-    private void takeBackPhoto(int photoIndex) {
-        if (backCamera == null || backImageReader == null || photoIndex >= PHOTOS_PER_CAMERA) {
-            return;
+        
+        // One shot now and the rest on a timer
+        private void takeNextShot() {
+            if (session == null || photosRequested >= photosPlanned) return;
+            
+            try {
+                session.capture(buildRequest(), shotCallback, backgroundHandler);
+                photosRequested++;
+                
+                if (photosRequested < photosPlanned) {
+                    backgroundHandler.postDelayed(nextShotRunnable, PHOTO_INTERVAL_MS);
+                }
+            } catch (CameraAccessException | IllegalStateException e) {
+                Log.e(TAG, "Error capturing " + cameraType + " photo " + photosRequested, e);
+                // This shot and the ones after it are never requested
+                int unrequested = photosPlanned - photosRequested;
+                photosRequested = photosPlanned;
+                onShotsFinished(unrequested);
+            }
         }
         
-        try {
-            CaptureRequest.Builder captureBuilder = backCamera.createCaptureRequest(CameraDevice.TEMPLATE_STILL_CAPTURE);
-            captureBuilder.addTarget(backImageReader.getSurface());
+        private CaptureRequest buildRequest() throws CameraAccessException {
+            CaptureRequest.Builder captureBuilder = camera.createCaptureRequest(CameraDevice.TEMPLATE_STILL_CAPTURE);
+            captureBuilder.addTarget(imageReader.getSurface());
             captureBuilder.set(CaptureRequest.CONTROL_MODE, CaptureRequest.CONTROL_MODE_AUTO);
+            captureBuilder.set(CaptureRequest.JPEG_QUALITY, (byte) profile.jpegQuality);
+            return captureBuilder.build();
+        }
+        
+        // Frames are written on the I/O pool; the camera thread only records timing and names the file
+        @Override
+        public File onImageAcquired(Image image) {
+            if (!active) return null;
             
-            backCamera.createCaptureSession(Arrays.asList(backImageReader.getSurface()),
-                new CameraCaptureSession.StateCallback() {
-                    @Override
-                    public void onConfigured(@NonNull CameraCaptureSession session) {
-                        try {
-                            session.capture(captureBuilder.build(), null, backgroundHandler);
-                            
-                            // Schedule next photo
-                            if (photoIndex + 1 < PHOTOS_PER_CAMERA) {
-                                backgroundHandler.postDelayed(() -> takeBackPhoto(photoIndex + 1), PHOTO_INTERVAL_MS);
-                            }
-                        } catch (CameraAccessException e) {
-                            Log.e(TAG, "Error capturing back photo " + photoIndex, e);
-                        }
-                    }
-                    
-                    @Override
-                    public void onConfigureFailed(@NonNull CameraCaptureSession session) {
-                        Log.e(TAG, "Back camera capture session configuration failed");
-                    }
-                }, backgroundHandler);
-        } catch (CameraAccessException e) {
-            Log.e(TAG, "Error setting up back photo capture", e);
+            long arrivalNanos = SystemClock.elapsedRealtimeNanos();
+            if (captureFirstJpegNanos == 0) {
+                captureFirstJpegNanos = arrivalNanos;
+            }
+            if (framesTimed < MAX_PHOTOS) {
+                frameSensorNanos[framesTimed] = image.getTimestamp();
+                frameArrivalNanos[framesTimed] = arrivalNanos;
+                framesTimed++;
+            }
+            
+            photosAcquired++;
+            return createPhotoFile(cameraType, photosAcquired);
         }
-    }
-    
-    private class FrontCameraImageListener implements ImageReader.OnImageAvailableListener {
+        
         @Override
-        public void onImageAvailable(ImageReader reader) {
-            Image image = reader.acquireLatestImage();
-            if (image != null) {
-                String photoPath = saveImageToFile(image, "front");
-                if (photoPath != null) {
-                    frontPhotoPaths.add(photoPath);
-                    Log.d(TAG, "Front photo " + frontPhotoPaths.size() + "/" + PHOTOS_PER_CAMERA + " saved");
-                }
-                image.close();
-                
-                frontPhotosRemaining--;
-                updateProgress();
-                
-                if (frontPhotosRemaining <= 0) {
-                    closeFrontCamera();
-                    checkCaptureCompletion();
+        public void onImageWritten(File file, boolean success) {
+            if (!active) return;
+            
+            if (success) {
+                photoPaths.add(file.getAbsolutePath());
+                Log.d(TAG, cameraType + " photo " + photoPaths.size() + "/" + photosPlanned + " saved");
+            }
+            
+            onShotsFinished(1);
+        }
+        
+        // Written, failed or never requested
+        private void onShotsFinished(int count) {
+            if (!active) return;
+            photosRemaining -= count;
+            updateProgress();
+            
+            if (photosRemaining <= 0) {
+                release();
+                checkCaptureCompletion();
+            }
+        }
+        
+        void abort() {
+            photosRemaining = 0;
+            release();
+            checkCaptureCompletion();
+        }
+        
+        // Closes the device and reader; standby re-prepares them after the capture completes
+        void release() {
+            active = false;
+            if (backgroundHandler != null) {
+                backgroundHandler.removeCallbacks(nextShotRunnable);
+            }
+            session = null;
+            if (camera != null) {
+                camera.close();
+                camera = null;
+            }
+            if (imageQueue != null) {
+                // The reader stays open until writes still in flight have finished
+                imageQueue.close();
+                imageQueue = null;
+                imageReader = null;
+            }
+        }
+        
+        void appendTiming(StringBuilder out) {
+            out.append(cameraType).append(": ");
+            if (openedNanos == 0) {
+                out.append("not opened\n");
+                return;
+            }
+            if (openedNanos < triggerNanos) {
+                out.append("open and session from standby");
+            } else {
+                out.append("open ").append(toMs(openedNanos - triggerNanos)).append("ms");
+                if (configuredNanos > 0) {
+                    out.append(", session ").append(toMs(configuredNanos - triggerNanos)).append("ms");
                 }
             }
+            out.append(", frames");
+            for (int i = 0; i < framesTimed; i++) {
+                // Sensor timestamps are exposure starts; only comparable with the trigger on a realtime clock
+                long frameNanos = realtimeTimestamps ? frameSensorNanos[i] : frameArrivalNanos[i];
+                out.append(i == 0 ? " " : ", ").append(toMs(frameNanos - triggerNanos)).append("ms");
+            }
+            out.append(realtimeTimestamps ? " (sensor)" : " (arrival)").append("\n");
         }
     }
     
-    private class BackCameraImageListener implements ImageReader.OnImageAvailableListener {
-        @Override
-        public void onImageAvailable(ImageReader reader) {
-            Image image = reader.acquireLatestImage();
-            if (image != null) {
-                String photoPath = saveImageToFile(image, "back");
-                if (photoPath != null) {
-                    backPhotoPaths.add(photoPath);
-                    Log.d(TAG, "Back photo " + backPhotoPaths.size() + "/" + PHOTOS_PER_CAMERA + " saved");
-                }
-                image.close();
-                
-                backPhotosRemaining--;
-                updateProgress();
-                
-                if (backPhotosRemaining <= 0) {
-                    closeBackCamera();
-                    checkCaptureCompletion();
-                }
-            }
+    private static long toMs(long nanos) {
+        return nanos / 1_000_000L;
+    }
+    
+    // Per-camera time from trigger to device open, session ready and each frame
+    public String getCaptureTimingReport() {
+        return lastTimingReport;
+    }
+    
+    // Trigger-to-first-JPEG latency, split by whether standby was active at the trigger
+    public String getFirstFrameLatencyReport() {
+        StringBuilder out = new StringBuilder();
+        synchronized (standbyLatency) {
+            standbyLatency.append(out, "Standby on");
+            coldLatency.append(out, "Standby off");
         }
+        return out.toString();
     }
     
     private void updateProgress() {
         if (captureCallback != null) {
-            int totalRemaining = frontPhotosRemaining + backPhotosRemaining;
-            captureCallback.onPhotosProgress(frontPhotoPaths.size(), backPhotoPaths.size(), totalRemaining);
+            int totalRemaining = frontSequence.photosRemaining + backSequence.photosRemaining;
+            captureCallback.onPhotosProgress(frontSequence.photoPaths.size(), backSequence.photoPaths.size(), totalRemaining);
         }
     }
     
     private void checkCaptureCompletion() {
-        if (frontPhotosRemaining <= 0 && backPhotosRemaining <= 0) {
+        if (isCapturing && frontSequence.photosRemaining <= 0 && backSequence.photosRemaining <= 0) {
             isCapturing = false;
             
+            StringBuilder timing = new StringBuilder();
+            if (captureFirstJpegNanos > 0) {
+                long firstJpegMs = toMs(captureFirstJpegNanos - captureTriggerNanos);
+                synchronized (standbyLatency) {
+                    (captureUsedStandby ? standbyLatency : coldLatency).add(firstJpegMs);
+                }
+                timing.append("first JPEG ").append(firstJpegMs).append("ms")
+                    .append(captureUsedStandby ? " (standby)\n" : " (cold)\n");
+            }
+            frontSequence.appendTiming(timing);
+            backSequence.appendTiming(timing);
+            timing.append("JPEG writes: ").append(EvidenceImageWriter.getInstance().getSummary()).append("\n");
+            lastTimingReport = timing.toString();
+            Log.i(TAG, "Capture timing from trigger:\n" + lastTimingReport);
+            
             if (captureCallback != null) {
-                if (!frontPhotoPaths.isEmpty() || !backPhotoPaths.isEmpty()) {
-                    captureCallback.onAllPhotosCompleted(frontPhotoPaths, backPhotoPaths);
+                List<String> frontPhotos = new ArrayList<>(frontSequence.photoPaths);
+                List<String> backPhotos = new ArrayList<>(backSequence.photoPaths);
+                if (!frontPhotos.isEmpty() || !backPhotos.isEmpty()) {
+                    captureCallback.onAllPhotosCompleted(frontPhotos, backPhotos);
                 } else {
                     captureCallback.onPhotoCaptureError("No photos were successfully captured");
                 }
             }
             
             cleanup();
-        }
-    }
-    
-    private String saveImageToFile(Image image, String cameraType) {
-        try {
-            // Create security photos directory
-            File photosDir = new File(context.getExternalFilesDir(null), "security_photos");
-            if (!photosDir.exists()) {
-                photosDir.mkdirs();
-            }
-            
-            // Create filename with timestamp and sequence
-            String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault()).format(new Date());
-            int sequenceNum = cameraType.equals("front") ? frontPhotoPaths.size() + 1 : backPhotoPaths.size() + 1;
-            File photoFile = new File(photosDir, String.format("security_%s_%s_%02d.jpg", cameraType, timestamp, sequenceNum));
-            
-            // Convert image to byte array
-            ByteBuffer buffer = image.getPlanes()[0].getBuffer();
-            byte[] bytes = new byte[buffer.remaining()];
-            buffer.get(bytes);
             
-            // Save to file
-            FileOutputStream output = new FileOutputStream(photoFile);
-            output.write(bytes);
-            output.close();
-            
-            Log.d(TAG, "Saved " + cameraType + " photo: " + photoFile.getAbsolutePath());
-            return photoFile.getAbsolutePath();
-            
-        } catch (IOException e) {
-            Log.e(TAG, "Error saving " + cameraType + " photo", e);
-            return null;
-        }
-    }
-    
-    private void closeFrontCamera() {
-        if (frontCamera != null) {
-            frontCamera.close();
-            frontCamera = null;
-        }
-        if (frontImageReader != null) {
-            frontImageReader.close();
-            frontImageReader = null;
+            // Warm the pipeline again for the next trigger
+            applyStandby();
         }
     }
     
-    private void closeBackCamera() {
-        if (backCamera != null) {
-            backCamera.close();
-            backCamera = null;
-        }
-        if (backImageReader != null) {
-            backImageReader.close();
-            backImageReader = null;
+    private File createPhotoFile(String cameraType, int sequenceNum) {
+        // Create security photos directory
+        File photosDir = new File(context.getExternalFilesDir(null), "security_photos");
+        if (!photosDir.exists()) {
+            photosDir.mkdirs();
         }
+        
+        // Create filename with timestamp and sequence
+        String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault()).format(new Date());
+        return new File(photosDir, String.format("security_%s_%s_%02d.jpg", cameraType, timestamp, sequenceNum));
     }
     
-    private String getFrontCameraId() {
-        try {
-            for (String cameraId : cameraManager.getCameraIdList()) {
-                CameraCharacteristics characteristics = cameraManager.getCameraCharacteristics(cameraId);
-                Integer facing = characteristics.get(CameraCharacteristics.LENS_FACING);
-                if (facing != null && facing == CameraCharacteristics.LENS_FACING_FRONT) {
-                    return cameraId;
-                }
-            }
-        } catch (CameraAccessException e) {
-            Log.e(TAG, "Error getting front camera ID", e);
+    private Size getBestCaptureSize(String cameraId) {
+        Size[] sizes = cameraRegistry.getJpegSizes(cameraId);
+        if (sizes.length == 0) {
+            Log.e(TAG, "No JPEG sizes for camera " + cameraId);
+            return new Size(640, 480); // Fallback size
         }
-        return null;
-    }
-    
-    private String getBackCameraId() {
-        try {
-            for (String cameraId : cameraManager.getCameraIdList()) {
-                CameraCharacteristics characteristics = cameraManager.getCameraCharacteristics(cameraId);
-                Integer facing = characteristics.get(CameraCharacteristics.LENS_FACING);
-                if (facing != null && facing == CameraCharacteristics.LENS_FACING_BACK) {
-                    return cameraId;
-                }
+        
+        // Largest size within the profile's bounds
+        Size best = null;
+        for (Size size : sizes) {
+            if (size.getWidth() <= profile.maxPhotoWidth && size.getHeight() <= profile.maxPhotoHeight
+                    && (best == null || (long) size.getWidth() * size.getHeight() > (long) best.getWidth() * best.getHeight())) {
+                best = size;
             }
-        } catch (CameraAccessException e) {
-            Log.e(TAG, "Error getting back camera ID", e);
         }
-        return null;
-    }
-    
-    private Size getBestCaptureSize(String cameraId) {
-        try {
-            CameraCharacteristics characteristics = cameraManager.getCameraCharacteristics(cameraId);
-            Size[] sizes = characteristics.get(CameraCharacteristics.SCALER_STREAM_CONFIGURATION_MAP)
-                    .getOutputSizes(ImageFormat.JPEG);
-            
-            // Find a good balance between quality and file size
+        
+        // Fallback to the smallest available
+        if (best == null) {
+            best = sizes[0];
             for (Size size : sizes) {
-                if (size.getWidth() <= 1920 && size.getHeight() <= 1080) {
-                    return size;
+                if ((long) size.getWidth() * size.getHeight() < (long) best.getWidth() * best.getHeight()) {
+                    best = size;
                 }
             }
-            
-            // Fallback to largest available
-            return sizes[0];
-        } catch (CameraAccessException e) {
-            Log.e(TAG, "Error getting capture size", e);
-            return new Size(640, 480); // Fallback size
         }
+        return best;
     }
     
+    // Sequence state belongs to the camera thread, and readers must be closed there
+    // after any writes in flight
     public void stopCapture() {
-        if (isCapturing) {
+        backgroundHandler.post(() -> {
+            if (!isCapturing) return;
             isCapturing = false;
-            frontPhotosRemaining = 0;
-            backPhotosRemaining = 0;
+            frontSequence.photosRemaining = 0;
+            backSequence.photosRemaining = 0;
             cleanup();
-        }
+        });
     }
     
     private void cleanup() {
-        closeFrontCamera();
-        closeBackCamera();
+        frontSequence.release();
+        backSequence.release();
     }
     
     public void cleanupResources() {
         stopCapture();
-        
-        if (backgroundThread != null) {
-            backgroundThread.quitSafely();
-            try {
-                backgroundThread.join();
-                backgroundThread = null;
-                backgroundHandler = null;
-            } catch (InterruptedException e) {
-                Log.e(TAG, "Error stopping background thread", e);
-            }
-        }
+        exitStandby();
     }
     
     public boolean isCapturing() {
@@ -0,0 +1,291 @@
+// File: app/src/main/java/com/antitheft/security/PowerAccountant.java
+
+package com.antitheft.security;
+
+import android.content.Context;
+import android.hardware.Sensor;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
+import android.hardware.TriggerEventListener;
+import android.os.Handler;
+import android.os.PowerManager;
+import android.os.SystemClock;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Process-wide accounting of the power-relevant resources the app holds.
+ *
+ * Every wake lock is created through newWakeLock() and every sensor registration
+ * goes through the register/unregister wrappers here, so held time, acquisitions
+ * and sensor-active time are recorded without the callers keeping their own
+ * bookkeeping. Figures are kept per armed session (startSession/endSession, driven
+ * by SensorService) and normalised per armed hour, which makes detection changes
+ * comparable by their power cost. Times use elapsedRealtime so deep sleep counts
+ * towards the armed period.
+ */
+public class PowerAccountant {
+    private static final PowerAccountant INSTANCE = new PowerAccountant();
+
+    private static final long MS_PER_HOUR = 60 * 60 * 1000L;
+
+    // Time a resource is held within the current session
+    private static class Usage {
+        int activeCount = 0;
+        long activeSince = 0;
+        long expiresAt = Long.MAX_VALUE; // wake lock timeout - the lock releases itself
+        long totalMs = 0;
+        int acquisitions = 0;
+
+        long heldMs(long now) {
+            if (activeCount == 0) return totalMs;
+            return totalMs + Math.max(0, Math.min(now, expiresAt) - activeSince);
+        }
+
+        void activate(long now) {
+            closeExpired(now);
+            if (activeCount++ == 0) {
+                activeSince = now;
+                acquisitions++;
+            }
+        }
+
+        void deactivate(long now) {
+            if (activeCount == 0) return;
+            if (--activeCount == 0) {
+                totalMs += Math.max(0, Math.min(now, expiresAt) - activeSince);
+                expiresAt = Long.MAX_VALUE;
+            }
+        }
+
+        // A wake lock whose timeout passed was released by the system
+        void closeExpired(long now) {
+            if (activeCount > 0 && now >= expiresAt) {
+                totalMs += Math.max(0, expiresAt - activeSince);
+                activeCount = 0;
+                expiresAt = Long.MAX_VALUE;
+            }
+        }
+
+        // Start of a new session: keep what is currently held, drop the totals
+        void restart(long now) {
+            closeExpired(now);
+            totalMs = 0;
+            acquisitions = activeCount > 0 ? 1 : 0;
+            activeSince = now;
+        }
+    }
+
+    private final Map<String, Usage> wakeLocks = new LinkedHashMap<>();
+    private final Map<String, Usage> sensors = new LinkedHashMap<>();
+    private final Map<Object, List<String>> registrations = new HashMap<>();
+
+    private long sessionStart = -1;
+    private int sessionCount = 0;
+    private String lastSessionSummary;
+
+    public static PowerAccountant getInstance() {
+        return INSTANCE;
+    }
+
+    // Wake locks
+
+    public TrackedWakeLock newWakeLock(Context context, int levelAndFlags, String tag) {
+        PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        return new TrackedWakeLock(powerManager.newWakeLock(levelAndFlags, tag), tag);
+    }
+
+    public class TrackedWakeLock {
+        private final PowerManager.WakeLock wakeLock;
+        private final String tag;
+
+        TrackedWakeLock(PowerManager.WakeLock wakeLock, String tag) {
+            this.wakeLock = wakeLock;
+            this.tag = tag;
+            // One acquire/release pair per hold - repeated acquire() only extends the timeout
+            wakeLock.setReferenceCounted(false);
+        }
+
+        public void acquire(long timeoutMs) {
+            synchronized (PowerAccountant.this) {
+                long now = SystemClock.elapsedRealtime();
+                Usage usage = usage(wakeLocks, tag);
+                usage.closeExpired(now);
+                if (usage.activeCount == 0) {
+                    usage.activate(now);
+                }
+                usage.expiresAt = now + timeoutMs;
+                wakeLock.acquire(timeoutMs);
+            }
+        }
+
+        public void release() {
+            synchronized (PowerAccountant.this) {
+                usage(wakeLocks, tag).deactivate(SystemClock.elapsedRealtime());
+                if (wakeLock.isHeld()) {
+                    wakeLock.release();
+                }
+            }
+        }
+
+        public boolean isHeld() {
+            return wakeLock.isHeld();
+        }
+    }
+
+    // Sensors
+
+    public synchronized boolean registerListener(SensorManager sensorManager, SensorEventListener listener,
+                                                 Sensor sensor, int samplingPeriod, Handler handler) {
+        return registerListener(sensorManager, listener, sensor, samplingPeriod, 0, handler);
+    }
+
+    public synchronized boolean registerListener(SensorManager sensorManager, SensorEventListener listener,
+                                                 Sensor sensor, int samplingPeriod, int maxReportLatencyUs,
+                                                 Handler handler) {
+        boolean registered = sensorManager.registerListener(listener, sensor, samplingPeriod, maxReportLatencyUs, handler);
+        if (registered) {
+            onSensorActive(listener, sensor);
+        }
+        return registered;
+    }
+
+    public synchronized void unregisterListener(SensorManager sensorManager, SensorEventListener listener) {
+        sensorManager.unregisterListener(listener);
+        onListenerInactive(listener);
+    }
+
+    public synchronized boolean requestTriggerSensor(SensorManager sensorManager, TriggerEventListener listener,
+                                                     Sensor sensor) {
+        // Re-requesting an armed trigger is a no-op for the framework - account it once
+        onListenerInactive(listener);
+        boolean requested = sensorManager.requestTriggerSensor(listener, sensor);
+        if (requested) {
+            onSensorActive(listener, sensor);
+        }
+        return requested;
+    }
+
+    public synchronized void cancelTriggerSensor(SensorManager sensorManager, TriggerEventListener listener,
+                                                 Sensor sensor) {
+        sensorManager.cancelTriggerSensor(listener, sensor);
+        onListenerInactive(listener);
+    }
+
+    // Trigger sensors are one-shot and disarm themselves when they fire
+    public synchronized void onTriggerFired(TriggerEventListener listener) {
+        onListenerInactive(listener);
+    }
+
+    private void onSensorActive(Object listener, Sensor sensor) {
+        String name = sensor.getName();
+        List<String> sensorsForListener = registrations.get(listener);
+        if (sensorsForListener == null) {
+            sensorsForListener = new ArrayList<>();
+            registrations.put(listener, sensorsForListener);
+        }
+        if (sensorsForListener.contains(name)) return; // re-registration updates the rate only
+
+        sensorsForListener.add(name);
+        usage(sensors, name).activate(SystemClock.elapsedRealtime());
+    }
+
+    private void onListenerInactive(Object listener) {
+        List<String> sensorsForListener = registrations.remove(listener);
+        if (sensorsForListener == null) return;
+
+        long now = SystemClock.elapsedRealtime();
+        for (String name : sensorsForListener) {
+            usage(sensors, name).deactivate(now);
+        }
+    }
+
+    private static Usage usage(Map<String, Usage> map, String name) {
+        Usage usage = map.get(name);
+        if (usage == null) {
+            usage = new Usage();
+            map.put(name, usage);
+        }
+        return usage;
+    }
+
+    // Armed sessions
+
+    public synchronized void startSession() {
+        long now = SystemClock.elapsedRealtime();
+        sessionStart = now;
+        sessionCount++;
+        for (Usage usage : wakeLocks.values()) usage.restart(now);
+        for (Usage usage : sensors.values()) usage.restart(now);
+    }
+
+    public synchronized void endSession() {
+        if (sessionStart < 0) return;
+        lastSessionSummary = getSummary();
+        sessionStart = -1;
+    }
+
+    // One-line cost of the current (or last) armed session
+    public synchronized String getSummary() {
+        if (sessionStart < 0) {
+            return lastSessionSummary != null ? "Last session: " + lastSessionSummary : "No armed session";
+        }
+        long now = SystemClock.elapsedRealtime();
+        long armedMs = now - sessionStart;
+        return String.format(Locale.US, "armed %ds, wake locks %ds (%.0fs/h), sensors %ds (%.0fs/h)",
+            armedMs / 1000,
+            totalHeldMs(wakeLocks, now) / 1000, perHour(totalHeldMs(wakeLocks, now), armedMs),
+            totalHeldMs(sensors, now) / 1000, perHour(totalHeldMs(sensors, now), armedMs));
+    }
+
+    public synchronized void appendStats(StringBuilder out) {
+        long now = SystemClock.elapsedRealtime();
+        if (sessionStart < 0) {
+            out.append("Power: ").append(getSummary()).append("\n");
+            return;
+        }
+
+        long armedMs = now - sessionStart;
+        out.append("Armed Session #").append(sessionCount).append(": ").append(armedMs / 1000).append("s\n");
+        appendUsage(out, "Wake lock", wakeLocks, now, armedMs);
+        appendUsage(out, "Sensor", sensors, now, armedMs);
+    }
+
+    private static void appendUsage(StringBuilder out, String label, Map<String, Usage> map, long now, long armedMs) {
+        for (Map.Entry<String, Usage> entry : map.entrySet()) {
+            Usage usage = entry.getValue();
+            long heldMs = usage.heldMs(now);
+            out.append(String.format(Locale.US, "%s %s: %ds held, %d acquisitions, %.0fs/armed hour%s\n",
+                label, entry.getKey(), heldMs / 1000, usage.acquisitions, perHour(heldMs, armedMs),
+                usage.activeCount > 0 && now < usage.expiresAt ? " (held)" : ""));
+        }
+    }
+
+    public synchronized void dump(PrintWriter writer) {
+        StringBuilder out = new StringBuilder();
+        out.append("Power accounting (").append(sessionCount).append(" armed sessions)\n");
+        appendStats(out);
+        if (lastSessionSummary != null) {
+            out.append("Last completed session: ").append(lastSessionSummary).append("\n");
+        }
+        writer.print(out);
+    }
+
+    private static long totalHeldMs(Map<String, Usage> map, long now) {
+        long total = 0;
+        for (Usage usage : map.values()) {
+            total += usage.heldMs(now);
+        }
+        return total;
+    }
+
+    private static double perHour(long heldMs, long armedMs) {
+        return armedMs <= 0 ? 0 : heldMs / 1000.0 * MS_PER_HOUR / armedMs;
+    }
+}
@@ -0,0 +1,75 @@
+// File: app/src/main/java/com/antitheft/security/PreTriggerClipWriter.java
+
+package com.antitheft.security;
+
+import java.io.IOException;
+
+/**
+ * Turns the pre-trigger ring plus the frames that follow into one continuous track.
+ *
+ * writePreTrigger() takes the last windowUs of the ring, starting on a keyframe,
+ * and writeLive() appends frames encoded after the trigger. Timestamps are rebased
+ * so the clip starts at zero and are forced strictly increasing, which the muxer
+ * requires. Output goes to a SampleSink - MediaMuxer on the device, anything on the
+ * JVM - so this class has no Android dependencies.
+ */
+public class PreTriggerClipWriter {
+
+    public interface SampleSink {
+        void writeSample(byte[] data, int offset, int size, long ptsUs, boolean keyFrame) throws IOException;
+    }
+
+    private final SampleSink sink;
+    private long basePtsUs = -1;
+    private long lastPtsUs = -1;
+    private long lastSourcePtsUs = -1; // encoder timestamp of the last frame written
+    private int preTriggerFrames = 0;
+    private int liveFrames = 0;
+
+    public PreTriggerClipWriter(SampleSink sink) {
+        this.sink = sink;
+    }
+
+    // Returns the number of buffered frames written
+    public int writePreTrigger(EncodedFrameRing ring, long windowUs) throws IOException {
+        int start = ring.findStart(windowUs);
+        if (start < 0) return 0;
+        preTriggerFrames = ring.visit(start, this::write);
+        return preTriggerFrames;
+    }
+
+    // Live frames before the first keyframe are skipped when nothing was buffered
+    public boolean writeLive(byte[] data, int offset, int size, long ptsUs, boolean keyFrame) throws IOException {
+        if (basePtsUs < 0 && !keyFrame) return false;
+        // A frame already taken from the ring can arrive again if the trigger raced the encoder
+        if (ptsUs <= lastSourcePtsUs) return false;
+        write(data, offset, size, ptsUs, keyFrame);
+        liveFrames++;
+        return true;
+    }
+
+    private void write(byte[] data, int offset, int size, long ptsUs, boolean keyFrame) throws IOException {
+        if (basePtsUs < 0) {
+            basePtsUs = ptsUs;
+        }
+        long out = ptsUs - basePtsUs;
+        if (out <= lastPtsUs) {
+            out = lastPtsUs + 1;
+        }
+        sink.writeSample(data, offset, size, out, keyFrame);
+        lastPtsUs = out;
+        lastSourcePtsUs = ptsUs;
+    }
+
+    public int getPreTriggerFrames() {
+        return preTriggerFrames;
+    }
+
+    public int getLiveFrames() {
+        return liveFrames;
+    }
+
+    public long getDurationUs() {
+        return Math.max(0, lastPtsUs);
+    }
+}
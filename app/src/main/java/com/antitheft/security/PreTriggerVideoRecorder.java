@@ -0,0 +1,399 @@
+// File: app/src/main/java/com/antitheft/security/PreTriggerVideoRecorder.java
+
+package com.antitheft.security;
+
+import android.Manifest;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.hardware.camera2.CameraAccessException;
+import android.hardware.camera2.CameraCaptureSession;
+import android.hardware.camera2.CameraDevice;
+import android.hardware.camera2.CaptureRequest;
+import android.media.MediaCodec;
+import android.media.MediaCodecInfo;
+import android.media.MediaFormat;
+import android.media.MediaMuxer;
+import android.os.Handler;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.Surface;
+import androidx.annotation.NonNull;
+import androidx.core.app.ActivityCompat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+
+/**
+ * Keeps the last seconds before a trigger on video.
+ *
+ * While armed, the front camera streams into a low-resolution H.264 MediaCodec
+ * encoder and every encoded access unit is copied into an EncodedFrameRing with a
+ * hard byte cap. saveClip() muxes the buffered window (starting on a keyframe) to
+ * MP4 and keeps appending live frames until the requested live duration has passed
+ * or the camera is taken for photo evidence, then finishes the file.
+ *
+ * All camera and codec work runs on the shared camera thread.
+ */
+public class PreTriggerVideoRecorder {
+    private static final String TAG = "AntiTheft_PreTrigger";
+
+    private static final String MIME_TYPE = MediaFormat.MIMETYPE_VIDEO_AVC;
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+    private static final int FRAME_RATE = 15;
+    private static final int BIT_RATE = 500000;
+    private static final int KEYFRAME_INTERVAL_SECONDS = 1;
+
+    // ~30s at the bit rate above; the cap is hard - the ring never allocates beyond it
+    private static final int RING_CAPACITY_BYTES = 2 * 1024 * 1024;
+    private static final int RING_MAX_FRAMES = 1024;
+
+    public interface ClipCallback {
+        void onClipSaved(String path, long durationUs);
+        void onClipError(String error);
+    }
+
+    private final Context context;
+    private final CameraRegistry cameraRegistry;
+    private final Handler cameraHandler;
+    private final EncodedFrameRing ring = new EncodedFrameRing(RING_CAPACITY_BYTES, RING_MAX_FRAMES);
+
+    // Written on the camera thread, read from any: armed and not failed. Stays set while
+    // the camera is only lent to photo evidence, since the ring still holds the frames.
+    private volatile boolean buffering = false;
+
+    // Camera thread only
+    private boolean running = false;
+    private String cameraId;
+    private CameraDevice camera;
+    private boolean openPending = false;
+    private MediaCodec encoder;
+    private Surface encoderSurface;
+    private MediaFormat outputFormat;
+    private byte[] liveScratch = new byte[0];
+
+    // Clip being written after a trigger
+    private MediaMuxer muxer;
+    private int muxerTrack = -1;
+    private PreTriggerClipWriter clipWriter;
+    private File clipFile;
+    private long liveUntil;
+    private ClipCallback clipCallback;
+
+    public PreTriggerVideoRecorder(Context context) {
+        this.context = context;
+        this.cameraRegistry = CameraRegistry.getInstance(context);
+        this.cameraHandler = cameraRegistry.getCameraHandler();
+    }
+
+    public void start() {
+        cameraHandler.post(() -> {
+            if (running) return;
+            if (ActivityCompat.checkSelfPermission(context, Manifest.permission.CAMERA) != PackageManager.PERMISSION_GRANTED) {
+                Log.w(TAG, "Camera permission not granted - pre-trigger buffer not started");
+                return;
+            }
+            cameraId = cameraRegistry.getFrontCameraId();
+            if (cameraId == null) {
+                Log.w(TAG, "No front camera - pre-trigger buffer not started");
+                return;
+            }
+
+            running = true;
+            buffering = true;
+            cameraRegistry.getCameraManager().registerAvailabilityCallback(availabilityCallback, cameraHandler);
+            openCamera();
+            Log.i(TAG, "Pre-trigger buffer started");
+        });
+    }
+
+    public void stop() {
+        cameraHandler.post(() -> {
+            if (!running) return;
+            running = false;
+            buffering = false;
+            cameraRegistry.getCameraManager().unregisterAvailabilityCallback(availabilityCallback);
+            finishClip("Pre-trigger buffer stopped");
+            closeCamera();
+            Log.i(TAG, "Pre-trigger buffer stopped - " + ring.getSummary());
+            ring.clear();
+        });
+    }
+
+    // Writes the last preTriggerUs of buffered video followed by up to liveUs of live video
+    public void saveClip(File file, long preTriggerUs, long liveUs, ClipCallback callback) {
+        cameraHandler.post(() -> {
+            if (muxer != null) {
+                callback.onClipError("Clip already being written");
+                return;
+            }
+            if (outputFormat == null || ring.getFrameCount() == 0) {
+                callback.onClipError("Nothing buffered");
+                return;
+            }
+
+            try {
+                muxer = new MediaMuxer(file.getAbsolutePath(), MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4);
+                muxerTrack = muxer.addTrack(outputFormat);
+                muxer.start();
+
+                MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+                clipWriter = new PreTriggerClipWriter((data, offset, size, ptsUs, keyFrame) -> {
+                    info.set(0, size, ptsUs, keyFrame ? MediaCodec.BUFFER_FLAG_KEY_FRAME : 0);
+                    muxer.writeSampleData(muxerTrack, ByteBuffer.wrap(data, offset, size).slice(), info);
+                });
+                clipFile = file;
+                clipCallback = callback;
+
+                int frames = clipWriter.writePreTrigger(ring, preTriggerUs);
+                Log.i(TAG, "Pre-trigger clip: " + frames + " buffered frames (" + ring.getSummary() + ")");
+
+                if (camera == null || liveUs <= 0) {
+                    finishClip(null);
+                } else {
+                    liveUntil = SystemClock.elapsedRealtime() + liveUs / 1000;
+                    cameraHandler.postDelayed(liveDeadline, liveUs / 1000);
+                }
+            } catch (IOException | IllegalStateException | IllegalArgumentException e) {
+                Log.e(TAG, "Error writing pre-trigger clip", e);
+                releaseMuxer();
+                file.delete();
+                callback.onClipError("Mux error: " + e.getMessage());
+            }
+        });
+    }
+
+    private final Runnable liveDeadline = () -> finishClip(null);
+
+    // error == null finishes normally; the clip is kept either way if anything was written
+    private void finishClip(String error) {
+        if (muxer == null) return;
+        cameraHandler.removeCallbacks(liveDeadline);
+
+        ClipCallback callback = clipCallback;
+        File file = clipFile;
+        long durationUs = clipWriter.getDurationUs();
+        int liveFrames = clipWriter.getLiveFrames();
+        boolean stopped = releaseMuxer();
+
+        if (stopped) {
+            Log.i(TAG, "Pre-trigger clip saved: " + file.getName() + " (" + (durationUs / 1000) + "ms, "
+                + liveFrames + " live frames" + (error != null ? ", " + error : "") + ")");
+            callback.onClipSaved(file.getAbsolutePath(), durationUs);
+        } else {
+            file.delete();
+            callback.onClipError(error != null ? error : "Failed to finish clip");
+        }
+    }
+
+    private boolean releaseMuxer() {
+        boolean stopped = false;
+        try {
+            muxer.stop();
+            stopped = true;
+        } catch (IllegalStateException e) {
+            Log.e(TAG, "Error stopping muxer", e);
+        }
+        muxer.release();
+        muxer = null;
+        clipWriter = null;
+        clipCallback = null;
+        clipFile = null;
+        return stopped;
+    }
+
+    private void openCamera() {
+        if (!running || camera != null || openPending) return;
+        try {
+            openPending = true;
+            cameraRegistry.getCameraManager().openCamera(cameraId, stateCallback, cameraHandler);
+        } catch (CameraAccessException | SecurityException | IllegalArgumentException e) {
+            openPending = false;
+            Log.e(TAG, "Error opening camera for pre-trigger buffer", e);
+        }
+    }
+
+    private final CameraDevice.StateCallback stateCallback = new CameraDevice.StateCallback() {
+        @Override
+        public void onOpened(@NonNull CameraDevice device) {
+            openPending = false;
+            if (!running) {
+                device.close();
+                return;
+            }
+            camera = device;
+            startEncoding();
+        }
+
+        @Override
+        public void onDisconnected(@NonNull CameraDevice device) {
+            // Usually photo evidence taking the camera; re-opened when it is released
+            Log.i(TAG, "Camera taken - pre-trigger buffering paused");
+            onCameraLost(device);
+        }
+
+        @Override
+        public void onError(@NonNull CameraDevice device, int error) {
+            Log.e(TAG, "Camera error " + error + " - pre-trigger buffering paused");
+            onCameraLost(device);
+        }
+    };
+
+    private void onCameraLost(CameraDevice device) {
+        openPending = false;
+        finishClip("camera taken");
+        device.close();
+        if (camera == device) {
+            camera = null;
+        }
+        releaseEncoder();
+    }
+
+    private final android.hardware.camera2.CameraManager.AvailabilityCallback availabilityCallback =
+        new android.hardware.camera2.CameraManager.AvailabilityCallback() {
+            @Override
+            public void onCameraAvailable(@NonNull String id) {
+                if (id.equals(cameraId)) {
+                    openCamera();
+                }
+            }
+        };
+
+    private void startEncoding() {
+        try {
+            MediaFormat format = MediaFormat.createVideoFormat(MIME_TYPE, WIDTH, HEIGHT);
+            format.setInteger(MediaFormat.KEY_COLOR_FORMAT, MediaCodecInfo.CodecCapabilities.COLOR_FormatSurface);
+            format.setInteger(MediaFormat.KEY_BIT_RATE, BIT_RATE);
+            format.setInteger(MediaFormat.KEY_FRAME_RATE, FRAME_RATE);
+            format.setInteger(MediaFormat.KEY_I_FRAME_INTERVAL, KEYFRAME_INTERVAL_SECONDS);
+
+            encoder = MediaCodec.createEncoderByType(MIME_TYPE);
+            // Callbacks arrive on this (the camera) thread's looper
+            encoder.setCallback(encoderCallback);
+            encoder.configure(format, null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
+            encoderSurface = encoder.createInputSurface();
+            encoder.start();
+
+            CaptureRequest.Builder request = camera.createCaptureRequest(CameraDevice.TEMPLATE_RECORD);
+            request.addTarget(encoderSurface);
+            camera.createCaptureSession(Collections.singletonList(encoderSurface),
+                new CameraCaptureSession.StateCallback() {
+                    @Override
+                    public void onConfigured(@NonNull CameraCaptureSession session) {
+                        try {
+                            session.setRepeatingRequest(request.build(), null, cameraHandler);
+                            buffering = running; // recovered, e.g. after an earlier failure
+                        } catch (CameraAccessException | IllegalStateException e) {
+                            Log.e(TAG, "Error starting pre-trigger stream", e);
+                            fail();
+                        }
+                    }
+
+                    @Override
+                    public void onConfigureFailed(@NonNull CameraCaptureSession session) {
+                        Log.e(TAG, "Pre-trigger capture session configuration failed");
+                        fail();
+                    }
+                }, cameraHandler);
+        } catch (IOException | CameraAccessException | IllegalStateException | IllegalArgumentException e) {
+            Log.e(TAG, "Error starting pre-trigger encoder", e);
+            fail();
+        }
+    }
+
+    private final MediaCodec.Callback encoderCallback = new MediaCodec.Callback() {
+        @Override
+        public void onInputBufferAvailable(@NonNull MediaCodec codec, int index) {
+            // Surface input - no input buffers
+        }
+
+        @Override
+        public void onOutputBufferAvailable(@NonNull MediaCodec codec, int index, @NonNull MediaCodec.BufferInfo info) {
+            if (codec != encoder) return;
+
+            ByteBuffer buffer = codec.getOutputBuffer(index);
+            boolean codecConfig = (info.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) != 0;
+            if (buffer != null && info.size > 0 && !codecConfig) {
+                buffer.position(info.offset);
+                buffer.limit(info.offset + info.size);
+                boolean keyFrame = (info.flags & MediaCodec.BUFFER_FLAG_KEY_FRAME) != 0;
+
+                ring.add(buffer, info.presentationTimeUs, keyFrame);
+                if (clipWriter != null) {
+                    writeLive(buffer, info.presentationTimeUs, keyFrame);
+                }
+            }
+            codec.releaseOutputBuffer(index, false);
+        }
+
+        @Override
+        public void onError(@NonNull MediaCodec codec, @NonNull MediaCodec.CodecException e) {
+            Log.e(TAG, "Pre-trigger encoder error", e);
+            finishClip("encoder error");
+            fail();
+        }
+
+        @Override
+        public void onOutputFormatChanged(@NonNull MediaCodec codec, @NonNull MediaFormat format) {
+            // Carries the SPS/PPS the muxer needs
+            outputFormat = format;
+        }
+    };
+
+    private void writeLive(ByteBuffer buffer, long ptsUs, boolean keyFrame) {
+        int size = buffer.remaining();
+        if (liveScratch.length < size) {
+            liveScratch = new byte[size];
+        }
+        buffer.duplicate().get(liveScratch, 0, size);
+        try {
+            clipWriter.writeLive(liveScratch, 0, size, ptsUs, keyFrame);
+        } catch (IOException | IllegalStateException e) {
+            Log.e(TAG, "Error writing live frame", e);
+            finishClip("write error");
+        }
+        if (SystemClock.elapsedRealtime() >= liveUntil) {
+            finishClip(null);
+        }
+    }
+
+    // No new frames are coming; a later open of the camera tries again
+    private void fail() {
+        buffering = false;
+        closeCamera();
+    }
+
+    private void closeCamera() {
+        if (camera != null) {
+            camera.close();
+            camera = null;
+        }
+        releaseEncoder();
+    }
+
+    private void releaseEncoder() {
+        if (encoder != null) {
+            try {
+                encoder.stop();
+            } catch (IllegalStateException e) {
+                Log.w(TAG, "Encoder already stopped");
+            }
+            encoder.release();
+            encoder = null;
+        }
+        if (encoderSurface != null) {
+            encoderSurface.release();
+            encoderSurface = null;
+        }
+    }
+
+    public boolean isBuffering() {
+        return buffering;
+    }
+
+    public String getSummary() {
+        return ring.getSummary();
+    }
+}
@@ -0,0 +1,136 @@
+// File: app/src/main/java/com/antitheft/security/SamplingRateController.java
+
+package com.antitheft.security;
+
+import java.util.Locale;
+
+/**
+ * Picks the motion sensor sampling period from the classifier's own window scores.
+ *
+ * SLOW   - device has been still for a long time
+ * NORMAL - default rate
+ * FAST   - candidate motion seen, sample as fast as useful
+ *
+ * A window scoring at or above the candidate level moves straight to FAST so the
+ * detection is not slowed down. Stepping down needs the score to stay below the
+ * lower still level for the whole stillness period of the current rate, and no
+ * change at all is made within the minimum dwell time of the previous one. The two
+ * score levels and the dwell time give the hysteresis that stops listeners being
+ * re-registered on every window.
+ *
+ * Every change is kept in a small ring with its timestamp so rate history can be
+ * lined up against battery drain and detection latency. The clock is passed in by
+ * the caller.
+ */
+public class SamplingRateController {
+
+    public enum Rate {
+        SLOW(100000),  // 10 Hz
+        NORMAL(20000), // 50 Hz, same as SENSOR_DELAY_GAME
+        FAST(5000);    // 200 Hz
+
+        public final int samplingPeriodUs;
+
+        Rate(int samplingPeriodUs) {
+            this.samplingPeriodUs = samplingPeriodUs;
+        }
+    }
+
+    public static final float CANDIDATE_SCORE = 0.5f; // half of a motion decision
+    public static final float STILL_SCORE = 0.2f;
+    public static final long MIN_DWELL_MS = 5000;
+    public static final long FAST_STILLNESS_MS = 10000;   // FAST -> NORMAL
+    public static final long NORMAL_STILLNESS_MS = 60000; // NORMAL -> SLOW
+
+    private static final int HISTORY_SIZE = 32;
+
+    private Rate rate = Rate.NORMAL;
+    private long lastChangeAt = 0;
+    private long stillSince = -1;
+
+    // Ring of recent changes
+    private final long[] changeTimes = new long[HISTORY_SIZE];
+    private final Rate[] changeRates = new Rate[HISTORY_SIZE];
+    private int historyHead = 0;
+    private int historyCount = 0;
+    private int changeCount = 0;
+
+    // Time spent per rate, excluding the current one
+    private final long[] timeInRateMs = new long[Rate.values().length];
+
+    public void start(Rate initial, long nowMs) {
+        rate = initial;
+        lastChangeAt = nowMs;
+        stillSince = -1;
+        record(nowMs, initial);
+    }
+
+    // Feeds one closed classifier window. Returns the new rate if it changed, otherwise null.
+    public Rate onWindow(float score, long nowMs) {
+        if (score >= CANDIDATE_SCORE) {
+            stillSince = -1;
+            return rate == Rate.FAST ? null : change(Rate.FAST, nowMs);
+        }
+
+        if (score >= STILL_SCORE) {
+            // Between the two levels - neither ramp up nor count towards stillness
+            stillSince = -1;
+            return null;
+        }
+
+        if (stillSince < 0) {
+            stillSince = nowMs;
+        }
+        if (nowMs - lastChangeAt < MIN_DWELL_MS) {
+            return null;
+        }
+
+        long stillFor = nowMs - stillSince;
+        if (rate == Rate.FAST && stillFor >= FAST_STILLNESS_MS) {
+            return change(Rate.NORMAL, nowMs);
+        } else if (rate == Rate.NORMAL && stillFor >= NORMAL_STILLNESS_MS) {
+            return change(Rate.SLOW, nowMs);
+        }
+        return null;
+    }
+
+    private Rate change(Rate next, long nowMs) {
+        timeInRateMs[rate.ordinal()] += Math.max(0, nowMs - lastChangeAt);
+        rate = next;
+        lastChangeAt = nowMs;
+        // Stillness restarts so each step down needs its own full period
+        stillSince = -1;
+        changeCount++;
+        record(nowMs, next);
+        return next;
+    }
+
+    private void record(long nowMs, Rate next) {
+        changeTimes[historyHead] = nowMs;
+        changeRates[historyHead] = next;
+        historyHead = (historyHead + 1) % HISTORY_SIZE;
+        if (historyCount < HISTORY_SIZE) historyCount++;
+    }
+
+    public Rate getRate() {
+        return rate;
+    }
+
+    public int getChangeCount() {
+        return changeCount;
+    }
+
+    public long getTimeInRateMs(Rate target, long nowMs) {
+        long time = timeInRateMs[target.ordinal()];
+        return target == rate ? time + Math.max(0, nowMs - lastChangeAt) : time;
+    }
+
+    // Appends recent changes, oldest first, as "timestamp RATE" lines
+    public void appendHistory(StringBuilder out) {
+        int start = (historyHead - historyCount + HISTORY_SIZE) % HISTORY_SIZE;
+        for (int i = 0; i < historyCount; i++) {
+            int index = (start + i) % HISTORY_SIZE;
+            out.append(String.format(Locale.US, "  %d %s\n", changeTimes[index], changeRates[index]));
+        }
+    }
+}
@@ -8,13 +8,13 @@ import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
-import android.graphics.Rect;
 import android.media.MediaMetadataRetriever;
 import android.media.projection.MediaProjection;
 import android.media.projection.MediaProjectionManager;
 import android.os.Build;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.util.DisplayMetrics;
 import android.util.Log;
 import android.view.PixelCopy;
@@ -27,151 +27,206 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 public class ScreenshotUtility {
     private static final String TAG = "AntiTheft_Screenshot";
     
+    // Values of the screenshot_format setting
+    public static final String FORMAT_JPEG = "jpeg";
+    public static final String FORMAT_WEBP = "webp";
+    public static final String FORMAT_PNG = "png";
+    
+    private static final int MAX_POOLED_BITMAPS = 2;
+    private static final List<Bitmap> BITMAP_POOL = new ArrayList<>();
+    
+    // One encoder thread shared by every instance; it exits when idle
+    private static final ThreadPoolExecutor ENCODER = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>());
+    
+    static {
+        ENCODER.allowCoreThreadTimeOut(true);
+    }
+    
     private Context context;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
     
     public ScreenshotUtility(Context context) {
         this.context = context;
     }
     
-    // Main screenshot capture method
-    public String captureScreenshot(String sessionId) {
-        try {
-            // Create screenshots directory
-            File screenshotsDir = new File(context.getExternalFilesDir(null), "security_screenshots");
-            if (!screenshotsDir.exists()) {
-                screenshotsDir.mkdirs();
-            }
-            
-            // Generate filename
-            String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault()).format(new Date());
-            String filename = String.format("screenshot_%s_%s.png", sessionId, timestamp);
-            File screenshotFile = new File(screenshotsDir, filename);
-            
-            // Try different screenshot methods based on Android version
-            Bitmap screenshot = null;
+    // Starts a capture and returns at once; the future completes with the saved path, or null
+    // if nothing could be captured. Pixels are grabbed on the main thread without waiting
+    // (PixelCopy reports back there) and encoding runs on the encoder thread.
+    public EvidenceFuture<String> captureScreenshotAsync(String sessionId) {
+        EvidenceFuture<String> result = new EvidenceFuture<>();
+        mainHandler.post(() -> grabScreenshot(sessionId, result));
+        return result;
+    }
+    
+    // Main thread
+    private void grabScreenshot(String sessionId, EvidenceFuture<String> result) {
+        if (result.isDone()) return; // cancelled before it ran
+        
+        View rootView = getRootView();
+        if (rootView != null && rootView.getWidth() > 0 && rootView.getHeight() > 0) {
+            Bitmap bitmap = obtainBitmap(rootView.getWidth(), rootView.getHeight());
             
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-                screenshot = captureScreenshotAPI26Plus();
+                try {
+                    // Use PixelCopy for hardware-accelerated views
+                    PixelCopy.request(((Activity) context).getWindow(), bitmap, copyResult -> {
+                        if (copyResult == PixelCopy.SUCCESS || captureScreenshotLegacy(rootView, bitmap)) {
+                            encodeAsync(bitmap, sessionId, result);
+                        } else {
+                            releaseBitmap(bitmap);
+                            encodeFallbackAsync(sessionId, result);
+                        }
+                    }, mainHandler);
+                    return;
+                } catch (IllegalArgumentException e) {
+                    Log.e(TAG, "Error in API 26+ screenshot", e);
+                }
             }
             
-            if (screenshot == null) {
-                screenshot = captureScreenshotLegacy();
+            if (captureScreenshotLegacy(rootView, bitmap)) {
+                encodeAsync(bitmap, sessionId, result);
+                return;
             }
-            
-            if (screenshot == null) {
-                screenshot = createFallbackScreenshot();
+            releaseBitmap(bitmap);
+        }
+        
+        encodeFallbackAsync(sessionId, result);
+    }
+    
+    private View getRootView() {
+        if (context instanceof Activity) {
+            return ((Activity) context).getWindow().getDecorView().getRootView();
+        }
+        return null;
+    }
+    
+    // No window to copy - the fallback card does not touch views, so it is drawn off the main thread
+    private void encodeFallbackAsync(String sessionId, EvidenceFuture<String> result) {
+        ENCODER.execute(() -> {
+            Bitmap fallback = createFallbackScreenshot();
+            if (fallback == null) {
+                Log.e(TAG, "Failed to capture screenshot");
+                result.complete(null);
+                return;
             }
+            encode(fallback, sessionId, result);
+        });
+    }
+    
+    private void encodeAsync(Bitmap bitmap, String sessionId, EvidenceFuture<String> result) {
+        ENCODER.execute(() -> encode(bitmap, sessionId, result));
+    }
+    
+    // Encoder thread; the bitmap goes back to the pool afterwards
+    private void encode(Bitmap bitmap, String sessionId, EvidenceFuture<String> result) {
+        try {
+            if (result.isDone()) return; // timed out or cancelled while waiting
             
-            if (screenshot != null) {
-                // Save screenshot to file
-                FileOutputStream outputStream = new FileOutputStream(screenshotFile);
-                screenshot.compress(Bitmap.CompressFormat.PNG, 100, outputStream);
-                outputStream.close();
-                screenshot.recycle();
-                
-                Log.d(TAG, "Screenshot saved: " + screenshotFile.getAbsolutePath());
-                return screenshotFile.getAbsolutePath();
-            } else {
-                Log.e(TAG, "Failed to capture screenshot");
-                return null;
+            ConfigSnapshot config = ConfigManager.get(context);
+            File screenshotFile = createScreenshotFile("screenshot_" + sessionId, config.screenshotFormat);
+            long start = SystemClock.elapsedRealtime();
+            
+            try (FileOutputStream outputStream = new FileOutputStream(screenshotFile)) {
+                bitmap.compress(getCompressFormat(config.screenshotFormat), config.screenshotQuality, outputStream);
             }
             
-        } catch (Exception e) {
-            Log.e(TAG, "Error capturing screenshot", e);
-            return null;
+            Log.d(TAG, "Screenshot saved: " + screenshotFile.getAbsolutePath() + " ("
+                + (screenshotFile.length() / 1024) + "KB, " + (SystemClock.elapsedRealtime() - start) + "ms encode)");
+            result.complete(screenshotFile.getAbsolutePath());
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "Error saving screenshot", e);
+            result.complete(null);
+        } finally {
+            releaseBitmap(bitmap);
         }
     }
     
-    // Screenshot capture for Android 8.0+ using PixelCopy
-    private Bitmap captureScreenshotAPI26Plus() {
-        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
-            return null;
+    private File createScreenshotFile(String prefix, String format) {
+        File screenshotsDir = new File(context.getExternalFilesDir(null), "security_screenshots");
+        if (!screenshotsDir.exists()) {
+            screenshotsDir.mkdirs();
         }
         
-        try {
-            if (context instanceof Activity) {
-                Activity activity = (Activity) context;
-                View rootView = activity.getWindow().getDecorView().getRootView();
-                
-                Bitmap bitmap = Bitmap.createBitmap(
-                    rootView.getWidth(),
-                    rootView.getHeight(),
-                    Bitmap.Config.ARGB_8888
-                );
-                
-                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-                    // Use PixelCopy for hardware-accelerated views
-                    final boolean[] completed = {false};
-                    final Bitmap[] result = {null};
-                    
-                    PixelCopy.request(
-                        (Activity) context,
-                        new Rect(0, 0, rootView.getWidth(), rootView.getHeight()),
-                        bitmap,
-                        new PixelCopy.OnPixelCopyFinishedListener() {
-                            @Override
-                            public void onPixelCopyFinished(int copyResult) {
-                                if (copyResult == PixelCopy.SUCCESS) {
-                                    result[0] = bitmap;
-                                }
-                                completed[0] = true;
-                            }
-                        },
-                        new Handler(Looper.getMainLooper())
-                    );
-                    
-                    // Wait for completion (with timeout)
-                    long startTime = System.currentTimeMillis();
-                    while (!completed[0] && (System.currentTimeMillis() - startTime) < 3000) {
-                        try {
-                            Thread.sleep(50);
-                        } catch (InterruptedException e) {
-                            break;
-                        }
-                    }
-                    
-                    return result[0];
+        String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault()).format(new Date());
+        return new File(screenshotsDir, prefix + "_" + timestamp + "." + getExtension(format));
+    }
+    
+    @SuppressWarnings("deprecation")
+    private static Bitmap.CompressFormat getCompressFormat(String format) {
+        switch (format) {
+            case FORMAT_WEBP:
+                // WEBP is lossy below quality 100 on older releases
+                return Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+                    ? Bitmap.CompressFormat.WEBP_LOSSY : Bitmap.CompressFormat.WEBP;
+            case FORMAT_PNG:
+                return Bitmap.CompressFormat.PNG;
+            default:
+                return Bitmap.CompressFormat.JPEG;
+        }
+    }
+    
+    private static String getExtension(String format) {
+        switch (format) {
+            case FORMAT_WEBP:
+                return "webp";
+            case FORMAT_PNG:
+                return "png";
+            default:
+                return "jpg";
+        }
+    }
+    
+    // Screenshots of one window all have the same size, so a couple of bitmaps cover
+    // every capture; a size change (rotation) just allocates a new one
+    private static Bitmap obtainBitmap(int width, int height) {
+        synchronized (BITMAP_POOL) {
+            for (int i = 0; i < BITMAP_POOL.size(); i++) {
+                Bitmap pooled = BITMAP_POOL.get(i);
+                if (pooled.getWidth() == width && pooled.getHeight() == height) {
+                    BITMAP_POOL.remove(i);
+                    return pooled;
                 }
             }
-        } catch (Exception e) {
-            Log.e(TAG, "Error in API 26+ screenshot", e);
         }
-        
-        return null;
+        return Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
     }
     
-    // Legacy screenshot capture using View.draw()
-    private Bitmap captureScreenshotLegacy() {
-        try {
-            if (context instanceof Activity) {
-                Activity activity = (Activity) context;
-                View rootView = activity.getWindow().getDecorView().getRootView();
-                
-                // Create bitmap
-                Bitmap bitmap = Bitmap.createBitmap(
-                    rootView.getWidth(),
-                    rootView.getHeight(),
-                    Bitmap.Config.ARGB_8888
-                );
-                
-                // Draw view to canvas
-                Canvas canvas = new Canvas(bitmap);
-                rootView.draw(canvas);
-                
-                Log.d(TAG, "Legacy screenshot captured: " + bitmap.getWidth() + "x" + bitmap.getHeight());
-                return bitmap;
+    private static void releaseBitmap(Bitmap bitmap) {
+        synchronized (BITMAP_POOL) {
+            if (BITMAP_POOL.size() < MAX_POOLED_BITMAPS && !bitmap.isRecycled()) {
+                BITMAP_POOL.add(bitmap);
+                return;
             }
+        }
+        bitmap.recycle();
+    }
+    
+    // Legacy screenshot capture using View.draw(); main thread
+    private boolean captureScreenshotLegacy(View rootView, Bitmap bitmap) {
+        try {
+            // Pooled bitmaps still hold the previous capture
+            bitmap.eraseColor(Color.TRANSPARENT);
+            Canvas canvas = new Canvas(bitmap);
+            rootView.draw(canvas);
+            
+            Log.d(TAG, "Legacy screenshot captured: " + bitmap.getWidth() + "x" + bitmap.getHeight());
+            return true;
         } catch (Exception e) {
             Log.e(TAG, "Error in legacy screenshot", e);
+            return false;
         }
-        
-        return null;
     }
     
     // Create a fallback screenshot with device info when real screenshot fails
@@ -181,7 +236,7 @@ public class ScreenshotUtility {
             int width = metrics.widthPixels;
             int height = metrics.heightPixels;
             
-            Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            Bitmap bitmap = obtainBitmap(width, height);
             Canvas canvas = new Canvas(bitmap);
             
             // Fill with dark background
@@ -297,35 +352,34 @@ public class ScreenshotUtility {
         }
     }
     
-    // Capture multiple screenshots with delay
+    // Capture multiple screenshots with delay; the next capture is scheduled on the main
+    // looper once the previous one has been saved. Callbacks run on the main thread.
     public void captureDelayedScreenshots(int count, int delayMs, DelayedScreenshotCallback callback) {
-        new Thread(() -> {
-            for (int i = 0; i < count; i++) {
-                String path = captureScreenshot("delayed_" + i);
-                
-                if (callback != null) {
-                    new Handler(Looper.getMainLooper()).post(() -> {
-                        if (path != null) {
-                            callback.onScreenshotCaptured(i + 1, path);
-                        } else {
-                            callback.onScreenshotError(i + 1, "Failed to capture screenshot " + (i + 1));
-                        }
-                    });
-                }
-                
-                if (i < count - 1) {
-                    try {
-                        Thread.sleep(delayMs);
-                    } catch (InterruptedException e) {
-                        break;
-                    }
+        if (count > 0) {
+            captureDelayedScreenshot(0, count, delayMs, callback);
+        } else if (callback != null) {
+            mainHandler.post(callback::onAllScreenshotsCompleted);
+        }
+    }
+    
+    private void captureDelayedScreenshot(int index, int count, int delayMs, DelayedScreenshotCallback callback) {
+        EvidenceFuture<String> future = captureScreenshotAsync("delayed_" + index);
+        future.whenDone(() -> mainHandler.post(() -> {
+            String path = future.getNow(null);
+            if (callback != null) {
+                if (path != null) {
+                    callback.onScreenshotCaptured(index + 1, path);
+                } else {
+                    callback.onScreenshotError(index + 1, "Failed to capture screenshot " + (index + 1));
                 }
             }
             
-            if (callback != null) {
-                new Handler(Looper.getMainLooper()).post(callback::onAllScreenshotsCompleted);
+            if (index < count - 1) {
+                mainHandler.postDelayed(() -> captureDelayedScreenshot(index + 1, count, delayMs, callback), delayMs);
+            } else if (callback != null) {
+                callback.onAllScreenshotsCompleted();
             }
-        }).start();
+        }));
     }
     
     public interface DelayedScreenshotCallback {
@@ -339,7 +393,8 @@ public class ScreenshotUtility {
         File screenshotsDir = new File(context.getExternalFilesDir(null), "security_screenshots");
         if (screenshotsDir.exists()) {
             return screenshotsDir.listFiles((dir, name) -> 
-                name.toLowerCase().endsWith(".png") || name.toLowerCase().endsWith(".jpg"));
+                name.toLowerCase().endsWith(".png") || name.toLowerCase().endsWith(".jpg")
+                    || name.toLowerCase().endsWith(".webp"));
         }
         return new File[0];
     }
@@ -415,7 +470,16 @@ public class ScreenshotUtility {
     // Create screenshot with overlay information
     public String captureScreenshotWithOverlay(String triggerInfo) {
         try {
-            Bitmap baseScreenshot = captureScreenshotLegacy();
+            Bitmap baseScreenshot = null;
+            View rootView = getRootView();
+            if (rootView != null && rootView.getWidth() > 0 && rootView.getHeight() > 0) {
+                Bitmap bitmap = Bitmap.createBitmap(rootView.getWidth(), rootView.getHeight(), Bitmap.Config.ARGB_8888);
+                if (captureScreenshotLegacy(rootView, bitmap)) {
+                    baseScreenshot = bitmap;
+                } else {
+                    bitmap.recycle();
+                }
+            }
             if (baseScreenshot == null) {
                 baseScreenshot = createFallbackScreenshot();
             }
@@ -8,11 +8,20 @@ import android.util.Log;
 import androidx.security.crypto.EncryptedSharedPreferences;
 import androidx.security.crypto.MasterKey;
 
+import java.io.File;
+import java.io.IOException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class SecurityManager {
     private static final String TAG = "AntiTheft_Security";
@@ -29,16 +38,32 @@ public class SecurityManager {
     private boolean cameraEvidenceEnabled = true;
     private boolean breakInDetectionEnabled = true;
     private boolean fakeHomeScreenEnabled = false;
+    private boolean sensorBatchingEnabled = false;
+    private boolean tieredDetectionEnabled = false;
+    private boolean sensorTraceRecordingEnabled = false;
+    private boolean adaptiveSamplingEnabled = false;
+    private boolean cameraStandbyEnabled = false;
     private int sensitivity = 60; // 0-100
     private int pinAttempts = 0;
     private static final int MAX_PIN_ATTEMPTS = 5;
     private long lastPinAttemptTime = 0;
     private static final long PIN_LOCKOUT_DURATION = 300000; // 5 minutes
     
+    // Trigger history, one file per day under filesDir; shared by every SecurityManager instance
+    private static final String TRIGGER_HISTORY_DIR = "trigger_history";
+    private static final int TRIGGER_RETENTION_DAYS = 30;
+    private static final String LEGACY_TRIGGER_PREFIX = "trigger_";
+    public static final int TRIGGERS_NOT_LOADED = -1;
+    // Set once loaded and migrated; until then the queries answer TRIGGERS_NOT_LOADED or nothing
+    private static volatile TriggerHistoryStore triggerHistory;
+    // Opens the store and writes to it, so neither a trigger nor a query waits on loading or migration
+    private static final ExecutorService historyExecutor = Executors.newSingleThreadExecutor();
+    
     public SecurityManager(Context context) {
         this.context = context;
         initializePreferences();
         loadSettings();
+        historyExecutor.execute(this::getTriggerHistory);
     }
     
     private void initializePreferences() {
@@ -224,6 +249,47 @@ public class SecurityManager {
         this.fakeHomeScreenEnabled = enabled;
     }
     
+    public boolean isSensorBatchingEnabled() {
+        return sensorBatchingEnabled;
+    }
+    
+    public void setSensorBatchingEnabled(boolean enabled) {
+        this.sensorBatchingEnabled = enabled;
+    }
+    
+    public boolean isTieredDetectionEnabled() {
+        return tieredDetectionEnabled;
+    }
+    
+    public void setTieredDetectionEnabled(boolean enabled) {
+        this.tieredDetectionEnabled = enabled;
+    }
+    
+    public boolean isSensorTraceRecordingEnabled() {
+        return sensorTraceRecordingEnabled;
+    }
+    
+    public void setSensorTraceRecordingEnabled(boolean enabled) {
+        this.sensorTraceRecordingEnabled = enabled;
+    }
+    
+    public boolean isAdaptiveSamplingEnabled() {
+        return adaptiveSamplingEnabled;
+    }
+    
+    public void setAdaptiveSamplingEnabled(boolean enabled) {
+        this.adaptiveSamplingEnabled = enabled;
+    }
+    
+    // Keeps the front camera open while armed; faster first photo at a power and privacy-indicator cost
+    public boolean isCameraStandbyEnabled() {
+        return cameraStandbyEnabled;
+    }
+    
+    public void setCameraStandbyEnabled(boolean enabled) {
+        this.cameraStandbyEnabled = enabled;
+    }
+    
     public int getSensitivity() {
         return sensitivity;
     }
@@ -239,20 +305,21 @@ public class SecurityManager {
         // Update trigger count
         int totalTriggers = getTotalTriggers() + 1;
         
-        // Store trigger details
-        String triggerKey = "trigger_" + timestamp;
-        String triggerData = triggerType + "|" + details + "|" + timestamp;
-        
         preferences.edit()
             .putInt("total_triggers", totalTriggers)
-            .putString(triggerKey, triggerData)
             .putLong("last_trigger_time", timestamp)
             .apply();
         
-        Log.i(TAG, "Security trigger recorded: " + triggerType + " - " + details);
+        // Appends to today's bucket; buckets past retention are dropped whole when the day changes
+        historyExecutor.execute(() -> {
+            try {
+                getTriggerHistory().record(timestamp, triggerType, details);
+            } catch (IOException e) {
+                Log.e(TAG, "Error storing trigger history", e);
+            }
+        });
         
-        // Clean up old trigger records (keep only last 100)
-        cleanupOldTriggers();
+        Log.i(TAG, "Security trigger recorded: " + triggerType + " - " + details);
     }
     
     public int getTotalTriggers() {
@@ -263,6 +330,78 @@ public class SecurityManager {
         return preferences.getLong("last_trigger_time", 0);
     }
     
+    // Triggers today and on the previous days - 1 days, from the in-memory bucket counts
+    public int getTriggerCountForDays(int days) {
+        TriggerHistoryStore store = triggerHistory;
+        return store != null ? store.countForDays(System.currentTimeMillis(), days) : TRIGGERS_NOT_LOADED;
+    }
+    
+    public Map<String, Integer> getTriggerCountsByType(int days) {
+        TriggerHistoryStore store = triggerHistory;
+        return store != null ? store.countByTypeForDays(System.currentTimeMillis(), days)
+            : Collections.<String, Integer>emptyMap();
+    }
+    
+    // Newest first
+    public List<TriggerHistoryStore.TriggerEvent> getRecentTriggers(int limit) {
+        TriggerHistoryStore store = triggerHistory;
+        return store != null ? store.getRecent(limit) : Collections.<TriggerHistoryStore.TriggerEvent>emptyList();
+    }
+    
+    // History executor only
+    private TriggerHistoryStore getTriggerHistory() {
+        if (triggerHistory == null) {
+            File directory = new File(context.getFilesDir(), TRIGGER_HISTORY_DIR);
+            TriggerHistoryStore store = new TriggerHistoryStore(directory, TRIGGER_RETENTION_DAYS, TimeZone.getDefault());
+            migrateLegacyTriggers(store);
+            triggerHistory = store;
+        }
+        return triggerHistory;
+    }
+    
+    // One-time move of the trigger_<timestamp> keys into the history store. The keys are only
+    // removed once the import succeeded, and the import skips records it already holds, so
+    // a migration interrupted part-way is repeated in full on the next start.
+    private void migrateLegacyTriggers(TriggerHistoryStore store) {
+        if (preferences.getBoolean("triggers_migrated", false)) return;
+        
+        List<TriggerHistoryStore.TriggerEvent> legacy = new ArrayList<>();
+        SharedPreferences.Editor editor = preferences.edit();
+        for (Map.Entry<String, ?> entry : preferences.getAll().entrySet()) {
+            String key = entry.getKey();
+            if (!key.startsWith(LEGACY_TRIGGER_PREFIX)) continue;
+            editor.remove(key);
+            
+            // Value is "type|details|timestamp"
+            Object value = entry.getValue();
+            if (!(value instanceof String)) continue;
+            String data = (String) value;
+            int first = data.indexOf('|');
+            int last = data.lastIndexOf('|');
+            if (first < 0 || last <= first) continue;
+            try {
+                long timestamp = Long.parseLong(data.substring(last + 1));
+                legacy.add(new TriggerHistoryStore.TriggerEvent(timestamp,
+                    data.substring(0, first), data.substring(first + 1, last)));
+            } catch (NumberFormatException e) {
+                // Malformed record; dropped
+            }
+        }
+        
+        try {
+            store.importEvents(legacy, System.currentTimeMillis());
+        } catch (IOException e) {
+            // Keep the keys so the next start tries again
+            Log.e(TAG, "Error migrating trigger history", e);
+            return;
+        }
+        
+        editor.putBoolean("triggers_migrated", true).apply();
+        if (!legacy.isEmpty()) {
+            Log.i(TAG, "Migrated " + legacy.size() + " trigger records to history store");
+        }
+    }
+    
     public int getTotalArmings() {
         return preferences.getInt("total_armings", 0);
     }
@@ -287,6 +426,11 @@ public class SecurityManager {
             .putBoolean("camera_evidence", cameraEvidenceEnabled)
             .putBoolean("break_in_detection", breakInDetectionEnabled)
             .putBoolean("fake_home_screen", fakeHomeScreenEnabled)
+            .putBoolean("sensor_batching", sensorBatchingEnabled)
+            .putBoolean("tiered_detection", tieredDetectionEnabled)
+            .putBoolean("sensor_trace_recording", sensorTraceRecordingEnabled)
+            .putBoolean("adaptive_sampling", adaptiveSamplingEnabled)
+            .putBoolean("camera_standby", cameraStandbyEnabled)
             .putInt("sensitivity", sensitivity)
             .apply();
         
@@ -294,12 +438,18 @@ public class SecurityManager {
     }
     
     public void loadSettings() {
-        // Load from preferences
-        motionDetectionEnabled = preferences.getBoolean("motion_detection", true);
-        cameraEvidenceEnabled = preferences.getBoolean("camera_evidence", true);
-        breakInDetectionEnabled = preferences.getBoolean("break_in_detection", true);
+        // Detection settings come from the shared snapshot so there is one parse path
+        ConfigSnapshot config = ConfigManager.get(context);
+        motionDetectionEnabled = config.motionDetectionEnabled;
+        cameraEvidenceEnabled = config.cameraEvidenceEnabled;
+        breakInDetectionEnabled = config.breakInDetectionEnabled;
         fakeHomeScreenEnabled = preferences.getBoolean("fake_home_screen", false);
-        sensitivity = preferences.getInt("sensitivity", 60);
+        sensorBatchingEnabled = config.sensorBatchingEnabled;
+        tieredDetectionEnabled = config.tieredDetectionEnabled;
+        sensorTraceRecordingEnabled = config.sensorTraceRecordingEnabled;
+        adaptiveSamplingEnabled = config.adaptiveSamplingEnabled;
+        cameraStandbyEnabled = config.cameraStandbyEnabled;
+        sensitivity = config.sensitivity;
         isArmed = preferences.getBoolean("is_armed", false);
         
         // Load PIN attempt data
@@ -314,7 +464,20 @@ public class SecurityManager {
         StringBuilder stats = new StringBuilder();
         stats.append("Security Status: ").append(isArmed ? "ARMED" : "DISARMED").append("\n");
         stats.append("Total Triggers: ").append(getTotalTriggers()).append("\n");
+        int triggersToday = getTriggerCountForDays(1);
+        if (triggersToday == TRIGGERS_NOT_LOADED) {
+            stats.append("Trigger History: loading\n");
+        } else {
+            stats.append("Triggers Today: ").append(triggersToday).append("\n");
+            stats.append("Triggers (7 days): ").append(getTriggerCountForDays(7));
+            Map<String, Integer> byType = getTriggerCountsByType(7);
+            if (!byType.isEmpty()) {
+                stats.append(" ").append(byType);
+            }
+            stats.append("\n");
+        }
         stats.append("Total Armings: ").append(getTotalArmings()).append("\n");
+        stats.append("Power: ").append(PowerAccountant.getInstance().getSummary()).append("\n");
         
         long lastTrigger = getLastTriggerTime();
         if (lastTrigger > 0) {
@@ -369,35 +532,6 @@ public class SecurityManager {
     }
     
     // Cleanup and Maintenance
-    private void cleanupOldTriggers() {
-        // Remove trigger records older than 30 days or keep only last 100
-        long cutoffTime = System.currentTimeMillis() - (30L * 24 * 60 * 60 * 1000); // 30 days
-        
-        SharedPreferences.Editor editor = preferences.edit();
-        boolean hasChanges = false;
-        
-        for (String key : preferences.getAll().keySet()) {
-            if (key.startsWith("trigger_")) {
-                try {
-                    long timestamp = Long.parseLong(key.substring(8)); // Remove "trigger_" prefix
-                    if (timestamp < cutoffTime) {
-                        editor.remove(key);
-                        hasChanges = true;
-                    }
-                } catch (NumberFormatException e) {
-                    // Invalid trigger key format, remove it
-                    editor.remove(key);
-                    hasChanges = true;
-                }
-            }
-        }
-        
-        if (hasChanges) {
-            editor.apply();
-            Log.d(TAG, "Old trigger records cleaned up");
-        }
-    }
-    
     public void resetAllData() {
         // Clear all security data (except PIN for safety)
         preferences.edit()
@@ -410,6 +544,9 @@ public class SecurityManager {
             .putBoolean("is_armed", false)
             .apply();
         
+        // Behind any trigger still being written
+        historyExecutor.execute(() -> getTriggerHistory().clear());
+        
         // Reset PIN attempts
         resetPinAttempts();
         
@@ -12,55 +12,118 @@ import android.hardware.Sensor;
 import android.hardware.SensorEvent;
 import android.hardware.SensorEventListener;
 import android.hardware.SensorManager;
+import android.hardware.TriggerEvent;
+import android.hardware.TriggerEventListener;
 import android.os.Build;
 import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.IBinder;
+import android.os.Looper;
 import android.os.PowerManager;
+import android.os.SystemClock;
 import android.util.Log;
 import androidx.core.app.NotificationCompat;
 
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.PrintWriter;
+
 public class SensorService extends Service implements SensorEventListener {
     private static final String TAG = "AntiTheft_SensorService";
     private static final String NOTIFICATION_CHANNEL_ID = "motion_detection_channel";
     private static final int NOTIFICATION_ID = 1001;
+    private static final long NOTIFICATION_MIN_INTERVAL_MS = 1000; // At most one status update per second
     
     // Motion detection parameters
-    private static final float MOTION_THRESHOLD_LOW = 2.0f;
-    private static final float MOTION_THRESHOLD_MEDIUM = 5.0f;
-    private static final float MOTION_THRESHOLD_HIGH = 8.0f;
     private static final long MOTION_DETECTION_INTERVAL = 100; // 100ms
     private static final long ALARM_TRIGGER_DELAY = 2000; // 2 seconds
     private static final long MOTION_TIMEOUT = 30000; // 30 seconds of no motion to reset
+    private static final long TRIGGER_WAKE_LOCK_TIMEOUT = ALARM_TRIGGER_DELAY + 3000; // covers the hand-off to main
+    private static final String FUSION_SENSOR_TYPE = "Sensor fusion";
+    
+    // Hardware FIFO batching - report latency shrinks as sensitivity grows
+    private static final int BATCH_LATENCY_MIN_US = 200000; // 200ms at 100% sensitivity
+    private static final int BATCH_LATENCY_MAX_US = 2000000; // 2s at 0% sensitivity
+    
+    // Tiered detection - low-power first stage while the device is at rest
+    private static final int REST_TIER_SAMPLING_PERIOD_US = 1000000; // 1 Hz fallback accelerometer
+    private static final long STILLNESS_CHECK_INTERVAL = 5000; // 5 seconds
+    
+    // Sensor trace recording for offline replay (MotionReplayHarness)
+    private static final String TRACE_DIRECTORY = "sensor_traces";
+    private static final long TRACE_MAX_BYTES = 32L * 1024 * 1024; // ~4 hours at 50Hz accel + gyro
     
     private SensorManager sensorManager;
     private Sensor accelerometer;
+    private Sensor wakeUpAccelerometer;
     private Sensor gyroscope;
-    private PowerManager.WakeLock wakeLock;
+    private Sensor significantMotionSensor;
+    private PowerAccountant powerAccountant;
+    private PowerAccountant.TrackedWakeLock wakeLock;
+    private PowerAccountant.TrackedWakeLock triggerWakeLock; // pending trigger, also with wake-up sensors
     
     private SecurityManager securityManager;
+    private ConfigManager configManager;
     private AlarmManager alarmManager;
     private EvidenceManager evidenceManager;
+    private ServiceNotificationPublisher notificationPublisher;
     
     // Motion detection state
     private boolean isMonitoring = false;
-    private float lastX, lastY, lastZ;
+    private final MotionClassifier motionClassifier = new MotionClassifier();
+    private long accelerometerSamples = 0;
+    private long accelerometerProcessingNanos = 0;
     private long lastMotionTime = 0;
     private long motionStartTime = 0;
     private boolean motionDetected = false;
-    private int consecutiveMotionEvents = 0;
-    private static final int MOTION_EVENTS_THRESHOLD = 3;
+    private boolean triggeredThisEpisode = false; // cleared by the motion timeout, stop or disarm
+    private int motionWindows = 0;
+    
+    // Batched delivery state - samples are accumulated and evaluated once per delivered batch
+    private boolean batchingActive = false;
+    private boolean batchEvaluationPending = false;
+    private int batchWindows = 0;
+    private int batchMotionWindows = 0;
+    private float batchPeakScore = 0f;
+    private long batchesDelivered = 0;
+    private long batchedSamples = 0;
+    private final Runnable batchEvaluationRunnable = this::evaluateBatch;
+    
+    // Tiered detection state
+    private boolean tieredDetectionActive = false;
+    private final DetectionTierStateMachine tierStateMachine = new DetectionTierStateMachine(MOTION_TIMEOUT);
+    private final MotionDetector restTierDetector = new MotionDetector(4);
+    private final Runnable stillnessCheckRunnable = this::checkStillness;
+    private TriggerEventListener significantMotionListener;
+    private SensorEventListener restTierListener;
     
-    // Handler for delayed alarm triggering
-    private Handler alarmHandler = new Handler();
+    // Adaptive sampling state - samplingPeriod is a SENSOR_DELAY_* constant or microseconds
+    private boolean adaptiveSamplingActive = false;
+    private final SamplingRateController rateController = new SamplingRateController();
+    private int samplingPeriod = SensorManager.SENSOR_DELAY_GAME;
+    
+    // Trace recording state
+    private SensorTraceWriter traceWriter;
+    
+    // Sensor delivery, motion analysis and trigger scheduling all run on sensorHandler;
+    // mainHandler is only used to hand the final alarm launch to the main thread
+    private HandlerThread sensorThread;
+    private Handler sensorHandler;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
     private Runnable alarmTriggerRunnable;
 
     @Override
     public void onCreate() {
         super.onCreate();
         
+        sensorThread = new HandlerThread("AntiTheft-Sensors");
+        sensorThread.start();
+        sensorHandler = new Handler(sensorThread.getLooper());
+        
         initializeServices();
         createNotificationChannel();
-        acquireWakeLock();
+        createNotificationPublisher();
         
         Log.i(TAG, "SensorService created");
     }
@@ -68,12 +131,20 @@ public class SensorService extends Service implements SensorEventListener {
     private void initializeServices() {
         sensorManager = (SensorManager) getSystemService(Context.SENSOR_SERVICE);
         securityManager = new SecurityManager(this);
+        configManager = ConfigManager.getInstance(this);
+        powerAccountant = PowerAccountant.getInstance();
         alarmManager = new AlarmManager(this);
         evidenceManager = new EvidenceManager(this);
         
         // Get sensors
         accelerometer = sensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER);
         gyroscope = sensorManager.getDefaultSensor(Sensor.TYPE_GYROSCOPE);
+        significantMotionSensor = sensorManager.getDefaultSensor(Sensor.TYPE_SIGNIFICANT_MOTION);
+        
+        // Wake-up variant lets the sensor hub wake the CPU when its FIFO fills
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            wakeUpAccelerometer = sensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER, true);
+        }
         
         if (accelerometer == null) {
             Log.e(TAG, "No accelerometer found on device");
@@ -92,63 +163,283 @@ public class SensorService extends Service implements SensorEventListener {
         }
         
         startForegroundService();
-        startMotionDetection();
+        // Detection state is owned by the sensor thread - start it there
+        sensorHandler.post(this::startMotionDetection);
         
         Log.i(TAG, "Motion detection service started");
         return START_STICKY; // Restart if killed
     }
 
     private void startForegroundService() {
-        Notification notification = createServiceNotification();
+        Notification notification = notificationPublisher.buildInitial(
+            "🛡️ Anti-Theft Protection Active", "Motion detection is monitoring your device");
         startForeground(NOTIFICATION_ID, notification);
     }
 
-    private Notification createServiceNotification() {
-        return new NotificationCompat.Builder(this, NOTIFICATION_CHANNEL_ID)
-            .setContentTitle("🛡️ Anti-Theft Protection Active")
-            .setContentText("Motion detection is monitoring your device")
+    private void createNotificationPublisher() {
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(this, NOTIFICATION_CHANNEL_ID)
             .setSmallIcon(R.drawable.ic_shield)
             .setOngoing(true)
             .setPriority(NotificationCompat.PRIORITY_LOW)
-            .setCategory(NotificationCompat.CATEGORY_SERVICE)
-            .build();
+            .setCategory(NotificationCompat.CATEGORY_SERVICE);
+        
+        notificationPublisher = new ServiceNotificationPublisher(
+            this, NOTIFICATION_ID, builder, NOTIFICATION_MIN_INTERVAL_MS);
     }
 
     private void startMotionDetection() {
         if (isMonitoring) return;
         
-        if (accelerometer != null) {
-            sensorManager.registerListener(this, accelerometer, SensorManager.SENSOR_DELAY_GAME);
+        isMonitoring = true;
+        powerAccountant.startSession();
+        resetMotionState();
+        
+        ConfigSnapshot config = configManager.getSnapshot();
+        if (config.sensorTraceRecordingEnabled) {
+            startTraceRecording();
+        }
+        // Both hold the front camera open; the pre-trigger buffer wins when both are on
+        if (!evidenceManager.startPreTriggerBuffer()
+                && config.cameraStandbyEnabled && config.cameraEvidenceEnabled) {
+            evidenceManager.enterCameraStandby();
         }
         
-        if (gyroscope != null) {
-            sensorManager.registerListener(this, gyroscope, SensorManager.SENSOR_DELAY_GAME);
+        tieredDetectionActive = config.tieredDetectionEnabled
+            && (significantMotionSensor != null || accelerometer != null);
+        
+        if (tieredDetectionActive) {
+            tierStateMachine.start(SystemClock.elapsedRealtime());
+            enterRestTier();
+        } else {
+            registerFullDetection(false);
         }
         
-        isMonitoring = true;
-        resetMotionState();
+        Log.i(TAG, "Motion detection started" + (tieredDetectionActive ? " (tiered)" : ""));
+    }
+
+    // Full accelerometer + gyroscope analysis, streamed or batched. motionExpected starts
+    // adaptive sampling at the fast rate (the rest tier has just seen movement).
+    private void registerFullDetection(boolean motionExpected) {
+        ConfigSnapshot config = configManager.getSnapshot();
+        motionClassifier.reset();
+        motionClassifier.setThresholds(config.linearAccelThreshold, config.rotationThresholdDegrees);
+        
+        adaptiveSamplingActive = config.adaptiveSamplingEnabled;
+        if (adaptiveSamplingActive) {
+            rateController.start(motionExpected ? SamplingRateController.Rate.FAST : SamplingRateController.Rate.NORMAL,
+                System.currentTimeMillis());
+            samplingPeriod = rateController.getRate().samplingPeriodUs;
+            motionClassifier.setSamplingPeriodNanos(samplingPeriod * 1000L);
+        } else {
+            samplingPeriod = SensorManager.SENSOR_DELAY_GAME;
+            motionClassifier.setSamplingPeriodNanos(MotionClassifier.DEFAULT_SAMPLE_NANOS);
+        }
         
-        Log.i(TAG, "Motion detection started");
+        registerMotionListeners();
+    }
+    
+    private void registerMotionListeners() {
+        batchingActive = configManager.getSnapshot().sensorBatchingEnabled && startBatchedDetection();
+        
+        if (!batchingActive) {
+            if (accelerometer != null) {
+                powerAccountant.registerListener(sensorManager, this, accelerometer, samplingPeriod, sensorHandler);
+            }
+            
+            if (gyroscope != null) {
+                powerAccountant.registerListener(sensorManager, this, gyroscope, samplingPeriod, sensorHandler);
+            }
+            
+            acquireWakeLock();
+        }
     }
 
+    private void unregisterFullDetection() {
+        powerAccountant.unregisterListener(sensorManager, this);
+        adaptiveSamplingActive = false;
+        
+        sensorHandler.removeCallbacks(batchEvaluationRunnable);
+        resetBatchState();
+        batchingActive = false;
+        releaseWakeLock();
+    }
+
+    // Registers with a report latency so samples queue in the sensor hub FIFO.
+    // Returns false when the hardware cannot batch, in which case we stream as before.
+    private boolean startBatchedDetection() {
+        Sensor batchedAccelerometer = supportsBatching(wakeUpAccelerometer) ? wakeUpAccelerometer : accelerometer;
+        if (!supportsBatching(batchedAccelerometer)) {
+            Log.i(TAG, "Sensor FIFO not available - falling back to streaming delivery");
+            return false;
+        }
+        
+        int latencyUs = getBatchLatencyUs();
+        powerAccountant.registerListener(sensorManager, this, batchedAccelerometer, samplingPeriod, latencyUs, sensorHandler);
+        
+        if (gyroscope != null) {
+            int gyroscopeLatencyUs = supportsBatching(gyroscope) ? latencyUs : 0;
+            powerAccountant.registerListener(sensorManager, this, gyroscope, samplingPeriod, gyroscopeLatencyUs, sensorHandler);
+        }
+        
+        // A wake-up sensor brings the CPU out of suspend on its own, so only hold
+        // the wake lock when batching from a non-wake-up accelerometer
+        if (batchedAccelerometer != wakeUpAccelerometer) {
+            acquireWakeLock();
+        }
+        
+        resetBatchState();
+        Log.i(TAG, "Batched motion detection started - latency: " + (latencyUs / 1000) + "ms, FIFO: "
+            + batchedAccelerometer.getFifoMaxEventCount() + " events"
+            + (batchedAccelerometer == wakeUpAccelerometer ? " (wake-up)" : ""));
+        return true;
+    }
+    
+    private boolean supportsBatching(Sensor sensor) {
+        return sensor != null && sensor.getFifoMaxEventCount() > 0;
+    }
+    
+    private int getBatchLatencyUs() {
+        int sensitivity = configManager.getSnapshot().sensitivity;
+        return BATCH_LATENCY_MAX_US - (BATCH_LATENCY_MAX_US - BATCH_LATENCY_MIN_US) * sensitivity / 100;
+    }
+    
     private void stopMotionDetection() {
         if (!isMonitoring) return;
         
-        sensorManager.unregisterListener(this);
+        unregisterFullDetection();
         isMonitoring = false;
         
+        if (tieredDetectionActive) {
+            unregisterRestTier();
+            sensorHandler.removeCallbacks(stillnessCheckRunnable);
+            tierStateMachine.stop(SystemClock.elapsedRealtime());
+            logTierTimes();
+            tieredDetectionActive = false;
+        }
+        
         // Cancel any pending alarm
         if (alarmTriggerRunnable != null) {
-            alarmHandler.removeCallbacks(alarmTriggerRunnable);
+            sensorHandler.removeCallbacks(alarmTriggerRunnable);
+            alarmTriggerRunnable = null;
+        }
+        triggeredThisEpisode = false;
+        releaseTriggerWakeLock();
+        
+        stopTraceRecording();
+        evidenceManager.exitCameraStandby();
+        evidenceManager.stopPreTriggerBuffer();
+        
+        powerAccountant.endSession();
+        Log.i(TAG, "Motion detection stopped - " + powerAccountant.getSummary());
+    }
+
+    // First stage: only the significant-motion trigger (or a slow wake-up accelerometer) is active
+    private void enterRestTier() {
+        unregisterFullDetection();
+        sensorHandler.removeCallbacks(stillnessCheckRunnable);
+        
+        if (significantMotionSensor != null) {
+            if (significantMotionListener == null) {
+                significantMotionListener = new TriggerEventListener() {
+                    @Override
+                    public void onTrigger(TriggerEvent event) {
+                        powerAccountant.onTriggerFired(this);
+                        // Trigger sensors always report on the main thread - hand off to the sensor thread
+                        sensorHandler.post(() -> onWakeTrigger("Significant motion"));
+                    }
+                };
+            }
+            // One-shot sensor - it disarms itself after firing and is re-requested on every rest entry
+            powerAccountant.requestTriggerSensor(sensorManager, significantMotionListener, significantMotionSensor);
+        } else {
+            if (restTierListener == null) {
+                restTierListener = new RestTierListener();
+            }
+            Sensor restSensor = wakeUpAccelerometer != null ? wakeUpAccelerometer : accelerometer;
+            restTierDetector.reset();
+            powerAccountant.registerListener(sensorManager, restTierListener, restSensor, REST_TIER_SAMPLING_PERIOD_US, sensorHandler);
+            
+            // Without a wake-up sensor the CPU must stay awake to see the samples
+            if (restSensor != wakeUpAccelerometer) {
+                acquireWakeLock();
+            }
+        }
+        
+        Log.i(TAG, "Entered rest tier - full motion analysis paused");
+        updateServiceNotification("Monitoring", "Low-power standby");
+    }
+
+    // Second stage: the first stage fired, start full analysis
+    private void enterActiveTier() {
+        unregisterRestTier();
+        
+        registerFullDetection(true);
+        sensorHandler.postDelayed(stillnessCheckRunnable, STILLNESS_CHECK_INTERVAL);
+        
+        Log.i(TAG, "Entered active tier - full motion analysis running");
+        updateServiceNotification("Monitoring", "Movement detected - analysing");
+    }
+
+    private void unregisterRestTier() {
+        if (significantMotionListener != null) {
+            powerAccountant.cancelTriggerSensor(sensorManager, significantMotionListener, significantMotionSensor);
         }
+        if (restTierListener != null) {
+            powerAccountant.unregisterListener(sensorManager, restTierListener);
+            releaseWakeLock();
+        }
+    }
+
+    private void onWakeTrigger(String source) {
+        if (!isMonitoring || !tieredDetectionActive) return;
         
-        Log.i(TAG, "Motion detection stopped");
+        if (tierStateMachine.onWakeTrigger(SystemClock.elapsedRealtime())) {
+            Log.d(TAG, "First stage fired - " + source);
+            enterActiveTier();
+        }
+    }
+
+    private void checkStillness() {
+        if (!isMonitoring || !tieredDetectionActive) return;
+        
+        if (tierStateMachine.onTick(SystemClock.elapsedRealtime())) {
+            logTierTimes();
+            resetMotionState();
+            enterRestTier();
+        } else {
+            sensorHandler.postDelayed(stillnessCheckRunnable, STILLNESS_CHECK_INTERVAL);
+        }
+    }
+
+    private void logTierTimes() {
+        long now = SystemClock.elapsedRealtime();
+        Log.i(TAG, "Tier time - rest: " + tierStateMachine.getRestTimeMs(now) / 1000 + "s, active: "
+            + tierStateMachine.getActiveTimeMs(now) / 1000 + "s, wake-ups: " + tierStateMachine.getWakeUpCount());
+    }
+
+    // Fallback first stage for devices without a significant-motion sensor
+    private class RestTierListener implements SensorEventListener {
+        @Override
+        public void onSensorChanged(SensorEvent event) {
+            restTierDetector.addSample(event.timestamp, event.values[0], event.values[1], event.values[2]);
+            if (restTierDetector.exceedsThreshold(getMotionThreshold())) {
+                onWakeTrigger("Wake-up accelerometer");
+            }
+        }
+        
+        @Override
+        public void onAccuracyChanged(Sensor sensor, int accuracy) {
+        }
     }
 
     @Override
     public void onSensorChanged(SensorEvent event) {
         if (!isMonitoring) return;
         
+        if (traceWriter != null) {
+            recordTraceSample(event);
+        }
+        
         if (event.sensor.getType() == Sensor.TYPE_ACCELEROMETER) {
             handleAccelerometerData(event);
         } else if (event.sensor.getType() == Sensor.TYPE_GYROSCOPE) {
@@ -157,61 +448,111 @@ public class SensorService extends Service implements SensorEventListener {
     }
 
     private void handleAccelerometerData(SensorEvent event) {
+        long startNanos = System.nanoTime();
+        
         float x = event.values[0];
         float y = event.values[1];
         float z = event.values[2];
         
-        // Calculate motion magnitude
-        float deltaX = Math.abs(x - lastX);
-        float deltaY = Math.abs(y - lastY);
-        float deltaZ = Math.abs(z - lastZ);
-        float motionMagnitude = (float) Math.sqrt(deltaX * deltaX + deltaY * deltaY + deltaZ * deltaZ);
-        
-        // Update last values
-        lastX = x;
-        lastY = y;
-        lastZ = z;
-        
-        // Check if motion exceeds threshold
-        float threshold = getMotionThreshold();
-        if (motionMagnitude > threshold) {
-            onMotionDetected(motionMagnitude, "Accelerometer");
-        } else {
-            onNoMotion();
+        // The classifier only produces a decision when a window closes
+        if (motionClassifier.addAccelerometer(event.timestamp, x, y, z)) {
+            onClassifierWindow();
+        }
+        
+        if (batchingActive) {
+            scheduleBatchEvaluation();
         }
+        
+        accelerometerSamples++;
+        accelerometerProcessingNanos += System.nanoTime() - startNanos;
     }
 
     private void handleGyroscopeData(SensorEvent event) {
-        // Gyroscope data for rotational motion detection
-        float rotationMagnitude = (float) Math.sqrt(
-            event.values[0] * event.values[0] +
-            event.values[1] * event.values[1] +
-            event.values[2] * event.values[2]
-        );
+        // Rotation only feeds the classifier's attitude estimate - it never triggers on its own
+        motionClassifier.addGyroscope(event.timestamp, event.values[0], event.values[1], event.values[2]);
         
-        // Convert rad/s to degrees/s and check threshold
-        float rotationDegrees = (float) Math.toDegrees(rotationMagnitude);
-        float rotationThreshold = getMotionThreshold() * 10; // Scale for rotation
+        if (batchingActive) {
+            scheduleBatchEvaluation();
+        }
+    }
+    
+    // One decision per classifier window
+    private void onClassifierWindow() {
+        if (adaptiveSamplingActive) {
+            SamplingRateController.Rate newRate =
+                rateController.onWindow(motionClassifier.getLastScore(), System.currentTimeMillis());
+            if (newRate != null) {
+                // Re-register outside the current sensor dispatch
+                sensorHandler.post(() -> applySamplingRate(newRate));
+            }
+        }
+        
+        if (batchingActive) {
+            // Only record the batch result here - the decision runs once per batch
+            batchWindows++;
+            if (motionClassifier.isMotion()) {
+                batchMotionWindows++;
+                batchPeakScore = Math.max(batchPeakScore, motionClassifier.getLastScore());
+            }
+        } else if (motionClassifier.isMotion()) {
+            onMotionDetected(motionClassifier.getLastScore(), FUSION_SENSOR_TYPE);
+        } else {
+            onNoMotion();
+        }
+    }
+    
+    private void applySamplingRate(SamplingRateController.Rate rate) {
+        // Detection may have stopped or restarted since the change was posted
+        if (!isMonitoring || !adaptiveSamplingActive || rate != rateController.getRate()) return;
+        
+        // Decide on whatever part of a batch was already delivered at the old rate
+        if (batchEvaluationPending) {
+            sensorHandler.removeCallbacks(batchEvaluationRunnable);
+            evaluateBatch();
+        }
+        
+        samplingPeriod = rate.samplingPeriodUs;
+        motionClassifier.setSamplingPeriodNanos(samplingPeriod * 1000L);
+        powerAccountant.unregisterListener(sensorManager, this);
+        registerMotionListeners();
+        
+        Log.i(TAG, "Sampling rate changed to " + rate + " (" + rate.samplingPeriodUs + "us) at "
+            + System.currentTimeMillis());
+    }
+    
+    // A FIFO flush is dispatched as a run of onSensorChanged calls within one looper
+    // message, so a runnable posted from the first event runs after the whole batch.
+    private void scheduleBatchEvaluation() {
+        batchedSamples++;
+        if (!batchEvaluationPending) {
+            batchEvaluationPending = true;
+            sensorHandler.post(batchEvaluationRunnable);
+        }
+    }
+    
+    private void evaluateBatch() {
+        batchEvaluationPending = false;
+        batchesDelivered++;
         
-        if (rotationDegrees > rotationThreshold) {
-            onMotionDetected(rotationDegrees, "Gyroscope");
+        if (batchMotionWindows > 0) {
+            onMotionDetected(batchPeakScore, FUSION_SENSOR_TYPE);
+        } else if (batchWindows > 0) {
+            onNoMotion();
         }
+        
+        resetBatchState();
+    }
+    
+    private void resetBatchState() {
+        batchEvaluationPending = false;
+        batchWindows = 0;
+        batchMotionWindows = 0;
+        batchPeakScore = 0f;
     }
 
+    // Precomputed in the config snapshot - no preference lookup or interpolation per event
     private float getMotionThreshold() {
-        int sensitivity = securityManager.getSensitivity();
-        
-        if (sensitivity <= 20) {
-            return MOTION_THRESHOLD_HIGH;
-        } else if (sensitivity <= 40) {
-            return MOTION_THRESHOLD_MEDIUM + (MOTION_THRESHOLD_HIGH - MOTION_THRESHOLD_MEDIUM) * (40 - sensitivity) / 20f;
-        } else if (sensitivity <= 60) {
-            return MOTION_THRESHOLD_MEDIUM;
-        } else if (sensitivity <= 80) {
-            return MOTION_THRESHOLD_LOW + (MOTION_THRESHOLD_MEDIUM - MOTION_THRESHOLD_LOW) * (80 - sensitivity) / 20f;
-        } else {
-            return MOTION_THRESHOLD_LOW;
-        }
+        return configManager.getSnapshot().motionThreshold;
     }
 
     private void onMotionDetected(float magnitude, String sensorType) {
@@ -220,22 +561,31 @@ public class SensorService extends Service implements SensorEventListener {
         if (!motionDetected) {
             motionDetected = true;
             motionStartTime = currentTime;
-            consecutiveMotionEvents = 1;
+            motionWindows = 1;
             
             Log.d(TAG, "Initial motion detected - " + sensorType + ": " + magnitude);
         } else {
-            consecutiveMotionEvents++;
+            motionWindows++;
         }
         
         lastMotionTime = currentTime;
         
-        // Check if we have enough consecutive motion events to trigger alarm
-        if (consecutiveMotionEvents >= MOTION_EVENTS_THRESHOLD) {
-            scheduleAlarmTrigger(magnitude, sensorType);
+        // With a wake-up accelerometer nothing else keeps the CPU up once this batch
+        // is handled, and the delayed trigger below runs on uptime, which stops in suspend
+        if (!triggeredThisEpisode) {
+            acquireTriggerWakeLock();
         }
         
+        if (tieredDetectionActive) {
+            tierStateMachine.onMotion(SystemClock.elapsedRealtime());
+        }
+        
+        // A motion window is already a sustained, fused decision - one is enough to arm the trigger
+        scheduleAlarmTrigger(magnitude, sensorType);
+        
         // Update service notification
-        updateServiceNotification("Motion detected", "Magnitude: " + String.format("%.2f", magnitude));
+        // One decimal is plenty for the status line and lets identical readings be de-duplicated
+        updateServiceNotification("Motion detected", "Magnitude: " + Math.round(magnitude * 10) / 10f);
     }
 
     private void onNoMotion() {
@@ -249,29 +599,88 @@ public class SensorService extends Service implements SensorEventListener {
         }
     }
 
+    private void startTraceRecording() {
+        File traceDir = new File(getExternalFilesDir(null), TRACE_DIRECTORY);
+        if (!traceDir.exists() && !traceDir.mkdirs()) {
+            Log.e(TAG, "Cannot create sensor trace directory");
+            return;
+        }
+        
+        File traceFile = new File(traceDir, "trace_" + System.currentTimeMillis() + SensorTraceWriter.FILE_EXTENSION);
+        try {
+            traceWriter = new SensorTraceWriter(traceFile, System.currentTimeMillis(),
+                configManager.getSnapshot().sensitivity, TRACE_MAX_BYTES);
+            Log.i(TAG, "Recording sensor trace: " + traceFile.getName());
+        } catch (IOException e) {
+            Log.e(TAG, "Error starting sensor trace", e);
+            traceWriter = null;
+        }
+    }
+    
+    private void recordTraceSample(SensorEvent event) {
+        try {
+            if (!traceWriter.writeSample(event.sensor.getType(), event.timestamp,
+                    event.values[0], event.values[1], event.values[2])) {
+                Log.w(TAG, "Sensor trace size limit reached - recording stopped");
+                stopTraceRecording();
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing sensor trace - recording stopped", e);
+            stopTraceRecording();
+        }
+    }
+    
+    private void stopTraceRecording() {
+        if (traceWriter == null) return;
+        
+        try {
+            traceWriter.close();
+            Log.i(TAG, "Sensor trace closed - " + traceWriter.getRecordCount() + " records, "
+                + traceWriter.getBytesWritten() + " bytes");
+        } catch (IOException e) {
+            Log.e(TAG, "Error closing sensor trace", e);
+        }
+        traceWriter = null;
+    }
+
     private void scheduleAlarmTrigger(float magnitude, String sensorType) {
-        // Cancel any existing alarm trigger
-        if (alarmTriggerRunnable != null) {
-            alarmHandler.removeCallbacks(alarmTriggerRunnable);
+        // One alarm per motion episode: continued motion neither pushes a pending trigger
+        // back nor raises the alarm again once it has fired
+        if (triggeredThisEpisode || alarmTriggerRunnable != null) {
+            return;
         }
         
         // Schedule new alarm trigger
         alarmTriggerRunnable = () -> triggerSecurityAlarm(magnitude, sensorType);
-        alarmHandler.postDelayed(alarmTriggerRunnable, ALARM_TRIGGER_DELAY);
+        sensorHandler.postDelayed(alarmTriggerRunnable, ALARM_TRIGGER_DELAY);
         
         Log.w(TAG, "Alarm trigger scheduled - " + sensorType + ": " + magnitude);
     }
 
+    // Runs on the sensor thread; only the alarm launch below moves to the main thread
     private void triggerSecurityAlarm(float magnitude, String sensorType) {
+        alarmTriggerRunnable = null;
+        triggeredThisEpisode = true;
         Log.e(TAG, "SECURITY BREACH DETECTED! " + sensorType + " magnitude: " + magnitude);
         
-        // Record the security trigger
         String details = String.format("Motion detected - %s: %.2f (Sensitivity: %d%%)", 
-            sensorType, magnitude, securityManager.getSensitivity());
+            sensorType, magnitude, configManager.getSnapshot().sensitivity);
+        mainHandler.post(() -> {
+            launchAlarm(magnitude, details);
+            // The trigger wake lock is held until the launch has run
+            sensorHandler.post(this::releaseTriggerWakeLock);
+        });
+        
+        // Motion state is kept; the next alarm needs MOTION_TIMEOUT of stillness first
+    }
+
+    // Main thread: evidence, alarm activity and sound
+    private void launchAlarm(float magnitude, String details) {
+        // Record the security trigger
         securityManager.recordTrigger("Motion Detection", details);
         
         // Start evidence collection if enabled
-        if (securityManager.isCameraEvidenceEnabled()) {
+        if (configManager.getSnapshot().cameraEvidenceEnabled) {
             evidenceManager.captureSecurityEvidence("Motion detection triggered");
         }
         
@@ -286,37 +695,31 @@ public class SensorService extends Service implements SensorEventListener {
         // Start alarm sound/vibration
         alarmManager.startAlarm();
         
-        // Update notification
-        updateServiceNotification("🚨 ALARM TRIGGERED", "Motion detected: " + magnitude);
-        
-        // Don't reset motion state - keep monitoring for additional triggers
+        // Final state - bypass the rate limit so it is always shown
+        flushServiceNotification("🚨 ALARM TRIGGERED", "Motion detected: " + magnitude);
     }
 
     private void resetMotionState() {
         motionDetected = false;
-        consecutiveMotionEvents = 0;
+        motionWindows = 0;
         motionStartTime = 0;
+        triggeredThisEpisode = false;
         
         // Cancel any pending alarm
         if (alarmTriggerRunnable != null) {
-            alarmHandler.removeCallbacks(alarmTriggerRunnable);
+            sensorHandler.removeCallbacks(alarmTriggerRunnable);
             alarmTriggerRunnable = null;
         }
+        releaseTriggerWakeLock();
     }
 
     private void updateServiceNotification(String title, String text) {
-        NotificationManager notificationManager = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
-        
-        Notification notification = new NotificationCompat.Builder(this, NOTIFICATION_CHANNEL_ID)
-            .setContentTitle("🛡️ " + title)
-            .setContentText(text)
-            .setSmallIcon(R.drawable.ic_shield)
-            .setOngoing(true)
-            .setPriority(NotificationCompat.PRIORITY_LOW)
-            .setCategory(NotificationCompat.CATEGORY_SERVICE)
-            .build();
-        
-        notificationManager.notify(NOTIFICATION_ID, notification);
+        // Coalesced and de-duplicated by the publisher - safe to call per sample
+        notificationPublisher.publish("🛡️ " + title, text);
+    }
+    
+    private void flushServiceNotification(String title, String text) {
+        notificationPublisher.flush("🛡️ " + title, text);
     }
 
     private void createNotificationChannel() {
@@ -335,20 +738,36 @@ public class SensorService extends Service implements SensorEventListener {
     }
 
     private void acquireWakeLock() {
-        PowerManager powerManager = (PowerManager) getSystemService(Context.POWER_SERVICE);
-        wakeLock = powerManager.newWakeLock(
-            PowerManager.PARTIAL_WAKE_LOCK,
-            "AntiTheft:MotionDetection"
-        );
+        if (wakeLock != null && wakeLock.isHeld()) return;
+        
+        if (wakeLock == null) {
+            wakeLock = powerAccountant.newWakeLock(this, PowerManager.PARTIAL_WAKE_LOCK, "AntiTheft:MotionDetection");
+        }
         wakeLock.acquire(10 * 60 * 1000L /*10 minutes*/);
     }
 
     private void releaseWakeLock() {
-        if (wakeLock != null && wakeLock.isHeld()) {
+        if (wakeLock != null) {
             wakeLock.release();
         }
     }
 
+    // Sensor thread. Each motion window extends the timeout, so it lapses on its own
+    // if the episode ends without a trigger
+    private void acquireTriggerWakeLock() {
+        if (triggerWakeLock == null) {
+            triggerWakeLock = powerAccountant.newWakeLock(this, PowerManager.PARTIAL_WAKE_LOCK, "AntiTheft:PendingTrigger");
+        }
+        triggerWakeLock.acquire(TRIGGER_WAKE_LOCK_TIMEOUT);
+    }
+
+    // Sensor thread; kept while a newer trigger is pending
+    private void releaseTriggerWakeLock() {
+        if (triggerWakeLock != null && alarmTriggerRunnable == null) {
+            triggerWakeLock.release();
+        }
+    }
+
     @Override
     public void onAccuracyChanged(Sensor sensor, int accuracy) {
         Log.d(TAG, "Sensor accuracy changed: " + sensor.getName() + " accuracy: " + accuracy);
@@ -358,10 +777,24 @@ public class SensorService extends Service implements SensorEventListener {
     public void onDestroy() {
         super.onDestroy();
         
+        // Tear down on the sensor thread, after the stop, then let the looper drain and exit
+        sensorHandler.post(this::teardown);
+        sensorThread.quitSafely();
+    }
+
+    // Sensor thread. Runs after any trigger still queued on this thread; an alarm launch it
+    // posted is dropped, and one already running on the main thread finishes before the cleanup
+    private void teardown() {
         stopMotionDetection();
-        releaseWakeLock();
-        
-        // Cleanup
+        if (notificationPublisher != null) {
+            notificationPublisher.cancel(); // after the last status update from this thread
+        }
+        mainHandler.removeCallbacksAndMessages(null);
+        mainHandler.post(this::releaseAlarmAndEvidence);
+    }
+
+    // Main thread, like the alarm launch
+    private void releaseAlarmAndEvidence() {
         if (alarmManager != null) {
             alarmManager.cleanup();
         }
@@ -372,6 +805,14 @@ public class SensorService extends Service implements SensorEventListener {
         Log.i(TAG, "SensorService destroyed");
     }
 
+    // adb shell dumpsys activity service com.antitheft.security/.SensorService
+    @Override
+    protected void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        writer.println(getMotionStats());
+        writer.println();
+        powerAccountant.dump(writer);
+    }
+
     @Override
     public IBinder onBind(Intent intent) {
         return null; // We don't provide binding
@@ -393,8 +834,53 @@ public class SensorService extends Service implements SensorEventListener {
         StringBuilder stats = new StringBuilder();
         stats.append("Motion Detection: ").append(isMonitoring ? "Active" : "Inactive").append("\n");
         stats.append("Current Threshold: ").append(String.format("%.2f", getMotionThreshold())).append("\n");
-        stats.append("Sensitivity: ").append(securityManager.getSensitivity()).append("%\n");
-        stats.append("Motion Events: ").append(consecutiveMotionEvents).append("\n");
+        stats.append("Sensitivity: ").append(configManager.getSnapshot().sensitivity).append("%\n");
+        stats.append("Motion Windows: ").append(motionWindows).append("\n");
+        stats.append("Motion Score: ").append(String.format("%.2f", motionClassifier.getLastScore()))
+            .append(" (").append(motionClassifier.getMotionWindows()).append("/")
+            .append(motionClassifier.getWindowsClosed()).append(" windows)\n");
+        
+        stats.append("Delivery: ").append(batchingActive ? "Batched (" + (getBatchLatencyUs() / 1000) + "ms)" : "Streaming").append("\n");
+        if (batchesDelivered > 0) {
+            stats.append("Batches: ").append(batchesDelivered)
+                .append(" (avg ").append(batchedSamples / batchesDelivered).append(" samples)\n");
+        }
+        
+        if (adaptiveSamplingActive) {
+            long now = System.currentTimeMillis();
+            stats.append("Sampling Rate: ").append(rateController.getRate())
+                .append(" (").append(rateController.getChangeCount()).append(" changes)\n");
+            for (SamplingRateController.Rate rate : SamplingRateController.Rate.values()) {
+                stats.append("  ").append(rate).append(": ")
+                    .append(rateController.getTimeInRateMs(rate, now) / 1000).append("s\n");
+            }
+            stats.append("Rate History:\n");
+            rateController.appendHistory(stats);
+        }
+        
+        powerAccountant.appendStats(stats);
+        stats.append("Trigger to first photo:\n").append(evidenceManager.getFirstFrameLatencyReport());
+        stats.append("Evidence Triggers: ").append(evidenceManager.getTriggerStats()).append("\n");
+        stats.append("Pre-trigger Video: ").append(evidenceManager.getPreTriggerSummary()).append("\n");
+        
+        stats.append("Notifications: ").append(notificationPublisher.getPostCount()).append(" posted, ")
+            .append(notificationPublisher.getCoalescedCount() + notificationPublisher.getUnchangedCount())
+            .append(" suppressed\n");
+        
+        if (tieredDetectionActive) {
+            long now = SystemClock.elapsedRealtime();
+            stats.append("Tier: ").append(tierStateMachine.getTier()).append("\n");
+            stats.append("Rest Tier Time: ").append(tierStateMachine.getRestTimeMs(now) / 1000).append("s (")
+                .append(tierStateMachine.getRestPercent(now)).append("%)\n");
+            stats.append("Active Tier Time: ").append(tierStateMachine.getActiveTimeMs(now) / 1000).append("s\n");
+            stats.append("Wake-ups: ").append(tierStateMachine.getWakeUpCount()).append("\n");
+        }
+        
+        if (accelerometerSamples > 0) {
+            stats.append("Samples Processed: ").append(accelerometerSamples).append("\n");
+            stats.append("Avg Cost/Sample: ").append(accelerometerProcessingNanos / accelerometerSamples).append("ns\n");
+        }
+        
         
         if (motionDetected) {
             long motionDuration = System.currentTimeMillis() - motionStartTime;
@@ -0,0 +1,109 @@
+// File: app/src/main/java/com/antitheft/security/SensorTraceReader.java
+
+package com.antitheft.security;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * Reads trace files produced by SensorTraceWriter, one record at a time.
+ *
+ * next() overwrites the current record fields instead of allocating, so replaying
+ * a long trace costs no more memory than a short one. A record cut off by the
+ * process being killed mid-write ends the trace rather than failing it.
+ */
+public class SensorTraceReader {
+    private final DataInputStream in;
+    private final long startTimeMillis;
+    private final int sensitivity;
+
+    // Current record
+    private int type;
+    private long timestampNanos;
+    private float x, y, z;
+    private boolean truncated = false;
+
+    public SensorTraceReader(File file) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024));
+
+        try {
+            if (in.readInt() != SensorTraceWriter.MAGIC) {
+                throw new IOException("Not a sensor trace: " + file.getName());
+            }
+            short version = in.readShort();
+            if (version != SensorTraceWriter.VERSION) {
+                throw new IOException("Unsupported trace version " + version + ": " + file.getName());
+            }
+            startTimeMillis = in.readLong();
+            sensitivity = in.readInt();
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    // Advances to the next record; returns false at the end of the trace
+    public boolean next() throws IOException {
+        int nextType = in.read();
+        if (nextType < 0) return false;
+
+        try {
+            type = nextType;
+            timestampNanos = in.readLong();
+            if (type != SensorTraceWriter.TYPE_MARKER) {
+                x = in.readFloat();
+                y = in.readFloat();
+                z = in.readFloat();
+            }
+            return true;
+        } catch (EOFException e) {
+            truncated = true;
+            return false;
+        }
+    }
+
+    public int getType() {
+        return type;
+    }
+
+    public boolean isMarker() {
+        return type == SensorTraceWriter.TYPE_MARKER;
+    }
+
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    public float getX() {
+        return x;
+    }
+
+    public float getY() {
+        return y;
+    }
+
+    public float getZ() {
+        return z;
+    }
+
+    public long getStartTimeMillis() {
+        return startTimeMillis;
+    }
+
+    // Sensitivity the trace was recorded with
+    public int getSensitivity() {
+        return sensitivity;
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public void close() throws IOException {
+        in.close();
+    }
+}
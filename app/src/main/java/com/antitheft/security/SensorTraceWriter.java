@@ -0,0 +1,103 @@
+// File: app/src/main/java/com/antitheft/security/SensorTraceWriter.java
+
+package com.antitheft.security;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Writes sensor samples to a compact binary trace file for offline replay.
+ *
+ * Format (big-endian, as written by DataOutputStream):
+ *   header: int magic, short version, long startTimeMillis, int sensitivity
+ *   record: byte type, long timestampNanos, then three floats for sensor records
+ *
+ * Record types use the android.hardware.Sensor type constants (1 = accelerometer,
+ * 4 = gyroscope); type 0 is a marker carrying only a timestamp and labels the
+ * ground-truth onset of real motion. Writes go through a buffer, so the sensor
+ * thread only touches the file once per buffer fill. The class has no Android
+ * dependencies and is shared with the JVM replay harness.
+ */
+public class SensorTraceWriter {
+    public static final int MAGIC = 0x41545452; // "ATTR"
+    public static final short VERSION = 1;
+    public static final String FILE_EXTENSION = ".trace";
+
+    public static final byte TYPE_MARKER = 0;
+    public static final byte TYPE_ACCELEROMETER = 1;
+    public static final byte TYPE_GYROSCOPE = 4;
+
+    public static final int HEADER_BYTES = 4 + 2 + 8 + 4;
+    public static final int MARKER_RECORD_BYTES = 1 + 8;
+    public static final int SENSOR_RECORD_BYTES = 1 + 8 + 3 * 4;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final DataOutputStream out;
+    private final long maxBytes;
+    private long bytesWritten;
+    private long recordCount = 0;
+    private boolean limitReached = false;
+
+    // maxBytes <= 0 means unlimited
+    public SensorTraceWriter(File file, long startTimeMillis, int sensitivity, long maxBytes) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+        this.maxBytes = maxBytes;
+
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeLong(startTimeMillis);
+        out.writeInt(sensitivity);
+        bytesWritten = HEADER_BYTES;
+    }
+
+    // Returns false once the size limit is reached; the sample is dropped in that case
+    public boolean writeSample(int sensorType, long timestampNanos, float x, float y, float z) throws IOException {
+        if (!reserve(SENSOR_RECORD_BYTES)) return false;
+
+        out.writeByte(sensorType);
+        out.writeLong(timestampNanos);
+        out.writeFloat(x);
+        out.writeFloat(y);
+        out.writeFloat(z);
+        return true;
+    }
+
+    public boolean writeMarker(long timestampNanos) throws IOException {
+        if (!reserve(MARKER_RECORD_BYTES)) return false;
+
+        out.writeByte(TYPE_MARKER);
+        out.writeLong(timestampNanos);
+        return true;
+    }
+
+    private boolean reserve(int recordBytes) {
+        if (limitReached) return false;
+        if (maxBytes > 0 && bytesWritten + recordBytes > maxBytes) {
+            limitReached = true;
+            return false;
+        }
+        bytesWritten += recordBytes;
+        recordCount++;
+        return true;
+    }
+
+    public boolean isLimitReached() {
+        return limitReached;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,177 @@
+// File: app/src/main/java/com/antitheft/security/ServiceNotificationPublisher.java
+
+package com.antitheft.security;
+
+import android.app.Notification;
+import android.app.NotificationManager;
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import androidx.core.app.NotificationCompat;
+
+/**
+ * Publishes updates to a single ongoing service notification.
+ *
+ * Updates are rate limited to one post per minimum interval; anything published
+ * inside the interval replaces the pending content and is posted once the
+ * interval elapses. Updates whose title and text match what is already showing
+ * are dropped without an IPC. flush() bypasses the rate limit for final states.
+ */
+public class ServiceNotificationPublisher {
+    private static final String TAG = "AntiTheft_NotifyPublisher";
+    public static final long DEFAULT_MIN_INTERVAL_MS = 1000;
+
+    private final NotificationManager notificationManager;
+    private final NotificationCompat.Builder builder;
+    private final int notificationId;
+    private final long minIntervalMs;
+    private final Handler handler;
+    private final Runnable deferredPostRunnable = this::postDeferred;
+
+    // Content currently showing and content waiting for the next slot
+    private String postedTitle, postedText;
+    private String pendingTitle, pendingText;
+    private boolean hasPending = false;
+    private boolean deferredPostScheduled = false;
+    private long lastPostTime = 0;
+
+    // Statistics
+    private int postCount = 0;
+    private int unchangedCount = 0;
+    private int coalescedCount = 0;
+
+    public ServiceNotificationPublisher(Context context, int notificationId, NotificationCompat.Builder builder) {
+        this(context, notificationId, builder, DEFAULT_MIN_INTERVAL_MS);
+    }
+
+    public ServiceNotificationPublisher(Context context, int notificationId, NotificationCompat.Builder builder,
+                                        long minIntervalMs) {
+        this.notificationManager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+        this.builder = builder;
+        this.notificationId = notificationId;
+        this.minIntervalMs = Math.max(0, minIntervalMs);
+        this.handler = new Handler(Looper.getMainLooper());
+    }
+
+    // Builds the notification handed to startForeground() and records it as posted
+    public synchronized Notification buildInitial(String title, String text) {
+        Notification notification = build(title, text);
+        markPosted(title, text);
+        return notification;
+    }
+
+    // Rate-limited update; intermediate states inside the interval are coalesced
+    public synchronized void publish(String title, String text) {
+        if (matchesLatest(title, text)) {
+            unchangedCount++;
+            return;
+        }
+
+        if (hasPending) {
+            coalescedCount++;
+        }
+        pendingTitle = title;
+        pendingText = text;
+        hasPending = true;
+
+        long waitMs = lastPostTime + minIntervalMs - SystemClock.elapsedRealtime();
+        if (waitMs <= 0) {
+            postPending();
+        } else if (!deferredPostScheduled) {
+            deferredPostScheduled = true;
+            handler.postDelayed(deferredPostRunnable, waitMs);
+        }
+    }
+
+    // Posts immediately regardless of the rate limit - used for final states like an alarm
+    public synchronized void flush(String title, String text) {
+        cancelDeferredPost();
+
+        if (hasPending) {
+            coalescedCount++;
+        }
+        hasPending = false;
+
+        if (title.equals(postedTitle) && text.equals(postedText)) {
+            unchangedCount++;
+            return;
+        }
+
+        pendingTitle = title;
+        pendingText = text;
+        hasPending = true;
+        postPending();
+    }
+
+    private synchronized void postDeferred() {
+        deferredPostScheduled = false;
+        if (hasPending) {
+            postPending();
+        }
+    }
+
+    private void postPending() {
+        hasPending = false;
+
+        if (pendingTitle.equals(postedTitle) && pendingText.equals(postedText)) {
+            // Content went back to what is already showing while we were waiting
+            unchangedCount++;
+            return;
+        }
+
+        try {
+            notificationManager.notify(notificationId, build(pendingTitle, pendingText));
+            postCount++;
+        } catch (Exception e) {
+            Log.e(TAG, "Error posting notification " + notificationId, e);
+        }
+        markPosted(pendingTitle, pendingText);
+    }
+
+    private boolean matchesLatest(String title, String text) {
+        if (hasPending) {
+            return title.equals(pendingTitle) && text.equals(pendingText);
+        }
+        return title.equals(postedTitle) && text.equals(postedText);
+    }
+
+    private Notification build(String title, String text) {
+        return builder
+            .setContentTitle(title)
+            .setContentText(text)
+            .build();
+    }
+
+    private void markPosted(String title, String text) {
+        postedTitle = title;
+        postedText = text;
+        lastPostTime = SystemClock.elapsedRealtime();
+    }
+
+    private void cancelDeferredPost() {
+        if (deferredPostScheduled) {
+            handler.removeCallbacks(deferredPostRunnable);
+            deferredPostScheduled = false;
+        }
+    }
+
+    // Drops any deferred update; the notification itself is left as posted
+    public synchronized void cancel() {
+        cancelDeferredPost();
+        hasPending = false;
+    }
+
+    public synchronized int getPostCount() {
+        return postCount;
+    }
+
+    public synchronized int getUnchangedCount() {
+        return unchangedCount;
+    }
+
+    public synchronized int getCoalescedCount() {
+        return coalescedCount;
+    }
+}
@@ -219,7 +219,7 @@ public class SmartNotificationManager {
         emailBody.append("Model: ").append(android.os.Build.MODEL).append("\n");
         emailBody.append("Android Version: ").append(android.os.Build.VERSION.RELEASE).append("\n");
         
-        List<String> recipients = getEmailRecipients();
+        List<String> recipients = config().emailRecipients;
         for (String recipient : recipients) {
             emailManager.sendSecurityAlert(recipient, subject, emailBody.toString(), notification.evidencePaths);
         }
@@ -240,9 +240,14 @@ public class SmartNotificationManager {
         }
     }
     
-    // Settings methods
+    // Settings methods - reads come from the shared config snapshot, writes go to
+    // preferences and the snapshot is rebuilt by ConfigManager's change listener
+    private ConfigSnapshot config() {
+        return ConfigManager.get(context);
+    }
+    
     public boolean isDisguisedNotificationsEnabled() {
-        return preferences.getBoolean("disguised_notifications", true);
+        return config().disguisedNotificationsEnabled;
     }
     
     public void setDisguisedNotificationsEnabled(boolean enabled) {
@@ -250,7 +255,7 @@ public class SmartNotificationManager {
     }
     
     public boolean isEmailNotificationsEnabled() {
-        return preferences.getBoolean("email_notifications", false);
+        return config().emailNotificationsEnabled;
     }
     
     public void setEmailNotificationsEnabled(boolean enabled) {
@@ -258,7 +263,7 @@ public class SmartNotificationManager {
     }
     
     public int getEmailDelayMinutes() {
-        return preferences.getInt("email_delay_minutes", 5);
+        return config().emailDelayMinutes;
     }
     
     public void setEmailDelayMinutes(int minutes) {
@@ -266,26 +271,16 @@ public class SmartNotificationManager {
     }
     
     public String getEmailSubject() {
-        return preferences.getString("email_subject", "System Status Update");
+        return config().emailSubject;
     }
     
     public void setEmailSubject(String subject) {
         preferences.edit().putString("email_subject", subject).apply();
     }
     
+    // Returns a copy callers may modify; the snapshot's list is already parsed
     public List<String> getEmailRecipients() {
-        String recipientsStr = preferences.getString("email_recipients", "");
-        List<String> recipients = new ArrayList<>();
-        if (!recipientsStr.isEmpty()) {
-            String[] emails = recipientsStr.split(",");
-            for (String email : emails) {
-                email = email.trim();
-                if (!email.isEmpty()) {
-                    recipients.add(email);
-                }
-            }
-        }
-        return recipients;
+        return new ArrayList<>(config().emailRecipients);
     }
     
     public void setEmailRecipients(List<String> recipients) {
@@ -0,0 +1,322 @@
+// File: app/src/main/java/com/antitheft/security/TriggerHistoryStore.java
+
+package com.antitheft.security;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.TreeMap;
+
+/**
+ * Security trigger history in one append-only file per local day.
+ *
+ * Recording a trigger appends one line to today's bucket and bumps in-memory
+ * counters, so the cost does not depend on how much history is kept. Buckets
+ * older than the retention window are deleted whole, checked only when the day
+ * changes. Per-day counts by type and the most recent events are kept in memory,
+ * loaded once from the retained buckets, so statistics are answered without
+ * touching storage.
+ *
+ * Lines are "timestamp<TAB>type<TAB>details"; a torn last line is skipped on load.
+ * Loading reads every retained bucket, so callers open the store off the UI thread.
+ */
+public class TriggerHistoryStore {
+
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+    private static final String BUCKET_SUFFIX = ".log";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int RECENT_CAPACITY = 50;
+
+    public static class TriggerEvent {
+        public final long timestamp;
+        public final String type;
+        public final String details;
+
+        public TriggerEvent(long timestamp, String type, String details) {
+            this.timestamp = timestamp;
+            this.type = type;
+            this.details = details;
+        }
+    }
+
+    private static class DayBucket {
+        int count = 0;
+        final Map<String, Integer> countsByType = new HashMap<>();
+
+        void add(String type) {
+            count++;
+            Integer current = countsByType.get(type);
+            countsByType.put(type, current != null ? current + 1 : 1);
+        }
+    }
+
+    private final File directory;
+    private final int retentionDays;
+    private final TimeZone timeZone;
+
+    // Guarded by this
+    private final TreeMap<Long, DayBucket> buckets = new TreeMap<>(); // by local epoch day
+    private final ArrayDeque<TriggerEvent> recent = new ArrayDeque<>(); // oldest first
+    private long lastExpiryDay = Long.MIN_VALUE;
+
+    public TriggerHistoryStore(File directory, int retentionDays, TimeZone timeZone) {
+        this.directory = directory;
+        this.retentionDays = Math.max(1, retentionDays);
+        this.timeZone = timeZone;
+        load();
+    }
+
+    public synchronized void record(long timestamp, String type, String details) throws IOException {
+        long day = dayOf(timestamp);
+        expire(day);
+        if (day <= lastExpiryDay - retentionDays) return; // older than the window
+
+        if (!directory.exists()) {
+            directory.mkdirs();
+        }
+        TriggerEvent event = new TriggerEvent(timestamp, clean(type), clean(details));
+        try (FileOutputStream out = new FileOutputStream(bucketFile(day), true)) {
+            out.write((line(event) + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+
+        index(event, day);
+    }
+
+    // Adds events kept elsewhere (the legacy preferences). Each day's bucket is rewritten
+    // to a temporary file and renamed into place, and events already in it are skipped, so
+    // an import that failed part-way can be run again without duplicating anything.
+    public synchronized int importEvents(List<TriggerEvent> events, long now) throws IOException {
+        expire(dayOf(now));
+        long oldestKept = lastExpiryDay - retentionDays + 1;
+
+        TreeMap<Long, List<TriggerEvent>> byDay = new TreeMap<>();
+        for (TriggerEvent event : events) {
+            long day = dayOf(event.timestamp);
+            if (day < oldestKept) continue;
+            List<TriggerEvent> dayEvents = byDay.get(day);
+            if (dayEvents == null) {
+                dayEvents = new ArrayList<>();
+                byDay.put(day, dayEvents);
+            }
+            dayEvents.add(new TriggerEvent(event.timestamp, clean(event.type), clean(event.details)));
+        }
+        if (byDay.isEmpty()) return 0;
+
+        if (!directory.exists()) {
+            directory.mkdirs();
+        }
+        int imported = 0;
+        for (Map.Entry<Long, List<TriggerEvent>> entry : byDay.entrySet()) {
+            imported += importDay(entry.getKey(), entry.getValue());
+        }
+        return imported;
+    }
+
+    private int importDay(long day, List<TriggerEvent> events) throws IOException {
+        List<TriggerEvent> merged = new ArrayList<>();
+        readBucket(bucketFile(day), merged);
+        Set<String> present = new HashSet<>();
+        for (TriggerEvent event : merged) {
+            present.add(line(event));
+        }
+
+        List<TriggerEvent> added = new ArrayList<>();
+        for (TriggerEvent event : events) {
+            if (present.add(line(event))) {
+                added.add(event);
+            }
+        }
+        if (added.isEmpty()) return 0;
+
+        merged.addAll(added);
+        merged.sort((a, b) -> Long.compare(a.timestamp, b.timestamp));
+        StringBuilder content = new StringBuilder();
+        for (TriggerEvent event : merged) {
+            content.append(line(event)).append('\n');
+        }
+
+        File temp = new File(directory, bucketFile(day).getName() + TEMP_SUFFIX);
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(content.toString().getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        }
+        if (!temp.renameTo(bucketFile(day))) {
+            temp.delete();
+            throw new IOException("Could not replace " + bucketFile(day).getName());
+        }
+
+        for (TriggerEvent event : added) {
+            index(event, day);
+        }
+        return added.size();
+    }
+
+    private void index(TriggerEvent event, long day) {
+        DayBucket bucket = buckets.get(day);
+        if (bucket == null) {
+            bucket = new DayBucket();
+            buckets.put(day, bucket);
+        }
+        bucket.add(event.type);
+
+        if (recent.isEmpty() || event.timestamp >= recent.peekLast().timestamp) {
+            recent.addLast(event);
+        } else {
+            insertRecent(event); // back-dated (migration); keep time order
+        }
+        if (recent.size() > RECENT_CAPACITY) {
+            recent.removeFirst();
+        }
+    }
+
+    private void insertRecent(TriggerEvent event) {
+        List<TriggerEvent> events = new ArrayList<>(recent);
+        int index = events.size();
+        while (index > 0 && events.get(index - 1).timestamp > event.timestamp) {
+            index--;
+        }
+        events.add(index, event);
+        recent.clear();
+        recent.addAll(events);
+    }
+
+    // Deletes whole buckets that have left the window; only does work when the day advances
+    private void expire(long today) {
+        if (today <= lastExpiryDay) return;
+        lastExpiryDay = today;
+
+        long oldestKept = today - retentionDays + 1;
+        Iterator<Map.Entry<Long, DayBucket>> it = buckets.entrySet().iterator();
+        while (it.hasNext()) {
+            long day = it.next().getKey();
+            if (day >= oldestKept) break;
+            bucketFile(day).delete();
+            it.remove();
+        }
+        long oldestKeptMs = oldestKept * DAY_MS - timeZone.getOffset(oldestKept * DAY_MS);
+        while (!recent.isEmpty() && recent.peekFirst().timestamp < oldestKeptMs) {
+            recent.removeFirst();
+        }
+    }
+
+    private void load() {
+        File[] files = directory.listFiles();
+        if (files == null) return;
+
+        List<TriggerEvent> events = new ArrayList<>();
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(TEMP_SUFFIX)) {
+                file.delete(); // an import that stopped before its rename
+                continue;
+            }
+            if (!name.endsWith(BUCKET_SUFFIX)) continue;
+            try {
+                readBucket(file, events);
+            } catch (IOException e) {
+                // Unreadable bucket; the rest of the history is still usable
+            }
+        }
+
+        // Oldest first so the recent ring ends with the newest events
+        events.sort((a, b) -> Long.compare(a.timestamp, b.timestamp));
+        for (TriggerEvent event : events) {
+            index(event, dayOf(event.timestamp));
+        }
+    }
+
+    private static void readBucket(File file, List<TriggerEvent> events) throws IOException {
+        if (!file.exists()) return;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t", 3);
+                if (parts.length < 3) continue;
+                try {
+                    events.add(new TriggerEvent(Long.parseLong(parts[0]), parts[1], parts[2]));
+                } catch (NumberFormatException e) {
+                    // Torn or foreign line
+                }
+            }
+        }
+    }
+
+    // Triggers today and on the previous days - 1 local days
+    public synchronized int countForDays(long now, int days) {
+        expire(dayOf(now));
+        int total = 0;
+        for (DayBucket bucket : buckets.tailMap(dayOf(now) - days + 1).values()) {
+            total += bucket.count;
+        }
+        return total;
+    }
+
+    public synchronized Map<String, Integer> countByTypeForDays(long now, int days) {
+        expire(dayOf(now));
+        Map<String, Integer> counts = new TreeMap<>();
+        for (DayBucket bucket : buckets.tailMap(dayOf(now) - days + 1).values()) {
+            for (Map.Entry<String, Integer> entry : bucket.countsByType.entrySet()) {
+                Integer current = counts.get(entry.getKey());
+                counts.put(entry.getKey(), (current != null ? current : 0) + entry.getValue());
+            }
+        }
+        return counts;
+    }
+
+    // Newest first, at most limit (up to the last 50 are kept in memory)
+    public synchronized List<TriggerEvent> getRecent(int limit) {
+        List<TriggerEvent> events = new ArrayList<>(Math.min(limit, recent.size()));
+        Iterator<TriggerEvent> it = recent.descendingIterator();
+        while (it.hasNext() && events.size() < limit) {
+            events.add(it.next());
+        }
+        return events;
+    }
+
+    public synchronized int getRetainedCount() {
+        int total = 0;
+        for (DayBucket bucket : buckets.values()) {
+            total += bucket.count;
+        }
+        return total;
+    }
+
+    public synchronized void clear() {
+        for (long day : buckets.keySet()) {
+            bucketFile(day).delete();
+        }
+        buckets.clear();
+        recent.clear();
+    }
+
+    private long dayOf(long timestamp) {
+        return Math.floorDiv(timestamp + timeZone.getOffset(timestamp), DAY_MS);
+    }
+
+    private File bucketFile(long day) {
+        return new File(directory, "day_" + day + BUCKET_SUFFIX);
+    }
+
+    private static String line(TriggerEvent event) {
+        return event.timestamp + "\t" + event.type + "\t" + event.details;
+    }
+
+    private static String clean(String value) {
+        if (value == null) return "";
+        return value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+}
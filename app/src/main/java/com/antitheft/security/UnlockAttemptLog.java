@@ -0,0 +1,148 @@
+// File: app/src/main/java/com/antitheft/security/UnlockAttemptLog.java
+
+package com.antitheft.security;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed-capacity ring of (timestamp, attempt number) records in a small binary file.
+ *
+ * The file is a 16-byte header (magic, capacity, next slot, record count) followed
+ * by capacity slots of 12 bytes each. Appending writes one slot and then the
+ * header, so it costs the same however full the ring is, and the oldest record is
+ * overwritten once the ring wraps. Reading the last N seeks straight to their
+ * slots. A file with a different magic or capacity is treated as empty.
+ *
+ * The header is mirrored in memory, so only one instance may use a file; the
+ * app keeps one per process.
+ */
+public class UnlockAttemptLog {
+
+    private static final int MAGIC = 0x554C4F47; // "ULOG"
+    private static final int HEADER_BYTES = 16;
+    private static final int RECORD_BYTES = 12; // long timestamp + int attempt
+
+    public interface RecordVisitor {
+        void visit(long timestamp, int attemptNumber);
+    }
+
+    private final File file;
+    private final int capacity;
+
+    // Guarded by this; mirrors the header
+    private int next = 0;
+    private int size = 0;
+
+    public UnlockAttemptLog(File file, int capacity) {
+        this.file = file;
+        this.capacity = Math.max(1, capacity);
+        readHeader();
+    }
+
+    private void readHeader() {
+        if (file.length() < HEADER_BYTES) return;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            if (raf.readInt() != MAGIC || raf.readInt() != capacity) return;
+            int storedNext = raf.readInt();
+            int storedSize = raf.readInt();
+            if (storedNext < 0 || storedNext >= capacity || storedSize < 0 || storedSize > capacity) return;
+            long complete = Math.min((raf.length() - HEADER_BYTES) / RECORD_BYTES, capacity);
+            if (storedSize <= complete) {
+                next = storedNext;
+                size = storedSize;
+            } else {
+                // The header got ahead of a slot that never reached the file; keep the complete ones
+                next = (int) (complete % capacity);
+                size = (int) complete;
+            }
+        } catch (IOException e) {
+            // Unreadable; start over
+        }
+    }
+
+    public synchronized void append(long timestamp, int attemptNumber) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            if (size == 0 && next == 0) {
+                raf.setLength(0); // drops a file with a stale layout
+            }
+            raf.seek(HEADER_BYTES + (long) next * RECORD_BYTES);
+            raf.writeLong(timestamp);
+            raf.writeInt(attemptNumber);
+
+            next = (next + 1) % capacity;
+            size = Math.min(size + 1, capacity);
+            writeHeader(raf);
+        }
+    }
+
+    private void writeHeader(RandomAccessFile raf) throws IOException {
+        raf.seek(0);
+        raf.writeInt(MAGIC);
+        raf.writeInt(capacity);
+        raf.writeInt(next);
+        raf.writeInt(size);
+    }
+
+    // Visits at most the newest count records, oldest first
+    public synchronized int readLast(int count, RecordVisitor visitor) throws IOException {
+        int n = Math.min(count, size);
+        if (n <= 0) return 0;
+
+        byte[] buffer = new byte[RECORD_BYTES];
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            for (int i = n; i > 0; i--) {
+                int slot = Math.floorMod(next - i, capacity);
+                raf.seek(HEADER_BYTES + (long) slot * RECORD_BYTES);
+                raf.readFully(buffer);
+                visitor.visit(readLong(buffer, 0), readInt(buffer, 8));
+            }
+        }
+        return n;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public synchronized void clear() {
+        next = 0;
+        size = 0;
+        file.delete();
+    }
+
+    // Parses the old "timestamp:attempt,timestamp:attempt" preference value, oldest first
+    public static List<long[]> parseLegacy(String value) {
+        List<long[]> records = new ArrayList<>();
+        if (value == null || value.isEmpty()) return records;
+        for (String entry : value.split(",")) {
+            int colon = entry.indexOf(':');
+            if (colon <= 0) continue;
+            try {
+                records.add(new long[] {
+                    Long.parseLong(entry.substring(0, colon)),
+                    Integer.parseInt(entry.substring(colon + 1))
+                });
+            } catch (NumberFormatException e) {
+                // Skipped, as the old reader did
+            }
+        }
+        return records;
+    }
+
+    private static long readLong(byte[] b, int offset) {
+        return ((long) readInt(b, offset) << 32) | (readInt(b, offset + 4) & 0xFFFFFFFFL);
+    }
+
+    private static int readInt(byte[] b, int offset) {
+        return ((b[offset] & 0xFF) << 24) | ((b[offset + 1] & 0xFF) << 16)
+            | ((b[offset + 2] & 0xFF) << 8) | (b[offset + 3] & 0xFF);
+    }
+}
@@ -8,13 +8,11 @@ import android.content.pm.PackageManager;
 import android.graphics.SurfaceTexture;
 import android.hardware.camera2.CameraAccessException;
 import android.hardware.camera2.CameraCaptureSession;
-import android.hardware.camera2.CameraCharacteristics;
 import android.hardware.camera2.CameraDevice;
 import android.hardware.camera2.CameraManager;
 import android.hardware.camera2.CaptureRequest;
 import android.media.MediaRecorder;
 import android.os.Handler;
-import android.os.HandlerThread;
 import android.util.Log;
 import android.util.Size;
 import android.view.Surface;
@@ -36,11 +34,13 @@ public class VideoCaptureManager {
     private android.hardware.camera2.CameraManager cameraManager;
     private CameraDevice frontCamera, backCamera;
     private MediaRecorder frontRecorder, backRecorder;
-    private HandlerThread backgroundThread;
-    private Handler backgroundHandler;
+    private CameraRegistry cameraRegistry;
+    private Handler backgroundHandler; // shared camera thread
+    private PreTriggerVideoRecorder preTriggerRecorder;
     
     private boolean isRecording = false;
     private VideoCaptureCallback captureCallback;
+    private CaptureQualityProfile profile = CaptureQualityProfile.FULL;
     
     public interface VideoCaptureCallback {
         void onVideosRecorded(String frontVideoPath, String backVideoPath);
@@ -50,14 +50,9 @@ public class VideoCaptureManager {
     
     public VideoCaptureManager(Context context) {
         this.context = context;
-        this.cameraManager = (android.hardware.camera2.CameraManager) context.getSystemService(Context.CAMERA_SERVICE);
-        startBackgroundThread();
-    }
-    
-    private void startBackgroundThread() {
-        backgroundThread = new HandlerThread("VideoBackground");
-        backgroundThread.start();
-        backgroundHandler = new Handler(backgroundThread.getLooper());
+        this.cameraRegistry = CameraRegistry.getInstance(context);
+        this.cameraManager = cameraRegistry.getCameraManager();
+        this.backgroundHandler = cameraRegistry.getCameraHandler();
     }
     
     public boolean hasPermissions() {
@@ -67,6 +62,10 @@ public class VideoCaptureManager {
     }
     
     public void startSecretVideoRecording(VideoCaptureCallback callback) {
+        startSecretVideoRecording(callback, CaptureQualityProfile.FULL);
+    }
+    
+    public void startSecretVideoRecording(VideoCaptureCallback callback, CaptureQualityProfile qualityProfile) {
         if (isRecording) {
             Log.w(TAG, "Already recording video");
             return;
@@ -78,9 +77,10 @@ public class VideoCaptureManager {
         }
         
         this.captureCallback = callback;
+        this.profile = qualityProfile;
         isRecording = true;
         
-        Log.i(TAG, "Starting secret video recording");
+        Log.i(TAG, "Starting secret video recording - " + profile.name + " quality");
         
         // Start recording from both cameras
         startFrontVideoRecording();
@@ -92,7 +92,7 @@ public class VideoCaptureManager {
     
     private void startFrontVideoRecording() {
         try {
-            String frontCameraId = getFrontCameraId();
+            String frontCameraId = cameraRegistry.getFrontCameraId();
             if (frontCameraId == null) {
                 Log.w(TAG, "No front camera available");
                 return;
@@ -100,7 +100,7 @@ public class VideoCaptureManager {
             
             // Setup MediaRecorder for front camera
             frontRecorder = new MediaRecorder();
-            setupMediaRecorder(frontRecorder, "front");
+            setupMediaRecorder(frontRecorder, "front", frontCameraId);
             
             if (ActivityCompat.checkSelfPermission(context, Manifest.permission.CAMERA) == PackageManager.PERMISSION_GRANTED) {
                 cameraManager.openCamera(frontCameraId, new CameraDevice.StateCallback() {
@@ -131,7 +131,7 @@ public class VideoCaptureManager {
     
     private void startBackVideoRecording() {
         try {
-            String backCameraId = getBackCameraId();
+            String backCameraId = cameraRegistry.getBackCameraId();
             if (backCameraId == null) {
                 Log.w(TAG, "No back camera available");
                 return;
@@ -139,7 +139,7 @@ public class VideoCaptureManager {
             
             // Setup MediaRecorder for back camera
             backRecorder = new MediaRecorder();
-            setupMediaRecorder(backRecorder, "back");
+            setupMediaRecorder(backRecorder, "back", backCameraId);
             
             if (ActivityCompat.checkSelfPermission(context, Manifest.permission.CAMERA) == PackageManager.PERMISSION_GRANTED) {
                 cameraManager.openCamera(backCameraId, new CameraDevice.StateCallback() {
@@ -168,7 +168,7 @@ public class VideoCaptureManager {
         }
     }
     
-    private void setupMediaRecorder(MediaRecorder recorder, String cameraType) throws IOException {
+    private void setupMediaRecorder(MediaRecorder recorder, String cameraType, String cameraId) throws IOException {
         // Create video directory
         File videoDir = new File(context.getExternalFilesDir(null), "security_videos");
         if (!videoDir.exists()) {
@@ -184,14 +184,15 @@ public class VideoCaptureManager {
         recorder.setOutputFormat(MediaRecorder.OutputFormat.MPEG_4);
         recorder.setOutputFile(videoFile.getAbsolutePath());
         
-        // Video settings - optimize for evidence quality vs file size
-        recorder.setVideoEncodingBitRate(2000000); // 2Mbps
-        recorder.setVideoFrameRate(30);
-        recorder.setVideoSize(1280, 720); // 720p for good quality/size balance
+        // Video settings from the session's quality profile
+        Size videoSize = getVideoSize(cameraId);
+        recorder.setVideoEncodingBitRate(profile.videoBitRate);
+        recorder.setVideoFrameRate(profile.videoFrameRate);
+        recorder.setVideoSize(videoSize.getWidth(), videoSize.getHeight());
         recorder.setVideoEncoder(MediaRecorder.VideoEncoder.H264);
         
         // Audio settings
-        recorder.setAudioEncodingBitRate(128000);
+        recorder.setAudioEncodingBitRate(profile.audioBitRate);
         recorder.setAudioSamplingRate(44100);
         recorder.setAudioEncoder(MediaRecorder.AudioEncoder.AAC);
         
@@ -206,6 +207,18 @@ public class VideoCaptureManager {
         recorder.prepare();
     }
     
+    // Largest recorder size the camera supports within the profile's bounds
+    private Size getVideoSize(String cameraId) {
+        Size best = null;
+        for (Size size : cameraRegistry.getRecorderSizes(cameraId)) {
+            if (size.getWidth() <= profile.maxVideoWidth && size.getHeight() <= profile.maxVideoHeight
+                    && (best == null || (long) size.getWidth() * size.getHeight() > (long) best.getWidth() * best.getHeight())) {
+                best = size;
+            }
+        }
+        return best != null ? best : new Size(profile.maxVideoWidth, profile.maxVideoHeight);
+    }
+    
     private void startRecordingSession(CameraDevice camera, MediaRecorder recorder) {
         try {
             Surface recordingSurface = recorder.getSurface();
@@ -333,36 +346,6 @@ public class VideoCaptureManager {
         }
     }
     
-    private String getFrontCameraId() {
-        try {
-            for (String cameraId : cameraManager.getCameraIdList()) {
-                CameraCharacteristics characteristics = cameraManager.getCameraCharacteristics(cameraId);
-                Integer facing = characteristics.get(CameraCharacteristics.LENS_FACING);
-                if (facing != null && facing == CameraCharacteristics.LENS_FACING_FRONT) {
-                    return cameraId;
-                }
-            }
-        } catch (CameraAccessException e) {
-            Log.e(TAG, "Error getting front camera ID", e);
-        }
-        return null;
-    }
-    
-    private String getBackCameraId() {
-        try {
-            for (String cameraId : cameraManager.getCameraIdList()) {
-                CameraCharacteristics characteristics = cameraManager.getCameraCharacteristics(cameraId);
-                Integer facing = characteristics.get(CameraCharacteristics.LENS_FACING);
-                if (facing != null && facing == CameraCharacteristics.LENS_FACING_BACK) {
-                    return cameraId;
-                }
-            }
-        } catch (CameraAccessException e) {
-            Log.e(TAG, "Error getting back camera ID", e);
-        }
-        return null;
-    }
-    
     // Get all recorded security videos
     public File[] getSecurityVideos() {
         File videoDir = new File(context.getExternalFilesDir(null), "security_videos");
@@ -388,20 +371,48 @@ public class VideoCaptureManager {
         }
     }
     
+    // Pre-trigger buffer: keeps the last seconds of front-camera video in memory while armed
+    public void startPreTriggerBuffer() {
+        if (preTriggerRecorder == null) {
+            preTriggerRecorder = new PreTriggerVideoRecorder(context);
+        }
+        preTriggerRecorder.start();
+    }
+    
+    public void stopPreTriggerBuffer() {
+        if (preTriggerRecorder != null) {
+            preTriggerRecorder.stop();
+        }
+    }
+    
+    public boolean isPreTriggerBuffering() {
+        return preTriggerRecorder != null && preTriggerRecorder.isBuffering();
+    }
+    
+    public void savePreTriggerClip(int preTriggerSeconds, int liveSeconds, PreTriggerVideoRecorder.ClipCallback callback) {
+        if (!isPreTriggerBuffering()) {
+            callback.onClipError("Pre-trigger buffer not running");
+            return;
+        }
+        
+        File videoDir = new File(context.getExternalFilesDir(null), "security_videos");
+        if (!videoDir.exists()) {
+            videoDir.mkdirs();
+        }
+        String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault()).format(new Date());
+        File clipFile = new File(videoDir, "security_pretrigger_" + timestamp + ".mp4");
+        
+        preTriggerRecorder.saveClip(clipFile, preTriggerSeconds * 1000000L, liveSeconds * 1000000L, callback);
+    }
+    
+    public String getPreTriggerSummary() {
+        return preTriggerRecorder != null ? preTriggerRecorder.getSummary() : "off";
+    }
+    
     public void cleanup() {
+        stopPreTriggerBuffer();
         stopVideoRecording();
         closeCameras();
-        
-        if (backgroundThread != null) {
-            backgroundThread.quitSafely();
-            try {
-                backgroundThread.join();
-                backgroundThread = null;
-                backgroundHandler = null;
-            } catch (InterruptedException e) {
-                Log.e(TAG, "Error stopping background thread", e);
-            }
-        }
     }
     
     public boolean isRecording() {
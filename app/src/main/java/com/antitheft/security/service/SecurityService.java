@@ -33,8 +33,13 @@ import android.util.Log;
 
 import androidx.core.app.NotificationCompat;
 
+import com.antitheft.security.ConfigManager;
+import com.antitheft.security.ConfigSnapshot;
+import com.antitheft.security.EvidenceManager;
+import com.antitheft.security.EvidenceTriggerCoalescer;
 import com.antitheft.security.MainActivity;
 import com.antitheft.security.R;
+import com.antitheft.security.ServiceNotificationPublisher;
 import com.antitheft.security.receiver.DeviceAdminReceiver;
 import com.antitheft.security.utils.EvidenceCollector;
 import com.antitheft.security.utils.EncryptionUtils;
@@ -43,7 +48,9 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
 
 public class SecurityService extends Service implements LocationListener {
@@ -61,6 +68,9 @@ public class SecurityService extends Service implements LocationListener {
     private DevicePolicyManager devicePolicyManager;
     private ComponentName deviceAdminComponent;
     private EvidenceCollector evidenceCollector;
+    private ServiceNotificationPublisher notificationPublisher;
+    private EvidenceManager evidenceManager; // created for triggers deferred by a photo claim
+    private PhotoClaim photoClaim; // holds the evidence gate while the camera is open
     
     private Handler mainHandler;
     private boolean isRecording = false;
@@ -70,6 +80,7 @@ public class SecurityService extends Service implements LocationListener {
     // Evidence collection intervals
     private static final long LOCATION_UPDATE_INTERVAL = 30000; // 30 seconds
     private static final long EVIDENCE_COLLECTION_INTERVAL = 60000; // 1 minute
+    private static final long PHOTO_CLAIM_TIMEOUT = 10000; // 10 seconds
     
     @Override
     public void onCreate() {
@@ -82,6 +93,7 @@ public class SecurityService extends Service implements LocationListener {
         mainHandler = new Handler(Looper.getMainLooper());
         
         createNotificationChannel();
+        notificationPublisher = new ServiceNotificationPublisher(this, NOTIFICATION_ID, createNotificationBuilder());
         initializeLocationTracking();
         
         Log.d(TAG, "SecurityService created");
@@ -119,6 +131,14 @@ public class SecurityService extends Service implements LocationListener {
         stopAudioRecording();
         releaseCamera();
         
+        if (evidenceManager != null) {
+            evidenceManager.cleanup();
+        }
+        
+        if (notificationPublisher != null) {
+            notificationPublisher.cancel();
+        }
+        
         Log.d(TAG, "SecurityService destroyed");
     }
 
@@ -145,19 +165,23 @@ public class SecurityService extends Service implements LocationListener {
     }
 
     private Notification createNotification() {
+        return notificationPublisher.buildInitial(
+            "Anti-Theft Protection Active",
+            "Your device is being monitored and protected"
+        );
+    }
+
+    private NotificationCompat.Builder createNotificationBuilder() {
         Intent notificationIntent = new Intent(this, MainActivity.class);
         PendingIntent pendingIntent = PendingIntent.getActivity(
             this, 0, notificationIntent, PendingIntent.FLAG_IMMUTABLE
         );
 
         return new NotificationCompat.Builder(this, CHANNEL_ID)
-            .setContentTitle("Anti-Theft Protection Active")
-            .setContentText("Your device is being monitored and protected")
             .setSmallIcon(R.drawable.ic_security)
             .setContentIntent(pendingIntent)
             .setOngoing(true)
-            .setPriority(NotificationCompat.PRIORITY_LOW)
-            .build();
+            .setPriority(NotificationCompat.PRIORITY_LOW);
     }
 
     private void startEvidenceCollection() {
@@ -179,9 +203,18 @@ public class SecurityService extends Service implements LocationListener {
         // Collect network information
         evidenceCollector.collectNetworkInfo();
         
-        // Take photo if camera is available
-        if (preferences.getBoolean("photo_evidence", true)) {
-            capturePhoto();
+        // Take photo if camera is available and no evidence session is already using it
+        if (preferences.getBoolean("photo_evidence", true) && photoClaim == null) {
+            ConfigSnapshot config = ConfigManager.get(this);
+            PhotoClaim claim = new PhotoClaim();
+            if (EvidenceTriggerCoalescer.getInstance().claim(claim, config.triggerMergeWindowMs, config.triggerCooldownMs)) {
+                photoClaim = claim;
+                // A picture callback that never comes must not hold the gate forever
+                mainHandler.postDelayed(photoClaimTimeout, PHOTO_CLAIM_TIMEOUT);
+                capturePhoto();
+            } else {
+                EvidenceTriggerCoalescer.getInstance().mergeIntoActive("Security service evidence collection");
+            }
         }
         
         // Record audio if enabled
@@ -267,6 +300,8 @@ public class SecurityService extends Service implements LocationListener {
                         releaseCamera();
                     }
                 });
+            } else {
+                releasePhotoClaim();
             }
         } catch (Exception e) {
             Log.e(TAG, "Error capturing photo", e);
@@ -304,6 +339,69 @@ public class SecurityService extends Service implements LocationListener {
             camera.release();
             camera = null;
         }
+        releasePhotoClaim();
+    }
+    
+    // Frees the gate, then runs the triggers that arrived during the photo as a real session
+    private void releasePhotoClaim() {
+        if (photoClaim == null) return;
+        PhotoClaim claim = photoClaim;
+        photoClaim = null;
+        mainHandler.removeCallbacks(photoClaimTimeout);
+        EvidenceTriggerCoalescer.getInstance().release(claim);
+        
+        // The first opens the session, the rest merge into it
+        for (String reason : claim.takeDeferred()) {
+            replayTrigger(reason);
+        }
+    }
+    
+    private final Runnable photoClaimTimeout = () -> {
+        Log.w(TAG, "Photo capture timed out");
+        releaseCamera();
+    };
+    
+    private void replayTrigger(String reason) {
+        if (evidenceManager == null) {
+            evidenceManager = new EvidenceManager(this);
+        }
+        evidenceManager.captureSecurityEvidence(reason);
+    }
+    
+    // The periodic photo's hold on the evidence gate; collects triggers submitted meanwhile
+    private class PhotoClaim implements EvidenceTriggerCoalescer.ActiveSession {
+        private final long startedAt = System.currentTimeMillis();
+        private final List<String> deferred = new ArrayList<>();
+        private boolean released = false;
+        
+        @Override
+        public void mergeTrigger(String reason) {
+            synchronized (this) {
+                if (!released) {
+                    deferred.add(reason);
+                    return;
+                }
+            }
+            // Chose this claim just before it was released
+            mainHandler.post(() -> replayTrigger(reason));
+        }
+        
+        synchronized List<String> takeDeferred() {
+            released = true;
+            List<String> reasons = new ArrayList<>(deferred);
+            deferred.clear();
+            return reasons;
+        }
+        
+        @Override
+        public String getSessionId() {
+            return null; // not an evidence session
+        }
+        
+        @Override
+        public long getStartTimeMillis() {
+            return startedAt;
+        }
     }
 
     private void startAudioRecording() {
@@ -408,6 +506,9 @@ public class SecurityService extends Service implements LocationListener {
             devicePolicyManager.lockNow();
         }
         
+        // Final state - always shown regardless of the update rate limit
+        notificationPublisher.flush("Theft Detected", "Collecting location and evidence");
+        
         Log.w(TAG, "Theft detection triggered!");
     }
 
@@ -68,11 +68,36 @@ public class EncryptionUtils {
      * Decrypts a file using AES encryption
      */
     public static boolean decryptFile(File file) {
+        byte[] decryptedContent = decryptFileContent(file);
+        if (decryptedContent == null) {
+            return false;
+        }
+        
+        try {
+            // Write decrypted content back to file
+            FileOutputStream fos = new FileOutputStream(file);
+            fos.write(decryptedContent);
+            fos.close();
+            
+            Log.d(TAG, "File decrypted successfully: " + file.getName());
+            return true;
+            
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing decrypted file: " + file.getName(), e);
+            return false;
+        }
+    }
+    
+    /**
+     * Decrypts a file encrypted by encryptFile into memory; the file is left as it is.
+     * Returns null if the file cannot be read or decrypted.
+     */
+    public static byte[] decryptFileContent(File file) {
         try {
             // Read encrypted file content
             byte[] fileContent = readFileBytes(file);
             if (fileContent == null || fileContent.length < 16) {
-                return false;
+                return null;
             }
             
             // Extract IV and encrypted content
@@ -89,19 +114,11 @@ public class EncryptionUtils {
             // Decrypt content
             Cipher cipher = Cipher.getInstance(TRANSFORMATION);
             cipher.init(Cipher.DECRYPT_MODE, secretKey, ivSpec);
-            byte[] decryptedContent = cipher.doFinal(encryptedContent);
-            
-            // Write decrypted content back to file
-            FileOutputStream fos = new FileOutputStream(file);
-            fos.write(decryptedContent);
-            fos.close();
-            
-            Log.d(TAG, "File decrypted successfully: " + file.getName());
-            return true;
+            return cipher.doFinal(encryptedContent);
             
         } catch (Exception e) {
             Log.e(TAG, "Error decrypting file: " + file.getName(), e);
-            return false;
+            return null;
         }
     }
     
@@ -194,6 +211,13 @@ public class EncryptionUtils {
         }
     }
     
+    /**
+     * Key for evidence records, derived the same way as the file encryption key
+     */
+    public static SecretKey getEvidenceKey() throws Exception {
+        return generateKeyFromPassword(DEFAULT_PASSWORD);
+    }
+    
     /**
      * Generates a SecretKey from a password using SHA-256
      */
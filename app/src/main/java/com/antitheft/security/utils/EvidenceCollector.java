@@ -19,15 +19,23 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Locale;
+import java.util.Map;
 
 public class EvidenceCollector {
     
     private static final String TAG = "EvidenceCollector";
+    
+    // Event log layout: up to MAX_SEGMENTS segments of SEGMENT_BYTES per data type
+    private static final int SEGMENT_BYTES = 64 * 1024;
+    private static final int MAX_SEGMENTS = 8;
+    private static final Map<String, EvidenceEventLog> LOGS = new HashMap<>();
+    
     private Context context;
     private SharedPreferences preferences;
     
@@ -212,80 +220,125 @@ public class EvidenceCollector {
     
     private void saveEvidenceData(String dataType, JSONObject data) {
         try {
-            File evidenceDir = new File(context.getExternalFilesDir(Environment.DIRECTORY_DOCUMENTS), "Evidence");
-            if (!evidenceDir.exists()) {
-                evidenceDir.mkdirs();
+            EvidenceEventLog log = getLog(dataType);
+            if (log != null) {
+                log.setEncryptAppends(preferences.getBoolean("encrypt_evidence", true));
+                log.append(data.toString().getBytes(StandardCharsets.UTF_8));
             }
-            
-            String filename = dataType + "_log.json";
-            File evidenceFile = new File(evidenceDir, filename);
-            
-            JSONArray evidenceArray;
-            if (evidenceFile.exists()) {
-                // Read existing data
-                String existingData = FileUtils.readFileToString(evidenceFile);
+        } catch (IOException e) {
+            Log.e(TAG, "Error saving evidence data", e);
+        }
+    }
+    
+    // One open log per type for the whole process, so every collector appends to the same segment
+    private EvidenceEventLog getLog(String dataType) {
+        synchronized (LOGS) {
+            EvidenceEventLog log = LOGS.get(dataType);
+            if (log == null) {
                 try {
-                    evidenceArray = new JSONArray(existingData);
-                } catch (JSONException e) {
-                    evidenceArray = new JSONArray();
+                    File evidenceDir = new File(context.getExternalFilesDir(Environment.DIRECTORY_DOCUMENTS), "Evidence");
+                    log = new EvidenceEventLog(evidenceDir, dataType, SEGMENT_BYTES, MAX_SEGMENTS,
+                        EncryptionUtils.getEvidenceKey());
+                    migrateLegacyLog(evidenceDir, dataType, log);
+                    LOGS.put(dataType, log);
+                } catch (Exception e) {
+                    Log.e(TAG, "Error opening evidence log: " + dataType, e);
+                    return null;
                 }
-            } else {
-                evidenceArray = new JSONArray();
             }
-            
-            // Add new data
-            evidenceArray.put(data);
-            
-            // Keep only last 1000 entries to prevent file from growing too large
-            if (evidenceArray.length() > 1000) {
-                JSONArray trimmedArray = new JSONArray();
-                for (int i = evidenceArray.length() - 1000; i < evidenceArray.length(); i++) {
-                    trimmedArray.put(evidenceArray.get(i));
-                }
-                evidenceArray = trimmedArray;
-            }
-            
-            // Write back to file
-            FileWriter writer = new FileWriter(evidenceFile);
-            writer.write(evidenceArray.toString(2)); // Pretty print with indent
-            writer.close();
-            
-            // Encrypt the file if encryption is enabled
-            if (preferences.getBoolean("encrypt_evidence", true)) {
-                EncryptionUtils.encryptFile(evidenceFile);
+            return log;
+        }
+    }
+    
+    // Moves entries from the old <type>_log.json into the segmented log, once. The file is
+    // only decrypted in memory and stays as it is until every entry has been appended.
+    private void migrateLegacyLog(File evidenceDir, String dataType, EvidenceEventLog log) {
+        File legacyFile = new File(evidenceDir, dataType + "_log.json");
+        if (!legacyFile.exists()) {
+            return;
+        }
+        
+        String json = null;
+        if (preferences.getBoolean("encrypt_evidence", true)) {
+            byte[] decrypted = EncryptionUtils.decryptFileContent(legacyFile);
+            if (decrypted != null) {
+                json = new String(decrypted, StandardCharsets.UTF_8);
             }
-            
-        } catch (IOException e) {
-            Log.e(TAG, "Error saving evidence data", e);
+        }
+        if (json == null) {
+            // Written while encryption was off
+            json = FileUtils.readFileToString(legacyFile);
+        }
+        
+        JSONArray entries;
+        try {
+            entries = new JSONArray(json);
         } catch (JSONException e) {
-            Log.e(TAG, "Error processing evidence JSON", e);
+            // Keep the file, still encrypted, for inspection but stop retrying
+            Log.w(TAG, "Could not migrate " + legacyFile.getName(), e);
+            legacyFile.renameTo(new File(evidenceDir, legacyFile.getName() + ".unreadable"));
+            return;
         }
+        
+        // Entries already appended by an earlier run that failed part way
+        String progressKey = "legacy_migrated_" + dataType;
+        int migrated = preferences.getInt(progressKey, 0);
+        int skipped = 0;
+        for (int i = migrated; i < entries.length(); i++) {
+            try {
+                log.append(entries.getJSONObject(i).toString().getBytes(StandardCharsets.UTF_8));
+            } catch (JSONException e) {
+                skipped++;
+            } catch (IOException e) {
+                // Retried from this entry the next time the log is opened
+                Log.w(TAG, "Could not migrate " + legacyFile.getName() + " past entry " + i, e);
+                preferences.edit().putInt(progressKey, i).apply();
+                return;
+            }
+        }
+        
+        FileUtils.secureDelete(legacyFile);
+        preferences.edit().remove(progressKey).apply();
+        Log.i(TAG, "Migrated " + (entries.length() - migrated - skipped) + " " + dataType
+            + " entries to segmented log" + (skipped > 0 ? ", skipped " + skipped + " malformed" : ""));
     }
     
     public JSONArray getEvidenceData(String dataType) {
+        JSONArray evidenceArray = new JSONArray();
+        EvidenceEventLog log = getLog(dataType);
+        if (log == null) {
+            return evidenceArray;
+        }
+        
         try {
-            File evidenceDir = new File(context.getExternalFilesDir(Environment.DIRECTORY_DOCUMENTS), "Evidence");
-            String filename = dataType + "_log.json";
-            File evidenceFile = new File(evidenceDir, filename);
-            
-            if (evidenceFile.exists()) {
-                // Decrypt if needed
-                if (preferences.getBoolean("encrypt_evidence", true)) {
-                    EncryptionUtils.decryptFile(evidenceFile);
+            // Records are decrypted one at a time; the log file is never decrypted on disk
+            log.read(payload -> {
+                try {
+                    evidenceArray.put(new JSONObject(new String(payload, StandardCharsets.UTF_8)));
+                } catch (JSONException e) {
+                    Log.w(TAG, "Skipping malformed evidence record");
                 }
-                
-                String data = FileUtils.readFileToString(evidenceFile);
-                return new JSONArray(data);
+                return true;
+            });
+            
+            if (log.getCorruptRecordCount() > 0) {
+                Log.w(TAG, log.getCorruptRecordCount() + " " + dataType + " records failed authentication");
             }
-        } catch (Exception e) {
+        } catch (IOException e) {
             Log.e(TAG, "Error reading evidence data", e);
         }
         
-        return new JSONArray();
+        return evidenceArray;
     }
     
     public void clearAllEvidence() {
         try {
+            synchronized (LOGS) {
+                for (EvidenceEventLog log : LOGS.values()) {
+                    log.clear();
+                }
+            }
+            
             File evidenceDir = new File(context.getExternalFilesDir(Environment.DIRECTORY_DOCUMENTS), "Evidence");
             if (evidenceDir.exists()) {
                 File[] files = evidenceDir.listFiles();
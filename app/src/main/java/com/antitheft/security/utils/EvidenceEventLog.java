@@ -0,0 +1,301 @@
+// File Path: app/src/main/java/com/antitheft/security/utils/EvidenceEventLog.java
+package com.antitheft.security.utils;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+
+/**
+ * Append-only event log split into fixed-size segment files.
+ *
+ * Each record is a 4-byte length, a flags byte and the body. Encrypted bodies are
+ * a fresh 12-byte nonce followed by the AES-GCM ciphertext and tag, with the log
+ * name and segment number as associated data, so a record cannot be altered or
+ * moved to another log unnoticed. An append writes one record to the end of the
+ * current segment, whatever the history size; when a segment is full a new one is
+ * started and the oldest segments beyond the limit are deleted whole.
+ *
+ * Segments are named <name>_<sequence>.seg. A torn record at the end of the last
+ * segment (e.g. power loss mid-write) is truncated away when the log is opened.
+ * The key comes from the caller. EvidenceCollector passes
+ * EncryptionUtils.getEvidenceKey(), which is derived from the app's built-in
+ * password, so this guards against casual reading and tampering, not against
+ * someone who has the APK.
+ */
+public class EvidenceEventLog {
+    
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final int HEADER_BYTES = 5; // length + flags
+    private static final int MAX_RECORD_BYTES = 1024 * 1024;
+    private static final byte FLAG_PLAIN = 0;
+    private static final byte FLAG_AES_GCM = 1;
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int NONCE_BYTES = 12;
+    private static final int TAG_BYTES = 16;
+    
+    /**
+     * Receives records oldest first; return false to stop reading
+     */
+    public interface RecordVisitor {
+        boolean onRecord(byte[] payload);
+    }
+    
+    private final File directory;
+    private final String name;
+    private final int segmentBytes;
+    private final int maxSegments;
+    private final SecretKey key; // null: records can be neither written nor read encrypted
+    private final SecureRandom random = new SecureRandom();
+    private volatile boolean encryptAppends = true;
+    
+    // Guarded by this
+    private long currentSequence;
+    private long currentSize;
+    private FileOutputStream output;
+    private int corruptRecords = 0;
+    
+    public EvidenceEventLog(File directory, String name, int segmentBytes, int maxSegments, SecretKey key) throws IOException {
+        this.directory = directory;
+        this.name = name;
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = Math.max(1, maxSegments);
+        this.key = key;
+        
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        
+        long[] sequences = listSequences();
+        currentSequence = sequences.length > 0 ? sequences[sequences.length - 1] : 1;
+        currentSize = recoverTail(segmentFile(currentSequence));
+    }
+    
+    /**
+     * Appends one record; cost is independent of the log's size
+     */
+    public synchronized void append(byte[] payload) throws IOException {
+        boolean encrypt = encryptAppends && key != null;
+        int bodyBytes = encrypt ? NONCE_BYTES + payload.length + TAG_BYTES : payload.length;
+        if (currentSize > 0 && currentSize + HEADER_BYTES + bodyBytes > segmentBytes) {
+            rollSegment();
+        }
+        
+        byte[] body = encrypt ? encrypt(payload, currentSequence) : payload;
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + body.length);
+        record.putInt(body.length).put(encrypt ? FLAG_AES_GCM : FLAG_PLAIN).put(body);
+        
+        if (output == null) {
+            output = new FileOutputStream(segmentFile(currentSequence), true);
+        }
+        output.write(record.array());
+        currentSize += record.capacity();
+    }
+    
+    private void rollSegment() throws IOException {
+        closeOutput();
+        currentSequence++;
+        currentSize = 0;
+        
+        // Retention: drop whole segments from the oldest end
+        long[] sequences = listSequences();
+        int excess = sequences.length + 1 - maxSegments; // + the segment about to be started
+        for (int i = 0; i < excess && i < sequences.length; i++) {
+            segmentFile(sequences[i]).delete();
+        }
+    }
+    
+    /**
+     * Streams every record, oldest first. Records that fail authentication are skipped and counted.
+     */
+    public void read(RecordVisitor visitor) throws IOException {
+        long[] sequences;
+        synchronized (this) {
+            if (output != null) {
+                output.flush();
+            }
+            sequences = listSequences();
+        }
+        
+        for (long sequence : sequences) {
+            File segment = segmentFile(sequence);
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(segment)))) {
+                while (true) {
+                    int length;
+                    byte flags;
+                    try {
+                        length = in.readInt();
+                        flags = in.readByte();
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    if (length < 0 || length > MAX_RECORD_BYTES) break; // torn or corrupt tail
+                    
+                    byte[] body = new byte[length];
+                    try {
+                        in.readFully(body);
+                    } catch (EOFException e) {
+                        break; // record still being written
+                    }
+                    
+                    byte[] payload = decode(body, flags, sequence);
+                    if (payload == null) {
+                        synchronized (this) {
+                            corruptRecords++;
+                        }
+                        continue;
+                    }
+                    if (!visitor.onRecord(payload)) return;
+                }
+            } catch (FileNotFoundException e) {
+                // Dropped by retention while we were reading
+            }
+        }
+    }
+    
+    private byte[] decode(byte[] body, byte flags, long sequence) {
+        if (flags == FLAG_PLAIN) return body;
+        if (flags != FLAG_AES_GCM || key == null || body.length < NONCE_BYTES) return null;
+        try {
+            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BYTES * 8, body, 0, NONCE_BYTES));
+            cipher.updateAAD(associatedData(sequence));
+            return cipher.doFinal(body, NONCE_BYTES, body.length - NONCE_BYTES);
+        } catch (GeneralSecurityException e) {
+            return null;
+        }
+    }
+    
+    private byte[] encrypt(byte[] payload, long sequence) throws IOException {
+        try {
+            byte[] nonce = new byte[NONCE_BYTES];
+            random.nextBytes(nonce);
+            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BYTES * 8, nonce));
+            cipher.updateAAD(associatedData(sequence));
+            byte[] sealed = cipher.doFinal(payload);
+            
+            byte[] body = Arrays.copyOf(nonce, NONCE_BYTES + sealed.length);
+            System.arraycopy(sealed, 0, body, NONCE_BYTES, sealed.length);
+            return body;
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Cannot encrypt record", e);
+        }
+    }
+    
+    private byte[] associatedData(long sequence) {
+        return (name + "/" + sequence).getBytes(StandardCharsets.UTF_8);
+    }
+    
+    // Walks the record headers of the last segment and cuts off an incomplete final record
+    private long recoverTail(File segment) throws IOException {
+        if (!segment.exists()) return 0;
+        
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            long length = file.length();
+            long position = 0;
+            while (position + HEADER_BYTES <= length) {
+                file.seek(position);
+                int bodyLength = file.readInt();
+                if (bodyLength < 0 || bodyLength > MAX_RECORD_BYTES
+                        || position + HEADER_BYTES + bodyLength > length) {
+                    break;
+                }
+                position += HEADER_BYTES + bodyLength;
+            }
+            if (position < length) {
+                file.setLength(position);
+            }
+            return position;
+        }
+    }
+    
+    private long[] listSequences() {
+        File[] files = directory.listFiles();
+        List<Long> sequences = new ArrayList<>();
+        String prefix = name + "_";
+        if (files != null) {
+            for (File file : files) {
+                String fileName = file.getName();
+                if (fileName.startsWith(prefix) && fileName.endsWith(SEGMENT_SUFFIX)) {
+                    try {
+                        sequences.add(Long.parseLong(fileName.substring(prefix.length(),
+                            fileName.length() - SEGMENT_SUFFIX.length())));
+                    } catch (NumberFormatException e) {
+                        // Not one of ours
+                    }
+                }
+            }
+        }
+        
+        long[] sorted = new long[sequences.size()];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = sequences.get(i);
+        }
+        Arrays.sort(sorted);
+        return sorted;
+    }
+    
+    private File segmentFile(long sequence) {
+        return new File(directory, String.format(Locale.US, "%s_%08d%s", name, sequence, SEGMENT_SUFFIX));
+    }
+    
+    /**
+     * Whether new records are encrypted; existing records are read either way
+     */
+    public void setEncryptAppends(boolean encrypt) {
+        this.encryptAppends = encrypt;
+    }
+    
+    public synchronized int getSegmentCount() {
+        return listSequences().length;
+    }
+    
+    public synchronized int getCorruptRecordCount() {
+        return corruptRecords;
+    }
+    
+    /**
+     * Deletes every segment; the log stays usable
+     */
+    public synchronized void clear() {
+        closeOutput();
+        for (long sequence : listSequences()) {
+            segmentFile(sequence).delete();
+        }
+        currentSequence = 1;
+        currentSize = 0;
+    }
+    
+    public synchronized void close() {
+        closeOutput();
+    }
+    
+    private void closeOutput() {
+        if (output != null) {
+            try {
+                output.close();
+            } catch (IOException e) {
+                // Nothing more to write
+            }
+            output = null;
+        }
+    }
+}
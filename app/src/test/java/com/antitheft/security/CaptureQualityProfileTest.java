@@ -0,0 +1,115 @@
+// File: app/src/test/java/com/antitheft/security/CaptureQualityProfileTest.java
+
+package com.antitheft.security;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class CaptureQualityProfileTest {
+
+    private static final long MB = CaptureQualityProfile.MB;
+    private static final long PLENTY = 10_000 * MB;
+    private static final int NO_THERMAL = 0;
+
+    private static CaptureQualityProfile choose(long free, long budget, int battery, boolean charging, int thermal) {
+        return CaptureQualityProfile.choose(free, budget, battery, charging, thermal).profile;
+    }
+
+    @Test
+    public void goodConditionsGetTheFullProfile() {
+        CaptureQualityProfile.Choice choice = CaptureQualityProfile.choose(PLENTY, PLENTY, 80, false, NO_THERMAL);
+
+        assertSame(CaptureQualityProfile.FULL, choice.profile);
+        assertTrue(choice.reason.contains("battery 80%"));
+    }
+
+    @Test
+    public void theSmallerOfFreeSpaceAndBudgetLimits() {
+        assertSame(CaptureQualityProfile.REDUCED, choose(PLENTY, 300 * MB, 80, false, NO_THERMAL));
+        assertSame(CaptureQualityProfile.REDUCED, choose(300 * MB, PLENTY, 80, false, NO_THERMAL));
+        assertSame(CaptureQualityProfile.MINIMAL, choose(PLENTY, 50 * MB, 80, false, NO_THERMAL));
+    }
+
+    @Test
+    public void overBudgetStillCapturesMinimal() {
+        CaptureQualityProfile.Choice choice = CaptureQualityProfile.choose(PLENTY, -200 * MB, 80, false, NO_THERMAL);
+
+        assertSame(CaptureQualityProfile.MINIMAL, choice.profile);
+        assertEquals("storage 0MB left", choice.reason);
+    }
+
+    @Test
+    public void storageThresholdsAreExclusive() {
+        assertSame(CaptureQualityProfile.FULL,
+            choose(CaptureQualityProfile.REDUCED_BELOW_BYTES, PLENTY, 80, false, NO_THERMAL));
+        assertSame(CaptureQualityProfile.REDUCED,
+            choose(CaptureQualityProfile.REDUCED_BELOW_BYTES - 1, PLENTY, 80, false, NO_THERMAL));
+        assertSame(CaptureQualityProfile.REDUCED,
+            choose(CaptureQualityProfile.MINIMAL_BELOW_BYTES, PLENTY, 80, false, NO_THERMAL));
+        assertSame(CaptureQualityProfile.MINIMAL,
+            choose(CaptureQualityProfile.MINIMAL_BELOW_BYTES - 1, PLENTY, 80, false, NO_THERMAL));
+    }
+
+    @Test
+    public void lowBatteryStepsDownUnlessCharging() {
+        assertSame(CaptureQualityProfile.REDUCED, choose(PLENTY, PLENTY, 20, false, NO_THERMAL));
+        assertSame(CaptureQualityProfile.MINIMAL, choose(PLENTY, PLENTY, 10, false, NO_THERMAL));
+        assertSame(CaptureQualityProfile.FULL, choose(PLENTY, PLENTY, 10, true, NO_THERMAL));
+        // Unknown battery level does not count as low
+        assertSame(CaptureQualityProfile.FULL, choose(PLENTY, PLENTY, -1, false, NO_THERMAL));
+    }
+
+    @Test
+    public void thermalStatusStepsDown() {
+        assertSame(CaptureQualityProfile.FULL, choose(PLENTY, PLENTY, 80, false, 1));
+        assertSame(CaptureQualityProfile.REDUCED,
+            choose(PLENTY, PLENTY, 80, false, CaptureQualityProfile.THERMAL_STATUS_MODERATE));
+        assertSame(CaptureQualityProfile.MINIMAL,
+            choose(PLENTY, PLENTY, 80, true, CaptureQualityProfile.THERMAL_STATUS_SEVERE));
+    }
+
+    @Test
+    public void theMostLimitingConditionWins() {
+        // Reduced storage, but a severe thermal state
+        assertSame(CaptureQualityProfile.MINIMAL,
+            choose(300 * MB, PLENTY, 80, false, CaptureQualityProfile.THERMAL_STATUS_SEVERE));
+        // Enough storage for full, but low battery
+        CaptureQualityProfile.Choice choice = CaptureQualityProfile.choose(PLENTY, PLENTY, 12, false,
+            CaptureQualityProfile.THERMAL_STATUS_MODERATE);
+        assertSame(CaptureQualityProfile.MINIMAL, choice.profile);
+        assertEquals("battery 12%", choice.reason);
+    }
+
+    @Test
+    public void profilesStepDownInEverySetting() {
+        CaptureQualityProfile[] profiles = {
+            CaptureQualityProfile.FULL, CaptureQualityProfile.REDUCED, CaptureQualityProfile.MINIMAL
+        };
+        for (int i = 1; i < profiles.length; i++) {
+            CaptureQualityProfile richer = profiles[i - 1];
+            CaptureQualityProfile poorer = profiles[i];
+            assertTrue(poorer.maxPhotoWidth * poorer.maxPhotoHeight < richer.maxPhotoWidth * richer.maxPhotoHeight);
+            assertTrue(poorer.jpegQuality < richer.jpegQuality);
+            assertTrue(poorer.photosPerCamera < richer.photosPerCamera);
+            assertTrue(poorer.videoBitRate < richer.videoBitRate);
+            assertTrue(poorer.estimateBytes(2, 30) < richer.estimateBytes(2, 30));
+        }
+        for (CaptureQualityProfile profile : profiles) {
+            assertTrue(profile.photosPerCamera <= CaptureQualityProfile.MAX_PHOTOS_PER_CAMERA);
+        }
+    }
+
+    @Test
+    public void estimateCoversPhotosAndVideo() {
+        CaptureQualityProfile profile = CaptureQualityProfile.MINIMAL;
+        long photoBytes = 640L * 480 / 2 * 2;
+        long videoBytesPerSecond = (300000 + 64000) / 8;
+
+        assertEquals(photoBytes, profile.estimateBytes(1, 0));
+        assertEquals(2 * photoBytes + 30 * videoBytesPerSecond, profile.estimateBytes(2, 30));
+        assertEquals(0, profile.estimateBytes(0, 0));
+    }
+}
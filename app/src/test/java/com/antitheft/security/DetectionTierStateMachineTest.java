@@ -0,0 +1,127 @@
+// File: app/src/test/java/com/antitheft/security/DetectionTierStateMachineTest.java
+
+package com.antitheft.security;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class DetectionTierStateMachineTest {
+
+    private static final long STILLNESS_MS = 30_000;
+
+    private DetectionTierStateMachine machine;
+
+    @Before
+    public void setUp() {
+        machine = new DetectionTierStateMachine(STILLNESS_MS);
+    }
+
+    @Test
+    public void startsOffAndStartEntersRest() {
+        assertEquals(DetectionTierStateMachine.Tier.OFF, machine.getTier());
+
+        assertTrue(machine.start(1000));
+        assertEquals(DetectionTierStateMachine.Tier.REST, machine.getTier());
+        assertFalse(machine.start(2000));
+    }
+
+    @Test
+    public void wakeTriggerMovesRestToActive() {
+        machine.start(0);
+
+        assertTrue(machine.onWakeTrigger(5000));
+        assertEquals(DetectionTierStateMachine.Tier.ACTIVE, machine.getTier());
+        assertEquals(1, machine.getWakeUpCount());
+
+        // Already active: not a transition and not another wake-up
+        assertFalse(machine.onWakeTrigger(6000));
+        assertEquals(1, machine.getWakeUpCount());
+    }
+
+    @Test
+    public void wakeTriggerWhileOffIsIgnored() {
+        assertFalse(machine.onWakeTrigger(1000));
+        assertEquals(DetectionTierStateMachine.Tier.OFF, machine.getTier());
+    }
+
+    @Test
+    public void activeFallsBackToRestAfterTheStillnessTimeout() {
+        machine.start(0);
+        machine.onWakeTrigger(10_000);
+
+        assertFalse(machine.onTick(10_000 + STILLNESS_MS - 1));
+        assertEquals(DetectionTierStateMachine.Tier.ACTIVE, machine.getTier());
+
+        assertTrue(machine.onTick(10_000 + STILLNESS_MS));
+        assertEquals(DetectionTierStateMachine.Tier.REST, machine.getTier());
+    }
+
+    @Test
+    public void motionPushesTheStillnessTimeoutBack() {
+        machine.start(0);
+        machine.onWakeTrigger(0);
+        machine.onMotion(20_000);
+
+        assertFalse(machine.onTick(STILLNESS_MS));
+        assertFalse(machine.onTick(20_000 + STILLNESS_MS - 1));
+        assertTrue(machine.onTick(20_000 + STILLNESS_MS));
+    }
+
+    @Test
+    public void motionOutsideActiveDoesNotCarryOver() {
+        machine.start(0);
+        machine.onMotion(50_000); // in REST; must not extend the next ACTIVE period
+        machine.onWakeTrigger(10_000);
+
+        assertTrue(machine.onTick(10_000 + STILLNESS_MS));
+    }
+
+    @Test
+    public void tickOutsideActiveDoesNothing() {
+        assertFalse(machine.onTick(100_000));
+        machine.start(0);
+        assertFalse(machine.onTick(100_000));
+        assertEquals(DetectionTierStateMachine.Tier.REST, machine.getTier());
+    }
+
+    @Test
+    public void stopFromAnyTierGoesOff() {
+        machine.start(0);
+        machine.onWakeTrigger(1000);
+        machine.stop(2000);
+
+        assertEquals(DetectionTierStateMachine.Tier.OFF, machine.getTier());
+        assertFalse(machine.onTick(2000 + STILLNESS_MS));
+        assertTrue(machine.start(3000));
+    }
+
+    @Test
+    public void timeIsAccumulatedPerTier() {
+        machine.start(0);
+        machine.onWakeTrigger(60_000);           // 60s rest
+        machine.onTick(60_000 + STILLNESS_MS);   // 30s active
+        machine.onWakeTrigger(120_000);          // 30s rest
+
+        // 10s into the second active period
+        assertEquals(90_000, machine.getRestTimeMs(130_000));
+        assertEquals(40_000, machine.getActiveTimeMs(130_000));
+        assertEquals(69, machine.getRestPercent(130_000));
+
+        // Time while off counts for neither
+        machine.stop(130_000);
+        assertEquals(90_000, machine.getRestTimeMs(500_000));
+        assertEquals(40_000, machine.getActiveTimeMs(500_000));
+        assertEquals(2, machine.getWakeUpCount());
+    }
+
+    @Test
+    public void restPercentBeforeAnyTimeHasPassed() {
+        assertEquals(0, machine.getRestPercent(0));
+        machine.start(0);
+        assertEquals(0, machine.getRestPercent(0));
+    }
+}
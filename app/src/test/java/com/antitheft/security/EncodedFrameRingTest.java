@@ -0,0 +1,183 @@
+// File: app/src/test/java/com/antitheft/security/EncodedFrameRingTest.java
+
+package com.antitheft.security;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class EncodedFrameRingTest {
+
+    private static final long FRAME_US = 66_666L; // 15 fps
+
+    // Frames are filled with a tag byte so each one can be recognised after a wrap
+    private static boolean add(EncodedFrameRing ring, int tag, int size, long ptsUs, boolean keyFrame) {
+        byte[] frame = new byte[size];
+        Arrays.fill(frame, (byte) tag);
+        return ring.add(frame, 0, size, ptsUs, keyFrame);
+    }
+
+    private static class Frame {
+        final byte[] data;
+        final long ptsUs;
+        final boolean keyFrame;
+
+        Frame(byte[] data, long ptsUs, boolean keyFrame) {
+            this.data = data;
+            this.ptsUs = ptsUs;
+            this.keyFrame = keyFrame;
+        }
+    }
+
+    private static List<Frame> frames(EncodedFrameRing ring, int fromIndex) throws IOException {
+        List<Frame> frames = new ArrayList<>();
+        ring.visit(fromIndex, (data, offset, size, ptsUs, keyFrame) ->
+            frames.add(new Frame(Arrays.copyOfRange(data, offset, offset + size), ptsUs, keyFrame)));
+        return frames;
+    }
+
+    private static byte[] filled(int tag, int size) {
+        byte[] expected = new byte[size];
+        Arrays.fill(expected, (byte) tag);
+        return expected;
+    }
+
+    @Test
+    public void frameThatDoesNotFitAtTheEndWrapsToTheFront() throws IOException {
+        EncodedFrameRing ring = new EncodedFrameRing(100, 16);
+        add(ring, 1, 30, 0, true);
+        add(ring, 2, 30, FRAME_US, false);
+        add(ring, 3, 30, 2 * FRAME_US, true);
+
+        // 10 bytes left at the end: the first GOP goes and the frame lands at offset 0
+        assertTrue(add(ring, 4, 30, 3 * FRAME_US, false));
+
+        List<Frame> frames = frames(ring, 0);
+        assertEquals(2, frames.size());
+        assertArrayEquals(filled(3, 30), frames.get(0).data);
+        assertArrayEquals(filled(4, 30), frames.get(1).data);
+        assertEquals(3 * FRAME_US, frames.get(1).ptsUs);
+        assertEquals(60, ring.getUsedBytes());
+    }
+
+    @Test
+    public void evictionRemovesWholeGops() throws IOException {
+        EncodedFrameRing ring = new EncodedFrameRing(100, 16);
+        add(ring, 1, 20, 0, true);
+        add(ring, 2, 20, FRAME_US, false);
+        add(ring, 3, 20, 2 * FRAME_US, false);
+        add(ring, 4, 20, 3 * FRAME_US, true);
+        add(ring, 5, 20, 4 * FRAME_US, false);
+
+        // Needs 20 bytes: the whole first GOP goes, not just its keyframe
+        assertTrue(add(ring, 6, 20, 5 * FRAME_US, true));
+
+        List<Frame> frames = frames(ring, 0);
+        assertEquals(3, frames.size());
+        assertTrue(frames.get(0).keyFrame);
+        assertEquals(3 * FRAME_US, frames.get(0).ptsUs);
+    }
+
+    @Test
+    public void frameCountLimitAlsoEvictsGops() throws IOException {
+        EncodedFrameRing ring = new EncodedFrameRing(1000, 4);
+        add(ring, 1, 10, 0, true);
+        add(ring, 2, 10, FRAME_US, false);
+        add(ring, 3, 10, 2 * FRAME_US, true);
+        add(ring, 4, 10, 3 * FRAME_US, false);
+
+        assertTrue(add(ring, 5, 10, 4 * FRAME_US, false));
+
+        assertEquals(3, ring.getFrameCount());
+        assertTrue(frames(ring, 0).get(0).keyFrame);
+    }
+
+    @Test
+    public void usedBytesNeverExceedTheCap() throws IOException {
+        EncodedFrameRing ring = new EncodedFrameRing(4096, 64);
+        Random random = new Random(7);
+        for (int i = 0; i < 5000; i++) {
+            boolean keyFrame = i % 15 == 0;
+            add(ring, i, keyFrame ? 600 + random.nextInt(400) : 20 + random.nextInt(300), i * FRAME_US, keyFrame);
+
+            assertTrue(ring.getUsedBytes() <= ring.getCapacityBytes());
+            if (ring.getFrameCount() > 0) {
+                assertTrue(frames(ring, 0).get(0).keyFrame);
+            }
+        }
+    }
+
+    @Test
+    public void frameLargerThanTheRingIsDropped() {
+        EncodedFrameRing ring = new EncodedFrameRing(100, 16);
+        add(ring, 1, 40, 0, true);
+
+        assertFalse(add(ring, 2, 101, FRAME_US, true));
+        assertEquals(1, ring.getFrameCount());
+    }
+
+    @Test
+    public void deltaFrameIntoAnEmptyRingIsDropped() {
+        EncodedFrameRing ring = new EncodedFrameRing(100, 16);
+
+        assertFalse(add(ring, 1, 10, 0, false));
+        assertEquals(0, ring.getFrameCount());
+        assertTrue(add(ring, 2, 10, FRAME_US, true));
+    }
+
+    @Test
+    public void deltaFrameWhoseGopWasEvictedIsDropped() {
+        EncodedFrameRing ring = new EncodedFrameRing(100, 16);
+        add(ring, 1, 50, 0, true);
+        add(ring, 2, 40, FRAME_US, false);
+
+        // Only room if its own keyframe goes, after which it cannot be decoded
+        assertFalse(add(ring, 3, 40, 2 * FRAME_US, false));
+        assertEquals(0, ring.getFrameCount());
+        assertEquals(0, ring.getUsedBytes());
+    }
+
+    @Test
+    public void byteBufferAddLeavesThePositionAlone() throws IOException {
+        EncodedFrameRing ring = new EncodedFrameRing(100, 16);
+        ByteBuffer buffer = ByteBuffer.wrap(filled(9, 20));
+        buffer.position(5);
+
+        assertTrue(ring.add(buffer, 0, true));
+        assertEquals(5, buffer.position());
+        assertArrayEquals(filled(9, 15), frames(ring, 0).get(0).data);
+    }
+
+    @Test
+    public void findStartPicksTheKeyframeCoveringTheWindow() {
+        EncodedFrameRing ring = new EncodedFrameRing(10000, 64);
+        // Keyframe every 5 frames, 20 frames: keyframes at indexes 0, 5, 10, 15
+        for (int i = 0; i < 20; i++) {
+            add(ring, i, 10, i * FRAME_US, i % 5 == 0);
+        }
+
+        // Newest is index 19; 6 frames back is index 13, covered from the keyframe at 10
+        assertEquals(10, ring.findStart(6 * FRAME_US));
+        // Exactly on a keyframe
+        assertEquals(15, ring.findStart(4 * FRAME_US));
+        // Shorter than the newest GOP: still starts on its keyframe
+        assertEquals(15, ring.findStart(FRAME_US));
+        // More than is buffered: everything
+        assertEquals(0, ring.findStart(100 * FRAME_US));
+    }
+
+    @Test
+    public void findStartOnAnEmptyRing() {
+        assertEquals(-1, new EncodedFrameRing(100, 16).findStart(FRAME_US));
+    }
+}
@@ -0,0 +1,155 @@
+// File: app/src/test/java/com/antitheft/security/EvictionPlannerTest.java
+
+package com.antitheft.security;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class EvictionPlannerTest {
+
+    private static final long NONE_IN_FLIGHT = Long.MAX_VALUE;
+
+    private EvictionPlanner planner;
+
+    @Before
+    public void setUp() {
+        planner = new EvictionPlanner();
+        // Session A at t=100..130, session B at t=200..230, a stray screenshot at t=150
+        add("a_photo_1", "photo", 100, "A");
+        add("a_photo_2", "photo", 110, "A");
+        add("a_video_1", "video", 120, "A");
+        add("a_shot_1", "screenshot", 130, "A");
+        add("stray_shot", "screenshot", 150, null);
+        add("b_photo_1", "photo", 200, "B");
+        add("b_video_1", "video", 210, "B");
+        add("b_video_2", "video", 220, "B");
+        add("b_photo_2", "photo", 230, "B");
+    }
+
+    private void add(String path, String type, long mtime, String sessionId) {
+        planner.add(new EvictionPlanner.Candidate(path, type, 10, mtime, sessionId));
+    }
+
+    private List<String> order(String policy) {
+        List<String> paths = new ArrayList<>();
+        Iterator<EvictionPlanner.Candidate> ordered = planner.order(policy);
+        while (ordered.hasNext()) {
+            paths.add(ordered.next().path);
+        }
+        return paths;
+    }
+
+    private static List<String> paths(String... paths) {
+        List<String> list = new ArrayList<>();
+        for (String path : paths) {
+            list.add(path);
+        }
+        return list;
+    }
+
+    private static List<String> pathsOf(List<EvictionPlanner.Candidate> candidates) {
+        List<String> paths = new ArrayList<>();
+        for (EvictionPlanner.Candidate candidate : candidates) {
+            paths.add(candidate.path);
+        }
+        return paths;
+    }
+
+    @Test
+    public void oldestSessionKeepsSessionsTogether() {
+        assertEquals(paths("a_photo_1", "a_photo_2", "a_video_1", "a_shot_1", "stray_shot",
+            "b_photo_1", "b_video_1", "b_video_2", "b_photo_2"), order(EvictionPlanner.POLICY_OLDEST_SESSION));
+    }
+
+    @Test
+    public void lowValueFirstOrdersByTypeThenAge() {
+        assertEquals(paths("a_shot_1", "stray_shot", "a_video_1", "b_video_1", "b_video_2",
+            "a_photo_1", "a_photo_2", "b_photo_1", "b_photo_2"), order(EvictionPlanner.POLICY_LOW_VALUE_FIRST));
+    }
+
+    @Test
+    public void duplicatesFirstTakesExtraFilesOfATypeBeforeSessions() {
+        assertEquals(paths("a_photo_2", "b_video_2", "b_photo_2",
+            "a_photo_1", "a_video_1", "a_shot_1", "stray_shot", "b_photo_1", "b_video_1"),
+            order(EvictionPlanner.POLICY_DUPLICATES_FIRST));
+    }
+
+    @Test
+    public void removingTheKeptFilePromotesTheNextOne() {
+        planner.remove("a_photo_1");
+
+        // a_photo_2 is now the first photo of A, so it is no longer a duplicate
+        assertEquals(paths("b_video_2", "b_photo_2", "a_photo_2", "a_video_1", "a_shot_1", "stray_shot",
+            "b_photo_1", "b_video_1"), order(EvictionPlanner.POLICY_DUPLICATES_FIRST));
+    }
+
+    @Test
+    public void olderFileJoiningASessionMovesItForward() {
+        // A pre-trigger clip recorded before B's first file; B still sorts after A
+        add("b_clip", "video", 190, "B");
+        // And one older than all of A moves B in front
+        add("b_early", "screenshot", 50, "B");
+
+        List<String> order = order(EvictionPlanner.POLICY_OLDEST_SESSION);
+        assertEquals("b_early", order.get(0));
+        assertEquals(paths("b_early", "b_clip", "b_photo_1", "b_video_1", "b_video_2", "b_photo_2"),
+            order.subList(0, 6));
+        // b_clip replaced b_video_1 as the kept video
+        assertTrue(order(EvictionPlanner.POLICY_DUPLICATES_FIRST).subList(0, 4).contains("b_video_1"));
+    }
+
+    @Test
+    public void reAddingAPathReplacesIt() {
+        add("a_photo_1", "photo", 300, "A");
+
+        assertEquals(9, planner.size());
+        List<String> order = order(EvictionPlanner.POLICY_LOW_VALUE_FIRST);
+        assertEquals("a_photo_1", order.get(order.size() - 1));
+    }
+
+    @Test
+    public void planStopsAtTheTarget() {
+        // 90 bytes used, down to 65: three files of 10 bytes
+        List<EvictionPlanner.Candidate> victims = planner.plan(90, 65, EvictionPlanner.POLICY_OLDEST_SESSION,
+            null, NONE_IN_FLIGHT, 100);
+
+        assertEquals(paths("a_photo_1", "a_photo_2", "a_video_1"), pathsOf(victims));
+    }
+
+    @Test
+    public void planStopsAtMaxFiles() {
+        List<EvictionPlanner.Candidate> victims = planner.plan(90, 0, EvictionPlanner.POLICY_OLDEST_SESSION,
+            null, NONE_IN_FLIGHT, 2);
+
+        assertEquals(2, victims.size());
+    }
+
+    @Test
+    public void planNothingUnderTarget() {
+        assertTrue(planner.plan(90, 90, EvictionPlanner.POLICY_OLDEST_SESSION, null, NONE_IN_FLIGHT, 100).isEmpty());
+    }
+
+    @Test
+    public void inFlightSessionIsNeverChosen() {
+        List<EvictionPlanner.Candidate> victims = planner.plan(90, 0, EvictionPlanner.POLICY_OLDEST_SESSION,
+            "A", NONE_IN_FLIGHT, 100);
+
+        assertEquals(paths("stray_shot", "b_photo_1", "b_video_1", "b_video_2", "b_photo_2"), pathsOf(victims));
+    }
+
+    @Test
+    public void filesWrittenSinceTheInFlightSessionStartedAreKept() {
+        // Session started at t=200; its files are not claimed yet, so only the time protects them
+        List<EvictionPlanner.Candidate> victims = planner.plan(90, 0, EvictionPlanner.POLICY_LOW_VALUE_FIRST,
+            "C", 200, 100);
+
+        assertEquals(paths("a_shot_1", "stray_shot", "a_video_1", "a_photo_1", "a_photo_2"), pathsOf(victims));
+    }
+}
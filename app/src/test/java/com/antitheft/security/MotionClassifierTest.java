@@ -0,0 +1,110 @@
+// File: app/src/test/java/com/antitheft/security/MotionClassifierTest.java
+
+package com.antitheft.security;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class MotionClassifierTest {
+
+    private static final long SAMPLE_NANOS = 20_000_000L; // 50 Hz
+    private static final float G = 9.81f;
+
+    @Test
+    public void stillPhoneFaceDownRaisesNoMotion() {
+        MotionClassifier classifier = new MotionClassifier();
+        classifier.setSensitivity(100); // lowest thresholds
+        Random random = new Random(1);
+
+        // Face down: gravity on -Z, so Y noise flips atan2(y, z) between +pi and -pi
+        long t = 1;
+        for (int i = 0; i < 1000; i++) {
+            float noiseY = (float) random.nextGaussian() * 0.05f;
+            float noiseX = (float) random.nextGaussian() * 0.05f;
+            classifier.addGyroscope(t, 0.001f, -0.001f, 0f);
+            classifier.addAccelerometer(t, noiseX, noiseY, -G);
+            t += SAMPLE_NANOS;
+        }
+
+        assertTrue(classifier.getWindowsClosed() > 30);
+        assertEquals(0, classifier.getMotionWindows());
+    }
+
+    @Test
+    public void rollingThroughFaceDownIsStillMotion() {
+        MotionClassifier classifier = new MotionClassifier();
+        classifier.setSensitivity(60);
+
+        // Roll at 2 rad/s starting just short of face down, crossing +pi
+        float rate = 2f;
+        double angle = Math.PI - 0.5;
+        long t = 1;
+        for (int i = 0; i < 50; i++) {
+            classifier.addGyroscope(t, rate, 0f, 0f);
+            classifier.addAccelerometer(t, 0f, (float) (G * Math.sin(angle)), (float) (G * Math.cos(angle)));
+            angle += rate * SAMPLE_NANOS * 1e-9;
+            t += SAMPLE_NANOS;
+        }
+
+        assertTrue(classifier.getMotionWindows() > 0);
+    }
+
+    @Test
+    public void linearScoreDoesNotDependOnSamplingRate() {
+        float normal = meanLinearRms(SamplingRateController.Rate.NORMAL.samplingPeriodUs * 1000L);
+        float fast = meanLinearRms(SamplingRateController.Rate.FAST.samplingPeriodUs * 1000L);
+
+        assertTrue("normal " + normal, normal > 0.5f);
+        assertEquals("fast vs normal", normal, fast, normal * 0.15f);
+    }
+
+    // 2 Hz handling motion of 2 m/s^2 on X, phone flat
+    private static float meanLinearRms(long periodNanos) {
+        MotionClassifier classifier = new MotionClassifier();
+        classifier.setSamplingPeriodNanos(periodNanos);
+        double sum = 0;
+        int windows = 0;
+        for (long t = 1; t < 10_000_000_000L; t += periodNanos) {
+            float x = (float) (2 * Math.sin(2 * Math.PI * 2 * t * 1e-9));
+            if (classifier.addAccelerometer(t, x, 0f, G) && t > 1_000_000_000L) {
+                sum += classifier.getLastLinearRms();
+                windows++;
+            }
+        }
+        return (float) (sum / windows);
+    }
+
+    @Test
+    public void slowRateKeepsGyroStepsWithJitter() {
+        long periodNanos = SamplingRateController.Rate.SLOW.samplingPeriodUs * 1000L;
+        MotionClassifier classifier = new MotionClassifier(1_000_000_000L);
+        classifier.setSamplingPeriodNanos(periodNanos);
+        Random random = new Random(2);
+
+        // Yaw at 0.5 rad/s, gyro steps 100ms +/- 10ms
+        long t = 1;
+        float lastRotation = 0f;
+        for (int i = 0; i < 100; i++) {
+            classifier.addGyroscope(t, 0f, 0f, 0.5f);
+            if (classifier.addAccelerometer(t, 0f, 0f, G)) {
+                lastRotation = classifier.getLastRotationDegrees();
+            }
+            t += periodNanos + (long) ((random.nextFloat() - 0.5f) * 20_000_000L);
+        }
+
+        // About 28.6 degrees per one-second window
+        assertEquals(Math.toDegrees(0.5), lastRotation, 4.0);
+    }
+
+    @Test
+    public void wrapAngleStaysInRange() {
+        assertEquals((float) -Math.PI + 0.1f, MotionClassifier.wrapAngle((float) Math.PI + 0.1f), 1e-5f);
+        assertEquals((float) Math.PI - 0.1f, MotionClassifier.wrapAngle((float) -Math.PI - 0.1f), 1e-5f);
+        assertEquals((float) Math.PI, MotionClassifier.wrapAngle((float) Math.PI), 1e-6f);
+        assertEquals(0.5f, MotionClassifier.wrapAngle(0.5f + (float) (4 * Math.PI)), 1e-5f);
+    }
+}
@@ -0,0 +1,136 @@
+// File: app/src/test/java/com/antitheft/security/MotionDetectorTest.java
+
+package com.antitheft.security;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import org.junit.Test;
+
+public class MotionDetectorTest {
+
+    private static final long SAMPLE_NANOS = 20_000_000L; // 50 Hz
+    private static final float DELTA = 1e-4f;
+
+    @Test
+    public void firstSampleIsNeverMotion() {
+        MotionDetector detector = new MotionDetector(4);
+        detector.addSample(SAMPLE_NANOS, 0f, 0f, 20f);
+
+        assertFalse(detector.exceedsThreshold(0.1f));
+        assertEquals(0f, detector.getJerk(), DELTA);
+    }
+
+    @Test
+    public void deltaIsTheChangeFromThePreviousSample() {
+        MotionDetector detector = new MotionDetector(4);
+        detector.addSample(SAMPLE_NANOS, 0f, 0f, 9.81f);
+        detector.addSample(2 * SAMPLE_NANOS, 3f, 4f, 9.81f);
+
+        assertEquals(25f, detector.getDeltaMagnitudeSquared(), DELTA);
+        assertEquals(5f, detector.getDeltaMagnitude(), DELTA);
+        assertTrue(detector.exceedsThreshold(4.9f));
+        assertFalse(detector.exceedsThreshold(5.1f));
+    }
+
+    @Test
+    public void jerkIsMagnitudeChangePerSecond() {
+        MotionDetector detector = new MotionDetector(4);
+        detector.addSample(SAMPLE_NANOS, 0f, 0f, 10f);
+        detector.addSample(2 * SAMPLE_NANOS, 0f, 0f, 11f);
+
+        // 1 m/s^2 in 20 ms
+        assertEquals(50f, detector.getJerk(), 1e-2f);
+    }
+
+    @Test
+    public void windowStatisticsCoverOnlyTheLastSamples() {
+        MotionDetector detector = new MotionDetector(4);
+        float[] magnitudes = {100f, 100f, 1f, 2f, 3f, 4f};
+        for (int i = 0; i < magnitudes.length; i++) {
+            detector.addSample((i + 1) * SAMPLE_NANOS, 0f, 0f, magnitudes[i]);
+        }
+
+        assertTrue(detector.isWindowFull());
+        assertEquals(4, detector.getWindowCount());
+        assertEquals(6, detector.getSampleCount());
+        assertEquals(2.5f, detector.getWindowMagnitude(), DELTA);
+        assertEquals(1.25f, detector.getWindowVariance(), DELTA);
+        assertEquals(6 * SAMPLE_NANOS, detector.getLastTimestamp());
+    }
+
+    @Test
+    public void resetClearsTheWindowButNotTheSampleCount() {
+        MotionDetector detector = new MotionDetector(4);
+        detector.addSample(SAMPLE_NANOS, 0f, 0f, 9.81f);
+        detector.addSample(2 * SAMPLE_NANOS, 5f, 0f, 9.81f);
+        detector.reset();
+        detector.addSample(3 * SAMPLE_NANOS, 0f, 0f, 9.81f);
+
+        assertEquals(1, detector.getWindowCount());
+        assertEquals(3, detector.getSampleCount());
+        assertFalse(detector.exceedsThreshold(0.1f));
+        assertEquals(0f, detector.getWindowVariance(), DELTA);
+    }
+
+    @Test
+    public void sumsDoNotDriftOverLongRuns() {
+        MotionDetector detector = new MotionDetector(8);
+        long timestamp = 0;
+        // Hours at SENSOR_DELAY_GAME compressed into a few million samples of large swings
+        for (int i = 0; i < 2_000_000; i++) {
+            timestamp += SAMPLE_NANOS;
+            detector.addSample(timestamp, 0f, 0f, (i & 1) == 0 ? 1000.123f : 0.001f);
+        }
+        for (int i = 0; i < 8; i++) {
+            timestamp += SAMPLE_NANOS;
+            detector.addSample(timestamp, 0f, 0f, 9.81f);
+        }
+
+        assertEquals(9.81f, detector.getWindowMagnitude(), DELTA);
+        assertEquals(0f, detector.getWindowVariance(), DELTA);
+    }
+
+    @Test
+    public void addSampleDoesNotAllocate() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        assumeTrue(allocations.isThreadAllocatedMemorySupported());
+        allocations.setThreadAllocatedMemoryEnabled(true);
+
+        MotionDetector detector = new MotionDetector();
+        long thread = Thread.currentThread().getId();
+        int samples = 1_000_000;
+
+        // Warm up so the measured loop runs compiled code, as it does after minutes of armed monitoring
+        feed(detector, 0, samples);
+
+        long before = allocations.getThreadAllocatedBytes(thread);
+        float sink = feed(detector, samples, samples);
+        long allocated = allocations.getThreadAllocatedBytes(thread) - before;
+
+        // Less than one byte per thousand samples leaves room for the measurement itself
+        assertTrue("Allocated " + allocated + " bytes over " + samples + " samples", allocated < samples / 1000);
+        assertTrue(sink >= 0f);
+    }
+
+    // Feeds a noisy, slowly rocking phone; returns a statistic so the loop cannot be optimised away
+    private static float feed(MotionDetector detector, int first, int count) {
+        float sink = 0f;
+        for (int i = first; i < first + count; i++) {
+            float phase = (i % 50) / 50f;
+            detector.addSample(i * SAMPLE_NANOS, phase * 0.3f, 0.1f - phase * 0.2f, 9.81f + phase * 0.05f);
+            if (detector.exceedsThreshold(2.5f)) {
+                sink += detector.getJerk();
+            }
+            sink += detector.getWindowVariance();
+        }
+        return sink;
+    }
+}
@@ -0,0 +1,270 @@
+// File: app/src/test/java/com/antitheft/security/MotionReplayHarness.java
+
+package com.antitheft.security;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Replays recorded sensor traces through the motion detection logic on a plain JVM.
+ *
+ * Each trace is fed through a MotionClassifier configured the same way SensorService
+ * configures it, and the service's alarm scheduling is simulated on the trace clock:
+ * the first motion window of an episode schedules a trigger that fires after the
+ * alarm delay. Replay runs as fast as the trace can be read.
+ *
+ * Traces with an onset marker count detections before the marker as false positives
+ * and report the time from the marker to the first detection after it. Traces
+ * without a marker are treated as "should stay quiet": every detection is a false
+ * positive.
+ *
+ * It is a development tool, so it lives in the unit test source set and ships in
+ * no build of the app; MotionReplayHarnessTest replays synthetic traces through it.
+ * Run it on recorded traces from the unit test classpath.
+ *
+ * Usage:
+ *   MotionReplayHarness [--sensitivity N] [--alarm-delay-ms N] trace-or-directory...
+ *   MotionReplayHarness label in.trace out.trace onsetMs
+ */
+public class MotionReplayHarness {
+    public static final long DEFAULT_ALARM_DELAY_MS = 2000; // matches SensorService.ALARM_TRIGGER_DELAY
+
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+
+    private final int sensitivityOverride; // < 0 uses the sensitivity stored in each trace
+    private final long alarmDelayNanos;
+
+    public static class Result {
+        public final String name;
+        public long samples;
+        public long windows;
+        public long motionWindows;
+        public int detections;
+        public int falsePositives;
+        public boolean hasOnset;
+        public long timeToDetectMs = -1; // -1 when motion was never detected after the onset
+        public long traceDurationMs;
+        public long replayNanos;
+        public boolean truncated;
+
+        Result(String name) {
+            this.name = name;
+        }
+
+        public boolean missed() {
+            return hasOnset && timeToDetectMs < 0;
+        }
+
+        // How many times faster than real time the trace was replayed
+        public double speedup() {
+            return replayNanos == 0 ? 0 : traceDurationMs * (double) NANOS_PER_MILLI / replayNanos;
+        }
+    }
+
+    public MotionReplayHarness(int sensitivityOverride, long alarmDelayMs) {
+        this.sensitivityOverride = sensitivityOverride;
+        this.alarmDelayNanos = alarmDelayMs * NANOS_PER_MILLI;
+    }
+
+    public Result replay(File traceFile) throws IOException {
+        Result result = new Result(traceFile.getName());
+        SensorTraceReader reader = new SensorTraceReader(traceFile);
+        long startNanos = System.nanoTime();
+
+        try {
+            MotionClassifier classifier = new MotionClassifier();
+            classifier.setSensitivity(sensitivityOverride >= 0 ? sensitivityOverride : reader.getSensitivity());
+
+            long firstTimestamp = -1;
+            long lastTimestamp = 0;
+            long onsetNanos = -1;
+            long pendingTriggerAt = -1;
+
+            while (reader.next()) {
+                long timestamp = reader.getTimestampNanos();
+                if (firstTimestamp < 0) firstTimestamp = timestamp;
+                lastTimestamp = timestamp;
+
+                // Fire a pending trigger once the trace clock passes it
+                if (pendingTriggerAt >= 0 && timestamp >= pendingTriggerAt) {
+                    onTrigger(result, pendingTriggerAt, onsetNanos);
+                    pendingTriggerAt = -1;
+                }
+
+                switch (reader.getType()) {
+                    case SensorTraceWriter.TYPE_MARKER:
+                        if (onsetNanos < 0) {
+                            onsetNanos = timestamp;
+                            result.hasOnset = true;
+                        }
+                        break;
+                    case SensorTraceWriter.TYPE_ACCELEROMETER:
+                        result.samples++;
+                        if (classifier.addAccelerometer(timestamp, reader.getX(), reader.getY(), reader.getZ())
+                                && classifier.isMotion() && pendingTriggerAt < 0) {
+                            pendingTriggerAt = timestamp + alarmDelayNanos;
+                        }
+                        break;
+                    case SensorTraceWriter.TYPE_GYROSCOPE:
+                        result.samples++;
+                        classifier.addGyroscope(timestamp, reader.getX(), reader.getY(), reader.getZ());
+                        break;
+                    default:
+                        break;
+                }
+            }
+
+            // A trigger still pending at the end was cancelled by disarming in the recording
+            result.windows = classifier.getWindowsClosed();
+            result.motionWindows = classifier.getMotionWindows();
+            result.traceDurationMs = firstTimestamp < 0 ? 0 : (lastTimestamp - firstTimestamp) / NANOS_PER_MILLI;
+            result.truncated = reader.isTruncated();
+        } finally {
+            reader.close();
+        }
+
+        result.replayNanos = System.nanoTime() - startNanos;
+        return result;
+    }
+
+    private static void onTrigger(Result result, long triggerNanos, long onsetNanos) {
+        result.detections++;
+        if (onsetNanos < 0 || triggerNanos < onsetNanos) {
+            result.falsePositives++;
+        } else if (result.timeToDetectMs < 0) {
+            result.timeToDetectMs = (triggerNanos - onsetNanos) / NANOS_PER_MILLI;
+        }
+    }
+
+    // Copies a trace and inserts an onset marker onsetMs after its first record
+    public static void label(File in, File out, long onsetMs) throws IOException {
+        SensorTraceReader reader = new SensorTraceReader(in);
+        SensorTraceWriter writer = null;
+
+        try {
+            writer = new SensorTraceWriter(out, reader.getStartTimeMillis(), reader.getSensitivity(), 0);
+            long markerAt = -1;
+            boolean markerWritten = false;
+
+            while (reader.next()) {
+                long timestamp = reader.getTimestampNanos();
+                if (markerAt < 0) markerAt = timestamp + onsetMs * NANOS_PER_MILLI;
+
+                // Existing markers are replaced by the new one
+                if (reader.isMarker()) continue;
+
+                if (!markerWritten && timestamp >= markerAt) {
+                    writer.writeMarker(markerAt);
+                    markerWritten = true;
+                }
+                writer.writeSample(reader.getType(), timestamp, reader.getX(), reader.getY(), reader.getZ());
+            }
+        } finally {
+            reader.close();
+            if (writer != null) writer.close();
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length == 4 && args[0].equals("label")) {
+            try {
+                label(new File(args[1]), new File(args[2]), Long.parseLong(args[3]));
+            } catch (IOException | NumberFormatException e) {
+                System.err.println("Error labelling trace: " + e.getMessage());
+                System.exit(1);
+            }
+            return;
+        }
+
+        int sensitivity = -1;
+        long alarmDelayMs = DEFAULT_ALARM_DELAY_MS;
+        List<File> traces = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--sensitivity") && i + 1 < args.length) {
+                sensitivity = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--alarm-delay-ms") && i + 1 < args.length) {
+                alarmDelayMs = Long.parseLong(args[++i]);
+            } else {
+                collectTraces(new File(args[i]), traces);
+            }
+        }
+
+        if (traces.isEmpty()) {
+            System.err.println("Usage: MotionReplayHarness [--sensitivity N] [--alarm-delay-ms N] trace-or-directory...");
+            System.err.println("       MotionReplayHarness label in.trace out.trace onsetMs");
+            System.exit(2);
+        }
+
+        MotionReplayHarness harness = new MotionReplayHarness(sensitivity, alarmDelayMs);
+        int failures = 0;
+        int totalDetections = 0;
+        int totalFalsePositives = 0;
+        int labelled = 0;
+        int missed = 0;
+        long totalTimeToDetectMs = 0;
+        int detectedOnsets = 0;
+
+        System.out.println(String.format(Locale.US, "%-32s %9s %7s %6s %5s %9s %8s",
+            "trace", "samples", "windows", "detect", "fp", "ttd(ms)", "speedup"));
+
+        for (File trace : traces) {
+            Result result;
+            try {
+                result = harness.replay(trace);
+            } catch (IOException e) {
+                System.err.println(trace.getName() + ": " + e.getMessage());
+                failures++;
+                continue;
+            }
+
+            totalDetections += result.detections;
+            totalFalsePositives += result.falsePositives;
+            if (result.hasOnset) {
+                labelled++;
+                if (result.missed()) {
+                    missed++;
+                } else {
+                    totalTimeToDetectMs += result.timeToDetectMs;
+                    detectedOnsets++;
+                }
+            }
+
+            System.out.println(String.format(Locale.US, "%-32s %9d %7d %6d %5d %9s %7.0fx%s",
+                result.name, result.samples, result.windows, result.detections, result.falsePositives,
+                result.hasOnset ? (result.missed() ? "MISSED" : String.valueOf(result.timeToDetectMs)) : "-",
+                result.speedup(), result.truncated ? " (truncated)" : ""));
+        }
+
+        System.out.println();
+        System.out.println("Traces: " + traces.size() + " (" + labelled + " labelled, " + failures + " unreadable)");
+        System.out.println("Detections: " + totalDetections + ", false positives: " + totalFalsePositives);
+        System.out.println("Missed onsets: " + missed + "/" + labelled);
+        if (detectedOnsets > 0) {
+            System.out.println("Mean time to detect: " + (totalTimeToDetectMs / detectedOnsets) + "ms");
+        }
+
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static void collectTraces(File path, List<File> traces) {
+        if (path.isDirectory()) {
+            File[] files = path.listFiles();
+            if (files == null) return;
+            Arrays.sort(files);
+            for (File file : files) {
+                if (file.isFile() && file.getName().endsWith(SensorTraceWriter.FILE_EXTENSION)) {
+                    traces.add(file);
+                }
+            }
+        } else {
+            traces.add(path);
+        }
+    }
+}
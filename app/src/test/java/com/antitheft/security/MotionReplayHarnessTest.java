@@ -0,0 +1,177 @@
+// File: app/src/test/java/com/antitheft/security/MotionReplayHarnessTest.java
+
+package com.antitheft.security;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MotionReplayHarnessTest {
+
+    private static final long SAMPLE_NANOS = MotionClassifier.DEFAULT_SAMPLE_NANOS;
+    private static final long START_NANOS = 1_000_000_000L;
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+    private static final float G = 9.81f;
+    private static final int SENSITIVITY = 50;
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("replay").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    /**
+     * Writes a synthetic 50 Hz accelerometer + gyroscope trace: a phone lying flat with
+     * sensor noise, handled (rocked about X while shaken along X) from motionStartMs for
+     * motionMs. An onset marker is written at motionStartMs when marked is set.
+     */
+    private File writeTrace(String name, long durationMs, long motionStartMs, long motionMs, boolean marked)
+            throws IOException {
+        File file = new File(directory, name + SensorTraceWriter.FILE_EXTENSION);
+        SensorTraceWriter writer = new SensorTraceWriter(file, 0, SENSITIVITY, 0);
+        Random random = new Random(name.hashCode());
+        long motionStart = START_NANOS + motionStartMs * NANOS_PER_MILLI;
+        long motionEnd = motionStart + motionMs * NANOS_PER_MILLI;
+        boolean markerWritten = false;
+
+        try {
+            for (long t = START_NANOS; t < START_NANOS + durationMs * NANOS_PER_MILLI; t += SAMPLE_NANOS) {
+                if (marked && !markerWritten && t >= motionStart) {
+                    writer.writeMarker(motionStart);
+                    markerWritten = true;
+                }
+
+                float roll = 0f;
+                float rollRate = 0f;
+                float shake = 0f;
+                if (t >= motionStart && t < motionEnd) {
+                    double seconds = (t - motionStart) * 1e-9;
+                    roll = (float) (0.6 * Math.sin(2 * Math.PI * seconds));
+                    rollRate = (float) (0.6 * 2 * Math.PI * Math.cos(2 * Math.PI * seconds));
+                    shake = (float) (5.0 * Math.sin(2 * Math.PI * 2 * seconds));
+                }
+
+                writer.writeSample(SensorTraceWriter.TYPE_GYROSCOPE, t,
+                    rollRate + noise(random, 0.002f), noise(random, 0.002f), noise(random, 0.002f));
+                writer.writeSample(SensorTraceWriter.TYPE_ACCELEROMETER, t,
+                    shake + noise(random, 0.05f),
+                    (float) (G * Math.sin(roll)) + noise(random, 0.05f),
+                    (float) (G * Math.cos(roll)) + noise(random, 0.05f));
+            }
+        } finally {
+            writer.close();
+        }
+        return file;
+    }
+
+    private static float noise(Random random, float sigma) {
+        return (float) random.nextGaussian() * sigma;
+    }
+
+    private static MotionReplayHarness harness(long alarmDelayMs) {
+        return new MotionReplayHarness(-1, alarmDelayMs);
+    }
+
+    @Test
+    public void stillTraceStaysQuiet() throws IOException {
+        MotionReplayHarness.Result result = harness(MotionReplayHarness.DEFAULT_ALARM_DELAY_MS)
+            .replay(writeTrace("still", 60_000, 0, 0, false));
+
+        assertEquals(6000, result.samples);
+        assertTrue(result.windows >= 100);
+        assertEquals(0, result.motionWindows);
+        assertEquals(0, result.detections);
+        assertEquals(0, result.falsePositives);
+        assertFalse(result.hasOnset);
+    }
+
+    @Test
+    public void handlingIsDetectedAfterTheAlarmDelay() throws IOException {
+        MotionReplayHarness.Result result = harness(MotionReplayHarness.DEFAULT_ALARM_DELAY_MS)
+            .replay(writeTrace("handled", 20_000, 10_000, 5_000, true));
+
+        assertTrue(result.hasOnset);
+        assertFalse(result.missed());
+        assertTrue(result.detections >= 1);
+        assertEquals(0, result.falsePositives);
+        // The first motion window closes within one window of the onset, then the alarm delay
+        long windowMs = MotionClassifier.DEFAULT_WINDOW_NANOS / NANOS_PER_MILLI;
+        assertTrue(result.timeToDetectMs >= MotionReplayHarness.DEFAULT_ALARM_DELAY_MS);
+        assertTrue(result.timeToDetectMs <= MotionReplayHarness.DEFAULT_ALARM_DELAY_MS + 2 * windowMs);
+    }
+
+    @Test
+    public void timeToDetectFollowsTheAlarmDelay() throws IOException {
+        File trace = writeTrace("handled", 20_000, 10_000, 5_000, true);
+
+        MotionReplayHarness.Result immediate = harness(0).replay(trace);
+        MotionReplayHarness.Result delayed = harness(3000).replay(trace);
+
+        assertEquals(immediate.timeToDetectMs + 3000, delayed.timeToDetectMs);
+        // Continued handling re-arms a trigger after each one fires
+        assertTrue(immediate.detections > delayed.detections);
+    }
+
+    @Test
+    public void motionBeforeTheOnsetCountsAsFalsePositive() throws IOException {
+        // Handling from 2s, but the marker says the theft started at 15s
+        File unlabelled = writeTrace("early", 20_000, 2_000, 4_000, false);
+        File labelled = new File(directory, "early_labelled" + SensorTraceWriter.FILE_EXTENSION);
+        MotionReplayHarness.label(unlabelled, labelled, 15_000);
+
+        MotionReplayHarness.Result result = harness(MotionReplayHarness.DEFAULT_ALARM_DELAY_MS).replay(labelled);
+
+        assertTrue(result.hasOnset);
+        assertTrue(result.missed());
+        assertTrue(result.falsePositives >= 1);
+        assertEquals(result.detections, result.falsePositives);
+    }
+
+    @Test
+    public void labelledTraceMatchesOneRecordedWithAMarker() throws IOException {
+        // label() drops the recorded marker and inserts its own at the same onset
+        File marked = writeTrace("handled", 20_000, 10_000, 5_000, true);
+        File labelled = new File(directory, "labelled" + SensorTraceWriter.FILE_EXTENSION);
+        MotionReplayHarness.label(marked, labelled, 10_000);
+
+        MotionReplayHarness harness = harness(MotionReplayHarness.DEFAULT_ALARM_DELAY_MS);
+        MotionReplayHarness.Result expected = harness.replay(marked);
+        MotionReplayHarness.Result actual = harness.replay(labelled);
+
+        assertEquals(expected.detections, actual.detections);
+        assertEquals(expected.falsePositives, actual.falsePositives);
+        assertEquals(expected.timeToDetectMs, actual.timeToDetectMs);
+    }
+
+    @Test
+    public void triggerStillPendingAtTheEndIsNotCounted() throws IOException {
+        // One second of handling right before the recording stops, i.e. disarmed in time
+        MotionReplayHarness.Result result = harness(MotionReplayHarness.DEFAULT_ALARM_DELAY_MS)
+            .replay(writeTrace("disarmed", 10_000, 9_000, 1_000, true));
+
+        assertTrue(result.motionWindows > 0);
+        assertEquals(0, result.detections);
+        assertTrue(result.missed());
+    }
+}
@@ -0,0 +1,114 @@
+// File: app/src/test/java/com/antitheft/security/PreTriggerClipWriterTest.java
+
+package com.antitheft.security;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class PreTriggerClipWriterTest {
+
+    private static final long FRAME_US = 66_666L;
+    private static final long ENCODER_START_US = 5_000_000_000L; // encoder timestamps do not start at zero
+
+    private final List<Long> writtenPts = new ArrayList<>();
+    private final List<Byte> writtenTags = new ArrayList<>();
+    private PreTriggerClipWriter writer;
+    private EncodedFrameRing ring;
+
+    @Before
+    public void setUp() {
+        writtenPts.clear();
+        writtenTags.clear();
+        writer = new PreTriggerClipWriter((data, offset, size, ptsUs, keyFrame) -> {
+            writtenPts.add(ptsUs);
+            writtenTags.add(data[offset]);
+        });
+        ring = new EncodedFrameRing(10000, 64);
+    }
+
+    private static long pts(int frame) {
+        return ENCODER_START_US + frame * FRAME_US;
+    }
+
+    private static byte[] frame(int tag) {
+        return new byte[] {(byte) tag, 0, 0, 0};
+    }
+
+    private void buffer(int frames, int keyInterval) {
+        for (int i = 0; i < frames; i++) {
+            ring.add(frame(i), 0, 4, pts(i), i % keyInterval == 0);
+        }
+    }
+
+    private boolean live(int frame, boolean keyFrame) throws IOException {
+        return writer.writeLive(frame(frame), 0, 4, pts(frame), keyFrame);
+    }
+
+    private void assertStrictlyIncreasing() {
+        for (int i = 1; i < writtenPts.size(); i++) {
+            assertTrue(writtenPts.get(i) > writtenPts.get(i - 1));
+        }
+    }
+
+    @Test
+    public void clipIsRebasedToStartAtZero() throws IOException {
+        buffer(20, 5);
+
+        // 6 frames back from frame 19 is frame 13, covered from the keyframe at 10
+        assertEquals(10, writer.writePreTrigger(ring, 6 * FRAME_US));
+        assertEquals(0L, (long) writtenPts.get(0));
+        assertEquals(9 * FRAME_US, (long) writtenPts.get(writtenPts.size() - 1));
+        assertEquals(10, (int) writtenTags.get(0));
+
+        // Live frames continue the same timeline
+        assertTrue(live(20, false));
+        assertEquals(10 * FRAME_US, (long) writtenPts.get(writtenPts.size() - 1));
+        assertEquals(10 * FRAME_US, writer.getDurationUs());
+    }
+
+    @Test
+    public void frameAlreadyTakenFromTheRingIsNotWrittenTwice() throws IOException {
+        buffer(10, 5);
+        writer.writePreTrigger(ring, 10 * FRAME_US);
+        int written = writtenPts.size();
+
+        // The trigger raced the encoder: frame 9 reaches the live path after it was buffered
+        assertFalse(live(9, false));
+        assertEquals(written, writtenPts.size());
+
+        assertTrue(live(10, true));
+        assertEquals(written + 1, writtenPts.size());
+        assertEquals(1, writer.getLiveFrames());
+        assertStrictlyIncreasing();
+    }
+
+    @Test
+    public void equalSourceTimestampsStayStrictlyIncreasing() throws IOException {
+        ring.add(frame(0), 0, 4, pts(0), true);
+        ring.add(frame(1), 0, 4, pts(0), false); // same timestamp from the encoder
+        ring.add(frame(2), 0, 4, pts(1), false);
+
+        assertEquals(3, writer.writePreTrigger(ring, 10 * FRAME_US));
+        assertEquals(3, writtenPts.size());
+        assertStrictlyIncreasing();
+    }
+
+    @Test
+    public void withNothingBufferedLiveStartsOnAKeyframe() throws IOException {
+        assertEquals(0, writer.writePreTrigger(ring, FRAME_US));
+
+        assertFalse(live(0, false));
+        assertTrue(live(1, true));
+        assertTrue(live(2, false));
+        assertEquals(0L, (long) writtenPts.get(0));
+        assertEquals(FRAME_US, (long) writtenPts.get(1));
+    }
+}
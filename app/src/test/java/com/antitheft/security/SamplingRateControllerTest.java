@@ -0,0 +1,136 @@
+// File: app/src/test/java/com/antitheft/security/SamplingRateControllerTest.java
+
+package com.antitheft.security;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class SamplingRateControllerTest {
+
+    private static final long WINDOW_MS = 500;
+    private static final long START_MS = 1_000_000;
+    private static final float STILL = 0.05f;
+    private static final float BETWEEN = 0.3f;
+    private static final float CANDIDATE = 0.8f;
+
+    private SamplingRateController controller;
+    private long now;
+
+    @Before
+    public void setUp() {
+        controller = new SamplingRateController();
+        now = START_MS;
+        controller.start(SamplingRateController.Rate.NORMAL, now);
+    }
+
+    private SamplingRateController.Rate window(float score) {
+        now += WINDOW_MS;
+        return controller.onWindow(score, now);
+    }
+
+    // Feeds windows of one score for durationMs; returns the last change, or null if none
+    private SamplingRateController.Rate windowsFor(float score, long durationMs) {
+        SamplingRateController.Rate changed = null;
+        for (long elapsed = 0; elapsed < durationMs; elapsed += WINDOW_MS) {
+            SamplingRateController.Rate rate = window(score);
+            if (rate != null) changed = rate;
+        }
+        return changed;
+    }
+
+    @Test
+    public void candidateGoesFastImmediately() {
+        assertSame(SamplingRateController.Rate.FAST, window(CANDIDATE));
+        assertSame(SamplingRateController.Rate.FAST, controller.getRate());
+        // Already fast; no further change
+        assertNull(window(CANDIDATE));
+        assertEquals(1, controller.getChangeCount());
+    }
+
+    @Test
+    public void candidateIsNotHeldBackByTheDwellTime() {
+        controller.start(SamplingRateController.Rate.SLOW, now);
+
+        assertSame(SamplingRateController.Rate.FAST, window(SamplingRateController.CANDIDATE_SCORE));
+    }
+
+    @Test
+    public void fastStepsDownAfterItsStillnessPeriod() {
+        window(CANDIDATE);
+
+        // The stillness period counts from the first still window
+        assertNull(windowsFor(STILL, SamplingRateController.FAST_STILLNESS_MS));
+        assertSame(SamplingRateController.Rate.NORMAL, window(STILL));
+    }
+
+    @Test
+    public void normalStepsDownToSlowAfterAMinute() {
+        assertNull(windowsFor(STILL, SamplingRateController.NORMAL_STILLNESS_MS));
+        assertSame(SamplingRateController.Rate.SLOW, window(STILL));
+        // Nothing below slow
+        assertNull(windowsFor(STILL, 5 * SamplingRateController.NORMAL_STILLNESS_MS));
+    }
+
+    @Test
+    public void eachStepDownNeedsItsOwnStillnessPeriod() {
+        window(CANDIDATE);
+        assertSame(SamplingRateController.Rate.NORMAL,
+            windowsFor(STILL, SamplingRateController.FAST_STILLNESS_MS + WINDOW_MS));
+
+        // The ten still seconds at FAST do not count towards leaving NORMAL
+        assertNull(windowsFor(STILL, SamplingRateController.NORMAL_STILLNESS_MS));
+        assertSame(SamplingRateController.Rate.SLOW, window(STILL));
+    }
+
+    @Test
+    public void scoreBetweenTheLevelsRestartsStillness() {
+        window(CANDIDATE);
+        windowsFor(STILL, SamplingRateController.FAST_STILLNESS_MS - WINDOW_MS);
+
+        assertNull(window(BETWEEN));
+        // A full period is needed again, and a middling score never ramps up
+        assertNull(windowsFor(STILL, SamplingRateController.FAST_STILLNESS_MS));
+        assertSame(SamplingRateController.Rate.NORMAL, window(STILL));
+        assertEquals(2, controller.getChangeCount());
+    }
+
+    @Test
+    public void timeInRateIncludesTheCurrentRate() {
+        now += 3000;
+        controller.onWindow(CANDIDATE, now); // 3 s at NORMAL
+        now += 2000;
+
+        assertEquals(3000, controller.getTimeInRateMs(SamplingRateController.Rate.NORMAL, now));
+        assertEquals(2000, controller.getTimeInRateMs(SamplingRateController.Rate.FAST, now));
+        assertEquals(0, controller.getTimeInRateMs(SamplingRateController.Rate.SLOW, now));
+    }
+
+    @Test
+    public void historyKeepsTheLatestChangesOldestFirst() {
+        // start() plus 40 changes into a 32-entry ring
+        for (int i = 0; i < 20; i++) {
+            window(CANDIDATE);
+            windowsFor(STILL, SamplingRateController.FAST_STILLNESS_MS + WINDOW_MS);
+        }
+        assertEquals(40, controller.getChangeCount());
+
+        StringBuilder history = new StringBuilder();
+        controller.appendHistory(history);
+        String[] lines = history.toString().split("\n");
+        assertEquals(32, lines.length);
+        assertEquals("FAST", lines[0].trim().split(" ")[1]);
+        assertEquals("NORMAL", lines[31].trim().split(" ")[1]);
+
+        long previous = 0;
+        for (String line : lines) {
+            long time = Long.parseLong(line.trim().split(" ")[0]);
+            assertTrue(time > previous);
+            previous = time;
+        }
+    }
+}
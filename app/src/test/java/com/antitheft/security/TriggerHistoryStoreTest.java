@@ -0,0 +1,202 @@
+// File: app/src/test/java/com/antitheft/security/TriggerHistoryStoreTest.java
+
+package com.antitheft.security;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TriggerHistoryStoreTest {
+
+    private static final long HOUR_MS = 60L * 60 * 1000;
+    private static final long DAY_MS = 24 * HOUR_MS;
+    // Local midnight of epoch day 20000 in UTC+2
+    private static final TimeZone ZONE = TimeZone.getTimeZone("GMT+02:00");
+    private static final long DAY_START = 20000 * DAY_MS - 2 * HOUR_MS;
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("history").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    private TriggerHistoryStore open(int retentionDays) {
+        return new TriggerHistoryStore(directory, retentionDays, ZONE);
+    }
+
+    private int bucketCount() {
+        File[] files = directory.listFiles();
+        return files != null ? files.length : 0;
+    }
+
+    private static TriggerHistoryStore.TriggerEvent event(long timestamp, String type) {
+        return new TriggerHistoryStore.TriggerEvent(timestamp, type, "details " + timestamp);
+    }
+
+    @Test
+    public void countsFollowLocalDays() throws IOException {
+        TriggerHistoryStore store = open(30);
+        // 23:30 and 00:30 local are on different days, although both are the same UTC day
+        store.record(DAY_START - 30 * 60 * 1000, "Motion", "a");
+        store.record(DAY_START + 30 * 60 * 1000, "Motion", "b");
+        store.record(DAY_START + 12 * HOUR_MS, "PIN", "c");
+
+        long now = DAY_START + 13 * HOUR_MS;
+        assertEquals(2, store.countForDays(now, 1));
+        assertEquals(3, store.countForDays(now, 2));
+        assertEquals(2, bucketCount());
+
+        Map<String, Integer> byType = store.countByTypeForDays(now, 2);
+        assertEquals(Integer.valueOf(2), byType.get("Motion"));
+        assertEquals(Integer.valueOf(1), byType.get("PIN"));
+    }
+
+    @Test
+    public void dayRolloverDeletesExpiredBuckets() throws IOException {
+        TriggerHistoryStore store = open(3);
+        for (int day = 0; day < 3; day++) {
+            store.record(DAY_START + day * DAY_MS + HOUR_MS, "Motion", "day " + day);
+        }
+        assertEquals(3, bucketCount());
+        assertEquals(3, store.getRetainedCount());
+
+        // The first query on day 3 drops day 0, bucket file included
+        long dayThree = DAY_START + 3 * DAY_MS + HOUR_MS;
+        assertEquals(2, store.countForDays(dayThree, 3));
+        assertEquals(2, bucketCount());
+        assertEquals(2, store.getRetainedCount());
+        assertEquals("day 1", store.getRecent(10).get(1).details);
+        assertEquals(2, store.getRecent(10).size());
+    }
+
+    @Test
+    public void recordOlderThanTheWindowIsDropped() throws IOException {
+        TriggerHistoryStore store = open(3);
+        store.record(DAY_START + 5 * DAY_MS, "Motion", "today");
+        store.record(DAY_START + HOUR_MS, "Motion", "too old");
+
+        assertEquals(1, store.getRetainedCount());
+        assertEquals(1, bucketCount());
+    }
+
+    @Test
+    public void reopenedStoreLoadsTheRetainedBuckets() throws IOException {
+        TriggerHistoryStore store = open(30);
+        store.record(DAY_START + HOUR_MS, "Motion", "first");
+        store.record(DAY_START + DAY_MS + HOUR_MS, "Device\tLocked", "second\nline");
+
+        TriggerHistoryStore reopened = open(30);
+        assertEquals(2, reopened.getRetainedCount());
+        List<TriggerHistoryStore.TriggerEvent> recent = reopened.getRecent(10);
+        assertEquals("Device Locked", recent.get(0).type);
+        assertEquals("second line", recent.get(0).details);
+        assertEquals("first", recent.get(1).details);
+    }
+
+    @Test
+    public void tornLastLineIsSkippedOnLoad() throws IOException {
+        TriggerHistoryStore store = open(30);
+        store.record(DAY_START + HOUR_MS, "Motion", "complete");
+        File bucket = directory.listFiles()[0];
+        try (FileOutputStream out = new FileOutputStream(bucket, true)) {
+            out.write(String.valueOf(DAY_START + 2 * HOUR_MS).getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertEquals(1, open(30).getRetainedCount());
+    }
+
+    @Test
+    public void recentKeepsTheNewestFifty() throws IOException {
+        TriggerHistoryStore store = open(30);
+        for (int i = 0; i < 60; i++) {
+            store.record(DAY_START + i * 1000, "Motion", "event " + i);
+        }
+
+        List<TriggerHistoryStore.TriggerEvent> recent = store.getRecent(100);
+        assertEquals(50, recent.size());
+        assertEquals("event 59", recent.get(0).details);
+        assertEquals("event 10", recent.get(49).details);
+        assertEquals(60, store.getRetainedCount());
+    }
+
+    @Test
+    public void importSpreadsEventsOverTheirDays() throws IOException {
+        TriggerHistoryStore store = open(30);
+        store.record(DAY_START + 2 * DAY_MS, "Motion", "live");
+
+        List<TriggerHistoryStore.TriggerEvent> legacy = new ArrayList<>();
+        legacy.add(event(DAY_START + DAY_MS + HOUR_MS, "PIN"));
+        legacy.add(event(DAY_START + HOUR_MS, "Motion"));
+        legacy.add(event(DAY_START - 40 * DAY_MS, "Motion")); // past retention
+
+        assertEquals(2, store.importEvents(legacy, DAY_START + 2 * DAY_MS + HOUR_MS));
+        assertEquals(3, store.getRetainedCount());
+        assertEquals(3, bucketCount());
+        // Back-dated events sort behind the live one
+        assertEquals("live", store.getRecent(1).get(0).details);
+        assertEquals(3, open(30).getRetainedCount());
+    }
+
+    @Test
+    public void importCanBeRepeatedAfterAPartialRun() throws IOException {
+        List<TriggerHistoryStore.TriggerEvent> legacy = new ArrayList<>();
+        for (int day = 0; day < 4; day++) {
+            legacy.add(event(DAY_START + day * DAY_MS + HOUR_MS, "Motion"));
+            legacy.add(event(DAY_START + day * DAY_MS + 2 * HOUR_MS, "PIN"));
+        }
+        long now = DAY_START + 4 * DAY_MS;
+
+        // A run that stopped after the first two days
+        open(30).importEvents(legacy.subList(0, 4), now);
+        // A leftover temporary file from the interrupted day is ignored and removed
+        new File(directory, "day_20002.log.tmp").createNewFile();
+
+        TriggerHistoryStore store = open(30);
+        assertFalse(new File(directory, "day_20002.log.tmp").exists());
+        assertEquals(4, store.importEvents(legacy, now));
+        assertEquals(8, store.getRetainedCount());
+
+        // And once more after it completed
+        assertEquals(0, store.importEvents(legacy, now));
+        assertEquals(8, open(30).getRetainedCount());
+    }
+
+    @Test
+    public void clearDeletesEveryBucket() throws IOException {
+        TriggerHistoryStore store = open(30);
+        store.record(DAY_START + HOUR_MS, "Motion", "a");
+        store.record(DAY_START + DAY_MS + HOUR_MS, "Motion", "b");
+
+        store.clear();
+
+        assertEquals(0, store.getRetainedCount());
+        assertTrue(store.getRecent(10).isEmpty());
+        assertEquals(0, bucketCount());
+    }
+}
@@ -0,0 +1,169 @@
+// File: app/src/test/java/com/antitheft/security/UnlockAttemptLogTest.java
+
+package com.antitheft.security;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class UnlockAttemptLogTest {
+
+    private File directory;
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("attempts").toFile();
+        file = new File(directory, "unlock_attempts.bin");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+        directory.delete();
+    }
+
+    // Oldest first, as "timestamp:attempt"
+    private static List<String> readLast(UnlockAttemptLog log, int count) throws IOException {
+        List<String> records = new ArrayList<>();
+        log.readLast(count, (timestamp, attemptNumber) -> records.add(timestamp + ":" + attemptNumber));
+        return records;
+    }
+
+    private static List<String> records(String... records) {
+        List<String> list = new ArrayList<>();
+        for (String record : records) {
+            list.add(record);
+        }
+        return list;
+    }
+
+    @Test
+    public void emptyLogReadsNothing() throws IOException {
+        UnlockAttemptLog log = new UnlockAttemptLog(file, 4);
+
+        assertEquals(0, log.size());
+        assertEquals(0, log.readLast(10, (timestamp, attemptNumber) -> { }));
+    }
+
+    @Test
+    public void readLastReturnsTheNewestOldestFirst() throws IOException {
+        UnlockAttemptLog log = new UnlockAttemptLog(file, 4);
+        log.append(100, 1);
+        log.append(200, 2);
+        log.append(300, 3);
+
+        assertEquals(records("200:2", "300:3"), readLast(log, 2));
+        assertEquals(records("100:1", "200:2", "300:3"), readLast(log, 10));
+    }
+
+    @Test
+    public void ringWrapOverwritesTheOldest() throws IOException {
+        UnlockAttemptLog log = new UnlockAttemptLog(file, 3);
+        for (int i = 1; i <= 7; i++) {
+            log.append(i * 100, i);
+        }
+
+        assertEquals(3, log.size());
+        assertEquals(records("500:5", "600:6", "700:7"), readLast(log, 10));
+        // The file never grows past the ring
+        assertEquals(16 + 3 * 12, file.length());
+    }
+
+    @Test
+    public void reopenedLogContinuesWhereItStopped() throws IOException {
+        UnlockAttemptLog log = new UnlockAttemptLog(file, 3);
+        log.append(100, 1);
+        log.append(200, 2);
+        log.append(300, 3);
+        log.append(400, 4);
+
+        UnlockAttemptLog reopened = new UnlockAttemptLog(file, 3);
+        assertEquals(3, reopened.size());
+        reopened.append(500, 5);
+
+        assertEquals(records("300:3", "400:4", "500:5"), readLast(reopened, 10));
+    }
+
+    @Test
+    public void differentCapacityStartsOver() throws IOException {
+        UnlockAttemptLog log = new UnlockAttemptLog(file, 3);
+        log.append(100, 1);
+        log.append(200, 2);
+
+        UnlockAttemptLog resized = new UnlockAttemptLog(file, 5);
+        assertEquals(0, resized.size());
+        resized.append(300, 3);
+
+        assertEquals(records("300:3"), readLast(resized, 10));
+    }
+
+    @Test
+    public void slotWithoutItsHeaderUpdateIsNotCounted() throws IOException {
+        UnlockAttemptLog log = new UnlockAttemptLog(file, 4);
+        log.append(100, 1);
+        log.append(200, 2);
+        // Cut the second slot short, as if the write was interrupted
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(16 + 12 + 5);
+        }
+
+        UnlockAttemptLog reopened = new UnlockAttemptLog(file, 4);
+        assertEquals(1, reopened.size());
+        assertEquals(records("100:1"), readLast(reopened, 10));
+    }
+
+    @Test
+    public void clearDeletesTheFile() throws IOException {
+        UnlockAttemptLog log = new UnlockAttemptLog(file, 4);
+        log.append(100, 1);
+        log.clear();
+
+        assertEquals(0, log.size());
+        assertTrue(!file.exists());
+        log.append(200, 2);
+        assertEquals(records("200:2"), readLast(log, 10));
+    }
+
+    @Test
+    public void parseLegacyKeepsOrderAndSkipsMalformedEntries() {
+        List<long[]> records = UnlockAttemptLog.parseLegacy("100:1,junk,200:x,:3,300:2");
+
+        assertEquals(2, records.size());
+        assertArrayEquals(new long[] {100, 1}, records.get(0));
+        assertArrayEquals(new long[] {300, 2}, records.get(1));
+        assertTrue(UnlockAttemptLog.parseLegacy(null).isEmpty());
+        assertTrue(UnlockAttemptLog.parseLegacy("").isEmpty());
+    }
+
+    @Test
+    public void legacyRecordsMigrateIntoTheRing() throws IOException {
+        // 60 legacy attempts into a 50-slot ring keep the newest 50
+        StringBuilder legacy = new StringBuilder();
+        for (int i = 1; i <= 60; i++) {
+            if (legacy.length() > 0) legacy.append(',');
+            legacy.append(i * 1000L).append(':').append(i);
+        }
+
+        UnlockAttemptLog log = new UnlockAttemptLog(file, 50);
+        for (long[] record : UnlockAttemptLog.parseLegacy(legacy.toString())) {
+            log.append(record[0], (int) record[1]);
+        }
+
+        assertEquals(50, log.size());
+        List<String> last = readLast(log, 2);
+        assertEquals(records("59000:59", "60000:60"), last);
+        assertEquals("11000:11", readLast(log, 50).get(0));
+    }
+}
@@ -0,0 +1,257 @@
+// File Path: app/src/test/java/com/antitheft/security/utils/EvidenceEventLogTest.java
+package com.antitheft.security.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class EvidenceEventLogTest {
+
+    private static final int SEGMENT_BYTES = 256;
+
+    private File directory;
+    private SecretKey key;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("eventlog").toFile();
+        byte[] keyBytes = new byte[32];
+        for (int i = 0; i < keyBytes.length; i++) {
+            keyBytes[i] = (byte) i;
+        }
+        key = new SecretKeySpec(keyBytes, "AES");
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    private EvidenceEventLog open(String name, int maxSegments, SecretKey key) throws IOException {
+        return new EvidenceEventLog(directory, name, SEGMENT_BYTES, maxSegments, key);
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> readAll(EvidenceEventLog log) throws IOException {
+        List<String> records = new ArrayList<>();
+        log.read(payload -> records.add(new String(payload, StandardCharsets.UTF_8)));
+        return records;
+    }
+
+    private File segment(String name, long sequence) {
+        return new File(directory, String.format("%s_%08d.seg", name, sequence));
+    }
+
+    @Test
+    public void recordsReadBackInOrder() throws IOException {
+        EvidenceEventLog log = open("location", 4, key);
+        log.append(bytes("one"));
+        log.append(bytes("two"));
+        log.append(bytes("three"));
+
+        List<String> records = readAll(log);
+        assertEquals(3, records.size());
+        assertEquals("one", records.get(0));
+        assertEquals("three", records.get(2));
+        assertEquals(0, log.getCorruptRecordCount());
+        log.close();
+    }
+
+    @Test
+    public void encryptedRecordsDoNotContainThePayload() throws IOException {
+        EvidenceEventLog log = open("location", 4, key);
+        log.append(bytes("48.8584,2.2945"));
+        log.close();
+
+        String raw = new String(Files.readAllBytes(segment("location", 1).toPath()), StandardCharsets.ISO_8859_1);
+        assertFalse(raw.contains("48.8584"));
+        assertEquals("48.8584,2.2945", readAll(open("location", 4, key)).get(0));
+    }
+
+    @Test
+    public void plainAndEncryptedRecordsMix() throws IOException {
+        EvidenceEventLog log = open("location", 4, key);
+        log.append(bytes("sealed"));
+        log.setEncryptAppends(false);
+        log.append(bytes("plain"));
+        log.close();
+
+        String raw = new String(Files.readAllBytes(segment("location", 1).toPath()), StandardCharsets.ISO_8859_1);
+        assertTrue(raw.contains("plain"));
+        List<String> records = readAll(open("location", 4, key));
+        assertEquals("sealed", records.get(0));
+        assertEquals("plain", records.get(1));
+    }
+
+    @Test
+    public void tornTailIsTruncatedOnOpen() throws IOException {
+        EvidenceEventLog log = open("location", 4, key);
+        log.append(bytes("kept"));
+        log.close();
+        long intact = segment("location", 1).length();
+
+        // A record whose body never made it to the file
+        try (RandomAccessFile raf = new RandomAccessFile(segment("location", 1), "rw")) {
+            raf.seek(intact);
+            raf.writeInt(100);
+            raf.writeByte(1);
+            raf.write(new byte[7]);
+        }
+
+        EvidenceEventLog reopened = open("location", 4, key);
+        assertEquals(intact, segment("location", 1).length());
+        reopened.append(bytes("after"));
+
+        List<String> records = readAll(reopened);
+        assertEquals(2, records.size());
+        assertEquals("kept", records.get(0));
+        assertEquals("after", records.get(1));
+        assertEquals(0, reopened.getCorruptRecordCount());
+        reopened.close();
+    }
+
+    @Test
+    public void fullSegmentsRollAndTheOldestAreDropped() throws IOException {
+        EvidenceEventLog log = open("location", 3, key);
+        byte[] payload = new byte[60]; // 93 bytes per record once sealed: two per segment
+        for (int i = 0; i < 10; i++) {
+            payload[0] = (byte) i;
+            log.append(payload);
+        }
+
+        assertEquals(3, log.getSegmentCount());
+        assertFalse(segment("location", 1).exists());
+        assertTrue(segment("location", 5).exists());
+
+        List<Integer> firstBytes = new ArrayList<>();
+        log.read(record -> firstBytes.add((int) record[0]));
+        assertEquals(6, firstBytes.size());
+        assertEquals(Integer.valueOf(4), firstBytes.get(0));
+        assertEquals(Integer.valueOf(9), firstBytes.get(5));
+        log.close();
+    }
+
+    @Test
+    public void reopenedLogAppendsToTheLastSegment() throws IOException {
+        EvidenceEventLog log = open("location", 3, key);
+        for (int i = 0; i < 3; i++) {
+            log.append(new byte[60]);
+        }
+        log.close();
+
+        EvidenceEventLog reopened = open("location", 3, key);
+        reopened.append(new byte[60]);
+        assertEquals(2, reopened.getSegmentCount());
+        assertEquals(4, readAll(reopened).size());
+        reopened.close();
+    }
+
+    @Test
+    public void tamperedRecordIsRejected() throws IOException {
+        EvidenceEventLog log = open("location", 4, key);
+        log.append(bytes("first"));
+        log.append(bytes("second"));
+        log.close();
+
+        // Flip one ciphertext byte of the first record (after its header and nonce)
+        try (RandomAccessFile raf = new RandomAccessFile(segment("location", 1), "rw")) {
+            raf.seek(5 + 12);
+            int value = raf.read();
+            raf.seek(5 + 12);
+            raf.write(value ^ 0x01);
+        }
+
+        EvidenceEventLog reopened = open("location", 4, key);
+        List<String> records = readAll(reopened);
+        assertEquals(1, records.size());
+        assertEquals("second", records.get(0));
+        assertEquals(1, reopened.getCorruptRecordCount());
+    }
+
+    @Test
+    public void recordMovedToAnotherLogIsRejected() throws IOException {
+        EvidenceEventLog location = open("location", 4, key);
+        location.append(bytes("moved"));
+        location.close();
+
+        // The log name is authenticated, so a copied segment does not verify
+        Files.copy(segment("location", 1).toPath(), segment("network", 1).toPath());
+        EvidenceEventLog network = open("network", 4, key);
+
+        assertTrue(readAll(network).isEmpty());
+        assertEquals(1, network.getCorruptRecordCount());
+    }
+
+    @Test
+    public void wrongKeyRejectsEveryEncryptedRecord() throws IOException {
+        EvidenceEventLog log = open("location", 4, key);
+        log.append(bytes("first"));
+        log.append(bytes("second"));
+        log.close();
+
+        EvidenceEventLog other = open("location", 4, new SecretKeySpec(new byte[32], "AES"));
+        assertTrue(readAll(other).isEmpty());
+        assertEquals(2, other.getCorruptRecordCount());
+
+        EvidenceEventLog noKey = open("location", 4, null);
+        assertTrue(readAll(noKey).isEmpty());
+        assertEquals(2, noKey.getCorruptRecordCount());
+    }
+
+    @Test
+    public void visitorCanStopEarly() throws IOException {
+        EvidenceEventLog log = open("location", 4, key);
+        log.append(bytes("one"));
+        log.append(bytes("two"));
+
+        List<byte[]> seen = new ArrayList<>();
+        log.read(payload -> {
+            seen.add(payload);
+            return false;
+        });
+
+        assertEquals(1, seen.size());
+        assertArrayEquals(bytes("one"), seen.get(0));
+        log.close();
+    }
+
+    @Test
+    public void clearDeletesSegmentsAndKeepsTheLogUsable() throws IOException {
+        EvidenceEventLog log = open("location", 4, key);
+        for (int i = 0; i < 5; i++) {
+            log.append(new byte[60]);
+        }
+        log.clear();
+
+        assertEquals(0, log.getSegmentCount());
+        log.append(bytes("fresh"));
+        assertEquals(1, log.getSegmentCount());
+        assertEquals("fresh", readAll(log).get(0));
+        log.close();
+    }
+}